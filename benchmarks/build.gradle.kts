@@ -0,0 +1,98 @@
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+
+// JMH benchmarks of the library hot paths, run against the JVM build in :trackinglibrary-jvm.
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    implementation(project(":trackinglibrary-jvm"))
+    implementation("com.squareup.retrofit2:retrofit:2.9.0")
+    implementation("com.squareup.retrofit2:converter-gson:2.9.0")
+    implementation("com.squareup.okhttp3:okhttp:3.14.9")
+    implementation("com.google.code.gson:gson:2.10.1")
+    implementation(libs.androidx.annotation)
+
+    jmhImplementation("com.squareup.retrofit2:retrofit-mock:2.9.0")
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    timeUnit.set("s")
+    benchmarkMode.set(listOf("thrpt"))
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+}
+
+val sdkVersion = property("sdkVersion") as String
+val baselineFile = layout.projectDirectory.file(
+    "baselines/" + (findProperty("baselineVersion") ?: sdkVersion) + ".json"
+)
+val jmhResults = layout.buildDirectory.file("results/jmh/results.json")
+
+/**
+ * Reads the primary score and the normalized allocation rate of every benchmark in a JMH JSON result file.
+ */
+fun readScores(file: File): Map<String, Pair<Double, Double?>> {
+    @Suppress("UNCHECKED_CAST")
+    val runs = JsonSlurper().parse(file) as List<Map<String, Any?>>
+    return runs.associate { run ->
+        val primary = run["primaryMetric"] as Map<*, *>
+        val secondary = run["secondaryMetrics"] as? Map<*, *>
+        val alloc = (secondary?.get("gc.alloc.rate.norm") as? Map<*, *>)?.get("score") as? Number
+        run["benchmark"] as String to Pair((primary["score"] as Number).toDouble(), alloc?.toDouble())
+    }
+}
+
+tasks.register("jmhSaveBaseline") {
+    group = "benchmark"
+    description = "Stores the last JMH results as the baseline of this SDK version, or of -PbaselineVersion."
+    doLast {
+        val results = jmhResults.get().asFile
+        check(results.exists()) { "No JMH results, run :benchmarks:jmh first" }
+        results.copyTo(baselineFile.asFile, overwrite = true)
+        logger.lifecycle("Saved baseline ${baselineFile.asFile.name}")
+    }
+}
+
+tasks.register("jmhCompareBaseline") {
+    group = "benchmark"
+    description = "Compares the last JMH results with a baseline and fails on throughput regressions " +
+            "larger than -PmaxRegression percent (default 10)."
+    doLast {
+        val results = jmhResults.get().asFile
+        val baseline = baselineFile.asFile
+        check(results.exists()) { "No JMH results, run :benchmarks:jmh first" }
+        check(baseline.exists()) { "No baseline ${baseline.name}, run :benchmarks:jmhSaveBaseline on that release" }
+        val maxRegression = (findProperty("maxRegression") as String?)?.toDouble() ?: 10.0
+        val current = readScores(results)
+        val previous = readScores(baseline)
+        val regressions = mutableListOf<String>()
+        val rows = mutableListOf<Map<String, Any?>>()
+        for ((name, scores) in current.toSortedMap()) {
+            val before = previous[name] ?: continue
+            val change = (scores.first - before.first) / before.first * 100
+            logger.lifecycle(String.format("%-80s %12.1f -> %12.1f ops/s (%+6.1f%%), alloc %s -> %s B/op",
+                name, before.first, scores.first, change, before.second?.toLong(), scores.second?.toLong()))
+            rows.add(mapOf("benchmark" to name, "baseline" to before.first, "score" to scores.first,
+                "changePercent" to change, "baselineAllocBytes" to before.second, "allocBytes" to scores.second))
+            if (change < -maxRegression) {
+                regressions.add(name)
+            }
+        }
+        layout.buildDirectory.file("results/jmh/comparison.json").get().asFile
+            .writeText(JsonOutput.prettyPrint(JsonOutput.toJson(rows)))
+        check(regressions.isEmpty()) { "Throughput regressed more than $maxRegression%: $regressions" }
+    }
+}
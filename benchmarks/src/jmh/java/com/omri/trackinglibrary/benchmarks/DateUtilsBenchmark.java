@@ -0,0 +1,58 @@
+package com.omri.trackinglibrary.benchmarks;
+
+import com.omri.trackinglibrary.utils.DateUtils;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks formatting and parsing of the timestamps sent to and received from the server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DateUtilsBenchmark {
+    private long timestamp;
+    private String isoDate;
+    private String httpDate;
+
+    /**
+     * Creates the timestamps.
+     */
+    @Setup
+    public void setUp() {
+        timestamp = 1_704_542_400_000L;
+        isoDate = DateUtils.formatMongoDate(timestamp);
+        httpDate = DateUtils.formatHttpDate(timestamp);
+    }
+
+    @Benchmark
+    public String formatMongoDate() {
+        return DateUtils.formatMongoDate(timestamp);
+    }
+
+    @Benchmark
+    public String currentISODate() {
+        return DateUtils.getCurrentISODate();
+    }
+
+    @Benchmark
+    public long parseISODate() {
+        return DateUtils.parseISODate(isoDate);
+    }
+
+    @Benchmark
+    public String formatHttpDate() {
+        return DateUtils.formatHttpDate(timestamp);
+    }
+
+    @Benchmark
+    public long parseHttpDate() {
+        return DateUtils.parseHttpDate(httpDate);
+    }
+}
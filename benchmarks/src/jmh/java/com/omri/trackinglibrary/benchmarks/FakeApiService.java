@@ -0,0 +1,77 @@
+package com.omri.trackinglibrary.benchmarks;
+
+import com.omri.trackinglibrary.api.ApiService;
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.api.UserLocationsRequest;
+import com.omri.trackinglibrary.api.UserRequest;
+import com.omri.trackinglibrary.api.UserStatusRequest;
+import com.omri.trackinglibrary.api.UserVerifyRequest;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.models.User;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import okhttp3.RequestBody;
+import retrofit2.Call;
+import retrofit2.mock.Calls;
+
+/**
+ * In-process ApiService that answers location updates immediately on the calling thread,
+ * so benchmarks measure the SDK rather than the network.
+ */
+class FakeApiService implements ApiService {
+    private static final String LAST_UPDATED = "2024-01-06T12:00:00.000Z";
+
+    @Override
+    public Call<User> createUser(UserRequest request) {
+        return Calls.failure(new IOException("Not supported"));
+    }
+
+    @Override
+    public Call<User> verifyUser(UserVerifyRequest request) {
+        return Calls.failure(new IOException("Not supported"));
+    }
+
+    @Override
+    public Call<User> updateUserStatus(String userId, UserStatusRequest request) {
+        return Calls.failure(new IOException("Not supported"));
+    }
+
+    @Override
+    public Call<Location> updateLocation(LocationUpdateRequest request) {
+        return Calls.response(echo(request));
+    }
+
+    @Override
+    public Call<List<Location>> updateLocations(List<LocationUpdateRequest> requests) {
+        List<Location> locations = new ArrayList<>(requests.size());
+        for (LocationUpdateRequest request : requests) {
+            locations.add(echo(request));
+        }
+        return Calls.response(locations);
+    }
+
+    @Override
+    public Call<List<Location>> updateLocationsEncoded(RequestBody body) {
+        return Calls.failure(new IOException("Not supported"));
+    }
+
+    @Override
+    public Call<Location> getUserLocation(String userId) {
+        return Calls.failure(new IOException("Not supported"));
+    }
+
+    @Override
+    public Call<Location> getUserLocation(String userId, String ifNoneMatch, String ifModifiedSince) {
+        return Calls.failure(new IOException("Not supported"));
+    }
+
+    @Override
+    public Call<List<Location>> getUserLocations(UserLocationsRequest request) {
+        return Calls.failure(new IOException("Not supported"));
+    }
+
+    private static Location echo(LocationUpdateRequest request) {
+        return new Location(request.getUserId(), request.getLatitude(), request.getLongitude(), LAST_UPDATED);
+    }
+}
@@ -0,0 +1,71 @@
+package com.omri.trackinglibrary.benchmarks;
+
+import com.google.gson.Gson;
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.api.json.JsonAdapters;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.models.User;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks Gson encoding and decoding of the request and response models,
+ * using the same Gson instance the API client uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JsonBenchmark {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+
+    private Gson gson;
+    private LocationUpdateRequest request;
+    private Location location;
+    private User user;
+    private String locationJson;
+    private String userJson;
+
+    /**
+     * Creates the Gson instance and the payloads.
+     */
+    @Setup
+    public void setUp() {
+        gson = JsonAdapters.createGson();
+        request = new LocationUpdateRequest(TEST_USER_ID, 32.109333, 34.855499);
+        location = new Location(TEST_USER_ID, 32.109333, 34.855499, "2024-01-06T12:00:00.000Z");
+        user = new User(TEST_USER_ID, "test_user", "2024-01-06T12:00:00.000Z", true);
+        locationJson = gson.toJson(location);
+        userJson = gson.toJson(user);
+    }
+
+    @Benchmark
+    public String encodeLocationUpdateRequest() {
+        return gson.toJson(request);
+    }
+
+    @Benchmark
+    public String encodeLocation() {
+        return gson.toJson(location);
+    }
+
+    @Benchmark
+    public Location decodeLocation() {
+        return gson.fromJson(locationJson, Location.class);
+    }
+
+    @Benchmark
+    public String encodeUser() {
+        return gson.toJson(user);
+    }
+
+    @Benchmark
+    public User decodeUser() {
+        return gson.fromJson(userJson, User.class);
+    }
+}
@@ -0,0 +1,95 @@
+package com.omri.trackinglibrary.benchmarks;
+
+import com.omri.trackinglibrary.LocationTrackerImpl;
+import com.omri.trackinglibrary.api.ApiClient;
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+import com.omri.trackinglibrary.models.Location;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link LocationTrackerImpl#updateLocation} end to end without a network.
+ * The fake service variant measures the tracker's own dispatch; the fake transport variant
+ * adds Retrofit, JSON encoding and decoding and the OkHttp dispatcher, with an interceptor
+ * answering every request in-process.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UpdateLocationBenchmark {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private static final String RESPONSE_JSON = "{\"user_id\":\"" + TEST_USER_ID + "\",\"latitude\":32.109333,"
+            + "\"longitude\":34.855499,\"last_updated\":\"2024-01-06T12:00:00.000Z\"}";
+
+    private LocationTrackerImpl fakeServiceTracker;
+    private LocationTrackerImpl fakeTransportTracker;
+    private double latitude;
+
+    /**
+     * Creates the trackers.
+     */
+    @Setup
+    public void setUp() {
+        fakeServiceTracker = new LocationTrackerImpl(new FakeApiService());
+        ApiClient client = new ApiClient.Builder()
+                .baseUrl("http://localhost/")
+                .addInterceptor(chain -> new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("OK")
+                        .body(ResponseBody.create(JSON, RESPONSE_JSON))
+                        .build())
+                .build();
+        fakeTransportTracker = new LocationTrackerImpl(client);
+        latitude = 32.109333;
+    }
+
+    @Benchmark
+    public void fakeService(final Blackhole blackhole) {
+        fakeServiceTracker.updateLocation(TEST_USER_ID, latitude, 34.855499, new LocationCallback() {
+            @Override
+            public void onSuccess(Location location) {
+                blackhole.consume(location);
+            }
+
+            @Override
+            public void onError(String error) {
+                throw new IllegalStateException(error);
+            }
+        });
+    }
+
+    @Benchmark
+    public Location fakeTransport() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final Location[] result = new Location[1];
+        fakeTransportTracker.updateLocation(TEST_USER_ID, latitude, 34.855499, new LocationCallback() {
+            @Override
+            public void onSuccess(Location location) {
+                result[0] = location;
+                done.countDown();
+            }
+
+            @Override
+            public void onError(String error) {
+                done.countDown();
+            }
+        });
+        done.await();
+        return result[0];
+    }
+}
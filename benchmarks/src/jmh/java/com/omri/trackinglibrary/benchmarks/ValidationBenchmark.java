@@ -0,0 +1,78 @@
+package com.omri.trackinglibrary.benchmarks;
+
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.api.UserRequest;
+import com.omri.trackinglibrary.api.UserVerifyRequest;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.models.User;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the validation done when requests are created and when responses are checked,
+ * for valid input and for the exception thrown on invalid input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ValidationBenchmark {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+
+    private double latitude;
+    private double longitude;
+    private Location location;
+    private User user;
+
+    /**
+     * Creates the models to validate.
+     */
+    @Setup
+    public void setUp() {
+        latitude = 32.109333;
+        longitude = 34.855499;
+        location = new Location(TEST_USER_ID, latitude, longitude, "2024-01-06T12:00:00.000Z");
+        user = new User(TEST_USER_ID, "test_user", "2024-01-06T12:00:00.000Z", true);
+    }
+
+    @Benchmark
+    public LocationUpdateRequest validLocationUpdateRequest() {
+        return new LocationUpdateRequest(TEST_USER_ID, latitude, longitude);
+    }
+
+    @Benchmark
+    public Object invalidLocationUpdateRequest() {
+        try {
+            return new LocationUpdateRequest(TEST_USER_ID, latitude + 100, longitude);
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public UserRequest validUserRequest() {
+        return new UserRequest("test_user");
+    }
+
+    @Benchmark
+    public UserVerifyRequest validUserVerifyRequest() {
+        return new UserVerifyRequest(TEST_USER_ID);
+    }
+
+    @Benchmark
+    public Location validateLocation() {
+        location.validate();
+        return location;
+    }
+
+    @Benchmark
+    public User validateUser() {
+        user.validate();
+        return user;
+    }
+}
@@ -0,0 +1,20 @@
+// Headless fleet simulator that drives many trackers against an in-process MockWebServer.
+// Run with: ./gradlew :loadgen:run --args="--devices 10000 --rate 1 --duration 60"
+plugins {
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+application {
+    mainClass.set("com.omri.trackinglibrary.loadgen.LoadGenerator")
+    applicationDefaultJvmArgs = listOf("-Xmx2g")
+}
+
+dependencies {
+    implementation(project(":trackinglibrary-jvm"))
+    implementation("com.squareup.okhttp3:mockwebserver:3.14.9")
+}
@@ -0,0 +1,138 @@
+package com.omri.trackinglibrary.loadgen;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.omri.trackinglibrary.utils.DateUtils;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * FakeTrackingServer stands in for the tracking backend on a local MockWebServer.
+ * It creates users, accepts single and batched location updates, serves the latest location of a user,
+ * and can delay responses and fail a fraction of them.
+ */
+final class FakeTrackingServer {
+    private final MockWebServer server = new MockWebServer();
+    private final Map<String, String> latest = new ConcurrentHashMap<>();
+    private final AtomicLong nextUserId = new AtomicLong(0x507f1f77bcf86cd7L);
+    private final AtomicLong requests = new AtomicLong();
+    private final long latencyMillis;
+    private final double errorRate;
+
+    /**
+     * Constructs a new server.
+     *
+     * @param latencyMillis The delay before each response body
+     * @param errorRate     The fraction of requests answered with a 500 response
+     */
+    FakeTrackingServer(long latencyMillis, double errorRate) {
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request);
+            }
+        });
+    }
+
+    /**
+     * Starts the server on a free local port.
+     *
+     * @return The base URL of the server
+     * @throws IOException if the server cannot be started
+     */
+    String start() throws IOException {
+        server.start();
+        return server.url("/").toString();
+    }
+
+    /**
+     * Stops the server.
+     *
+     * @throws IOException if the server cannot be stopped
+     */
+    void shutdown() throws IOException {
+        server.shutdown();
+    }
+
+    /**
+     * Gets the number of requests the server received.
+     *
+     * @return The request count
+     */
+    long getRequestCount() {
+        return requests.get();
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        requests.incrementAndGet();
+        MockResponse response;
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            response = json(500, "{\"error\":\"Injected failure\"}");
+        } else {
+            response = handle(request);
+        }
+        if (latencyMillis > 0) {
+            response.setBodyDelay(latencyMillis, TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+
+    private MockResponse handle(RecordedRequest request) {
+        String path = request.getPath();
+        String method = request.getMethod();
+        if ("POST".equals(method) && "/api/users/create".equals(path)) {
+            JsonObject body = JsonParser.parseString(request.getBody().readUtf8()).getAsJsonObject();
+            String id = Long.toHexString(nextUserId.getAndIncrement()) + "99439011";
+            return json(201, "{\"id\":\"" + id + "\",\"username\":" + body.get("username")
+                    + ",\"created_at\":\"" + DateUtils.getCurrentISODate() + "\",\"is_active\":true}");
+        }
+        if ("POST".equals(method) && "/api/locations/update".equals(path)) {
+            return json(200, store(JsonParser.parseString(request.getBody().readUtf8()).getAsJsonObject()));
+        }
+        if ("POST".equals(method) && "/api/locations/update/batch".equals(path)) {
+            JsonArray updates = JsonParser.parseString(request.getBody().readUtf8()).getAsJsonArray();
+            StringBuilder body = new StringBuilder("[");
+            for (JsonElement update : updates) {
+                if (body.length() > 1) {
+                    body.append(',');
+                }
+                body.append(store(update.getAsJsonObject()));
+            }
+            return json(200, body.append(']').toString());
+        }
+        if ("GET".equals(method) && path != null && path.startsWith("/api/locations/user/")) {
+            String location = latest.get(path.substring("/api/locations/user/".length()));
+            return location != null ? json(200, location) : json(404, "{\"error\":\"Location not found for this user\"}");
+        }
+        return json(404, "{\"error\":\"Not found\"}");
+    }
+
+    private String store(JsonObject update) {
+        String userId = update.get("user_id").getAsString();
+        String location = "{\"user_id\":\"" + userId + "\""
+                + ",\"latitude\":" + update.get("latitude").getAsDouble()
+                + ",\"longitude\":" + update.get("longitude").getAsDouble()
+                + ",\"last_updated\":\"" + DateUtils.getCurrentISODate() + "\"}";
+        latest.put(userId, location);
+        return location;
+    }
+
+    private static MockResponse json(int code, String body) {
+        return new MockResponse()
+                .setResponseCode(code)
+                .setHeader("Content-Type", "application/json")
+                .setBody(body);
+    }
+}
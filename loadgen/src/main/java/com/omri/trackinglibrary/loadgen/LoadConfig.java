@@ -0,0 +1,117 @@
+package com.omri.trackinglibrary.loadgen;
+
+/**
+ * LoadConfig holds the settings of a load-generator run, parsed from command-line options.
+ */
+final class LoadConfig {
+    int devices = 1000;
+    double fixesPerSecond = 1.0;
+    int durationSeconds = 30;
+    int reportIntervalSeconds = 5;
+    int threads = 4;
+    String routeFile;
+    long routeIntervalMillis = 1000;
+    double speedMetersPerSecond = 10;
+    long serverLatencyMillis = 5;
+    double serverErrorRate = 0;
+    int maxRequests = 256;
+    int maxRequestsPerHost = 256;
+    double deadbandMeters = 0;
+    long seed = 42;
+
+    /**
+     * Parses command-line options of the form {@code --name value}.
+     *
+     * @param args The command-line arguments
+     * @return The parsed settings
+     * @throws IllegalArgumentException if an option is unknown or its value is invalid
+     */
+    static LoadConfig parse(String[] args) {
+        LoadConfig config = new LoadConfig();
+        for (int i = 0; i < args.length; i += 2) {
+            String name = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + name);
+            }
+            String value = args[i + 1];
+            switch (name) {
+                case "--devices":
+                    config.devices = Integer.parseInt(value);
+                    break;
+                case "--rate":
+                    config.fixesPerSecond = Double.parseDouble(value);
+                    break;
+                case "--duration":
+                    config.durationSeconds = Integer.parseInt(value);
+                    break;
+                case "--report-interval":
+                    config.reportIntervalSeconds = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    config.threads = Integer.parseInt(value);
+                    break;
+                case "--route":
+                    config.routeFile = value;
+                    break;
+                case "--route-interval":
+                    config.routeIntervalMillis = Long.parseLong(value);
+                    break;
+                case "--speed":
+                    config.speedMetersPerSecond = Double.parseDouble(value);
+                    break;
+                case "--server-latency":
+                    config.serverLatencyMillis = Long.parseLong(value);
+                    break;
+                case "--server-error-rate":
+                    config.serverErrorRate = Double.parseDouble(value);
+                    break;
+                case "--max-requests":
+                    config.maxRequests = Integer.parseInt(value);
+                    break;
+                case "--max-requests-per-host":
+                    config.maxRequestsPerHost = Integer.parseInt(value);
+                    break;
+                case "--deadband":
+                    config.deadbandMeters = Double.parseDouble(value);
+                    break;
+                case "--seed":
+                    config.seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        }
+        if (config.devices < 1 || !(config.fixesPerSecond > 0) || config.durationSeconds < 1
+                || config.threads < 1 || config.reportIntervalSeconds < 1) {
+            throw new IllegalArgumentException("Devices, rate, duration, threads and report interval must be positive");
+        }
+        if (config.serverErrorRate < 0 || config.serverErrorRate > 1) {
+            throw new IllegalArgumentException("Server error rate must be between 0 and 1");
+        }
+        return config;
+    }
+
+    /**
+     * Gets the usage text listing all options and their defaults.
+     *
+     * @return The usage text
+     */
+    static String usage() {
+        LoadConfig defaults = new LoadConfig();
+        return "Options:\n"
+                + "  --devices N               virtual devices (" + defaults.devices + ")\n"
+                + "  --rate R                  fixes per second per device (" + defaults.fixesPerSecond + ")\n"
+                + "  --duration S              run time in seconds (" + defaults.durationSeconds + ")\n"
+                + "  --report-interval S       seconds between progress reports (" + defaults.reportIntervalSeconds + ")\n"
+                + "  --threads N               threads producing fixes (" + defaults.threads + ")\n"
+                + "  --route FILE              CSV of lat,lng points to replay instead of synthetic routes\n"
+                + "  --route-interval MS       time between recorded points (" + defaults.routeIntervalMillis + ")\n"
+                + "  --speed M                 synthetic route speed in m/s (" + defaults.speedMetersPerSecond + ")\n"
+                + "  --server-latency MS       fake server response delay (" + defaults.serverLatencyMillis + ")\n"
+                + "  --server-error-rate P     fraction of fake server 500 responses (" + defaults.serverErrorRate + ")\n"
+                + "  --max-requests N          client concurrency limit (" + defaults.maxRequests + ")\n"
+                + "  --max-requests-per-host N client per-host concurrency limit (" + defaults.maxRequestsPerHost + ")\n"
+                + "  --deadband M              enable the dead-band filter with this distance in meters\n"
+                + "  --seed N                  random seed (" + defaults.seed + ")\n";
+    }
+}
@@ -0,0 +1,177 @@
+package com.omri.trackinglibrary.loadgen;
+
+import com.omri.trackinglibrary.LocationTrackerImpl;
+import com.omri.trackinglibrary.api.ApiClient;
+import com.omri.trackinglibrary.interfaces.UserCallback;
+import com.omri.trackinglibrary.metrics.EndpointSnapshot;
+import com.omri.trackinglibrary.metrics.MetricsRegistry;
+import com.omri.trackinglibrary.models.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.OkHttpClient;
+
+/**
+ * LoadGenerator simulates a fleet of devices reporting their location through the SDK.
+ * Every device has its own {@link LocationTrackerImpl} and user, created through the SDK against a
+ * {@link FakeTrackingServer}, and sends fixes along a synthetic or recorded route at a fixed rate.
+ * Progress and a final report with throughput, callback latency percentiles and error rates are
+ * printed to standard output.
+ */
+public final class LoadGenerator {
+    private static final long DRAIN_TIMEOUT_MILLIS = 30_000L;
+
+    private final LoadConfig config;
+    private final LoadStats stats = new LoadStats();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    private LoadGenerator(LoadConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Runs the load generator.
+     *
+     * @param args Command-line options; see {@link LoadConfig#usage()}
+     * @throws Exception if the run fails
+     */
+    public static void main(String[] args) throws Exception {
+        LoadConfig config;
+        try {
+            config = LoadConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadConfig.usage());
+            System.exit(2);
+            return;
+        }
+        new LoadGenerator(config).run();
+    }
+
+    private void run() throws Exception {
+        FakeTrackingServer server = new FakeTrackingServer(config.serverLatencyMillis, config.serverErrorRate);
+        String baseUrl = server.start();
+        ApiClient.setDefault(new ApiClient.Builder()
+                .maxRequests(config.maxRequests)
+                .maxRequestsPerHost(config.maxRequestsPerHost)
+                .metrics(metrics)
+                .build());
+        ApiClient.setBaseUrl(baseUrl);
+        try {
+            List<VirtualDevice> devices = createDevices();
+            drive(devices);
+        } finally {
+            OkHttpClient httpClient = ApiClient.getHttpClient();
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+            ApiClient.reset();
+            server.shutdown();
+        }
+        System.out.println("Server requests: " + server.getRequestCount());
+        for (EndpointSnapshot endpoint : metrics.snapshot().getEndpoints().values()) {
+            System.out.println(endpoint);
+        }
+    }
+
+    /**
+     * Creates a tracker and a user for every device.
+     *
+     * @return The devices whose user was created
+     * @throws Exception if loading the route fails or the thread is interrupted
+     */
+    private List<VirtualDevice> createDevices() throws Exception {
+        Random random = new Random(config.seed);
+        RecordedRoute recorded = config.routeFile != null
+                ? RecordedRoute.load(config.routeFile, config.routeIntervalMillis)
+                : null;
+        final List<VirtualDevice> devices = new ArrayList<>(config.devices);
+        final CountDownLatch created = new CountDownLatch(config.devices);
+        final AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        for (int i = 0; i < config.devices; i++) {
+            final LocationTrackerImpl tracker = new LocationTrackerImpl();
+            if (config.deadbandMeters > 0) {
+                tracker.enableDeadbandFilter(config.deadbandMeters, TimeUnit.MINUTES.toMillis(1));
+            }
+            final Route route = recorded != null
+                    ? recorded.withOffset((long) (random.nextDouble() * recorded.getDurationMillis()))
+                    : new SyntheticRoute(random, config.speedMetersPerSecond);
+            tracker.createUser(String.format("device_%06d", i), new UserCallback() {
+                @Override
+                public void onSuccess(User user) {
+                    synchronized (devices) {
+                        devices.add(new VirtualDevice(tracker, user.getId(), route, stats));
+                    }
+                    created.countDown();
+                }
+
+                @Override
+                public void onError(String error) {
+                    failures.incrementAndGet();
+                    created.countDown();
+                }
+            });
+        }
+        created.await();
+        System.out.printf("Created %d devices in %d ms (%d failed)%n", devices.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failures.get());
+        return devices;
+    }
+
+    /**
+     * Sends fixes from every device at the configured rate for the configured duration,
+     * then waits for outstanding callbacks.
+     *
+     * @param devices The devices to drive
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private void drive(List<VirtualDevice> devices) throws InterruptedException {
+        final long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / config.fixesPerSecond);
+        final long startNanos = System.nanoTime();
+        double targetRate = devices.size() * config.fixesPerSecond;
+        System.out.printf("Driving %d devices at %.2f fixes/s each for %d s%n",
+                devices.size(), config.fixesPerSecond, config.durationSeconds);
+
+        ScheduledExecutorService producers = Executors.newScheduledThreadPool(config.threads);
+        Random random = new Random(config.seed);
+        for (final VirtualDevice device : devices) {
+            long initialDelay = (long) (random.nextDouble() * periodNanos);
+            producers.scheduleAtFixedRate(
+                    () -> device.tick(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)),
+                    initialDelay, periodNanos, TimeUnit.NANOSECONDS);
+        }
+
+        long endNanos = startNanos + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+        long reportNanos = TimeUnit.SECONDS.toNanos(config.reportIntervalSeconds);
+        long nextReport = startNanos + reportNanos;
+        while (nextReport < endNanos) {
+            TimeUnit.NANOSECONDS.sleep(nextReport - System.nanoTime());
+            System.out.println(stats.report(elapsedMillis(startNanos), targetRate));
+            nextReport += reportNanos;
+        }
+        TimeUnit.NANOSECONDS.sleep(Math.max(0, endNanos - System.nanoTime()));
+        producers.shutdownNow();
+        producers.awaitTermination(5, TimeUnit.SECONDS);
+        long runMillis = elapsedMillis(startNanos);
+
+        long drainDeadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (stats.getCompleted() < stats.getSent() && System.currentTimeMillis() < drainDeadline) {
+            Thread.sleep(50);
+        }
+        System.out.println("Final report:");
+        System.out.println(stats.report(runMillis, targetRate));
+        for (Map.Entry<String, Long> error : stats.getErrors().entrySet()) {
+            System.out.printf("  %8d x %s%n", error.getValue(), error.getKey());
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,89 @@
+package com.omri.trackinglibrary.loadgen;
+
+import com.omri.trackinglibrary.metrics.HistogramSnapshot;
+import com.omri.trackinglibrary.metrics.LatencyHistogram;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LoadStats counts the fixes sent by all virtual devices and the latency until their callbacks ran.
+ */
+final class LoadStats {
+    private static final int MAX_ERROR_MESSAGES = 20;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    void recordSent() {
+        sent.increment();
+    }
+
+    void recordSuccess(long startNanos) {
+        latency.recordMicros(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        succeeded.increment();
+    }
+
+    void recordError(long startNanos, String error) {
+        latency.recordMicros(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        failed.increment();
+        LongAdder count = errors.get(error);
+        if (count == null && errors.size() < MAX_ERROR_MESSAGES) {
+            count = errors.computeIfAbsent(error, key -> new LongAdder());
+        }
+        if (count != null) {
+            count.increment();
+        }
+    }
+
+    long getSent() {
+        return sent.sum();
+    }
+
+    long getCompleted() {
+        return succeeded.sum() + failed.sum();
+    }
+
+    /**
+     * Formats the statistics of the run so far.
+     *
+     * @param elapsedMillis The time since the run started
+     * @param targetRate    The intended total fixes per second
+     * @return A human-readable report
+     */
+    String report(long elapsedMillis, double targetRate) {
+        long ok = succeeded.sum();
+        long errorCount = failed.sum();
+        long completed = ok + errorCount;
+        double seconds = Math.max(1, elapsedMillis) / 1000.0;
+        HistogramSnapshot snapshot = latency.snapshot();
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("[%6.1fs] sent=%d completed=%d in-flight=%d errors=%d (%.2f%%) "
+                        + "throughput=%.0f fixes/s (target %.0f)%n",
+                seconds, sent.sum(), completed, sent.sum() - completed, errorCount,
+                completed == 0 ? 0.0 : 100.0 * errorCount / completed, completed / seconds, targetRate));
+        report.append(String.format("          callback latency ms: p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f",
+                snapshot.getValueAtPercentile(50) / 1000.0, snapshot.getValueAtPercentile(90) / 1000.0,
+                snapshot.getValueAtPercentile(99) / 1000.0, snapshot.getValueAtPercentile(99.9) / 1000.0,
+                snapshot.getMaxMicros() / 1000.0));
+        return report.toString();
+    }
+
+    /**
+     * Gets the distinct error messages seen, with their counts.
+     *
+     * @return The error counts by message
+     */
+    Map<String, Long> getErrors() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : errors.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return counts;
+    }
+}
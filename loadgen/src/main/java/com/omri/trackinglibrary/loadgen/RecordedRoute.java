@@ -0,0 +1,96 @@
+package com.omri.trackinglibrary.loadgen;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RecordedRoute replays a recorded track, interpolating between points and looping at the end.
+ * Each device starts at its own offset, so devices sharing a track are spread along it.
+ */
+final class RecordedRoute implements Route {
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final long intervalMillis;
+    private final long offsetMillis;
+
+    private RecordedRoute(double[] latitudes, double[] longitudes, long intervalMillis, long offsetMillis) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.intervalMillis = intervalMillis;
+        this.offsetMillis = offsetMillis;
+    }
+
+    /**
+     * Loads a track from a CSV file with one "latitude,longitude" point per line.
+     * Blank lines, lines starting with '#' and a header line are skipped; extra columns are ignored.
+     *
+     * @param file           The CSV file
+     * @param intervalMillis The time between consecutive points
+     * @return A route starting at the first point
+     * @throws IOException if the file cannot be read or has fewer than two points
+     */
+    static RecordedRoute load(String file, long intervalMillis) throws IOException {
+        List<double[]> points = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = line.split(",");
+                try {
+                    points.add(new double[]{Double.parseDouble(columns[0].trim()), Double.parseDouble(columns[1].trim())});
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    if (!points.isEmpty()) {
+                        throw new IOException("Invalid route point: " + line, e);
+                    }
+                }
+            }
+        }
+        if (points.size() < 2) {
+            throw new IOException("Route needs at least two points: " + file);
+        }
+        double[] latitudes = new double[points.size()];
+        double[] longitudes = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            latitudes[i] = points.get(i)[0];
+            longitudes[i] = points.get(i)[1];
+        }
+        return new RecordedRoute(latitudes, longitudes, Math.max(1, intervalMillis), 0);
+    }
+
+    /**
+     * Creates a route over the same track starting at a different point in time.
+     *
+     * @param offsetMillis The time into the track at which the device starts
+     * @return The shifted route
+     */
+    RecordedRoute withOffset(long offsetMillis) {
+        return new RecordedRoute(latitudes, longitudes, intervalMillis, offsetMillis);
+    }
+
+    /**
+     * Gets the time it takes to replay the whole track once.
+     *
+     * @return The duration in milliseconds
+     */
+    long getDurationMillis() {
+        return latitudes.length * intervalMillis;
+    }
+
+    @Override
+    public void positionAt(long elapsedMillis, double[] position) {
+        long time = (elapsedMillis + offsetMillis) % getDurationMillis();
+        int index = (int) (time / intervalMillis);
+        int next = (index + 1) % latitudes.length;
+        double fraction = (double) (time % intervalMillis) / intervalMillis;
+        position[0] = latitudes[index] + (latitudes[next] - latitudes[index]) * fraction;
+        position[1] = longitudes[index] + (longitudes[next] - longitudes[index]) * fraction;
+    }
+}
@@ -0,0 +1,15 @@
+package com.omri.trackinglibrary.loadgen;
+
+/**
+ * A route a virtual device moves along.
+ */
+interface Route {
+
+    /**
+     * Computes the position of the device at a point in time.
+     *
+     * @param elapsedMillis The time since the run started, in milliseconds
+     * @param position      Receives the latitude at index 0 and the longitude at index 1
+     */
+    void positionAt(long elapsedMillis, double[] position);
+}
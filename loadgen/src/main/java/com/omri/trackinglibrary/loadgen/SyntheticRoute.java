@@ -0,0 +1,44 @@
+package com.omri.trackinglibrary.loadgen;
+
+import com.omri.trackinglibrary.utils.GeoUtils;
+import java.util.Random;
+
+/**
+ * SyntheticRoute moves a device around a circle at constant speed.
+ * Circles are placed at random within about 10 km of a city center, with random radius and starting angle.
+ */
+final class SyntheticRoute implements Route {
+    private static final double CENTER_LATITUDE = 32.0853;
+    private static final double CENTER_LONGITUDE = 34.7818;
+    private static final double SPREAD_DEGREES = 0.1;
+
+    private final double centerLatitude;
+    private final double centerLongitude;
+    private final double radiusMeters;
+    private final double startAngle;
+    private final double radiansPerMilli;
+
+    /**
+     * Constructs a random route.
+     *
+     * @param random              The source of randomness
+     * @param speedMetersPerSecond The speed of the device
+     */
+    SyntheticRoute(Random random, double speedMetersPerSecond) {
+        this.centerLatitude = CENTER_LATITUDE + (random.nextDouble() - 0.5) * SPREAD_DEGREES;
+        this.centerLongitude = CENTER_LONGITUDE + (random.nextDouble() - 0.5) * SPREAD_DEGREES;
+        this.radiusMeters = 200 + random.nextDouble() * 1800;
+        this.startAngle = random.nextDouble() * 2 * Math.PI;
+        this.radiansPerMilli = speedMetersPerSecond / radiusMeters / 1000.0;
+    }
+
+    @Override
+    public void positionAt(long elapsedMillis, double[] position) {
+        double angle = startAngle + elapsedMillis * radiansPerMilli;
+        double north = radiusMeters * Math.cos(angle);
+        double east = radiusMeters * Math.sin(angle);
+        position[0] = centerLatitude + Math.toDegrees(north / GeoUtils.EARTH_RADIUS_METERS);
+        position[1] = centerLongitude
+                + Math.toDegrees(east / (GeoUtils.EARTH_RADIUS_METERS * Math.cos(Math.toRadians(centerLatitude))));
+    }
+}
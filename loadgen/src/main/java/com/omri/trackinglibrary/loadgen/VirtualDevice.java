@@ -0,0 +1,51 @@
+package com.omri.trackinglibrary.loadgen;
+
+import com.omri.trackinglibrary.LocationTrackerImpl;
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+import com.omri.trackinglibrary.models.Location;
+
+/**
+ * VirtualDevice is one simulated phone: a tracker and a user that report positions along a route.
+ */
+final class VirtualDevice {
+    private final LocationTrackerImpl tracker;
+    private final String userId;
+    private final Route route;
+    private final LoadStats stats;
+    private final double[] position = new double[2];
+
+    VirtualDevice(LocationTrackerImpl tracker, String userId, Route route, LoadStats stats) {
+        this.tracker = tracker;
+        this.userId = userId;
+        this.route = route;
+        this.stats = stats;
+    }
+
+    /**
+     * Sends the device's position at the given time.
+     *
+     * @param elapsedMillis The time since the run started
+     */
+    void tick(long elapsedMillis) {
+        double latitude;
+        double longitude;
+        synchronized (position) {
+            route.positionAt(elapsedMillis, position);
+            latitude = position[0];
+            longitude = position[1];
+        }
+        final long start = System.nanoTime();
+        stats.recordSent();
+        tracker.updateLocation(userId, latitude, longitude, new LocationCallback() {
+            @Override
+            public void onSuccess(Location location) {
+                stats.recordSuccess(start);
+            }
+
+            @Override
+            public void onError(String error) {
+                stats.recordError(start, error);
+            }
+        });
+    }
+}
@@ -24,6 +24,9 @@ dependencyResolutionManagement {
 rootProject.name = "LocationTrackingSDK"
 include(":app")
 include(":trackinglibrary")
+include(":trackinglibrary-jvm")
+include(":benchmarks")
+include(":loadgen")
 
 dependencyResolutionManagement {
     repositoriesMode.set(RepositoriesMode.FAIL_ON_PROJECT_REPOS)
@@ -0,0 +1,24 @@
+// JVM build of the trackinglibrary sources, shared by the benchmarks and the load generator.
+// The Android-only classes the library uses are replaced by the shims in src/main/java.
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+sourceSets {
+    main {
+        java.srcDir("../trackinglibrary/src/main/java")
+    }
+}
+
+dependencies {
+    api("com.squareup.retrofit2:retrofit:2.9.0")
+    api("com.squareup.retrofit2:converter-gson:2.9.0")
+    api("com.squareup.okhttp3:okhttp:3.14.9")
+    api("com.google.code.gson:gson:2.10.1")
+    api(libs.androidx.annotation)
+}
@@ -0,0 +1,23 @@
+package android.util;
+
+/**
+ * JVM stand-in for the Android logger, so the library can run outside Android in benchmarks and load tests.
+ * Messages are built by the callers as on a device, but not written anywhere.
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int d(String tag, String msg) {
+        return 0;
+    }
+
+    public static int e(String tag, String msg) {
+        return 0;
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        return 0;
+    }
+}
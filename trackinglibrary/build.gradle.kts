@@ -47,7 +47,7 @@ afterEvaluate {
             create<MavenPublication>("release") {
                 groupId = "com.github.OmriRoter"
                 artifactId = "live-location-tracking-sdk"
-                version = "1.1.4"
+                version = project.property("sdkVersion") as String
                 artifact(tasks.getByName("bundleReleaseAar"))
 
                 pom {
@@ -75,6 +75,7 @@ dependencies {
     // Retrofit dependencies - Changed to api
     api("com.squareup.retrofit2:retrofit:2.9.0")
     api("com.squareup.retrofit2:converter-gson:2.9.0")
+    api("com.squareup.okhttp3:okhttp:3.14.9")
     api("com.google.code.gson:gson:2.10.1")
 
     // Testing dependencies
@@ -82,6 +83,7 @@ dependencies {
     testImplementation("org.mockito:mockito-core:4.5.1")
     testImplementation("org.mockito:mockito-inline:4.5.1")
     testImplementation("com.squareup.retrofit2:retrofit-mock:2.9.0")
+    testImplementation("com.squareup.okhttp3:mockwebserver:3.14.9")
     androidTestImplementation(libs.junit.junit)
 
     testImplementation("org.hamcrest:hamcrest:2.2") // Or the latest version
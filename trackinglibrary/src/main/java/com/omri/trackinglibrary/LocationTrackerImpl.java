@@ -1,14 +1,43 @@
 package com.omri.trackinglibrary;
 
-import android.annotation.SuppressLint;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
 import com.omri.trackinglibrary.api.*;
+import com.omri.trackinglibrary.cache.CacheStats;
+import com.omri.trackinglibrary.cache.ExpiringCache;
+import com.omri.trackinglibrary.cache.ValidatorCache;
+import com.omri.trackinglibrary.filter.DeadReckoningFilter;
+import com.omri.trackinglibrary.filter.DeadbandFilter;
+import com.omri.trackinglibrary.filter.MotionModel;
+import com.omri.trackinglibrary.filter.TrajectorySimplifier;
+import com.omri.trackinglibrary.history.LocationHistoryLog;
+import com.omri.trackinglibrary.history.TrailStore;
 import com.omri.trackinglibrary.interfaces.*;
 import com.omri.trackinglibrary.models.*;
+import com.omri.trackinglibrary.network.SingleFlight;
+import com.omri.trackinglibrary.spatial.SpatialIndex;
+import com.omri.trackinglibrary.stream.LocationStream;
+import com.omri.trackinglibrary.upload.LocationBatcher;
+import com.omri.trackinglibrary.upload.LocationCoalescer;
+import com.omri.trackinglibrary.upload.LocationIngestionQueue;
+import com.omri.trackinglibrary.upload.LocationJournal;
+import com.omri.trackinglibrary.upload.LocationOutbox;
+import com.omri.trackinglibrary.upload.OverflowPolicy;
+import com.omri.trackinglibrary.utils.DateUtils;
+import com.omri.trackinglibrary.utils.ResponseUtils;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -20,14 +49,65 @@ import retrofit2.Response;
  */
 public class LocationTrackerImpl implements LocationTracker {
     private static final String TAG = "LocationTrackerImpl";
+    private static final int DEFAULT_SAMPLE_EVERY = 10;
+    private static final long DEFAULT_BLOCK_TIMEOUT_MILLIS = 100L;
+    private static final int HISTORY_RECORDS_PER_SEGMENT = 65_536;
+    private static final long HISTORY_MAINTENANCE_INTERVAL_MILLIS = 10 * 60 * 1000L;
+
+    /**
+     * Callback for background refreshes of stale cached locations; the result only updates the cache.
+     */
+    private static final LocationCallback BACKGROUND_REFRESH_CALLBACK = new LocationCallback() {
+        @Override
+        public void onSuccess(Location location) {
+            // the cache was already updated
+        }
+
+        @Override
+        public void onError(String error) {
+            // the stale location stays cached until it expires
+        }
+    };
+
     private final ApiService apiService;
+    private final ApiClient apiClient;
+    private final SingleFlight<User> userVerifications = new SingleFlight<>();
+    private final SingleFlight<Location> locationReads = new SingleFlight<>();
+    private volatile LocationBatcher locationBatcher;
+    private volatile boolean binaryBatchEncoding;
+    private final Object outboxLock = new Object();
+    private volatile LocationOutbox locationOutbox;
+    private volatile LocationCoalescer locationCoalescer;
+    private volatile LocationIngestionQueue ingestionQueue;
+    private volatile ExpiringCache<String, Location> locationCache;
+    private volatile ExpiringCache<String, User> userCache;
+    private volatile ValidatorCache<String, Location> locationValidators;
+    private volatile DeadbandFilter deadbandFilter;
+    private volatile MotionModel motionModel;
+    private volatile DeadReckoningFilter deadReckoningFilter;
+    private volatile SpatialIndex spatialIndex;
+    private volatile TrailStore trailStore;
+    private volatile LocationHistoryLog historyLog;
+    private volatile TrajectorySimplifier trajectorySimplifier;
+    private volatile int bulkReadChunkSize = ApiService.MAX_USER_LOCATIONS_PER_REQUEST;
+    private LocationStream locationStream;
 
     /**
      * Constructs a new LocationTrackerImpl with the default API service.
      * Uses the default ApiClient configuration.
      */
     public LocationTrackerImpl() {
-        this(ApiClient.getClient().create(ApiService.class));
+        this(ApiClient.getDefault());
+    }
+
+    /**
+     * Constructs a new LocationTrackerImpl that sends requests through the given API client.
+     * Trackers created from the same client share its connection pool.
+     *
+     * @param apiClient The API client to use
+     */
+    public LocationTrackerImpl(ApiClient apiClient) {
+        this(apiClient.create(ApiService.class), apiClient);
     }
 
     /**
@@ -37,11 +117,17 @@ public class LocationTrackerImpl implements LocationTracker {
      * @param apiService The API service implementation to use
      */
     public LocationTrackerImpl(ApiService apiService) {
+        this(apiService, null);
+    }
+
+    private LocationTrackerImpl(ApiService apiService, ApiClient apiClient) {
         this.apiService = apiService;
+        this.apiClient = apiClient;
     }
 
     /**
      * Verifies if a user exists in the system.
+     * Concurrent verifications of the same user share a single request.
      *
      * @param userId   The ID of the user to verify
      * @param callback Callback to handle the verification result
@@ -50,15 +136,16 @@ public class LocationTrackerImpl implements LocationTracker {
     public void verifyUser(String userId, final UserCallback callback) {
         Log.d(TAG, "Verifying user with ID: " + userId);
 
-        UserVerifyRequest request = new UserVerifyRequest(userId);
-        apiService.verifyUser(request).enqueue(new Callback<User>() {
+        final UserVerifyRequest request = new UserVerifyRequest(userId);
+        userVerifications.enqueue(userId, () -> apiService.verifyUser(request), new Callback<User>() {
             @Override
             public void onResponse(@NonNull Call<User> call, @NonNull Response<User> response) {
                 if (response.isSuccessful() && response.body() != null) {
                     Log.d(TAG, "User verified successfully");
+                    onUserObserved(response.body());
                     callback.onSuccess(response.body());
                 } else {
-                    String errorMessage = getErrorMessage(response);
+                    String errorMessage = ResponseUtils.getErrorMessage(response);
                     Log.e(TAG, "Failed to verify user: " + errorMessage);
                     callback.onError(errorMessage);
                 }
@@ -89,9 +176,10 @@ public class LocationTrackerImpl implements LocationTracker {
             public void onResponse(@NonNull Call<User> call, @NonNull Response<User> response) {
                 if (response.isSuccessful() && response.body() != null) {
                     Log.d(TAG, "User created successfully");
+                    onUserObserved(response.body());
                     callback.onSuccess(response.body());
                 } else {
-                    String errorMessage = getErrorMessage(response);
+                    String errorMessage = ResponseUtils.getErrorMessage(response);
                     Log.e(TAG, "Failed to create user: " + errorMessage);
                     callback.onError(errorMessage);
                 }
@@ -114,7 +202,7 @@ public class LocationTrackerImpl implements LocationTracker {
      * @param callback Callback to handle the status update result
      */
     @Override
-    public void updateUserStatus(String userId, boolean isActive, final UserCallback callback) {
+    public void updateUserStatus(final String userId, boolean isActive, final UserCallback callback) {
         Log.d(TAG, "Updating status for userId: " + userId + " to: " + isActive);
 
         UserStatusRequest request = new UserStatusRequest(isActive);
@@ -123,10 +211,12 @@ public class LocationTrackerImpl implements LocationTracker {
             public void onResponse(@NonNull Call<User> call, @NonNull Response<User> response) {
                 if (response.isSuccessful() && response.body() != null) {
                     Log.d(TAG, "Status updated successfully");
+                    onUserObserved(response.body());
                     callback.onSuccess(response.body());
                 } else {
-                    String errorMessage = getErrorMessage(response);
+                    String errorMessage = ResponseUtils.getErrorMessage(response);
                     Log.e(TAG, "Failed to update status: " + errorMessage);
+                    invalidateUser(userId);
                     callback.onError(errorMessage);
                 }
             }
@@ -135,6 +225,7 @@ public class LocationTrackerImpl implements LocationTracker {
             public void onFailure(@NonNull Call<User> call, @NonNull Throwable t) {
                 String error = "Network error while updating status: " + t.getMessage();
                 Log.e(TAG, error, t);
+                invalidateUser(userId);
                 callback.onError(error);
             }
         });
@@ -143,17 +234,78 @@ public class LocationTrackerImpl implements LocationTracker {
     /**
      * Gets the current status of a user.
      * This method internally uses verifyUser since the server doesn't provide a dedicated status endpoint.
+     * When the user cache is enabled, a cached user that has not expired is returned without a request.
      *
      * @param userId   The ID of the user to check
      * @param callback Callback to handle the status retrieval result
      */
     @Override
     public void getUserStatus(String userId, final UserCallback callback) {
+        ExpiringCache<String, User> cache = userCache;
+        if (cache != null) {
+            ExpiringCache.Entry<User> entry = cache.get(userId);
+            if (entry != null) {
+                Log.d(TAG, "Serving cached status for userId: " + userId);
+                callback.onSuccess(entry.getValue());
+                return;
+            }
+        }
         verifyUser(userId, callback);
     }
 
+    /**
+     * Enables the in-memory user cache used by {@link #getUserStatus(String, UserCallback)}.
+     * Users returned by createUser, verifyUser and updateUserStatus are stored in the cache.
+     * Calling this again replaces the cache and its counters.
+     *
+     * @param maxEntries The maximum number of cached users; the least recently used is evicted beyond it
+     * @param ttlMillis  The time, in milliseconds, a cached user is served without a request
+     * @throws IllegalArgumentException if maxEntries or ttlMillis is not positive
+     */
+    public void enableUserCache(int maxEntries, long ttlMillis) {
+        userCache = new ExpiringCache<>(maxEntries, ttlMillis, 0L);
+    }
+
+    /**
+     * Disables the user cache and drops all cached users.
+     */
+    public void disableUserCache() {
+        userCache = null;
+    }
+
+    /**
+     * Removes the cached user, so the next status check goes to the server.
+     *
+     * @param userId The ID of the user to remove from the cache
+     */
+    public void invalidateUser(String userId) {
+        ExpiringCache<String, User> cache = userCache;
+        if (cache != null) {
+            cache.invalidate(userId);
+        }
+    }
+
+    /**
+     * Gets the hit, miss and eviction counters of the user cache.
+     *
+     * @return A snapshot of the cache statistics, or null if the cache is disabled
+     */
+    public CacheStats getUserCacheStats() {
+        ExpiringCache<String, User> cache = userCache;
+        return cache != null ? cache.getStats() : null;
+    }
+
     /**
      * Updates the location of a user.
+     * When the dead-band filter is enabled, a fix close to the last acknowledged location is not sent;
+     * its callback receives that acknowledged location instead.
+     * When dead reckoning is enabled, a fix close to the position predicted from the user's motion is not sent;
+     * its callback receives the predicted location instead.
+     * When the ingestion queue is enabled, the update is queued and handed to the upload pipeline by the
+     * queue's thread, subject to its overflow policy.
+     * When the outbox is enabled, the update is journaled first and delivered by the outbox.
+     * Otherwise, when coalescing is enabled, the update may be superseded by a newer update for the
+     * same user, and when batching is enabled, the update is buffered and sent as part of a batch request.
      *
      * @param userId    The ID of the user whose location is being updated
      * @param latitude  The new latitude coordinate
@@ -161,10 +313,501 @@ public class LocationTrackerImpl implements LocationTracker {
      * @param callback  Callback to handle the location update result
      */
     @Override
-    public void updateLocation(String userId, double latitude, double longitude, final LocationCallback callback) {
+    public void updateLocation(String userId, double latitude, double longitude, LocationCallback callback) {
         Log.d(TAG, "Updating location - userId: " + userId + ", lat: " + latitude + ", lng: " + longitude);
 
         LocationUpdateRequest request = new LocationUpdateRequest(userId, latitude, longitude);
+        DeadbandFilter filter = deadbandFilter;
+        if (filter != null) {
+            Location lastAcknowledged = filter.filter(userId, latitude, longitude);
+            if (lastAcknowledged != null) {
+                Log.d(TAG, "Location update suppressed by dead-band filter");
+                callback.onSuccess(lastAcknowledged);
+                return;
+            }
+        }
+        DeadReckoningFilter reckoning = deadReckoningFilter;
+        if (reckoning != null) {
+            Location predicted = reckoning.filter(userId, latitude, longitude);
+            if (predicted != null) {
+                Log.d(TAG, "Location update suppressed by dead reckoning");
+                callback.onSuccess(predicted);
+                return;
+            }
+        }
+        LocationIngestionQueue queue = ingestionQueue;
+        if (queue != null) {
+            queue.submit(request, callback);
+            return;
+        }
+        submitLocationUpdate(request, callback);
+    }
+
+    /**
+     * Hands a location update that passed the filters to the outbox, the coalescer, or the dispatcher.
+     *
+     * @param request  The location update request to send
+     * @param callback Callback to handle the location update result
+     */
+    private void submitLocationUpdate(LocationUpdateRequest request, LocationCallback callback) {
+        callback = observeLocations(callback);
+        LocationOutbox outbox = locationOutbox;
+        if (outbox != null) {
+            outbox.submit(request, callback);
+            return;
+        }
+        LocationCoalescer coalescer = locationCoalescer;
+        if (coalescer != null) {
+            coalescer.submit(request, callback);
+            return;
+        }
+        dispatchLocationUpdate(request, callback);
+    }
+
+    /**
+     * Enables the dead-band filter for location updates.
+     * A fix within the minimum distance of the last location the server acknowledged for the user is
+     * not sent, unless no update was acknowledged for the maximum silence interval.
+     *
+     * @param minDistanceMeters The distance from the last acknowledged location below which fixes are suppressed
+     * @param maxSilenceMillis  The maximum time, in milliseconds, without an upload for a user
+     * @throws IllegalArgumentException if a threshold is negative
+     */
+    public void enableDeadbandFilter(double minDistanceMeters, long maxSilenceMillis) {
+        deadbandFilter = new DeadbandFilter(minDistanceMeters, maxSilenceMillis);
+    }
+
+    /**
+     * Disables the dead-band filter, so every fix is sent.
+     */
+    public void disableDeadbandFilter() {
+        deadbandFilter = null;
+    }
+
+    /**
+     * Enables location prediction.
+     * Every location received from the server, for updates and reads, feeds a constant-velocity
+     * model of its user, which {@link #predictUserLocation(String)} extrapolates from.
+     */
+    public void enableLocationPrediction() {
+        if (motionModel == null) {
+            motionModel = new MotionModel();
+        }
+    }
+
+    /**
+     * Disables location prediction and dead reckoning, which predicts from the same model.
+     */
+    public void disableLocationPrediction() {
+        deadReckoningFilter = null;
+        motionModel = null;
+    }
+
+    /**
+     * Predicts the current location of a user by extrapolating the user's last known position
+     * along the user's last known velocity.
+     *
+     * @param userId The ID of the user
+     * @return The predicted location, or null if prediction is disabled or no location of the user is known
+     */
+    public Location predictUserLocation(String userId) {
+        MotionModel model = motionModel;
+        return model != null ? model.predict(userId) : null;
+    }
+
+    /**
+     * Predicts the location of a user at a given time.
+     *
+     * @param userId     The ID of the user
+     * @param timeMillis The time of the prediction in milliseconds since the epoch
+     * @return The predicted location, or null if prediction is disabled or no location of the user is known
+     */
+    public Location predictUserLocation(String userId, long timeMillis) {
+        MotionModel model = motionModel;
+        return model != null ? model.predict(userId, timeMillis) : null;
+    }
+
+    /**
+     * Enables dead reckoning for location updates, which also enables location prediction.
+     * A fix within the maximum deviation of the position predicted from the locations the server holds
+     * for the user is not sent, unless no location of the user was seen for the maximum silence interval.
+     * Readers that predict from the same locations with {@link #predictUserLocation(String)}
+     * stay within the maximum deviation of the device.
+     *
+     * @param maxDeviationMeters The distance from the predicted position below which fixes are suppressed
+     * @param maxSilenceMillis   The maximum time, in milliseconds, without an upload for a user
+     * @throws IllegalArgumentException if a threshold is negative
+     */
+    public void enableDeadReckoning(double maxDeviationMeters, long maxSilenceMillis) {
+        MotionModel model = motionModel;
+        if (model == null) {
+            model = new MotionModel();
+        }
+        DeadReckoningFilter filter = new DeadReckoningFilter(model, maxDeviationMeters, maxSilenceMillis);
+        motionModel = model;
+        deadReckoningFilter = filter;
+    }
+
+    /**
+     * Disables dead reckoning, so fixes are no longer compared with predictions.
+     * Location prediction stays enabled.
+     */
+    public void disableDeadReckoning() {
+        deadReckoningFilter = null;
+    }
+
+    /**
+     * Enables the spatial index of tracked users.
+     * Every location received from the server, for updates and reads, moves its user in the index,
+     * which answers {@link #findUsersWithinRadius} and {@link #findNearestUsers} without a request.
+     *
+     * @param cellSizeMeters The grid cell size, ideally close to the typical query radius
+     * @throws IllegalArgumentException if the cell size is not positive
+     */
+    public void enableSpatialIndex(double cellSizeMeters) {
+        spatialIndex = new SpatialIndex(cellSizeMeters);
+    }
+
+    /**
+     * Disables the spatial index and drops all indexed locations.
+     */
+    public void disableSpatialIndex() {
+        spatialIndex = null;
+    }
+
+    /**
+     * Finds the tracked users within a distance of a point, from the latest locations seen by this tracker.
+     *
+     * @param latitude     The latitude of the point
+     * @param longitude    The longitude of the point
+     * @param radiusMeters The maximum distance in meters
+     * @return The locations of the users within the radius, nearest first, or an empty list if the index is disabled
+     */
+    public List<Location> findUsersWithinRadius(double latitude, double longitude, double radiusMeters) {
+        SpatialIndex index = spatialIndex;
+        return index != null ? index.findWithinRadius(latitude, longitude, radiusMeters) : new ArrayList<>();
+    }
+
+    /**
+     * Finds the tracked users nearest to a point, from the latest locations seen by this tracker.
+     *
+     * @param latitude  The latitude of the point
+     * @param longitude The longitude of the point
+     * @param count     The maximum number of users to return
+     * @return The locations of up to count users, nearest first, or an empty list if the index is disabled
+     */
+    public List<Location> findNearestUsers(double latitude, double longitude, int count) {
+        SpatialIndex index = spatialIndex;
+        return index != null ? index.findNearest(latitude, longitude, count) : new ArrayList<>();
+    }
+
+    /**
+     * Enables the recent trails of tracked users.
+     * Every location received from the server, for updates, reads and the location stream, is appended
+     * to a fixed-size ring of recent fixes of its user, which can be read with {@link TrailStore#readTrail}.
+     * Calling this again replaces the current trails with empty ones.
+     *
+     * @param pointsPerUser The number of recent fixes kept per user; rounded up to a power of two
+     * @throws IllegalArgumentException if the number of points is not positive
+     */
+    public void enableTrails(int pointsPerUser) {
+        trailStore = new TrailStore(pointsPerUser);
+    }
+
+    /**
+     * Disables the recent trails and drops all recorded fixes.
+     */
+    public void disableTrails() {
+        trailStore = null;
+    }
+
+    /**
+     * Gets the recent trails of tracked users.
+     *
+     * @return The trail store, or null if trails are disabled
+     */
+    public TrailStore getTrails() {
+        return trailStore;
+    }
+
+    /**
+     * Enables the on-disk location history.
+     * The locations acknowledged for updates and the locations returned by {@link #getUserLocation}
+     * are appended to a segmented log in the directory, which is kept for the retention period and
+     * compacted in the background. Calling this again closes the current log first.
+     *
+     * @param directory       The directory of the history log
+     * @param retentionMillis How long locations are kept, in milliseconds
+     * @throws IOException if the log cannot be opened
+     * @throws IllegalArgumentException if the retention period is not positive
+     */
+    public void enableHistoryLog(File directory, long retentionMillis) throws IOException {
+        disableHistoryLog();
+        LocationHistoryLog log = new LocationHistoryLog(directory, HISTORY_RECORDS_PER_SEGMENT, retentionMillis);
+        log.startMaintenance(HISTORY_MAINTENANCE_INTERVAL_MILLIS);
+        historyLog = log;
+    }
+
+    /**
+     * Disables the on-disk location history and closes the log. The recorded history stays on disk.
+     */
+    public void disableHistoryLog() {
+        LocationHistoryLog previous = historyLog;
+        historyLog = null;
+        if (previous != null) {
+            try {
+                previous.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to close location history: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Gets the on-disk location history, which answers range reads by user and time window.
+     *
+     * @return The history log, or null if it is disabled
+     */
+    public LocationHistoryLog getHistoryLog() {
+        return historyLog;
+    }
+
+    /**
+     * Enables trajectory simplification of buffered location updates.
+     * Before a batch or a journaled backlog is uploaded, intermediate fixes that lie within the tolerance
+     * of the simplified track of their user are dropped; turns and the first and last fix are kept.
+     * The callbacks of dropped updates receive {@link LocationCallback#onSuperseded()}.
+     * Only updates that are buffered, by batching or the outbox, are simplified.
+     *
+     * @param toleranceMeters The maximum distance, in meters, between a dropped fix and the simplified track
+     * @throws IllegalArgumentException if the tolerance is negative
+     */
+    public void enableTrajectorySimplification(double toleranceMeters) {
+        applyTrajectorySimplifier(new TrajectorySimplifier(toleranceMeters));
+    }
+
+    /**
+     * Disables trajectory simplification, so every buffered update is uploaded.
+     */
+    public void disableTrajectorySimplification() {
+        applyTrajectorySimplifier(null);
+    }
+
+    private void applyTrajectorySimplifier(TrajectorySimplifier simplifier) {
+        trajectorySimplifier = simplifier;
+        LocationBatcher batcher = locationBatcher;
+        if (batcher != null) {
+            batcher.setSimplifier(simplifier);
+        }
+        LocationOutbox outbox = locationOutbox;
+        if (outbox != null) {
+            outbox.setSimplifier(simplifier);
+        }
+    }
+
+    /**
+     * Sends a location update through the batcher when batching is enabled, or directly otherwise.
+     *
+     * @param request  The location update request to send
+     * @param callback Callback to handle the location update result
+     */
+    private void dispatchLocationUpdate(LocationUpdateRequest request, LocationCallback callback) {
+        LocationBatcher batcher = locationBatcher;
+        if (batcher != null) {
+            batcher.submit(request, callback);
+            return;
+        }
+        sendLocationUpdate(request, callback);
+    }
+
+    /**
+     * Enables latest-wins coalescing of location updates.
+     * For each user at most one update is in flight and at most one is pending; a newer update replaces
+     * the pending one, whose callback receives {@link LocationCallback#onSuperseded()}.
+     */
+    public void enableCoalescing() {
+        if (locationCoalescer == null) {
+            locationCoalescer = new LocationCoalescer(this::dispatchLocationUpdate);
+        }
+    }
+
+    /**
+     * Disables coalescing of location updates.
+     * Updates that are already pending are still sent when their in-flight update completes.
+     */
+    public void disableCoalescing() {
+        locationCoalescer = null;
+    }
+
+    /**
+     * Enables the bounded ingestion queue for location updates with the default overflow settings:
+     * sampling keeps one of every {@value #DEFAULT_SAMPLE_EVERY} overflowing updates and blocking
+     * waits up to {@value #DEFAULT_BLOCK_TIMEOUT_MILLIS} ms.
+     *
+     * @param capacity The number of updates the queue holds; rounded up to a power of two
+     * @param policy   What to do with an update that arrives while the queue is full
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public void enableIngestionQueue(int capacity, OverflowPolicy policy) {
+        enableIngestionQueue(capacity, policy, DEFAULT_SAMPLE_EVERY, DEFAULT_BLOCK_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Enables the bounded ingestion queue for location updates.
+     * Updates that pass the filters are placed in a pre-allocated lock-free ring and handed to the upload
+     * pipeline by a dedicated thread, so a burst of fixes cannot grow memory use without limit.
+     * Calling this again replaces the current queue; updates already queued are still sent.
+     *
+     * @param capacity           The number of updates the queue holds; rounded up to a power of two
+     * @param policy             What to do with an update that arrives while the queue is full
+     * @param sampleEvery        For {@link OverflowPolicy#SAMPLE}, keep one of every this many overflowing updates
+     * @param blockTimeoutMillis For {@link OverflowPolicy#BLOCK}, the maximum time a caller waits for room
+     * @throws IllegalArgumentException if the capacity or sampling interval is not positive,
+     *                                  or the timeout is negative
+     */
+    public void enableIngestionQueue(int capacity, OverflowPolicy policy, int sampleEvery, long blockTimeoutMillis) {
+        LocationIngestionQueue previous = ingestionQueue;
+        ingestionQueue = new LocationIngestionQueue(this::submitLocationUpdate, capacity, policy,
+                sampleEvery, blockTimeoutMillis);
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Disables the ingestion queue.
+     * Updates that are already queued are still sent.
+     */
+    public void disableIngestionQueue() {
+        LocationIngestionQueue previous = ingestionQueue;
+        ingestionQueue = null;
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Gets the ingestion queue, whose counters show how many updates overflowed, were dropped, or were displaced.
+     *
+     * @return The ingestion queue, or null if it is disabled
+     */
+    public LocationIngestionQueue getIngestionQueue() {
+        return ingestionQueue;
+    }
+
+    /**
+     * Enables batching of location updates.
+     * Updates are buffered and sent as one batch request when either threshold is reached.
+     * Calling this again replaces the current configuration after flushing buffered updates.
+     *
+     * @param maxBatchSize      The number of buffered updates that triggers a batch upload
+     * @param maxBatchAgeMillis The maximum time an update may wait in the buffer, in milliseconds
+     * @throws IllegalArgumentException if the size or age threshold is not positive
+     */
+    public void enableBatching(int maxBatchSize, long maxBatchAgeMillis) {
+        LocationBatcher previous = locationBatcher;
+        LocationBatcher batcher = new LocationBatcher(apiService, maxBatchSize, maxBatchAgeMillis);
+        batcher.setBinaryEncoding(binaryBatchEncoding);
+        batcher.setSimplifier(trajectorySimplifier);
+        locationBatcher = batcher;
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Disables batching of location updates.
+     * Any buffered updates are sent immediately.
+     */
+    public void disableBatching() {
+        LocationBatcher previous = locationBatcher;
+        locationBatcher = null;
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Enables or disables the compact binary encoding of batched location updates.
+     * The server is asked for the binary format through the request content type; if it does not
+     * support it, batches fall back to JSON automatically.
+     *
+     * @param enabled true to send batches in the binary encoding, false to send them as JSON
+     */
+    public void setBinaryBatchEncoding(boolean enabled) {
+        binaryBatchEncoding = enabled;
+        LocationBatcher batcher = locationBatcher;
+        if (batcher != null) {
+            batcher.setBinaryEncoding(enabled);
+        }
+    }
+
+    /**
+     * Sends all buffered location updates immediately.
+     * Has no effect when batching is disabled.
+     */
+    public void flushLocationUpdates() {
+        LocationBatcher batcher = locationBatcher;
+        if (batcher != null) {
+            batcher.flush();
+        }
+    }
+
+    /**
+     * Enables the durable outbox for location updates.
+     * Every update is appended to the journal file before it is sent, and updates that could not be
+     * delivered are replayed in order once the server is reachable again, including after a restart.
+     * The journal is forced to disk once per {@code maxBatchSize} appended updates.
+     * While the outbox is enabled it takes precedence over batching.
+     * An outbox that is already enabled is shut down, and its journal closed, before the new journal is opened,
+     * so two outboxes never drain the same file.
+     *
+     * @param journalFile  The file in which undelivered updates are journaled
+     * @param maxBatchSize The maximum number of journaled updates sent in one request
+     * @throws IOException if the journal file cannot be opened; the outbox is then left disabled
+     */
+    public void enableOutbox(File journalFile, int maxBatchSize) throws IOException {
+        synchronized (outboxLock) {
+            disableOutbox();
+            LocationJournal journal = new LocationJournal(journalFile, maxBatchSize);
+            LocationOutbox outbox = new LocationOutbox(apiService, journal, maxBatchSize);
+            outbox.setSimplifier(trajectorySimplifier);
+            locationOutbox = outbox;
+        }
+    }
+
+    /**
+     * Disables the durable outbox.
+     * Undelivered updates stay in the journal file and are delivered when the outbox is enabled again.
+     */
+    public void disableOutbox() {
+        synchronized (outboxLock) {
+            LocationOutbox previous = locationOutbox;
+            locationOutbox = null;
+            if (previous != null) {
+                previous.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Retries delivery of journaled updates immediately, without waiting for the outbox backoff.
+     * Call this when connectivity is restored. Has no effect when the outbox is disabled.
+     */
+    public void retryOutbox() {
+        LocationOutbox outbox = locationOutbox;
+        if (outbox != null) {
+            outbox.retryNow();
+        }
+    }
+
+    /**
+     * Sends a single location update request to the server.
+     *
+     * @param request  The location update request to send
+     * @param callback Callback to handle the location update result
+     */
+    private void sendLocationUpdate(LocationUpdateRequest request, final LocationCallback callback) {
         apiService.updateLocation(request).enqueue(new Callback<Location>() {
             @Override
             public void onResponse(@NonNull Call<Location> call, @NonNull Response<Location> response) {
@@ -172,7 +815,7 @@ public class LocationTrackerImpl implements LocationTracker {
                     Log.d(TAG, "Location update successful");
                     callback.onSuccess(response.body());
                 } else {
-                    String errorMessage = getErrorMessage(response);
+                    String errorMessage = ResponseUtils.getErrorMessage(response);
                     Log.e(TAG, "Failed to update location: " + errorMessage);
                     callback.onError(errorMessage);
                 }
@@ -189,22 +832,271 @@ public class LocationTrackerImpl implements LocationTracker {
 
     /**
      * Gets the current location of a user.
+     * When the location cache is enabled, a fresh cached location is returned without a request,
+     * and a stale cached location is returned immediately while it is refreshed in the background.
+     * Concurrent requests for the location of the same user share a single request.
+     * When location prediction is enabled, the returned locations feed the motion model used by
+     * {@link #predictUserLocation(String)}.
      *
      * @param userId   The ID of the user whose location to retrieve
      * @param callback Callback to handle the location retrieval result
      */
     @Override
-    public void getUserLocation(String userId, final LocationCallback callback) {
+    public void getUserLocation(final String userId, final LocationCallback callback) {
         Log.d(TAG, "Getting location for userId: " + userId);
 
-        apiService.getUserLocation(userId).enqueue(new Callback<Location>() {
+        ExpiringCache<String, Location> cache = locationCache;
+        if (cache != null) {
+            ExpiringCache.Entry<Location> entry = cache.get(userId);
+            if (entry != null) {
+                if (entry.isStale()) {
+                    Log.d(TAG, "Serving stale cached location, refreshing in background");
+                    fetchUserLocation(userId, BACKGROUND_REFRESH_CALLBACK);
+                } else {
+                    Log.d(TAG, "Serving cached location");
+                }
+                callback.onSuccess(entry.getValue());
+                return;
+            }
+        }
+        fetchUserLocation(userId, callback);
+    }
+
+    /**
+     * Enables conditional location reads.
+     * The location and validators of each read are remembered, and later reads of the same user send
+     * {@code If-None-Match} and {@code If-Modified-Since}. A {@code 304 Not Modified} response is answered
+     * with the remembered location without downloading or parsing a body. Without a Last-Modified header,
+     * the location's "last_updated" time is used as its modification date.
+     *
+     * @param maxEntries The maximum number of remembered locations; the least recently used is evicted beyond it
+     * @throws IllegalArgumentException if maxEntries is not positive
+     */
+    public void enableConditionalReads(int maxEntries) {
+        locationValidators = new ValidatorCache<>(maxEntries);
+    }
+
+    /**
+     * Disables conditional location reads and forgets all remembered locations.
+     */
+    public void disableConditionalReads() {
+        locationValidators = null;
+    }
+
+    /**
+     * Gets the counters of conditional location reads.
+     * Hits are {@code 304} responses answered from memory and misses are full responses.
+     *
+     * @return A snapshot of the statistics, or null if conditional reads are disabled
+     */
+    public CacheStats getConditionalReadStats() {
+        ValidatorCache<String, Location> validators = locationValidators;
+        return validators != null ? validators.getStats() : null;
+    }
+
+    /**
+     * Gets the current locations of several users.
+     * The IDs are deduplicated and split into chunks of at most the bulk read chunk size, and the chunks
+     * are requested in parallel, so N users take N / chunk size requests instead of N.
+     * When the location cache is enabled, users with a fresh cached location are served from the cache.
+     * If any chunk fails, the callback receives the first error once; locations returned by the other
+     * chunks are still cached.
+     *
+     * @param userIds  The IDs of the users whose locations to retrieve
+     * @param callback Callback to handle the locations retrieval result
+     */
+    @Override
+    public void getUserLocations(Collection<String> userIds, final LocationsCallback callback) {
+        Log.d(TAG, "Getting locations for " + userIds.size() + " users");
+
+        final Map<String, Location> locations = new ConcurrentHashMap<>();
+        List<String> missing = new ArrayList<>();
+        ExpiringCache<String, Location> cache = locationCache;
+        for (String userId : new LinkedHashSet<>(userIds)) {
+            ExpiringCache.Entry<Location> entry = cache != null ? cache.get(userId) : null;
+            if (entry != null && !entry.isStale()) {
+                locations.put(userId, entry.getValue());
+            } else {
+                missing.add(userId);
+            }
+        }
+
+        List<UserLocationsRequest> requests = new ArrayList<>();
+        int chunkSize = bulkReadChunkSize;
+        for (int start = 0; start < missing.size(); start += chunkSize) {
+            requests.add(new UserLocationsRequest(missing.subList(start, Math.min(missing.size(), start + chunkSize))));
+        }
+        if (requests.isEmpty()) {
+            Log.d(TAG, "Serving all locations from cache");
+            callback.onSuccess(Collections.unmodifiableMap(locations));
+            return;
+        }
+
+        final AtomicInteger remaining = new AtomicInteger(requests.size());
+        final AtomicBoolean failed = new AtomicBoolean();
+        for (UserLocationsRequest request : requests) {
+            apiService.getUserLocations(request).enqueue(new Callback<List<Location>>() {
+                @Override
+                public void onResponse(@NonNull Call<List<Location>> call, @NonNull Response<List<Location>> response) {
+                    if (response.isSuccessful() && response.body() != null) {
+                        for (Location location : response.body()) {
+                            if (location != null && location.getUserId() != null) {
+                                onLocationObserved(location);
+                                locations.put(location.getUserId(), location);
+                            }
+                        }
+                        if (remaining.decrementAndGet() == 0 && !failed.get()) {
+                            Log.d(TAG, "Got " + locations.size() + " locations successfully");
+                            callback.onSuccess(Collections.unmodifiableMap(locations));
+                        }
+                    } else {
+                        fail(ResponseUtils.getErrorMessage(response));
+                    }
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<List<Location>> call, @NonNull Throwable t) {
+                    fail("Network error while getting locations: " + t.getMessage());
+                }
+
+                private void fail(String error) {
+                    remaining.decrementAndGet();
+                    if (failed.compareAndSet(false, true)) {
+                        Log.e(TAG, "Failed to get locations: " + error);
+                        callback.onError(error);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Sets the maximum number of user IDs sent in one request by {@link #getUserLocations}.
+     *
+     * @param chunkSize The chunk size, at most {@link ApiService#MAX_USER_LOCATIONS_PER_REQUEST}
+     * @throws IllegalArgumentException if the chunk size is not positive or exceeds the server limit
+     */
+    public void setBulkReadChunkSize(int chunkSize) {
+        if (chunkSize <= 0 || chunkSize > ApiService.MAX_USER_LOCATIONS_PER_REQUEST) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and "
+                    + ApiService.MAX_USER_LOCATIONS_PER_REQUEST);
+        }
+        bulkReadChunkSize = chunkSize;
+    }
+
+    /**
+     * Follows the location of a user through the live location stream instead of polling.
+     * All followed users share one streaming connection, opened on the first subscription through the
+     * tracker's API client, or the default client if the tracker was created with an API service.
+     * The callback receives every new location of the user, and an error when the connection fails;
+     * the stream reconnects on its own and resumes after the last received event.
+     * Streamed locations are recorded like the results of {@link #getUserLocation}.
+     *
+     * @param userId   The ID of the user to follow
+     * @param callback Callback that receives the user's locations
+     * @throws IllegalArgumentException if the user ID is null or empty
+     */
+    public void subscribeToLocation(String userId, LocationCallback callback) {
+        LocationStream stream;
+        synchronized (this) {
+            if (locationStream == null) {
+                locationStream = new LocationStream(apiClient != null ? apiClient : ApiClient.getDefault());
+                locationStream.setObserver(this::onLocationObserved);
+            }
+            stream = locationStream;
+        }
+        stream.subscribe(userId, callback);
+    }
+
+    /**
+     * Stops following the location of a user with a callback.
+     *
+     * @param userId   The ID of the followed user
+     * @param callback The callback passed to {@link #subscribeToLocation}
+     */
+    public void unsubscribeFromLocation(String userId, LocationCallback callback) {
+        LocationStream stream;
+        synchronized (this) {
+            stream = locationStream;
+        }
+        if (stream != null) {
+            stream.unsubscribe(userId, callback);
+        }
+    }
+
+    /**
+     * Closes the live location stream and drops all subscriptions.
+     */
+    public void closeLocationStream() {
+        LocationStream stream;
+        synchronized (this) {
+            stream = locationStream;
+            locationStream = null;
+        }
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    /**
+     * Enables the in-memory location cache used by {@link #getUserLocation(String, LocationCallback)}.
+     * Successful location updates and reads are written through to the cache.
+     * Calling this again replaces the cache and its counters.
+     *
+     * @param maxEntries     The maximum number of cached locations; the least recently used is evicted beyond it
+     * @param ttlMillis      The time, in milliseconds, a cached location is served without a request
+     * @param maxStaleMillis The additional time, in milliseconds, a stale location is served while it is refreshed
+     * @throws IllegalArgumentException if maxEntries or ttlMillis is not positive, or maxStaleMillis is negative
+     */
+    public void enableLocationCache(int maxEntries, long ttlMillis, long maxStaleMillis) {
+        locationCache = new ExpiringCache<>(maxEntries, ttlMillis, maxStaleMillis);
+    }
+
+    /**
+     * Disables the location cache and drops all cached locations.
+     */
+    public void disableLocationCache() {
+        locationCache = null;
+    }
+
+    /**
+     * Removes the cached location of a user, so the next read goes to the server.
+     *
+     * @param userId The ID of the user whose cached location to remove
+     */
+    public void invalidateLocation(String userId) {
+        ExpiringCache<String, Location> cache = locationCache;
+        if (cache != null) {
+            cache.invalidate(userId);
+        }
+    }
+
+    /**
+     * Gets the hit, miss and eviction counters of the location cache.
+     *
+     * @return A snapshot of the cache statistics, or null if the cache is disabled
+     */
+    public CacheStats getLocationCacheStats() {
+        ExpiringCache<String, Location> cache = locationCache;
+        return cache != null ? cache.getStats() : null;
+    }
+
+    /**
+     * Requests the current location of a user from the server.
+     * When conditional reads are enabled and the user's location was read before, the request carries
+     * its validators and a {@code 304 Not Modified} response is answered with the remembered location.
+     *
+     * @param userId   The ID of the user whose location to retrieve
+     * @param callback Callback to handle the location retrieval result
+     */
+    private void fetchUserLocation(final String userId, final LocationCallback callback) {
+        locationReads.execute(userId, done -> readLocation(userId, true, done), new Callback<Location>() {
             @Override
             public void onResponse(@NonNull Call<Location> call, @NonNull Response<Location> response) {
                 if (response.isSuccessful() && response.body() != null) {
-                    Log.d(TAG, "Got location successfully");
                     callback.onSuccess(response.body());
                 } else {
-                    String errorMessage = getErrorMessage(response);
+                    String errorMessage = ResponseUtils.getErrorMessage(response);
                     Log.e(TAG, "Failed to get location: " + errorMessage);
                     callback.onError(errorMessage);
                 }
@@ -220,22 +1112,178 @@ public class LocationTrackerImpl implements LocationTracker {
     }
 
     /**
-     * Extracts error message from an unsuccessful response.
-     * Attempts to read the error body and formats it with the response code.
+     * Reads the location of a user once for all callers waiting on the read, and records the result
+     * in the caches, the motion model, the spatial index, the trails and the history before completing.
+     * A {@code 304 Not Modified} response completes with the remembered location; if that location is no
+     * longer remembered, the read is repeated without validators.
      *
-     * @param response The unsuccessful response to extract the error from
-     * @return A formatted string containing the error message and response code
+     * @param userId      The ID of the user whose location to retrieve
+     * @param conditional Whether the read may carry the remembered validators
+     * @param done        Callback that delivers the result to every waiting caller
      */
-    @SuppressLint("DefaultLocale")
-    private String getErrorMessage(Response<?> response) {
-        String errorBody = "";
-        try {
-            if (response.errorBody() != null) {
-                errorBody = response.errorBody().string();
+    private void readLocation(final String userId, final boolean conditional, final Callback<Location> done) {
+        Call<Location> read = conditional ? newLocationRead(userId) : apiService.getUserLocation(userId);
+        read.enqueue(new Callback<Location>() {
+            @Override
+            public void onResponse(@NonNull Call<Location> call, @NonNull Response<Location> response) {
+                ValidatorCache<String, Location> validators = locationValidators;
+                if (response.code() == 304 && conditional) {
+                    ValidatorCache.Validated<Location> known = validators != null ? validators.get(userId) : null;
+                    if (known == null) {
+                        Log.d(TAG, "Location not modified but no longer remembered, reading it again");
+                        readLocation(userId, false, done);
+                        return;
+                    }
+                    Log.d(TAG, "Location not modified, serving remembered location");
+                    validators.recordNotModified();
+                    onLocationObserved(known.getValue());
+                    done.onResponse(call, Response.success(known.getValue()));
+                    return;
+                }
+                if (response.isSuccessful() && response.body() != null) {
+                    Log.d(TAG, "Got location successfully");
+                    if (validators != null) {
+                        rememberValidators(validators, response);
+                    }
+                    onLocationObserved(response.body());
+                    recordHistory(response.body());
+                }
+                done.onResponse(call, response);
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<Location> call, @NonNull Throwable t) {
+                done.onFailure(call, t);
+            }
+        });
+    }
+
+    /**
+     * Creates a location read for a user, conditional on the remembered validators if there are any.
+     *
+     * @param userId The ID of the user whose location to retrieve
+     * @return The call to execute
+     */
+    private Call<Location> newLocationRead(String userId) {
+        ValidatorCache<String, Location> validators = locationValidators;
+        ValidatorCache.Validated<Location> known = validators != null ? validators.get(userId) : null;
+        if (known == null) {
+            return apiService.getUserLocation(userId);
+        }
+        return apiService.getUserLocation(userId, known.getETag(), known.getLastModified());
+    }
+
+    /**
+     * Remembers the validators of a location response.
+     * Without a Last-Modified header, the location's last update time is used as the modification date.
+     *
+     * @param validators The validator cache
+     * @param response   The successful response
+     */
+    private static void rememberValidators(ValidatorCache<String, Location> validators, Response<Location> response) {
+        Location location = response.body();
+        String lastModified = response.headers().get("Last-Modified");
+        if (lastModified == null) {
+            long lastUpdated = DateUtils.parseISODate(location.getLastUpdated());
+            lastModified = lastUpdated >= 0 ? DateUtils.formatHttpDate(lastUpdated) : null;
+        }
+        validators.put(location.getUserId(), location, response.headers().get("ETag"), lastModified);
+    }
+
+    /**
+     * Wraps a location update callback so that the acknowledged location is recorded before
+     * the caller is notified.
+     *
+     * @param callback The caller's callback
+     * @return A callback that records successful results and forwards every outcome
+     */
+    private LocationCallback observeLocations(final LocationCallback callback) {
+        return new LocationCallback() {
+            @Override
+            public void onSuccess(Location location) {
+                onLocationAcknowledged(location);
+                callback.onSuccess(location);
             }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+
+            @Override
+            public void onSuperseded() {
+                callback.onSuperseded();
+            }
+        };
+    }
+
+    /**
+     * Records a location the server acknowledged for an update sent by this tracker.
+     *
+     * @param location The acknowledged location
+     */
+    private void onLocationAcknowledged(Location location) {
+        DeadbandFilter filter = deadbandFilter;
+        if (filter != null && location.getUserId() != null) {
+            filter.onAcknowledged(location);
+        }
+        onLocationObserved(location);
+        recordHistory(location);
+    }
+
+    /**
+     * Appends a location to the on-disk history when it is enabled.
+     *
+     * @param location The location to record
+     */
+    private void recordHistory(Location location) {
+        LocationHistoryLog log = historyLog;
+        if (log == null) {
+            return;
+        }
+        try {
+            log.append(location);
         } catch (IOException e) {
-            errorBody = "Could not read error body";
+            Log.e(TAG, "Failed to record location history: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Records a location received from the server in the location cache, the motion model and the spatial index.
+     *
+     * @param location The location returned by the server
+     */
+    private void onLocationObserved(Location location) {
+        if (location.getUserId() == null) {
+            return;
+        }
+        ExpiringCache<String, Location> cache = locationCache;
+        if (cache != null) {
+            cache.put(location.getUserId(), location);
+        }
+        MotionModel model = motionModel;
+        if (model != null) {
+            model.update(location);
+        }
+        SpatialIndex index = spatialIndex;
+        if (index != null) {
+            index.update(location);
+        }
+        TrailStore trails = trailStore;
+        if (trails != null) {
+            trails.record(location);
+        }
+    }
+
+    /**
+     * Records a user received from the server in the user cache.
+     *
+     * @param user The user returned by the server
+     */
+    private void onUserObserved(User user) {
+        ExpiringCache<String, User> cache = userCache;
+        if (cache != null && user.getId() != null) {
+            cache.put(user.getId(), user);
         }
-        return String.format("Code: %d, Error: %s", response.code(), errorBody);
     }
-}
\ No newline at end of file
+}
@@ -1,36 +1,117 @@
 package com.omri.trackinglibrary.api;
 
+import com.google.gson.Gson;
+import com.omri.trackinglibrary.api.json.JsonAdapters;
+import com.omri.trackinglibrary.metrics.MetricsInterceptor;
+import com.omri.trackinglibrary.metrics.MetricsRegistry;
+import com.omri.trackinglibrary.network.CircuitBreaker;
+import com.omri.trackinglibrary.network.HedgingCallAdapterFactory;
+import com.omri.trackinglibrary.network.HedgingPolicy;
+import com.omri.trackinglibrary.network.RateLimitedCallAdapterFactory;
+import com.omri.trackinglibrary.network.RateLimiter;
+import com.omri.trackinglibrary.network.RetryPolicy;
+import com.omri.trackinglibrary.network.RetryStats;
+import com.omri.trackinglibrary.network.RetryingCallAdapterFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 /**
- * ApiClient is responsible for creating and providing a singleton instance of Retrofit.
- * It is configured with the base URL and a Gson converter factory for JSON serialization and deserialization.
+ * ApiClient owns the HTTP transport used to talk to the tracking server: a configured OkHttpClient
+ * with its connection pool and dispatcher, and a Retrofit instance bound to a base URL.
+ * JSON is converted with the streaming adapters registered by {@link JsonAdapters}.
+ * Instances are created with a {@link Builder} and are immutable and safe to share between threads.
+ *
+ * <p>The static methods manage a shared default client. It is created lazily and published safely,
+ * and changing the base URL keeps its OkHttpClient, so pooled connections are reused by trackers
+ * created afterwards.</p>
  */
 public class ApiClient {
     private static final String DEFAULT_BASE_URL = "https://live-location-tracking-backend.vercel.app/";
-    private static String baseUrl = DEFAULT_BASE_URL;
-    private static Retrofit retrofit = null;
+    private static final Object LOCK = new Object();
+    private static final Gson GSON = JsonAdapters.createGson();
+    private static volatile String baseUrl = DEFAULT_BASE_URL;
+    private static volatile ApiClient defaultClient = null;
+
+    private final OkHttpClient httpClient;
+    private final Retrofit retrofit;
+    private final RateLimiter rateLimiter;
+    private final long rateLimitMaxWaitMillis;
+    private final RetryPolicy readPolicy;
+    private final RetryPolicy writePolicy;
+    private final int circuitFailureThreshold;
+    private final long circuitOpenMillis;
+    private final RetryingCallAdapterFactory retries;
+    private final HedgingCallAdapterFactory hedging;
+    private final MetricsRegistry metrics;
+
+    private ApiClient(OkHttpClient httpClient, Builder settings, CircuitBreaker circuitBreaker) {
+        this.httpClient = httpClient;
+        this.rateLimiter = settings.rateLimiter;
+        this.rateLimitMaxWaitMillis = settings.rateLimitMaxWaitMillis;
+        this.readPolicy = settings.readPolicy;
+        this.writePolicy = settings.writePolicy;
+        this.circuitFailureThreshold = settings.circuitFailureThreshold;
+        this.circuitOpenMillis = settings.circuitOpenMillis;
+        this.metrics = settings.metrics;
+        Retrofit.Builder builder = new Retrofit.Builder()
+                .baseUrl(settings.baseUrl)
+                .client(httpClient)
+                .addConverterFactory(GsonConverterFactory.create(GSON));
+        if (settings.retries != null) {
+            retries = settings.retries.withCircuitBreaker(circuitBreaker);
+            builder.addCallAdapterFactory(retries);
+        } else if (readPolicy != null || writePolicy != null || circuitBreaker != null) {
+            retries = new RetryingCallAdapterFactory(readPolicy, writePolicy, circuitBreaker);
+            // Creating a user is not idempotent, so a retry could create a second user
+            retries.setPolicy("POST api/users/create", RetryPolicy.NONE);
+            builder.addCallAdapterFactory(retries);
+        } else {
+            retries = null;
+        }
+        if (settings.hedging != null) {
+            hedging = settings.hedging;
+            builder.addCallAdapterFactory(hedging);
+        } else if (settings.hedgingPolicy != null) {
+            hedging = new HedgingCallAdapterFactory(settings.hedgingPolicy);
+            builder.addCallAdapterFactory(hedging);
+        } else {
+            hedging = null;
+        }
+        if (rateLimiter != null) {
+            builder.addCallAdapterFactory(new RateLimitedCallAdapterFactory(rateLimiter, rateLimitMaxWaitMillis));
+        }
+        this.retrofit = builder.build();
+    }
 
     /**
-     * Sets a custom base URL for the API client.
-     * Must be called before the first getClient() call to take effect.
+     * Sets a custom base URL for the default API client.
+     * Services created before this call keep using the previous base URL.
+     * The underlying OkHttpClient, and with it the connection pool, is kept.
      *
      * @param url The base URL to use for API calls
      * @throws IllegalArgumentException if the URL is null or empty
      */
     public static void setBaseUrl(String url) {
-        if (url == null || url.trim().isEmpty()) {
-            throw new IllegalArgumentException("Base URL cannot be null or empty");
+        String normalized = normalizeBaseUrl(url);
+        synchronized (LOCK) {
+            baseUrl = normalized;
+            if (defaultClient != null) {
+                defaultClient = defaultClient.newBuilder().baseUrl(normalized).build();
+            }
         }
-        // Ensure URL ends with '/'
-        baseUrl = url.endsWith("/") ? url : url + "/";
-        // Reset retrofit instance to create new one with new base URL
-        retrofit = null;
     }
 
     /**
-     * Gets the current base URL being used by the client.
+     * Gets the current base URL being used by the default client.
      *
      * @return The current base URL
      */
@@ -39,26 +120,511 @@ public class ApiClient {
     }
 
     /**
-     * Provides the singleton instance of Retrofit. If the instance is not created, it initializes it.
+     * Provides the Retrofit instance of the default client, creating the client if needed.
      *
-     * @return A singleton Retrofit instance configured with the base URL and Gson converter.
+     * @return A Retrofit instance configured with the base URL and Gson converter.
      */
     public static Retrofit getClient() {
-        if (retrofit == null) {
-            retrofit = new Retrofit.Builder()
-                    .baseUrl(baseUrl)
-                    .addConverterFactory(GsonConverterFactory.create())
-                    .build();
+        return getDefault().getRetrofit();
+    }
+
+    /**
+     * Provides the OkHttpClient of the default client, creating the client if needed.
+     * Share it with other components that talk to the tracking server to reuse its connections.
+     *
+     * @return The OkHttpClient of the default client
+     */
+    public static OkHttpClient getHttpClient() {
+        return getDefault().getOkHttpClient();
+    }
+
+    /**
+     * Provides the default client, creating it with the default transport settings if needed.
+     *
+     * @return The default ApiClient
+     */
+    public static ApiClient getDefault() {
+        ApiClient client = defaultClient;
+        if (client == null) {
+            synchronized (LOCK) {
+                client = defaultClient;
+                if (client == null) {
+                    client = new Builder().baseUrl(baseUrl).build();
+                    defaultClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Replaces the default client, for example with one built with custom transport settings.
+     * Its base URL becomes the current base URL.
+     *
+     * @param client The client to use as the default
+     * @throws IllegalArgumentException if the client is null
+     */
+    public static void setDefault(ApiClient client) {
+        if (client == null) {
+            throw new IllegalArgumentException("Client cannot be null");
+        }
+        synchronized (LOCK) {
+            baseUrl = client.getRetrofit().baseUrl().toString();
+            defaultClient = client;
         }
-        return retrofit;
     }
 
     /**
      * Resets the API client to its initial state.
-     * This includes resetting the base URL to default and clearing the Retrofit instance.
+     * This includes resetting the base URL to default and clearing the default client.
      */
     public static void reset() {
-        baseUrl = DEFAULT_BASE_URL;
-        retrofit = null;
+        synchronized (LOCK) {
+            baseUrl = DEFAULT_BASE_URL;
+            defaultClient = null;
+        }
+    }
+
+    /**
+     * Gets the Retrofit instance of this client.
+     *
+     * @return The Retrofit instance bound to this client's base URL and OkHttpClient
+     */
+    public Retrofit getRetrofit() {
+        return retrofit;
+    }
+
+    /**
+     * Gets the OkHttpClient of this client.
+     *
+     * @return The OkHttpClient that owns the connection pool and dispatcher
+     */
+    public OkHttpClient getOkHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Gets the rate limiter that calls of this client's services go through.
+     *
+     * @return The rate limiter, or null if calls are not rate limited
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Gets the circuit breaker that guards the calls of this client's services.
+     *
+     * @return The circuit breaker of this client's base URL, or null if there is none
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return retries != null ? retries.getCircuitBreaker() : null;
+    }
+
+    /**
+     * Gets the retry statistics of all calls of this client's services.
+     *
+     * @return The retry statistics, all zero if retries are disabled
+     */
+    public RetryStats getRetryStats() {
+        return retries != null ? retries.getRetryStats() : new RetryStats();
+    }
+
+    /**
+     * Gets the retry statistics of one endpoint.
+     *
+     * @param endpoint The endpoint, such as "GET api/locations/user/{userId}"
+     * @return The retry statistics, all zero if retries are disabled
+     */
+    public RetryStats getRetryStats(String endpoint) {
+        return retries != null ? retries.getRetryStats(endpoint) : new RetryStats();
+    }
+
+    /**
+     * Gets the hedging of this client's idempotent reads, with its statistics.
+     *
+     * @return The hedging call adapter factory, or null if reads are not hedged
+     */
+    public HedgingCallAdapterFactory getHedging() {
+        return hedging;
+    }
+
+    /**
+     * Gets the registry that records the latency, outcomes and bytes of every call of this client.
+     *
+     * @return The metrics registry, or null if metrics are not recorded
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Creates an implementation of an API service interface backed by this client.
+     *
+     * @param service The service interface, such as {@link ApiService}
+     * @param <T>     The type of the service
+     * @return An implementation of the service interface
+     */
+    public <T> T create(Class<T> service) {
+        return retrofit.create(service);
+    }
+
+    /**
+     * Creates a builder for a client that shares this client's OkHttpClient, base URL, rate limiter,
+     * retry, hedging and metrics settings. The circuit breaker is shared as long as the base URL is not changed.
+     * Retry statistics and hedging state are carried over unless the retry or hedging policy is changed.
+     *
+     * @return A builder initialized from this client
+     */
+    public Builder newBuilder() {
+        Builder builder = new Builder().httpClient(httpClient).baseUrl(retrofit.baseUrl().toString());
+        if (rateLimiter != null) {
+            builder.rateLimiter(rateLimiter, rateLimitMaxWaitMillis, TimeUnit.MILLISECONDS);
+        }
+        builder.retryPolicies(readPolicy, writePolicy);
+        builder.retries = retries;
+        if (hedging != null) {
+            builder.hedgingPolicy(hedging.getPolicy());
+            builder.hedging = hedging;
+        }
+        if (metrics != null) {
+            builder.metrics(metrics);
+        }
+        if (circuitFailureThreshold > 0) {
+            builder.circuitBreaker(circuitFailureThreshold, circuitOpenMillis, TimeUnit.MILLISECONDS);
+            builder.circuitBreaker = getCircuitBreaker();
+        }
+        return builder;
+    }
+
+    private static boolean recordsInto(OkHttpClient client, MetricsRegistry metrics) {
+        for (Interceptor interceptor : client.interceptors()) {
+            if (interceptor instanceof MetricsInterceptor && ((MetricsInterceptor) interceptor).getRegistry() == metrics) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalizeBaseUrl(String url) {
+        if (url == null || url.trim().isEmpty()) {
+            throw new IllegalArgumentException("Base URL cannot be null or empty");
+        }
+        // Ensure URL ends with '/'
+        return url.endsWith("/") ? url : url + "/";
+    }
+
+    /**
+     * Builder for ApiClient instances with configurable transport settings.
+     * Unless an existing OkHttpClient is supplied, a new one is built with its own connection pool and dispatcher.
+     */
+    public static final class Builder {
+        private String baseUrl = DEFAULT_BASE_URL;
+        private OkHttpClient httpClient;
+        private int maxIdleConnections = 5;
+        private long keepAliveMillis = TimeUnit.MINUTES.toMillis(5);
+        private int maxRequests = 64;
+        private int maxRequestsPerHost = 16;
+        private List<Protocol> protocols = Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1);
+        private long connectTimeoutMillis = TimeUnit.SECONDS.toMillis(10);
+        private long readTimeoutMillis = TimeUnit.SECONDS.toMillis(15);
+        private long writeTimeoutMillis = TimeUnit.SECONDS.toMillis(15);
+        private long callTimeoutMillis = 0;
+        private final List<Interceptor> interceptors = new ArrayList<>();
+        private RateLimiter rateLimiter;
+        private long rateLimitMaxWaitMillis = TimeUnit.SECONDS.toMillis(30);
+        private RetryPolicy readPolicy;
+        private RetryPolicy writePolicy;
+        private RetryingCallAdapterFactory retries;
+        private int circuitFailureThreshold;
+        private long circuitOpenMillis;
+        private CircuitBreaker circuitBreaker;
+        private HedgingPolicy hedgingPolicy;
+        private HedgingCallAdapterFactory hedging;
+        private MetricsRegistry metrics;
+
+        /**
+         * Sets the base URL requests are sent to.
+         *
+         * @param url The base URL; a trailing '/' is added if missing
+         * @return This builder
+         * @throws IllegalArgumentException if the URL is null or empty
+         */
+        public Builder baseUrl(String url) {
+            this.baseUrl = normalizeBaseUrl(url);
+            return this;
+        }
+
+        /**
+         * Uses an existing OkHttpClient, sharing its connection pool and dispatcher.
+         * The transport settings of this builder are ignored when a client is supplied,
+         * but added interceptors are still applied.
+         *
+         * @param httpClient The client to share
+         * @return This builder
+         */
+        public Builder httpClient(OkHttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        /**
+         * Sets the size of the connection pool and how long idle connections are kept alive.
+         *
+         * @param maxIdleConnections The maximum number of idle connections to keep
+         * @param keepAlive          How long an idle connection is kept
+         * @param unit               The unit of the keep-alive duration
+         * @return This builder
+         * @throws IllegalArgumentException if a value is negative
+         */
+        public Builder connectionPool(int maxIdleConnections, long keepAlive, TimeUnit unit) {
+            if (maxIdleConnections < 0 || keepAlive < 0) {
+                throw new IllegalArgumentException("Connection pool settings cannot be negative");
+            }
+            this.maxIdleConnections = maxIdleConnections;
+            this.keepAliveMillis = unit.toMillis(keepAlive);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of requests executed concurrently across all hosts.
+         *
+         * @param maxRequests The concurrency limit
+         * @return This builder
+         * @throws IllegalArgumentException if the limit is less than 1
+         */
+        public Builder maxRequests(int maxRequests) {
+            if (maxRequests < 1) {
+                throw new IllegalArgumentException("Max requests must be at least 1");
+            }
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of requests executed concurrently for each host.
+         * With HTTP/2 these requests are multiplexed over a single connection.
+         *
+         * @param maxRequestsPerHost The per-host concurrency limit
+         * @return This builder
+         * @throws IllegalArgumentException if the limit is less than 1
+         */
+        public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+            if (maxRequestsPerHost < 1) {
+                throw new IllegalArgumentException("Max requests per host must be at least 1");
+            }
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Sets the protocols to negotiate, in order of preference.
+         * The list must contain {@link Protocol#HTTP_1_1}.
+         *
+         * @param protocols The protocols to use
+         * @return This builder
+         */
+        public Builder protocols(List<Protocol> protocols) {
+            this.protocols = new ArrayList<>(protocols);
+            return this;
+        }
+
+        /**
+         * Sets the connect timeout.
+         *
+         * @param timeout The timeout, or 0 for none
+         * @param unit    The unit of the timeout
+         * @return This builder
+         */
+        public Builder connectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Sets the read timeout.
+         *
+         * @param timeout The timeout, or 0 for none
+         * @param unit    The unit of the timeout
+         * @return This builder
+         */
+        public Builder readTimeout(long timeout, TimeUnit unit) {
+            this.readTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Sets the write timeout.
+         *
+         * @param timeout The timeout, or 0 for none
+         * @param unit    The unit of the timeout
+         * @return This builder
+         */
+        public Builder writeTimeout(long timeout, TimeUnit unit) {
+            this.writeTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Sets the timeout for complete calls, including redirects and retries.
+         *
+         * @param timeout The timeout, or 0 for none
+         * @param unit    The unit of the timeout
+         * @return This builder
+         */
+        public Builder callTimeout(long timeout, TimeUnit unit) {
+            this.callTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Adds an application interceptor to the OkHttpClient.
+         *
+         * @param interceptor The interceptor to add
+         * @return This builder
+         */
+        public Builder addInterceptor(Interceptor interceptor) {
+            this.interceptors.add(interceptor);
+            return this;
+        }
+
+        /**
+         * Sends the calls of the client's services through a rate limiter.
+         * Asynchronous calls that find their endpoint's queue full fail with a
+         * {@link com.omri.trackinglibrary.network.RateLimitExceededException}.
+         *
+         * @param rateLimiter The rate limiter, or null to send calls without limits
+         * @return This builder
+         */
+        public Builder rateLimiter(RateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        /**
+         * Sends the calls of the client's services through a rate limiter, and sets how long
+         * synchronous calls wait for a token before failing.
+         *
+         * @param rateLimiter The rate limiter, or null to send calls without limits
+         * @param maxWait     The maximum wait of a synchronous call
+         * @param unit        The unit of the maximum wait
+         * @return This builder
+         */
+        public Builder rateLimiter(RateLimiter rateLimiter, long maxWait, TimeUnit unit) {
+            this.rateLimiter = rateLimiter;
+            this.rateLimitMaxWaitMillis = unit.toMillis(maxWait);
+            return this;
+        }
+
+        /**
+         * Retries failed calls of the client's services.
+         * GET requests and {@link com.omri.trackinglibrary.network.Idempotent} methods use the read policy,
+         * all other calls the write policy. Creating a user is never retried.
+         *
+         * @param readPolicy  The policy of idempotent reads, or null to not retry them
+         * @param writePolicy The policy of writes, or null to not retry them
+         * @return This builder
+         */
+        public Builder retryPolicies(RetryPolicy readPolicy, RetryPolicy writePolicy) {
+            this.readPolicy = readPolicy;
+            this.writePolicy = writePolicy;
+            this.retries = null;
+            return this;
+        }
+
+        /**
+         * Guards the calls of the client's services with a circuit breaker for the base URL.
+         * After the given number of consecutive network errors or 5xx responses, calls fail fast with a
+         * {@link com.omri.trackinglibrary.network.CircuitOpenException} until the open period has passed
+         * and a probe call succeeds.
+         *
+         * @param failureThreshold The number of consecutive failures that opens the circuit
+         * @param openDuration     How long the circuit stays open before a probe
+         * @param unit             The unit of the open duration
+         * @return This builder
+         * @throws IllegalArgumentException if the threshold is less than 1 or the duration is negative
+         */
+        public Builder circuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+            if (failureThreshold < 1 || openDuration < 0) {
+                throw new IllegalArgumentException("Circuit breaker settings must be positive");
+            }
+            this.circuitFailureThreshold = failureThreshold;
+            this.circuitOpenMillis = unit.toMillis(openDuration);
+            this.circuitBreaker = null;
+            return this;
+        }
+
+        /**
+         * Hedges the idempotent reads of the client's services, such as getUserLocation and verifyUser:
+         * a read still waiting after the policy's latency percentile is sent again, the first response
+         * wins and the other request is cancelled.
+         *
+         * @param hedgingPolicy The hedging policy, or null to not hedge reads
+         * @return This builder
+         */
+        public Builder hedgingPolicy(HedgingPolicy hedgingPolicy) {
+            this.hedgingPolicy = hedgingPolicy;
+            this.hedging = null;
+            return this;
+        }
+
+        /**
+         * Records the latency histogram, outcome counters and byte counts of every call in a registry,
+         * keyed by ApiService method name. Use {@link MetricsRegistry#snapshot()} to export them.
+         *
+         * @param metrics The registry to record into, or null to not record metrics
+         * @return This builder
+         */
+        public Builder metrics(MetricsRegistry metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Builds the client.
+         *
+         * @return A new ApiClient
+         * @throws IllegalArgumentException if the protocol list is invalid
+         */
+        public ApiClient build() {
+            OkHttpClient client = httpClient;
+            if (client == null) {
+                Dispatcher dispatcher = new Dispatcher();
+                dispatcher.setMaxRequests(maxRequests);
+                dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+                OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                        .dispatcher(dispatcher)
+                        .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMillis, TimeUnit.MILLISECONDS))
+                        .protocols(protocols)
+                        .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                        .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                        .writeTimeout(writeTimeoutMillis, TimeUnit.MILLISECONDS)
+                        .callTimeout(callTimeoutMillis, TimeUnit.MILLISECONDS);
+                for (Interceptor interceptor : interceptors) {
+                    builder.addInterceptor(interceptor);
+                }
+                if (metrics != null) {
+                    builder.addInterceptor(new MetricsInterceptor(metrics));
+                }
+                client = builder.build();
+            } else if (!interceptors.isEmpty() || (metrics != null && !recordsInto(client, metrics))) {
+                OkHttpClient.Builder builder = client.newBuilder();
+                for (Interceptor interceptor : interceptors) {
+                    builder.addInterceptor(interceptor);
+                }
+                if (metrics != null && !recordsInto(client, metrics)) {
+                    builder.addInterceptor(new MetricsInterceptor(metrics));
+                }
+                client = builder.build();
+            }
+            CircuitBreaker breaker = circuitBreaker;
+            if (breaker == null || !breaker.getName().equals(baseUrl)) {
+                breaker = circuitFailureThreshold > 0
+                        ? new CircuitBreaker(baseUrl, circuitFailureThreshold, circuitOpenMillis)
+                        : null;
+            }
+            return new ApiClient(client, this, breaker);
+        }
     }
 }
@@ -2,9 +2,13 @@ package com.omri.trackinglibrary.api;
 
 import com.omri.trackinglibrary.models.Location;
 import com.omri.trackinglibrary.models.User;
+import com.omri.trackinglibrary.network.Idempotent;
+import java.util.List;
+import okhttp3.RequestBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.PATCH;
 import retrofit2.http.POST;
 import retrofit2.http.Path;
@@ -14,6 +18,11 @@ import retrofit2.http.Path;
  */
 public interface ApiService {
 
+    /**
+     * The maximum number of user IDs the server accepts in one {@link #getUserLocations} request.
+     */
+    int MAX_USER_LOCATIONS_PER_REQUEST = 100;
+
     /**
      * Creates a new user.
      *
@@ -29,6 +38,7 @@ public interface ApiService {
      * @param request The user verification request containing the user ID
      * @return A Call object with the verified User
      */
+    @Idempotent
     @POST("api/users/verify")
     Call<User> verifyUser(@Body UserVerifyRequest request);
 
@@ -51,6 +61,27 @@ public interface ApiService {
     @POST("api/locations/update")
     Call<Location> updateLocation(@Body LocationUpdateRequest request);
 
+    /**
+     * Updates the locations of one or more users in a single request.
+     * The server responds with one Location per request, in the same order as the requests.
+     *
+     * @param requests The location update requests to apply
+     * @return A Call object with the updated Locations
+     */
+    @POST("api/locations/update/batch")
+    Call<List<Location>> updateLocations(@Body List<LocationUpdateRequest> requests);
+
+    /**
+     * Updates the locations of one or more users in a single request with a pre-encoded body.
+     * Used to upload batches in the compact {@link BinaryLocationCodec} format; the content type
+     * of the body tells the server which encoding is used.
+     *
+     * @param body The encoded location update requests
+     * @return A Call object with the updated Locations, in request order
+     */
+    @POST("api/locations/update/batch")
+    Call<List<Location>> updateLocationsEncoded(@Body RequestBody body);
+
     /**
      * Gets a user's current location.
      *
@@ -59,4 +90,30 @@ public interface ApiService {
      */
     @GET("api/locations/user/{userId}")
     Call<Location> getUserLocation(@Path("userId") String userId);
+
+    /**
+     * Gets a user's current location only if it changed since the given validators were issued.
+     * The server responds with {@code 304 Not Modified} and no body if the location did not change.
+     *
+     * @param userId          The ID of the user whose location to retrieve
+     * @param ifNoneMatch     The ETag of the known location, or null
+     * @param ifModifiedSince The HTTP date of the known location, or null
+     * @return A Call object with the user's Location, or a 304 response
+     */
+    @GET("api/locations/user/{userId}")
+    Call<Location> getUserLocation(@Path("userId") String userId,
+                                   @Header("If-None-Match") String ifNoneMatch,
+                                   @Header("If-Modified-Since") String ifModifiedSince);
+
+    /**
+     * Gets the current locations of several users in a single request.
+     * The server responds with the locations of the users that have one, in any order,
+     * and accepts at most {@link #MAX_USER_LOCATIONS_PER_REQUEST} user IDs per request.
+     *
+     * @param request The request containing the IDs of the users whose locations to retrieve
+     * @return A Call object with the users' Locations
+     */
+    @Idempotent
+    @POST("api/locations/users")
+    Call<List<Location>> getUserLocations(@Body UserLocationsRequest request);
 }
@@ -0,0 +1,189 @@
+package com.omri.trackinglibrary.api;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+
+/**
+ * BinaryLocationCodec encodes batches of location updates in a compact binary format.
+ * It is an alternative to the JSON encoding of {@link LocationUpdateRequest} for batch uploads,
+ * selected through the {@link #CONTENT_TYPE} content type of the request.
+ *
+ * <p>Format: a version byte and the number of groups, followed by the groups. A group is a run of
+ * consecutive updates for the same user: the user ID, the number of fixes, and the fixes. Coordinates
+ * are fixed-point integers in units of 1e-7 degrees; each fix is stored as the difference from the
+ * previous fix of the group, so slow movement costs one or two bytes per coordinate. All integers are
+ * varints, signed values are zigzag encoded. The order of the updates is preserved.</p>
+ */
+public final class BinaryLocationCodec {
+
+    /**
+     * Content type of a binary encoded location batch.
+     */
+    public static final String CONTENT_TYPE = "application/x-location-batch";
+
+    /**
+     * Media type of a binary encoded location batch.
+     */
+    public static final MediaType MEDIA_TYPE = MediaType.get(CONTENT_TYPE);
+
+    private static final int VERSION = 1;
+    private static final double FIXED_POINT_SCALE = 1e7;
+
+    private BinaryLocationCodec() {
+    }
+
+    /**
+     * Encodes location updates into a request body with the binary content type.
+     *
+     * @param requests The updates to encode
+     * @return The encoded request body
+     */
+    public static RequestBody toRequestBody(List<LocationUpdateRequest> requests) {
+        return RequestBody.create(MEDIA_TYPE, encode(requests));
+    }
+
+    /**
+     * Encodes location updates.
+     *
+     * @param requests The updates to encode
+     * @return The encoded bytes
+     */
+    public static byte[] encode(List<LocationUpdateRequest> requests) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + requests.size() * 6);
+        out.write(VERSION);
+        writeVarint(out, countGroups(requests));
+
+        int start = 0;
+        while (start < requests.size()) {
+            String userId = requests.get(start).getUserId();
+            int end = start + 1;
+            while (end < requests.size() && userId.equals(requests.get(end).getUserId())) {
+                end++;
+            }
+
+            byte[] userIdBytes = userId.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, userIdBytes.length);
+            out.write(userIdBytes, 0, userIdBytes.length);
+            writeVarint(out, end - start);
+
+            long previousLatitude = 0;
+            long previousLongitude = 0;
+            for (int i = start; i < end; i++) {
+                long latitude = toFixedPoint(requests.get(i).getLatitude());
+                long longitude = toFixedPoint(requests.get(i).getLongitude());
+                writeVarint(out, zigzag(latitude - previousLatitude));
+                writeVarint(out, zigzag(longitude - previousLongitude));
+                previousLatitude = latitude;
+                previousLongitude = longitude;
+            }
+            start = end;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes location updates encoded by {@link #encode(List)}.
+     *
+     * @param bytes The encoded bytes
+     * @return The decoded updates, in their original order
+     * @throws IllegalArgumentException if the bytes are not a valid encoding
+     */
+    public static List<LocationUpdateRequest> decode(byte[] bytes) {
+        Reader reader = new Reader(bytes);
+        int version = reader.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary location format version: " + version);
+        }
+        List<LocationUpdateRequest> requests = new ArrayList<>();
+        long groups = reader.readVarint();
+        for (long group = 0; group < groups; group++) {
+            String userId = reader.readString((int) reader.readVarint());
+            long fixes = reader.readVarint();
+            long latitude = 0;
+            long longitude = 0;
+            for (long fix = 0; fix < fixes; fix++) {
+                latitude += unzigzag(reader.readVarint());
+                longitude += unzigzag(reader.readVarint());
+                requests.add(new LocationUpdateRequest(userId,
+                        latitude / FIXED_POINT_SCALE, longitude / FIXED_POINT_SCALE));
+            }
+        }
+        return requests;
+    }
+
+    private static int countGroups(List<LocationUpdateRequest> requests) {
+        int groups = 0;
+        String previous = null;
+        for (LocationUpdateRequest request : requests) {
+            if (!request.getUserId().equals(previous)) {
+                groups++;
+                previous = request.getUserId();
+            }
+        }
+        return groups;
+    }
+
+    private static long toFixedPoint(double degrees) {
+        return Math.round(degrees * FIXED_POINT_SCALE);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Sequential reader over encoded bytes.
+     */
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int readByte() {
+            if (position >= bytes.length) {
+                throw new IllegalArgumentException("Truncated binary location batch");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in binary location batch");
+        }
+
+        String readString(int length) {
+            if (length < 0 || position + length > bytes.length) {
+                throw new IllegalArgumentException("Truncated binary location batch");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
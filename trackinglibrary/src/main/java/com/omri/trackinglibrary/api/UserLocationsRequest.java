@@ -0,0 +1,49 @@
+package com.omri.trackinglibrary.api;
+
+import com.google.gson.annotations.SerializedName;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * UserLocationsRequest represents a request for the current locations of several users.
+ * It contains the IDs of the users whose locations to retrieve.
+ */
+public class UserLocationsRequest {
+    @SerializedName("user_ids")
+    private List<String> userIds;
+
+    /**
+     * Constructs a new UserLocationsRequest with the specified user IDs.
+     *
+     * @param userIds The unique identifiers of the users whose locations to retrieve.
+     */
+    public UserLocationsRequest(Collection<String> userIds) {
+        this.userIds = userIds != null ? Collections.unmodifiableList(new ArrayList<>(userIds)) : null;
+        validate();
+    }
+
+    /**
+     * Validates the user IDs.
+     * @throws IllegalArgumentException if the list is empty or contains an invalid user ID
+     */
+    private void validate() {
+        if (userIds == null || userIds.isEmpty()) {
+            throw new IllegalArgumentException("User IDs cannot be null or empty");
+        }
+        for (String userId : userIds) {
+            if (userId == null || userId.trim().isEmpty()) {
+                throw new IllegalArgumentException("User ID cannot be null or empty");
+            }
+        }
+    }
+
+    /**
+     * Gets the user IDs of this request.
+     * @return The user IDs as an unmodifiable list
+     */
+    public List<String> getUserIds() {
+        return userIds;
+    }
+}
@@ -0,0 +1,78 @@
+package com.omri.trackinglibrary.api.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.api.UserLocationsRequest;
+import com.omri.trackinglibrary.api.UserRequest;
+import com.omri.trackinglibrary.api.UserStatusRequest;
+import com.omri.trackinglibrary.api.UserVerifyRequest;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.models.User;
+import java.io.IOException;
+
+/**
+ * JsonAdapters registers the hand-written streaming type adapters of the models and request objects.
+ * The adapters read and write JSON without reflection and create objects through their constructors,
+ * so server data is validated while it is parsed.
+ */
+public final class JsonAdapters {
+
+    private JsonAdapters() {
+    }
+
+    /**
+     * Registers the streaming adapters on a Gson builder.
+     *
+     * @param builder The builder to register the adapters on
+     * @return The same builder
+     */
+    public static GsonBuilder register(GsonBuilder builder) {
+        return builder
+                .registerTypeAdapter(Location.class, new LocationTypeAdapter().nullSafe())
+                .registerTypeAdapter(User.class, new UserTypeAdapter().nullSafe())
+                .registerTypeAdapter(LocationUpdateRequest.class, new LocationUpdateRequestTypeAdapter().nullSafe())
+                .registerTypeAdapter(UserLocationsRequest.class, new UserLocationsRequestTypeAdapter().nullSafe())
+                .registerTypeAdapter(UserRequest.class, new UserRequestTypeAdapter().nullSafe())
+                .registerTypeAdapter(UserStatusRequest.class, new UserStatusRequestTypeAdapter().nullSafe())
+                .registerTypeAdapter(UserVerifyRequest.class, new UserVerifyRequestTypeAdapter().nullSafe());
+    }
+
+    /**
+     * Creates a Gson instance with the streaming adapters registered.
+     *
+     * @return A new Gson instance
+     */
+    public static Gson createGson() {
+        return register(new GsonBuilder()).create();
+    }
+
+    /**
+     * Reads a string value that may be null.
+     *
+     * @param in The reader positioned at the value
+     * @return The string, or null if the value is null
+     * @throws IOException if the value cannot be read
+     */
+    static String nextNullableString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Wraps a validation failure of parsed data in a JsonParseException.
+     *
+     * @param type The name of the type being parsed
+     * @param e    The validation failure
+     * @return The exception to throw
+     */
+    static JsonParseException invalid(String type, RuntimeException e) {
+        return new JsonParseException("Invalid " + type + ": " + e.getMessage(), e);
+    }
+}
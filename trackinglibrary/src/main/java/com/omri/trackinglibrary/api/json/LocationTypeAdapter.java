@@ -0,0 +1,60 @@
+package com.omri.trackinglibrary.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.omri.trackinglibrary.models.Location;
+import java.io.IOException;
+
+/**
+ * Streaming JSON adapter for {@link Location}.
+ * Unknown fields are skipped; the parsed location is validated by its constructor.
+ */
+public class LocationTypeAdapter extends TypeAdapter<Location> {
+
+    @Override
+    public void write(JsonWriter out, Location location) throws IOException {
+        out.beginObject();
+        out.name("user_id").value(location.getUserId());
+        out.name("latitude").value(location.getLatitude());
+        out.name("longitude").value(location.getLongitude());
+        out.name("last_updated").value(location.getLastUpdated());
+        out.endObject();
+    }
+
+    @Override
+    public Location read(JsonReader in) throws IOException {
+        String userId = null;
+        double latitude = 0;
+        double longitude = 0;
+        String lastUpdated = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "user_id":
+                    userId = JsonAdapters.nextNullableString(in);
+                    break;
+                case "latitude":
+                    latitude = in.nextDouble();
+                    break;
+                case "longitude":
+                    longitude = in.nextDouble();
+                    break;
+                case "last_updated":
+                    lastUpdated = JsonAdapters.nextNullableString(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        try {
+            return new Location(userId, latitude, longitude, lastUpdated);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            throw JsonAdapters.invalid("location", e);
+        }
+    }
+}
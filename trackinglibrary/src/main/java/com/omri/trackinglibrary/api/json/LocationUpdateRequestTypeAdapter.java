@@ -0,0 +1,54 @@
+package com.omri.trackinglibrary.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import java.io.IOException;
+
+/**
+ * Streaming JSON adapter for {@link LocationUpdateRequest}.
+ */
+public class LocationUpdateRequestTypeAdapter extends TypeAdapter<LocationUpdateRequest> {
+
+    @Override
+    public void write(JsonWriter out, LocationUpdateRequest request) throws IOException {
+        out.beginObject();
+        out.name("user_id").value(request.getUserId());
+        out.name("latitude").value(request.getLatitude());
+        out.name("longitude").value(request.getLongitude());
+        out.endObject();
+    }
+
+    @Override
+    public LocationUpdateRequest read(JsonReader in) throws IOException {
+        String userId = null;
+        double latitude = 0;
+        double longitude = 0;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "user_id":
+                    userId = JsonAdapters.nextNullableString(in);
+                    break;
+                case "latitude":
+                    latitude = in.nextDouble();
+                    break;
+                case "longitude":
+                    longitude = in.nextDouble();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        try {
+            return new LocationUpdateRequest(userId, latitude, longitude);
+        } catch (IllegalArgumentException e) {
+            throw JsonAdapters.invalid("location update request", e);
+        }
+    }
+}
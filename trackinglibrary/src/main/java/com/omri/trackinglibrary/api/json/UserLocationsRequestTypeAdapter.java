@@ -0,0 +1,53 @@
+package com.omri.trackinglibrary.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.omri.trackinglibrary.api.UserLocationsRequest;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming JSON adapter for {@link UserLocationsRequest}.
+ */
+public class UserLocationsRequestTypeAdapter extends TypeAdapter<UserLocationsRequest> {
+
+    @Override
+    public void write(JsonWriter out, UserLocationsRequest request) throws IOException {
+        out.beginObject();
+        out.name("user_ids").beginArray();
+        for (String userId : request.getUserIds()) {
+            out.value(userId);
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    @Override
+    public UserLocationsRequest read(JsonReader in) throws IOException {
+        List<String> userIds = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("user_ids".equals(in.nextName()) && in.peek() == JsonToken.BEGIN_ARRAY) {
+                userIds = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext()) {
+                    userIds.add(JsonAdapters.nextNullableString(in));
+                }
+                in.endArray();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        try {
+            return new UserLocationsRequest(userIds);
+        } catch (IllegalArgumentException e) {
+            throw JsonAdapters.invalid("user locations request", e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.omri.trackinglibrary.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.omri.trackinglibrary.api.UserRequest;
+import java.io.IOException;
+
+/**
+ * Streaming JSON adapter for {@link UserRequest}.
+ */
+public class UserRequestTypeAdapter extends TypeAdapter<UserRequest> {
+
+    @Override
+    public void write(JsonWriter out, UserRequest request) throws IOException {
+        out.beginObject();
+        out.name("username").value(request.getUsername());
+        out.endObject();
+    }
+
+    @Override
+    public UserRequest read(JsonReader in) throws IOException {
+        String username = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("username".equals(in.nextName())) {
+                username = JsonAdapters.nextNullableString(in);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        try {
+            return new UserRequest(username);
+        } catch (IllegalArgumentException e) {
+            throw JsonAdapters.invalid("user request", e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.omri.trackinglibrary.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.omri.trackinglibrary.api.UserStatusRequest;
+import java.io.IOException;
+
+/**
+ * Streaming JSON adapter for {@link UserStatusRequest}.
+ */
+public class UserStatusRequestTypeAdapter extends TypeAdapter<UserStatusRequest> {
+
+    @Override
+    public void write(JsonWriter out, UserStatusRequest request) throws IOException {
+        out.beginObject();
+        out.name("is_active").value(request.isActive());
+        out.endObject();
+    }
+
+    @Override
+    public UserStatusRequest read(JsonReader in) throws IOException {
+        boolean isActive = false;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("is_active".equals(in.nextName())) {
+                isActive = in.nextBoolean();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return new UserStatusRequest(isActive);
+    }
+}
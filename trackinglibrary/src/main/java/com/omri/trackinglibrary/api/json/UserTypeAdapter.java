@@ -0,0 +1,67 @@
+package com.omri.trackinglibrary.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.omri.trackinglibrary.models.User;
+import java.io.IOException;
+
+/**
+ * Streaming JSON adapter for {@link User}.
+ * The user ID is read from either "id" or "_id". Unknown fields are skipped;
+ * the parsed user is validated by its constructor.
+ */
+public class UserTypeAdapter extends TypeAdapter<User> {
+
+    @Override
+    public void write(JsonWriter out, User user) throws IOException {
+        out.beginObject();
+        out.name("id").value(user.getId());
+        out.name("username").value(user.getUsername());
+        out.name("created_at").value(user.getCreatedAt());
+        out.name("is_active").value(user.isActive());
+        out.endObject();
+    }
+
+    @Override
+    public User read(JsonReader in) throws IOException {
+        String id = null;
+        String username = null;
+        String createdAt = null;
+        boolean isActive = false;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                case "_id":
+                    id = JsonAdapters.nextNullableString(in);
+                    break;
+                case "username":
+                    username = JsonAdapters.nextNullableString(in);
+                    break;
+                case "created_at":
+                    createdAt = JsonAdapters.nextNullableString(in);
+                    break;
+                case "is_active":
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else {
+                        isActive = in.nextBoolean();
+                    }
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        try {
+            return new User(id, username, createdAt, isActive);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            throw JsonAdapters.invalid("user", e);
+        }
+    }
+}
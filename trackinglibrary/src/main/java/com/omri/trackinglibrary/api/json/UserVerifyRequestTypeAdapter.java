@@ -0,0 +1,41 @@
+package com.omri.trackinglibrary.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.omri.trackinglibrary.api.UserVerifyRequest;
+import java.io.IOException;
+
+/**
+ * Streaming JSON adapter for {@link UserVerifyRequest}.
+ */
+public class UserVerifyRequestTypeAdapter extends TypeAdapter<UserVerifyRequest> {
+
+    @Override
+    public void write(JsonWriter out, UserVerifyRequest request) throws IOException {
+        out.beginObject();
+        out.name("user_id").value(request.getUserId());
+        out.endObject();
+    }
+
+    @Override
+    public UserVerifyRequest read(JsonReader in) throws IOException {
+        String userId = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("user_id".equals(in.nextName())) {
+                userId = JsonAdapters.nextNullableString(in);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        try {
+            return new UserVerifyRequest(userId);
+        } catch (IllegalArgumentException e) {
+            throw JsonAdapters.invalid("user verify request", e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.omri.trackinglibrary.cache;
+
+/**
+ * CacheStats is an immutable snapshot of the counters of an {@link ExpiringCache}.
+ */
+public final class CacheStats {
+    private final long hitCount;
+    private final long staleHitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int size;
+
+    /**
+     * Constructs a new CacheStats snapshot.
+     *
+     * @param hitCount      The number of lookups served with a fresh entry
+     * @param staleHitCount The number of lookups served with a stale entry
+     * @param missCount     The number of lookups that found no usable entry
+     * @param evictionCount The number of entries evicted to respect the size limit
+     * @param size          The number of entries in the cache
+     */
+    public CacheStats(long hitCount, long staleHitCount, long missCount, long evictionCount, int size) {
+        this.hitCount = hitCount;
+        this.staleHitCount = staleHitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+    }
+
+    /**
+     * Gets the number of lookups served with a fresh entry.
+     * @return The fresh hit count
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Gets the number of lookups served with a stale entry while it was being refreshed.
+     * @return The stale hit count
+     */
+    public long getStaleHitCount() {
+        return staleHitCount;
+    }
+
+    /**
+     * Gets the number of lookups that found no usable entry.
+     * @return The miss count
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Gets the number of entries evicted because the cache was full.
+     * @return The eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Gets the number of entries in the cache when the snapshot was taken.
+     * @return The cache size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the fraction of lookups served from the cache, fresh or stale.
+     * @return The hit rate between 0 and 1, or 0 if there were no lookups
+     */
+    public double getHitRate() {
+        long lookups = hitCount + staleHitCount + missCount;
+        return lookups == 0 ? 0 : (double) (hitCount + staleHitCount) / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + hitCount + ", staleHits=" + staleHitCount + ", misses=" + missCount
+                + ", evictions=" + evictionCount + ", size=" + size + "}";
+    }
+}
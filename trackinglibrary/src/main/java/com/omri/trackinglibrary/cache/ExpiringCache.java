@@ -0,0 +1,198 @@
+package com.omri.trackinglibrary.cache;
+
+import com.omri.trackinglibrary.utils.TimeSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ExpiringCache is a bounded, thread-safe in-memory cache with time-based expiry and LRU eviction.
+ * An entry is fresh for the configured time to live. After that it is stale but can still be served
+ * for the configured stale window, so callers can return it immediately while refreshing it.
+ * Entries older than the stale window are treated as missing.
+ *
+ * @param <K> The type of the cache keys
+ * @param <V> The type of the cached values
+ */
+public class ExpiringCache<K, V> {
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long maxStaleMillis;
+    private final TimeSource timeSource;
+    private final LinkedHashMap<K, Node<V>> entries;
+
+    private long hitCount;
+    private long staleHitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Constructs a new ExpiringCache that uses the system clock.
+     *
+     * @param maxEntries     The maximum number of entries; the least recently used entry is evicted beyond it
+     * @param ttlMillis      The time, in milliseconds, an entry stays fresh after it is stored
+     * @param maxStaleMillis The additional time, in milliseconds, a stale entry may still be served
+     * @throws IllegalArgumentException if maxEntries or ttlMillis is not positive, or maxStaleMillis is negative
+     */
+    public ExpiringCache(int maxEntries, long ttlMillis, long maxStaleMillis) {
+        this(maxEntries, ttlMillis, maxStaleMillis, TimeSource.SYSTEM);
+    }
+
+    /**
+     * Constructs a new ExpiringCache that uses the given time source.
+     *
+     * @param maxEntries     The maximum number of entries; the least recently used entry is evicted beyond it
+     * @param ttlMillis      The time, in milliseconds, an entry stays fresh after it is stored
+     * @param maxStaleMillis The additional time, in milliseconds, a stale entry may still be served
+     * @param timeSource     The source of the current time
+     * @throws IllegalArgumentException if maxEntries or ttlMillis is not positive, or maxStaleMillis is negative
+     */
+    public ExpiringCache(int maxEntries, long ttlMillis, long maxStaleMillis, TimeSource timeSource) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Max entries must be at least 1");
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("TTL must be positive");
+        }
+        if (maxStaleMillis < 0) {
+            throw new IllegalArgumentException("Max stale time cannot be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.maxStaleMillis = maxStaleMillis;
+        this.timeSource = timeSource;
+        this.entries = new LinkedHashMap<K, Node<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Node<V>> eldest) {
+                if (size() > ExpiringCache.this.maxEntries) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up the entry for a key.
+     *
+     * @param key The key to look up
+     * @return The entry if it is fresh or within the stale window, or null on a miss
+     */
+    public synchronized Entry<V> get(K key) {
+        Node<V> node = entries.get(key);
+        long now = timeSource.currentTimeMillis();
+        if (node == null || now >= node.storedAtMillis + ttlMillis + maxStaleMillis) {
+            if (node != null) {
+                entries.remove(key);
+            }
+            missCount++;
+            return null;
+        }
+        boolean stale = now >= node.storedAtMillis + ttlMillis;
+        if (stale) {
+            staleHitCount++;
+        } else {
+            hitCount++;
+        }
+        return new Entry<>(node.value, node.storedAtMillis, stale);
+    }
+
+    /**
+     * Stores a value, replacing any existing entry for the key.
+     * The new entry is fresh for the configured time to live.
+     *
+     * @param key   The key to store the value under
+     * @param value The value to store
+     */
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Node<>(value, timeSource.currentTimeMillis()));
+    }
+
+    /**
+     * Removes the entry for a key.
+     *
+     * @param key The key to remove
+     */
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes all entries. Counters are not reset.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of entries in the cache, including stale entries that were not looked up yet.
+     *
+     * @return The number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Takes a snapshot of the cache counters.
+     *
+     * @return The current cache statistics
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hitCount, staleHitCount, missCount, evictionCount, entries.size());
+    }
+
+    /**
+     * Entry is the result of a cache hit: the cached value, the time it was stored, and whether it was stale.
+     *
+     * @param <V> The type of the cached value
+     */
+    public static final class Entry<V> {
+        private final V value;
+        private final long storedAtMillis;
+        private final boolean stale;
+
+        private Entry(V value, long storedAtMillis, boolean stale) {
+            this.value = value;
+            this.storedAtMillis = storedAtMillis;
+            this.stale = stale;
+        }
+
+        /**
+         * Gets the cached value.
+         * @return The cached value
+         */
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * Gets the time the value was stored.
+         * @return The store time in milliseconds since the epoch
+         */
+        public long getStoredAtMillis() {
+            return storedAtMillis;
+        }
+
+        /**
+         * Checks whether the entry was past its time to live when it was looked up.
+         * @return true if the entry should be refreshed, false if it is fresh
+         */
+        public boolean isStale() {
+            return stale;
+        }
+    }
+
+    /**
+     * Stored value and store time of a cache entry.
+     */
+    private static final class Node<V> {
+        final V value;
+        final long storedAtMillis;
+
+        Node(V value, long storedAtMillis) {
+            this.value = value;
+            this.storedAtMillis = storedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.omri.trackinglibrary.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ValidatorCache remembers the last response body of a resource together with its HTTP validators,
+ * so the resource can be requested conditionally and a {@code 304 Not Modified} answered from memory.
+ * It is bounded with LRU eviction and thread-safe. Entries do not expire; the server decides
+ * whether they are still valid.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the remembered values
+ */
+public class ValidatorCache<K, V> {
+    private final int maxEntries;
+    private final LinkedHashMap<K, Validated<V>> entries;
+
+    private long notModifiedCount;
+    private long modifiedCount;
+    private long evictionCount;
+
+    /**
+     * Constructs a new ValidatorCache.
+     *
+     * @param maxEntries The maximum number of entries; the least recently used entry is evicted beyond it
+     * @throws IllegalArgumentException if maxEntries is not positive
+     */
+    public ValidatorCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Max entries must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<K, Validated<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Validated<V>> eldest) {
+                if (size() > ValidatorCache.this.maxEntries) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up the remembered value and validators for a key.
+     *
+     * @param key The key to look up
+     * @return The remembered entry, or null if there is none
+     */
+    public synchronized Validated<V> get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Remembers a value and its validators, replacing any existing entry.
+     * Entries without any validator are not stored, since they cannot be revalidated.
+     *
+     * @param key          The key to store the value under
+     * @param value        The value from the response
+     * @param etag         The ETag of the response, or null
+     * @param lastModified The Last-Modified date of the response, or null
+     */
+    public synchronized void put(K key, V value, String etag, String lastModified) {
+        modifiedCount++;
+        if (etag == null && lastModified == null) {
+            entries.remove(key);
+            return;
+        }
+        entries.put(key, new Validated<>(value, etag, lastModified));
+    }
+
+    /**
+     * Records that a conditional request was answered with {@code 304 Not Modified}.
+     */
+    public synchronized void recordNotModified() {
+        notModifiedCount++;
+    }
+
+    /**
+     * Removes the entry for a key, so the next request is unconditional.
+     *
+     * @param key The key to remove
+     */
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Takes a snapshot of the counters. Hits are {@code 304} responses served from memory and
+     * misses are full responses.
+     *
+     * @return The current statistics
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(notModifiedCount, 0, modifiedCount, evictionCount, entries.size());
+    }
+
+    /**
+     * A remembered value and the validators to revalidate it with.
+     *
+     * @param <V> The type of the value
+     */
+    public static final class Validated<V> {
+        private final V value;
+        private final String etag;
+        private final String lastModified;
+
+        private Validated(V value, String etag, String lastModified) {
+            this.value = value;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Gets the remembered value.
+         * @return The value
+         */
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * Gets the ETag to send in {@code If-None-Match}.
+         * @return The ETag, or null
+         */
+        public String getETag() {
+            return etag;
+        }
+
+        /**
+         * Gets the date to send in {@code If-Modified-Since}.
+         * @return The HTTP date, or null
+         */
+        public String getLastModified() {
+            return lastModified;
+        }
+    }
+}
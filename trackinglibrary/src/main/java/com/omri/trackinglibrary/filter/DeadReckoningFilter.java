@@ -0,0 +1,96 @@
+package com.omri.trackinglibrary.filter;
+
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.utils.DateUtils;
+import com.omri.trackinglibrary.utils.GeoUtils;
+import com.omri.trackinglibrary.utils.TimeSource;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DeadReckoningFilter suppresses location fixes that a reader could already predict.
+ * Each fix is compared with the position extrapolated by a {@link MotionModel} from the locations
+ * the server holds for the user. A fix is suppressed when it is within the maximum deviation of that
+ * prediction, unless the maximum silence interval has passed since the last known location.
+ * A device moving steadily in a straight line therefore only uploads when it turns, speeds up or slows down.
+ */
+public class DeadReckoningFilter {
+    private final MotionModel model;
+    private final double maxDeviationMeters;
+    private final long maxSilenceMillis;
+    private final TimeSource timeSource;
+    private final AtomicLong suppressedCount = new AtomicLong();
+
+    /**
+     * Constructs a new DeadReckoningFilter that uses the system clock.
+     *
+     * @param model              The motion model fed with the locations the server holds
+     * @param maxDeviationMeters The distance from the predicted position below which fixes are suppressed
+     * @param maxSilenceMillis   The maximum time, in milliseconds, without an upload for a user
+     * @throws IllegalArgumentException if a threshold is negative
+     */
+    public DeadReckoningFilter(MotionModel model, double maxDeviationMeters, long maxSilenceMillis) {
+        this(model, maxDeviationMeters, maxSilenceMillis, TimeSource.SYSTEM);
+    }
+
+    /**
+     * Constructs a new DeadReckoningFilter that uses the given time source.
+     *
+     * @param model              The motion model fed with the locations the server holds
+     * @param maxDeviationMeters The distance from the predicted position below which fixes are suppressed
+     * @param maxSilenceMillis   The maximum time, in milliseconds, without an upload for a user
+     * @param timeSource         The source of the current time
+     * @throws IllegalArgumentException if a threshold is negative
+     */
+    public DeadReckoningFilter(MotionModel model, double maxDeviationMeters, long maxSilenceMillis,
+                               TimeSource timeSource) {
+        if (maxDeviationMeters < 0 || maxSilenceMillis < 0) {
+            throw new IllegalArgumentException("Dead-reckoning thresholds cannot be negative");
+        }
+        this.model = model;
+        this.maxDeviationMeters = maxDeviationMeters;
+        this.maxSilenceMillis = maxSilenceMillis;
+        this.timeSource = timeSource;
+    }
+
+    /**
+     * Checks whether a fix should be suppressed.
+     *
+     * @param userId    The ID of the user the fix belongs to
+     * @param latitude  The latitude of the fix
+     * @param longitude The longitude of the fix
+     * @return The predicted location if the fix should be suppressed, or null if it should be sent
+     */
+    public Location filter(String userId, double latitude, double longitude) {
+        MotionModel.State state = model.getState(userId);
+        long now = timeSource.currentTimeMillis();
+        if (state == null || now - state.getTimeMillis() >= maxSilenceMillis) {
+            return null;
+        }
+        double predictedLatitude = state.predictLatitude(now);
+        double predictedLongitude = state.predictLongitude(now);
+        double deviation = GeoUtils.distanceMeters(predictedLatitude, predictedLongitude, latitude, longitude);
+        if (deviation >= maxDeviationMeters) {
+            return null;
+        }
+        suppressedCount.incrementAndGet();
+        return new Location(userId, predictedLatitude, predictedLongitude, DateUtils.formatMongoDate(now));
+    }
+
+    /**
+     * Gets the motion model this filter predicts from.
+     *
+     * @return The motion model
+     */
+    public MotionModel getModel() {
+        return model;
+    }
+
+    /**
+     * Gets the number of fixes suppressed by this filter.
+     *
+     * @return The number of suppressed fixes
+     */
+    public long getSuppressedCount() {
+        return suppressedCount.get();
+    }
+}
@@ -0,0 +1,113 @@
+package com.omri.trackinglibrary.filter;
+
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.utils.GeoUtils;
+import com.omri.trackinglibrary.utils.TimeSource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DeadbandFilter suppresses location fixes that are too close to the last acknowledged location of a user.
+ * A fix is suppressed when it is within the minimum distance of the last location the server acknowledged
+ * for that user, unless the maximum silence interval has passed since that acknowledgement.
+ * This removes uploads caused by GPS noise while a device is stationary, and still sends a
+ * periodic heartbeat position.
+ */
+public class DeadbandFilter {
+    private final double minDistanceMeters;
+    private final long maxSilenceMillis;
+    private final TimeSource timeSource;
+    private final Map<String, Acknowledged> acknowledged = new ConcurrentHashMap<>();
+    private final AtomicLong suppressedCount = new AtomicLong();
+
+    /**
+     * Constructs a new DeadbandFilter that uses the system clock.
+     *
+     * @param minDistanceMeters The distance from the last acknowledged location below which fixes are suppressed
+     * @param maxSilenceMillis  The maximum time, in milliseconds, without an upload for a user
+     * @throws IllegalArgumentException if a threshold is negative
+     */
+    public DeadbandFilter(double minDistanceMeters, long maxSilenceMillis) {
+        this(minDistanceMeters, maxSilenceMillis, TimeSource.SYSTEM);
+    }
+
+    /**
+     * Constructs a new DeadbandFilter that uses the given time source.
+     *
+     * @param minDistanceMeters The distance from the last acknowledged location below which fixes are suppressed
+     * @param maxSilenceMillis  The maximum time, in milliseconds, without an upload for a user
+     * @param timeSource        The source of the current time
+     * @throws IllegalArgumentException if a threshold is negative
+     */
+    public DeadbandFilter(double minDistanceMeters, long maxSilenceMillis, TimeSource timeSource) {
+        if (minDistanceMeters < 0 || maxSilenceMillis < 0) {
+            throw new IllegalArgumentException("Dead-band thresholds cannot be negative");
+        }
+        this.minDistanceMeters = minDistanceMeters;
+        this.maxSilenceMillis = maxSilenceMillis;
+        this.timeSource = timeSource;
+    }
+
+    /**
+     * Checks whether a fix should be suppressed.
+     *
+     * @param userId    The ID of the user the fix belongs to
+     * @param latitude  The latitude of the fix
+     * @param longitude The longitude of the fix
+     * @return The last acknowledged location if the fix should be suppressed, or null if it should be sent
+     */
+    public Location filter(String userId, double latitude, double longitude) {
+        Acknowledged last = acknowledged.get(userId);
+        if (last == null || timeSource.currentTimeMillis() - last.acknowledgedAtMillis >= maxSilenceMillis) {
+            return null;
+        }
+        double distance = GeoUtils.distanceMeters(
+                last.location.getLatitude(), last.location.getLongitude(), latitude, longitude);
+        if (distance >= minDistanceMeters) {
+            return null;
+        }
+        suppressedCount.incrementAndGet();
+        return last.location;
+    }
+
+    /**
+     * Records a location acknowledged by the server as the new reference position of its user.
+     *
+     * @param location The acknowledged location
+     */
+    public void onAcknowledged(Location location) {
+        acknowledged.put(location.getUserId(), new Acknowledged(location, timeSource.currentTimeMillis()));
+    }
+
+    /**
+     * Forgets the reference position of a user, so the next fix is always sent.
+     *
+     * @param userId The ID of the user to forget
+     */
+    public void reset(String userId) {
+        acknowledged.remove(userId);
+    }
+
+    /**
+     * Gets the number of fixes suppressed by this filter.
+     *
+     * @return The number of suppressed fixes
+     */
+    public long getSuppressedCount() {
+        return suppressedCount.get();
+    }
+
+    /**
+     * Last acknowledged location of a user and the time of the acknowledgement.
+     */
+    private static final class Acknowledged {
+        final Location location;
+        final long acknowledgedAtMillis;
+
+        Acknowledged(Location location, long acknowledgedAtMillis) {
+            this.location = location;
+            this.acknowledgedAtMillis = acknowledgedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.omri.trackinglibrary.filter;
+
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.utils.DateUtils;
+import com.omri.trackinglibrary.utils.GeoUtils;
+import com.omri.trackinglibrary.utils.TimeSource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MotionModel keeps a constant-velocity model of every user it has seen locations for.
+ * The model of a user is its most recent known position, the time of that position and the velocity
+ * between its two most recent known positions. Positions at other times are extrapolated along that velocity.
+ * Locations are timed by their "last_updated" timestamp, so a sender and a reader that feed the model with
+ * the same server locations predict the same positions.
+ */
+public class MotionModel {
+    private static final double METERS_PER_DEGREE_LATITUDE = Math.toRadians(GeoUtils.EARTH_RADIUS_METERS);
+
+    private final TimeSource timeSource;
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new MotionModel that uses the system clock.
+     */
+    public MotionModel() {
+        this(TimeSource.SYSTEM);
+    }
+
+    /**
+     * Constructs a new MotionModel that uses the given time source.
+     *
+     * @param timeSource The source of the current time, used for predictions and for locations without a timestamp
+     */
+    public MotionModel(TimeSource timeSource) {
+        this.timeSource = timeSource;
+    }
+
+    /**
+     * Adds a location to the model of its user.
+     * The location is timed by its "last_updated" timestamp, or by the current time if it has none.
+     *
+     * @param location The location to add
+     */
+    public void update(Location location) {
+        long timeMillis = DateUtils.parseISODate(location.getLastUpdated());
+        if (timeMillis < 0) {
+            timeMillis = timeSource.currentTimeMillis();
+        }
+        update(location.getUserId(), location.getLatitude(), location.getLongitude(), timeMillis);
+    }
+
+    /**
+     * Adds a position to the model of a user.
+     * Positions that are not newer than the current position of the user are ignored.
+     *
+     * @param userId     The ID of the user
+     * @param latitude   The latitude of the position
+     * @param longitude  The longitude of the position
+     * @param timeMillis The time of the position in milliseconds since the epoch
+     */
+    public void update(String userId, final double latitude, final double longitude, final long timeMillis) {
+        states.compute(userId, (id, previous) -> {
+            if (previous == null) {
+                return new State(latitude, longitude, 0, 0, timeMillis);
+            }
+            if (timeMillis <= previous.timeMillis) {
+                return previous;
+            }
+            double seconds = (timeMillis - previous.timeMillis) / 1000.0;
+            double northVelocity = (latitude - previous.latitude) * METERS_PER_DEGREE_LATITUDE / seconds;
+            double eastVelocity = wrapLongitude(longitude - previous.longitude)
+                    * metersPerDegreeLongitude(previous.latitude) / seconds;
+            return new State(latitude, longitude, northVelocity, eastVelocity, timeMillis);
+        });
+    }
+
+    /**
+     * Gets the current model of a user.
+     *
+     * @param userId The ID of the user
+     * @return The model of the user, or null if no position is known
+     */
+    public State getState(String userId) {
+        return states.get(userId);
+    }
+
+    /**
+     * Predicts the current location of a user.
+     *
+     * @param userId The ID of the user
+     * @return The predicted location, or null if no position is known
+     */
+    public Location predict(String userId) {
+        return predict(userId, timeSource.currentTimeMillis());
+    }
+
+    /**
+     * Predicts the location of a user at a given time.
+     *
+     * @param userId     The ID of the user
+     * @param timeMillis The time of the prediction in milliseconds since the epoch
+     * @return The predicted location, or null if no position is known
+     */
+    public Location predict(String userId, long timeMillis) {
+        State state = states.get(userId);
+        if (state == null) {
+            return null;
+        }
+        return new Location(userId, state.predictLatitude(timeMillis), state.predictLongitude(timeMillis),
+                DateUtils.formatMongoDate(timeMillis));
+    }
+
+    /**
+     * Forgets the model of a user.
+     *
+     * @param userId The ID of the user to forget
+     */
+    public void reset(String userId) {
+        states.remove(userId);
+    }
+
+    /**
+     * Gets the number of users with a model.
+     *
+     * @return The number of modeled users
+     */
+    public int size() {
+        return states.size();
+    }
+
+    private static double metersPerDegreeLongitude(double latitude) {
+        return Math.max(1e-6, METERS_PER_DEGREE_LATITUDE * Math.cos(Math.toRadians(latitude)));
+    }
+
+    private static double wrapLongitude(double longitude) {
+        if (longitude >= -180 && longitude <= 180) {
+            return longitude;
+        }
+        return ((longitude + 180) % 360 + 360) % 360 - 180;
+    }
+
+    /**
+     * Immutable constant-velocity model of a single user.
+     */
+    public static final class State {
+        private final double latitude;
+        private final double longitude;
+        private final double northVelocity;
+        private final double eastVelocity;
+        private final long timeMillis;
+
+        State(double latitude, double longitude, double northVelocity, double eastVelocity, long timeMillis) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.northVelocity = northVelocity;
+            this.eastVelocity = eastVelocity;
+            this.timeMillis = timeMillis;
+        }
+
+        /**
+         * Gets the latitude of the most recent known position.
+         * @return The latitude in degrees
+         */
+        public double getLatitude() {
+            return latitude;
+        }
+
+        /**
+         * Gets the longitude of the most recent known position.
+         * @return The longitude in degrees
+         */
+        public double getLongitude() {
+            return longitude;
+        }
+
+        /**
+         * Gets the northward component of the velocity.
+         * @return The velocity in meters per second
+         */
+        public double getNorthVelocity() {
+            return northVelocity;
+        }
+
+        /**
+         * Gets the eastward component of the velocity.
+         * @return The velocity in meters per second
+         */
+        public double getEastVelocity() {
+            return eastVelocity;
+        }
+
+        /**
+         * Gets the time of the most recent known position.
+         * @return The time in milliseconds since the epoch
+         */
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        /**
+         * Extrapolates the latitude at a given time, clamped to the valid range.
+         *
+         * @param atMillis The time in milliseconds since the epoch
+         * @return The predicted latitude in degrees
+         */
+        public double predictLatitude(long atMillis) {
+            double seconds = (atMillis - timeMillis) / 1000.0;
+            double predicted = latitude + northVelocity * seconds / METERS_PER_DEGREE_LATITUDE;
+            return Math.max(-90, Math.min(90, predicted));
+        }
+
+        /**
+         * Extrapolates the longitude at a given time, wrapped to the valid range.
+         *
+         * @param atMillis The time in milliseconds since the epoch
+         * @return The predicted longitude in degrees
+         */
+        public double predictLongitude(long atMillis) {
+            double seconds = (atMillis - timeMillis) / 1000.0;
+            double predicted = longitude + eastVelocity * seconds / metersPerDegreeLongitude(latitude);
+            return wrapLongitude(predicted);
+        }
+    }
+}
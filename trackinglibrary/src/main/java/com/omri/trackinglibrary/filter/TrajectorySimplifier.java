@@ -0,0 +1,152 @@
+package com.omri.trackinglibrary.filter;
+
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.utils.GeoUtils;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TrajectorySimplifier removes redundant intermediate fixes from buffered location updates
+ * using the Douglas-Peucker algorithm.
+ * The fixes of each user are simplified separately, in submission order. The first and last fix of
+ * every user are always kept, as is every fix that deviates from the simplified track by more than
+ * the tolerance, so turns are preserved while points along straight stretches are dropped.
+ */
+public class TrajectorySimplifier {
+    private final double toleranceMeters;
+
+    /**
+     * Constructs a new TrajectorySimplifier.
+     *
+     * @param toleranceMeters The maximum distance, in meters, between a dropped fix and the simplified track
+     * @throws IllegalArgumentException if the tolerance is negative
+     */
+    public TrajectorySimplifier(double toleranceMeters) {
+        if (toleranceMeters < 0) {
+            throw new IllegalArgumentException("Tolerance cannot be negative");
+        }
+        this.toleranceMeters = toleranceMeters;
+    }
+
+    /**
+     * Gets the tolerance of this simplifier.
+     *
+     * @return The tolerance in meters
+     */
+    public double getToleranceMeters() {
+        return toleranceMeters;
+    }
+
+    /**
+     * Determines which of the given updates to keep.
+     *
+     * @param requests The buffered updates, possibly for several users, in submission order
+     * @return A flag per update, true if the update must be sent and false if it is redundant
+     */
+    public boolean[] simplify(List<LocationUpdateRequest> requests) {
+        boolean[] keep = new boolean[requests.size()];
+        Map<String, List<Integer>> tracks = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String userId = requests.get(i).getUserId();
+            List<Integer> track = tracks.get(userId);
+            if (track == null) {
+                track = new ArrayList<>();
+                tracks.put(userId, track);
+            }
+            track.add(i);
+        }
+
+        for (List<Integer> track : tracks.values()) {
+            int[] indices = new int[track.size()];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = track.get(i);
+            }
+            simplifyTrack(requests, indices, keep);
+        }
+        return keep;
+    }
+
+    /**
+     * Runs Douglas-Peucker over the fixes of a single user with an explicit stack.
+     *
+     * @param requests All buffered updates
+     * @param indices  The indices of the user's updates, in submission order
+     * @param keep     The keep flags to set
+     */
+    private void simplifyTrack(List<LocationUpdateRequest> requests, int[] indices, boolean[] keep) {
+        int last = indices.length - 1;
+        keep[indices[0]] = true;
+        keep[indices[last]] = true;
+        if (indices.length < 3) {
+            return;
+        }
+
+        int[] stack = new int[2 * indices.length];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = last;
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+            LocationUpdateRequest a = requests.get(indices[start]);
+            LocationUpdateRequest b = requests.get(indices[end]);
+
+            double maxDistance = -1;
+            int farthest = -1;
+            for (int i = start + 1; i < end; i++) {
+                double distance = distanceToSegment(requests.get(indices[i]), a, b);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+
+            if (farthest > 0 && maxDistance > toleranceMeters) {
+                keep[indices[farthest]] = true;
+                if (farthest - start > 1) {
+                    stack[top++] = start;
+                    stack[top++] = farthest;
+                }
+                if (end - farthest > 1) {
+                    stack[top++] = farthest;
+                    stack[top++] = end;
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the distance from a point to the segment between two other points.
+     * Uses a local equirectangular projection around the segment start, which is accurate for the
+     * short distances between consecutive fixes.
+     *
+     * @return The distance in meters
+     */
+    private static double distanceToSegment(LocationUpdateRequest p, LocationUpdateRequest a, LocationUpdateRequest b) {
+        double metersPerDegreeLatitude = Math.toRadians(GeoUtils.EARTH_RADIUS_METERS);
+        double metersPerDegreeLongitude = metersPerDegreeLatitude * Math.cos(Math.toRadians(a.getLatitude()));
+
+        double bx = wrapLongitude(b.getLongitude() - a.getLongitude()) * metersPerDegreeLongitude;
+        double by = (b.getLatitude() - a.getLatitude()) * metersPerDegreeLatitude;
+        double px = wrapLongitude(p.getLongitude() - a.getLongitude()) * metersPerDegreeLongitude;
+        double py = (p.getLatitude() - a.getLatitude()) * metersPerDegreeLatitude;
+
+        double lengthSquared = bx * bx + by * by;
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, (px * bx + py * by) / lengthSquared));
+        double dx = px - t * bx;
+        double dy = py - t * by;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private static double wrapLongitude(double delta) {
+        if (delta > 180) {
+            return delta - 360;
+        }
+        if (delta < -180) {
+            return delta + 360;
+        }
+        return delta;
+    }
+}
@@ -0,0 +1,824 @@
+package com.omri.trackinglibrary.history;
+
+import android.util.Log;
+
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.utils.DateUtils;
+import com.omri.trackinglibrary.utils.TimeSource;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * LocationHistoryLog keeps days of per-user location history on disk without loading it into memory.
+ * The log is a directory of fixed-size segment files written through memory maps; locations are
+ * appended to the newest segment, and a new segment is started when it is full.
+ *
+ * <p>Segment layout: a 24 byte header (magic, version, flags, reserved, compacted-from segment ID)
+ * followed by 24 byte records {@code [int userIndex][int latitudeE7][int longitudeE7][long timeMillis][int crc32]}.
+ * Coordinates are stored in fixed point with seven decimals, about one centimeter. User IDs are stored
+ * once in a dictionary file and referenced by their index. A record is valid if its checksum matches,
+ * so the unwritten tail of a segment, or a record torn by a crash, ends the segment when it is opened.</p>
+ *
+ * <p>Each segment has a sparse time index in memory with the earliest and latest time of every block of
+ * {@value #INDEX_INTERVAL} records, so a range read skips segments and blocks outside the time window.
+ * Locations need not arrive in time order.</p>
+ *
+ * <p>Maintenance deletes segments whose newest record is older than the retention period, and compacts
+ * runs of older segments into one, dropping expired records and repeated records of the same user and time.
+ * A compacted segment is written to a temporary file and only replaces its sources once it is complete,
+ * so a crash during compaction loses no history.</p>
+ */
+public class LocationHistoryLog implements Closeable {
+    private static final String TAG = "LocationHistoryLog";
+    private static final int MAGIC = 0x4C484953; // "LHIS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int FLAGS_POSITION = 8;
+    private static final int COMPACTED_FROM_POSITION = 16;
+    private static final int FLAG_COMPLETE = 1;
+    private static final int RECORD_SIZE = 24;
+    private static final int CHECKSUMMED_SIZE = 20;
+    private static final int INDEX_INTERVAL = 128;
+    private static final double FIXED_POINT_SCALE = 1e7;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String DICTIONARY_FILE = "users.dict";
+
+    /**
+     * Receives the records of a range read without creating a {@link Location} per record.
+     */
+    public interface HistoryReader {
+
+        /**
+         * Called for each record in the range.
+         *
+         * @param latitude   The latitude of the record
+         * @param longitude  The longitude of the record
+         * @param timeMillis The time of the record in milliseconds since the epoch
+         */
+        void accept(double latitude, double longitude, long timeMillis);
+    }
+
+    private final File directory;
+    private final int recordsPerSegment;
+    private final long retentionMillis;
+    private final TimeSource timeSource;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object maintenanceLock = new Object();
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<String, Integer> userIndexes = new HashMap<>();
+    private final List<String> userIds = new ArrayList<>();
+    private final FileChannel dictionary;
+
+    private ScheduledExecutorService maintenance;
+    private boolean closed;
+
+    /**
+     * Opens the history log stored in a directory, creating it if it does not exist.
+     * Uses the system clock for retention and for locations without a valid timestamp.
+     *
+     * @param directory         The directory of the segment files
+     * @param recordsPerSegment The number of records per segment file
+     * @param retentionMillis   How long records are kept, in milliseconds
+     * @throws IOException if the directory or its files cannot be opened or have an unknown format
+     * @throws IllegalArgumentException if the segment size or retention period is not positive
+     */
+    public LocationHistoryLog(File directory, int recordsPerSegment, long retentionMillis) throws IOException {
+        this(directory, recordsPerSegment, retentionMillis, TimeSource.SYSTEM);
+    }
+
+    /**
+     * Opens the history log stored in a directory, creating it if it does not exist.
+     * Segments left by an interrupted compaction are completed or discarded.
+     *
+     * @param directory         The directory of the segment files
+     * @param recordsPerSegment The number of records per segment file
+     * @param retentionMillis   How long records are kept, in milliseconds
+     * @param timeSource        The source of the current time
+     * @throws IOException if the directory or its files cannot be opened or have an unknown format
+     * @throws IllegalArgumentException if the segment size or retention period is not positive
+     */
+    public LocationHistoryLog(File directory, int recordsPerSegment, long retentionMillis,
+                              TimeSource timeSource) throws IOException {
+        if (recordsPerSegment < 1 || recordsPerSegment > (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE) {
+            throw new IllegalArgumentException("Invalid number of records per segment: " + recordsPerSegment);
+        }
+        if (retentionMillis <= 0) {
+            throw new IllegalArgumentException("Retention period must be positive");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create history directory " + directory);
+        }
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        this.retentionMillis = retentionMillis;
+        this.timeSource = timeSource;
+        this.dictionary = FileChannel.open(new File(directory, DICTIONARY_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            recoverDictionary();
+            recoverSegments();
+        } catch (IOException | RuntimeException e) {
+            closeFiles();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a location to the log.
+     *
+     * @param location The location; its timestamp is the time of the record
+     * @throws IOException if the log is closed or a new segment cannot be created
+     */
+    public void append(Location location) throws IOException {
+        if (location.getUserId() == null) {
+            return;
+        }
+        long timeMillis = DateUtils.parseISODate(location.getLastUpdated());
+        if (timeMillis < 0) {
+            timeMillis = timeSource.currentTimeMillis();
+        }
+        append(location.getUserId(), location.getLatitude(), location.getLongitude(), timeMillis);
+    }
+
+    /**
+     * Appends a location of a user to the log.
+     *
+     * @param userId     The ID of the user
+     * @param latitude   The latitude
+     * @param longitude  The longitude
+     * @param timeMillis The time of the location in milliseconds since the epoch
+     * @throws IOException if the log is closed or a new segment cannot be created
+     */
+    public void append(String userId, double latitude, double longitude, long timeMillis) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                throw new IOException("History log is closed");
+            }
+            int userIndex = userIndex(userId);
+            Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (active == null || active.count == recordsPerSegment) {
+                if (active != null) {
+                    active.buffer.force();
+                }
+                long id = active == null ? 1 : active.id + 1;
+                active = createSegment(segmentFile(id), id, FLAG_COMPLETE, 0);
+                segments.add(active);
+            }
+            active.write(active.count, userIndex, toFixedPoint(latitude), toFixedPoint(longitude), timeMillis);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the locations of a user within a time window, in time order.
+     *
+     * @param userId     The ID of the user
+     * @param fromMillis The start of the window, inclusive, in milliseconds since the epoch
+     * @param toMillis   The end of the window, inclusive, in milliseconds since the epoch
+     * @return The locations of the user in the window, oldest first
+     */
+    public List<Location> read(final String userId, long fromMillis, long toMillis) {
+        final List<Location> locations = new ArrayList<>();
+        scan(userId, fromMillis, toMillis, (latitude, longitude, timeMillis) ->
+                locations.add(new Location(userId, latitude, longitude, DateUtils.formatMongoDate(timeMillis))));
+        locations.sort((a, b) -> a.getLastUpdated().compareTo(b.getLastUpdated()));
+        return locations;
+    }
+
+    /**
+     * Reads the records of a user within a time window, in the order they were appended.
+     * Segments and index blocks whose times lie outside the window are skipped.
+     *
+     * @param userId     The ID of the user
+     * @param fromMillis The start of the window, inclusive, in milliseconds since the epoch
+     * @param toMillis   The end of the window, inclusive, in milliseconds since the epoch
+     * @param reader     Receives the records in the window
+     */
+    public void scan(String userId, long fromMillis, long toMillis, HistoryReader reader) {
+        lock.readLock().lock();
+        try {
+            Integer userIndex = userIndexes.get(userId);
+            if (userIndex == null) {
+                return;
+            }
+            for (Segment segment : segments) {
+                segment.scan(userIndex, fromMillis, toMillis, reader);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Starts running {@link #runMaintenance()} periodically on a background thread.
+     * Has no effect if maintenance is already running.
+     *
+     * @param intervalMillis The time between maintenance runs, in milliseconds
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public synchronized void startMaintenance(long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Maintenance interval must be positive");
+        }
+        if (maintenance != null) {
+            return;
+        }
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(() -> {
+            try {
+                runMaintenance();
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "History maintenance failed: " + e.getMessage(), e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Deletes expired segments and then compacts the remaining older segments.
+     *
+     * @throws IOException if a segment cannot be deleted or compacted
+     */
+    public void runMaintenance() throws IOException {
+        applyRetention();
+        compact();
+    }
+
+    /**
+     * Deletes the segments whose newest record is older than the retention period.
+     * The segment being appended to is kept.
+     *
+     * @return The number of deleted segments
+     * @throws IOException if a segment file cannot be deleted
+     */
+    public int applyRetention() throws IOException {
+        long cutoff = timeSource.currentTimeMillis() - retentionMillis;
+        synchronized (maintenanceLock) {
+            List<Segment> expired = new ArrayList<>();
+            lock.writeLock().lock();
+            try {
+                if (closed) {
+                    return 0;
+                }
+                for (int i = 0; i < segments.size() - 1; i++) {
+                    Segment segment = segments.get(i);
+                    if (segment.maxTime < cutoff) {
+                        expired.add(segment);
+                    }
+                }
+                segments.removeAll(expired);
+                for (Segment segment : expired) {
+                    segment.delete();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!expired.isEmpty()) {
+                Log.d(TAG, "Deleted " + expired.size() + " expired history segments");
+            }
+            return expired.size();
+        }
+    }
+
+    /**
+     * Rewrites runs of consecutive older segments into single segments, dropping expired records and
+     * repeated records of the same user and time. The segment being appended to is not compacted.
+     * Appends and reads continue while a compacted segment is written.
+     *
+     * @return The number of segments removed by compaction
+     * @throws IOException if a compacted segment cannot be written
+     */
+    public int compact() throws IOException {
+        long cutoff = timeSource.currentTimeMillis() - retentionMillis;
+        synchronized (maintenanceLock) {
+            List<Segment> sealed;
+            lock.readLock().lock();
+            try {
+                if (closed) {
+                    return 0;
+                }
+                sealed = new ArrayList<>(segments.subList(0, Math.max(0, segments.size() - 1)));
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            int removed = 0;
+            int start = 0;
+            while (start < sealed.size()) {
+                int end = start;
+                int live = sealed.get(start).countLive(cutoff);
+                while (end + 1 < sealed.size() && live + sealed.get(end + 1).countLive(cutoff) <= recordsPerSegment) {
+                    end++;
+                    live += sealed.get(end).countLive(cutoff);
+                }
+                List<Segment> run = sealed.subList(start, end + 1);
+                if (run.size() > 1 || live < run.get(0).count) {
+                    removed += compact(run, cutoff) ? run.size() - 1 : 0;
+                }
+                start = end + 1;
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * Forces the segment being appended to, and the user dictionary, to disk.
+     *
+     * @throws IOException if the dictionary cannot be forced
+     */
+    public void sync() throws IOException {
+        lock.readLock().lock();
+        try {
+            if (!segments.isEmpty()) {
+                segments.get(segments.size() - 1).buffer.force();
+            }
+            dictionary.force(false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of segment files.
+     *
+     * @return The number of segments
+     */
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of records in all segments.
+     *
+     * @return The number of records
+     */
+    public long getRecordCount() {
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            for (Segment segment : segments) {
+                count += segment.count;
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stops maintenance, forces the log to disk and closes its files.
+     *
+     * @throws IOException if the files cannot be forced or closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (maintenance != null) {
+                maintenance.shutdown();
+            }
+        }
+        synchronized (maintenanceLock) {
+            lock.writeLock().lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (!segments.isEmpty()) {
+                    segments.get(segments.size() - 1).buffer.force();
+                }
+                dictionary.force(false);
+                closeFiles();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the live records of a run of segments into one segment and swaps it in for the run.
+     *
+     * @param run    The consecutive segments to merge
+     * @param cutoff The time before which records are expired
+     * @return true if the run was replaced
+     * @throws IOException if the compacted segment cannot be written
+     */
+    private boolean compact(List<Segment> run, long cutoff) throws IOException {
+        int total = 0;
+        for (Segment segment : run) {
+            total += segment.count;
+        }
+        int[] users = new int[total];
+        int[] latitudes = new int[total];
+        int[] longitudes = new int[total];
+        long[] times = new long[total];
+        int size = 0;
+        for (Segment segment : run) {
+            for (int i = 0; i < segment.count; i++) {
+                long time = segment.timeAt(i);
+                if (time >= cutoff) {
+                    users[size] = segment.userAt(i);
+                    latitudes[size] = segment.latitudeAt(i);
+                    longitudes[size] = segment.longitudeAt(i);
+                    times[size] = time;
+                    size++;
+                }
+            }
+        }
+        boolean[] repeated = markRepeated(users, times, size);
+
+        Segment last = run.get(run.size() - 1);
+        File temp = new File(directory, segmentFile(last.id).getName() + TEMP_SUFFIX);
+        Segment compacted = createSegment(temp, last.id, 0, run.get(0).id);
+        try {
+            for (int i = 0; i < size; i++) {
+                if (!repeated[i]) {
+                    compacted.write(compacted.count, users[i], latitudes[i], longitudes[i], times[i]);
+                }
+            }
+            compacted.buffer.force();
+            compacted.buffer.putInt(FLAGS_POSITION, FLAG_COMPLETE);
+            compacted.buffer.force();
+        } catch (RuntimeException e) {
+            compacted.delete();
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                compacted.delete();
+                return false;
+            }
+            for (Segment segment : run) {
+                segment.delete();
+            }
+            compacted.channel.close();
+            if (!temp.renameTo(segmentFile(last.id))) {
+                throw new IOException("Cannot rename compacted segment " + temp);
+            }
+            Segment reopened = openSegment(segmentFile(last.id), last.id);
+            int position = segments.indexOf(run.get(0));
+            segments.removeAll(run);
+            segments.add(position, reopened);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Log.d(TAG, "Compacted " + run.size() + " history segments, " + total + " records into "
+                + compacted.count);
+        return true;
+    }
+
+    /**
+     * Finds records that are repeated later with the same user and time.
+     *
+     * @param users The user index of each record
+     * @param times The time of each record
+     * @param size  The number of records
+     * @return For each record, whether a later record has the same user and time
+     */
+    private static boolean[] markRepeated(final int[] users, final long[] times, int size) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> users[a] != users[b] ? Integer.compare(users[a], users[b])
+                : times[a] != times[b] ? Long.compare(times[a], times[b]) : Integer.compare(a, b));
+        boolean[] repeated = new boolean[size];
+        for (int i = 0; i + 1 < size; i++) {
+            int current = order[i];
+            int next = order[i + 1];
+            repeated[current] = users[current] == users[next] && times[current] == times[next];
+        }
+        return repeated;
+    }
+
+    private int userIndex(String userId) throws IOException {
+        Integer index = userIndexes.get(userId);
+        if (index != null) {
+            return index;
+        }
+        byte[] bytes = userId.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IOException("User ID is too long for the history log");
+        }
+        ByteBuffer entry = ByteBuffer.allocate(2 + bytes.length);
+        entry.putShort((short) bytes.length);
+        entry.put(bytes);
+        entry.flip();
+        long position = dictionary.size();
+        while (entry.hasRemaining()) {
+            position += dictionary.write(entry, position);
+        }
+        dictionary.force(false);
+        index = userIds.size();
+        userIds.add(userId);
+        userIndexes.put(userId, index);
+        return index;
+    }
+
+    /**
+     * Loads the user dictionary, discarding an entry torn by a crash.
+     *
+     * @throws IOException if the dictionary cannot be read
+     */
+    private void recoverDictionary() throws IOException {
+        long size = dictionary.size();
+        ByteBuffer contents = ByteBuffer.allocate((int) size);
+        while (contents.hasRemaining() && dictionary.read(contents, contents.position()) >= 0) {
+            // read the whole file
+        }
+        contents.flip();
+        while (contents.remaining() >= 2) {
+            int length = contents.getShort(contents.position());
+            if (length < 0 || contents.remaining() < 2 + length) {
+                break;
+            }
+            contents.getShort();
+            byte[] bytes = new byte[length];
+            contents.get(bytes);
+            String userId = new String(bytes, StandardCharsets.UTF_8);
+            userIndexes.put(userId, userIds.size());
+            userIds.add(userId);
+        }
+        if (contents.position() < size) {
+            dictionary.truncate(contents.position());
+        }
+    }
+
+    /**
+     * Opens the segment files in ID order. A complete compacted segment left in a temporary file replaces
+     * its sources; an incomplete one is deleted.
+     *
+     * @throws IOException if a segment cannot be opened or has an unknown format
+     */
+    private void recoverSegments() throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Cannot list history directory " + directory);
+        }
+        List<Long> ids = new ArrayList<>();
+        List<File> temps = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX + TEMP_SUFFIX)) {
+                temps.add(file);
+            } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                ids.add(segmentId(name, SEGMENT_SUFFIX));
+            }
+        }
+        for (File temp : temps) {
+            long id = segmentId(temp.getName(), SEGMENT_SUFFIX + TEMP_SUFFIX);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.READ)) {
+                channel.read(header, 0);
+            }
+            if (header.getInt(0) == MAGIC && header.getInt(FLAGS_POSITION) == FLAG_COMPLETE) {
+                long from = header.getLong(COMPACTED_FROM_POSITION);
+                for (int i = ids.size() - 1; i >= 0; i--) {
+                    long source = ids.get(i);
+                    if (source >= from && source <= id) {
+                        deleteFile(segmentFile(source));
+                        ids.remove(i);
+                    }
+                }
+                if (!temp.renameTo(segmentFile(id))) {
+                    throw new IOException("Cannot rename compacted segment " + temp);
+                }
+                ids.add(id);
+                Log.d(TAG, "Completed interrupted compaction of segment " + id);
+            } else {
+                deleteFile(temp);
+            }
+        }
+        ids.sort(null);
+        for (long id : ids) {
+            segments.add(openSegment(segmentFile(id), id));
+        }
+    }
+
+    private Segment createSegment(File file, long id, int flags, long compactedFrom) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) recordsPerSegment * RECORD_SIZE);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(FLAGS_POSITION, flags);
+            buffer.putLong(COMPACTED_FROM_POSITION, compactedFrom);
+            return new Segment(id, file, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private Segment openSegment(File file, long id) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = Math.max(channel.size(), HEADER_SIZE + (long) recordsPerSegment * RECORD_SIZE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Unknown history segment format: " + file);
+            }
+            Segment segment = new Segment(id, file, channel, buffer);
+            segment.recover();
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private File segmentFile(long id) {
+        return new File(directory, String.format(Locale.US, "%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private static long segmentId(String name, String suffix) throws IOException {
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected file in history directory: " + name);
+        }
+    }
+
+    private static void deleteFile(File file) throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Cannot delete " + file);
+        }
+    }
+
+    private void closeFiles() throws IOException {
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+        dictionary.close();
+    }
+
+    private static int toFixedPoint(double degrees) {
+        return (int) Math.round(degrees * FIXED_POINT_SCALE);
+    }
+
+    /**
+     * One segment file and its sparse time index. Records of the segment being appended to are written
+     * under the log's write lock; a compacted segment is written by maintenance before it is published.
+     */
+    private final class Segment {
+        final long id;
+        final File file;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final long[] blockMinTimes;
+        final long[] blockMaxTimes;
+        final CRC32 crc = new CRC32();
+        final byte[] scratch = new byte[CHECKSUMMED_SIZE];
+        final ByteBuffer scratchBuffer = ByteBuffer.wrap(scratch);
+        int count;
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+
+        Segment(long id, File file, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+            int blocks = (recordsPerSegment + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+            this.blockMinTimes = new long[blocks];
+            this.blockMaxTimes = new long[blocks];
+            Arrays.fill(blockMinTimes, Long.MAX_VALUE);
+            Arrays.fill(blockMaxTimes, Long.MIN_VALUE);
+        }
+
+        void write(int record, int userIndex, int latitude, int longitude, long timeMillis) {
+            scratchBuffer.clear();
+            scratchBuffer.putInt(userIndex).putInt(latitude).putInt(longitude).putLong(timeMillis);
+            crc.reset();
+            crc.update(scratch, 0, CHECKSUMMED_SIZE);
+            int offset = offsetOf(record);
+            buffer.putInt(offset, userIndex);
+            buffer.putInt(offset + 4, latitude);
+            buffer.putInt(offset + 8, longitude);
+            buffer.putLong(offset + 12, timeMillis);
+            buffer.putInt(offset + CHECKSUMMED_SIZE, (int) crc.getValue());
+            indexRecord(record, timeMillis);
+            count = record + 1;
+        }
+
+        /**
+         * Counts the valid records, up to the first one whose checksum does not match, and rebuilds the time index.
+         */
+        void recover() {
+            while (count < recordsPerSegment) {
+                int offset = offsetOf(count);
+                for (int i = 0; i < CHECKSUMMED_SIZE; i++) {
+                    scratch[i] = buffer.get(offset + i);
+                }
+                crc.reset();
+                crc.update(scratch, 0, CHECKSUMMED_SIZE);
+                if ((int) crc.getValue() != buffer.getInt(offset + CHECKSUMMED_SIZE)) {
+                    break;
+                }
+                indexRecord(count, timeAt(count));
+                count++;
+            }
+        }
+
+        void scan(int userIndex, long fromMillis, long toMillis, HistoryReader reader) {
+            if (count == 0 || maxTime < fromMillis || minTime > toMillis) {
+                return;
+            }
+            for (int block = 0; block * INDEX_INTERVAL < count; block++) {
+                if (blockMaxTimes[block] < fromMillis || blockMinTimes[block] > toMillis) {
+                    continue;
+                }
+                int end = Math.min(count, (block + 1) * INDEX_INTERVAL);
+                for (int i = block * INDEX_INTERVAL; i < end; i++) {
+                    if (userAt(i) != userIndex) {
+                        continue;
+                    }
+                    long time = timeAt(i);
+                    if (time >= fromMillis && time <= toMillis) {
+                        reader.accept(latitudeAt(i) / FIXED_POINT_SCALE, longitudeAt(i) / FIXED_POINT_SCALE, time);
+                    }
+                }
+            }
+        }
+
+        int countLive(long cutoff) {
+            if (minTime >= cutoff) {
+                return count;
+            }
+            int live = 0;
+            for (int i = 0; i < count; i++) {
+                if (timeAt(i) >= cutoff) {
+                    live++;
+                }
+            }
+            return live;
+        }
+
+        int userAt(int record) {
+            return buffer.getInt(offsetOf(record));
+        }
+
+        int latitudeAt(int record) {
+            return buffer.getInt(offsetOf(record) + 4);
+        }
+
+        int longitudeAt(int record) {
+            return buffer.getInt(offsetOf(record) + 8);
+        }
+
+        long timeAt(int record) {
+            return buffer.getLong(offsetOf(record) + 12);
+        }
+
+        void delete() throws IOException {
+            channel.close();
+            deleteFile(file);
+        }
+
+        private void indexRecord(int record, long timeMillis) {
+            int block = record / INDEX_INTERVAL;
+            blockMinTimes[block] = Math.min(blockMinTimes[block], timeMillis);
+            blockMaxTimes[block] = Math.max(blockMaxTimes[block], timeMillis);
+            minTime = Math.min(minTime, timeMillis);
+            maxTime = Math.max(maxTime, timeMillis);
+        }
+
+        private int offsetOf(int record) {
+            return HEADER_SIZE + record * RECORD_SIZE;
+        }
+    }
+}
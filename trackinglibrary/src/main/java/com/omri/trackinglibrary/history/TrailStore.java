@@ -0,0 +1,237 @@
+package com.omri.trackinglibrary.history;
+
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.utils.DateUtils;
+import com.omri.trackinglibrary.utils.TimeSource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * TrailStore keeps the most recent fixes of every user for drawing their trails.
+ * Each user has a fixed-capacity ring of parallel {@code double} latitude and longitude arrays and a
+ * {@code long} array of epoch milliseconds; once full, a new fix overwrites the oldest one. A fix costs
+ * 24 bytes instead of a {@link Location} with its timestamp string, and reading a trail goes through a
+ * reusable {@link TrailView} over the ring instead of a copied list.
+ *
+ * <p>Fixes must arrive in time order per user; a fix that is not newer than the user's latest fix,
+ * such as the same location read twice, is ignored. Each trail is guarded by its own lock, so users
+ * are recorded and read independently.</p>
+ */
+public class TrailStore {
+    private static final int MAX_POINTS_PER_USER = 1 << 20;
+
+    private final int capacity;
+    private final TimeSource timeSource;
+    private final Map<String, Trail> trails = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new TrailStore that uses the system clock for locations without a valid timestamp.
+     *
+     * @param pointsPerUser The minimum number of fixes kept per user; rounded up to a power of two
+     * @throws IllegalArgumentException if the number of points is not positive or too large
+     */
+    public TrailStore(int pointsPerUser) {
+        this(pointsPerUser, TimeSource.SYSTEM);
+    }
+
+    /**
+     * Constructs a new TrailStore.
+     *
+     * @param pointsPerUser The minimum number of fixes kept per user; rounded up to a power of two
+     * @param timeSource    The source of the time of locations without a valid timestamp
+     * @throws IllegalArgumentException if the number of points is not positive or too large
+     */
+    public TrailStore(int pointsPerUser, TimeSource timeSource) {
+        if (pointsPerUser < 1 || pointsPerUser > MAX_POINTS_PER_USER) {
+            throw new IllegalArgumentException("Points per user must be between 1 and " + MAX_POINTS_PER_USER);
+        }
+        this.capacity = pointsPerUser == 1 ? 1 : Integer.highestOneBit(pointsPerUser - 1) << 1;
+        this.timeSource = timeSource;
+    }
+
+    /**
+     * Appends a location to the trail of its user.
+     *
+     * @param location The location; its timestamp is the time of the fix
+     */
+    public void record(Location location) {
+        if (location.getUserId() == null) {
+            return;
+        }
+        long timeMillis = DateUtils.parseISODate(location.getLastUpdated());
+        if (timeMillis < 0) {
+            timeMillis = timeSource.currentTimeMillis();
+        }
+        record(location.getUserId(), location.getLatitude(), location.getLongitude(), timeMillis);
+    }
+
+    /**
+     * Appends a fix to the trail of a user.
+     *
+     * @param userId     The ID of the user
+     * @param latitude   The latitude of the fix
+     * @param longitude  The longitude of the fix
+     * @param timeMillis The time of the fix in milliseconds since the epoch
+     */
+    public void record(String userId, double latitude, double longitude, long timeMillis) {
+        Trail trail = trails.get(userId);
+        if (trail == null) {
+            trail = trails.computeIfAbsent(userId, id -> new Trail(id, capacity));
+        }
+        trail.append(latitude, longitude, timeMillis);
+    }
+
+    /**
+     * Reads the whole trail of a user.
+     *
+     * @param userId The ID of the user
+     * @param reader Receives the view of the trail; the view is only valid during the call
+     * @return true if the user has a trail, false if the reader was not called
+     */
+    public boolean readTrail(String userId, Consumer<TrailView> reader) {
+        return readTrail(userId, Long.MIN_VALUE, reader);
+    }
+
+    /**
+     * Reads the fixes of a user at or after a time, for example the last few minutes of the trail.
+     * The user's trail cannot change while the reader runs.
+     *
+     * @param userId      The ID of the user
+     * @param sinceMillis The time of the oldest fix to include, in milliseconds since the epoch
+     * @param reader      Receives the view of the trail; the view is only valid during the call
+     * @return true if the user has a trail, false if the reader was not called
+     */
+    public boolean readTrail(String userId, long sinceMillis, Consumer<TrailView> reader) {
+        Trail trail = trails.get(userId);
+        if (trail == null) {
+            return false;
+        }
+        trail.read(sinceMillis, reader);
+        return true;
+    }
+
+    /**
+     * Reads the fixes of every user at or after a time, one trail at a time.
+     *
+     * @param sinceMillis The time of the oldest fix to include, in milliseconds since the epoch
+     * @param reader      Receives the view of each trail; a view is only valid during its call
+     */
+    public void forEachTrail(long sinceMillis, Consumer<TrailView> reader) {
+        for (Trail trail : trails.values()) {
+            trail.read(sinceMillis, reader);
+        }
+    }
+
+    /**
+     * Gets the number of fixes kept for a user.
+     *
+     * @param userId The ID of the user
+     * @return The number of fixes, or 0 if the user has no trail
+     */
+    public int getPointCount(String userId) {
+        Trail trail = trails.get(userId);
+        return trail != null ? trail.size() : 0;
+    }
+
+    /**
+     * Gets the number of users with a trail.
+     *
+     * @return The number of users
+     */
+    public int getUserCount() {
+        return trails.size();
+    }
+
+    /**
+     * Gets the number of fixes kept per user.
+     *
+     * @return The ring capacity, a power of two
+     */
+    public int getPointsPerUser() {
+        return capacity;
+    }
+
+    /**
+     * Removes the trail of a user, for example when the user is no longer shown.
+     *
+     * @param userId The ID of the user
+     */
+    public void remove(String userId) {
+        trails.remove(userId);
+    }
+
+    /**
+     * Removes every trail.
+     */
+    public void clear() {
+        trails.clear();
+    }
+
+    /**
+     * Ring of the recent fixes of one user. Guarded by its own monitor.
+     */
+    private static final class Trail {
+        final String userId;
+        final double[] latitudes;
+        final double[] longitudes;
+        final long[] timesMillis;
+        final TrailView view = new TrailView();
+        final int mask;
+        int next;
+        int size;
+
+        Trail(String userId, int capacity) {
+            this.userId = userId;
+            this.latitudes = new double[capacity];
+            this.longitudes = new double[capacity];
+            this.timesMillis = new long[capacity];
+            this.mask = capacity - 1;
+        }
+
+        synchronized void append(double latitude, double longitude, long timeMillis) {
+            if (size > 0 && timeMillis <= timesMillis[(next - 1) & mask]) {
+                return;
+            }
+            latitudes[next] = latitude;
+            longitudes[next] = longitude;
+            timesMillis[next] = timeMillis;
+            next = (next + 1) & mask;
+            if (size <= mask) {
+                size++;
+            }
+        }
+
+        synchronized void read(long sinceMillis, Consumer<TrailView> reader) {
+            int oldest = (next - size) & mask;
+            int skipped = firstAtOrAfter(oldest, sinceMillis);
+            view.reset(userId, latitudes, longitudes, timesMillis, (oldest + skipped) & mask, size - skipped);
+            reader.accept(view);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        /**
+         * Binary searches the time-ordered ring for the first fix at or after a time.
+         *
+         * @param oldest      The ring index of the oldest fix
+         * @param sinceMillis The time to search for
+         * @return The number of older fixes before it
+         */
+        private int firstAtOrAfter(int oldest, long sinceMillis) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (timesMillis[(oldest + middle) & mask] < sinceMillis) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
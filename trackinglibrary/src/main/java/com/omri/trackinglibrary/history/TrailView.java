@@ -0,0 +1,97 @@
+package com.omri.trackinglibrary.history;
+
+/**
+ * TrailView is a read-only window onto the recent fixes of one user, oldest first.
+ * It reads the store's ring arrays directly instead of copying them, so it is only valid inside the
+ * reader passed to {@link TrailStore#readTrail}; the same instance is reused for later reads.
+ */
+public final class TrailView {
+    private String userId;
+    private double[] latitudes;
+    private double[] longitudes;
+    private long[] timesMillis;
+    private int first;
+    private int size;
+    private int mask;
+
+    TrailView() {
+    }
+
+    /**
+     * Points the view at a range of a ring.
+     *
+     * @param userId      The user the ring belongs to
+     * @param latitudes   The latitude ring
+     * @param longitudes  The longitude ring
+     * @param timesMillis The timestamp ring
+     * @param first       The ring index of the oldest fix in the view
+     * @param size        The number of fixes in the view
+     */
+    void reset(String userId, double[] latitudes, double[] longitudes, long[] timesMillis, int first, int size) {
+        this.userId = userId;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.timesMillis = timesMillis;
+        this.first = first;
+        this.size = size;
+        this.mask = latitudes.length - 1;
+    }
+
+    /**
+     * Gets the ID of the user whose trail this is.
+     *
+     * @return The user ID
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Gets the number of fixes in the view.
+     *
+     * @return The number of fixes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the latitude of a fix.
+     *
+     * @param index The position of the fix, 0 being the oldest
+     * @return The latitude
+     * @throws IndexOutOfBoundsException if the index is outside the view
+     */
+    public double getLatitude(int index) {
+        return latitudes[slot(index)];
+    }
+
+    /**
+     * Gets the longitude of a fix.
+     *
+     * @param index The position of the fix, 0 being the oldest
+     * @return The longitude
+     * @throws IndexOutOfBoundsException if the index is outside the view
+     */
+    public double getLongitude(int index) {
+        return longitudes[slot(index)];
+    }
+
+    /**
+     * Gets the time of a fix.
+     *
+     * @param index The position of the fix, 0 being the oldest
+     * @return The time in milliseconds since the epoch
+     * @throws IndexOutOfBoundsException if the index is outside the view
+     */
+    public long getTimeMillis(int index) {
+        return timesMillis[slot(index)];
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (first + index) & mask;
+    }
+}
@@ -21,4 +21,14 @@ public interface LocationCallback {
      * @param error A string describing the error that occurred.
      */
     void onError(String error);
+
+    /**
+     * Called when a pending location update was replaced by a newer update for the same user
+     * before it was sent, either because a newer fix superseded it or because it was redundant
+     * on the simplified track. The callback of the update that was sent receives the result instead.
+     * By default this is reported through {@link #onError(String)}.
+     */
+    default void onSuperseded() {
+        onError("Location update superseded by a newer update");
+    }
 }
@@ -1,5 +1,14 @@
 package com.omri.trackinglibrary.interfaces;
 
+import com.omri.trackinglibrary.models.Location;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * LocationTracker defines the contract for tracking user locations,
@@ -14,4 +23,44 @@ public interface LocationTracker {
 
     void updateLocation(String userId, double latitude, double longitude, LocationCallback callback);
     void getUserLocation(String userId, LocationCallback callback);
+
+    /**
+     * Gets the current locations of several users.
+     * The default implementation calls {@link #getUserLocation} once per distinct user ID and completes the
+     * callback when every call has finished. If any call fails, the callback receives the first error once.
+     * Implementations with a bulk endpoint should override it.
+     *
+     * @param userIds  The IDs of the users whose locations to retrieve
+     * @param callback Callback to handle the locations retrieval result
+     */
+    default void getUserLocations(Collection<String> userIds, LocationsCallback callback) {
+        Set<String> distinct = new LinkedHashSet<>(userIds);
+        final Map<String, Location> locations = new ConcurrentHashMap<>();
+        if (distinct.isEmpty()) {
+            callback.onSuccess(Collections.unmodifiableMap(locations));
+            return;
+        }
+        final AtomicInteger remaining = new AtomicInteger(distinct.size());
+        final AtomicBoolean failed = new AtomicBoolean();
+        for (String userId : distinct) {
+            getUserLocation(userId, new LocationCallback() {
+                @Override
+                public void onSuccess(Location location) {
+                    if (location != null && location.getUserId() != null) {
+                        locations.put(location.getUserId(), location);
+                    }
+                    if (remaining.decrementAndGet() == 0 && !failed.get()) {
+                        callback.onSuccess(Collections.unmodifiableMap(locations));
+                    }
+                }
+
+                @Override
+                public void onError(String error) {
+                    if (failed.compareAndSet(false, true)) {
+                        callback.onError(error);
+                    }
+                }
+            });
+        }
+    }
 }
@@ -0,0 +1,25 @@
+package com.omri.trackinglibrary.interfaces;
+
+import com.omri.trackinglibrary.models.Location;
+import java.util.Map;
+
+/**
+ * LocationsCallback provides a mechanism to handle success and error responses
+ * when retrieving the locations of several users asynchronously.
+ */
+public interface LocationsCallback {
+
+    /**
+     * Called when the locations request is successful.
+     *
+     * @param locations The retrieved locations by user ID. Users without a known location are absent.
+     */
+    void onSuccess(Map<String, Location> locations);
+
+    /**
+     * Called when an error occurs during the locations request.
+     *
+     * @param error A string describing the error that occurred.
+     */
+    void onError(String error);
+}
@@ -0,0 +1,89 @@
+package com.omri.trackinglibrary.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EndpointMetrics collects the metrics of one API operation: a latency histogram,
+ * outcome counters and byte counts. All updates are lock-free.
+ */
+public class EndpointMetrics {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder networkFailures = new LongAdder();
+    private final LongAdder canceled = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+
+    /**
+     * Records a call that received a response.
+     *
+     * @param micros     The time until the response headers arrived, in microseconds
+     * @param successful Whether the response had a 2xx or 3xx status code
+     */
+    public void recordResponse(long micros, boolean successful) {
+        latency.recordMicros(micros);
+        if (successful) {
+            successes.increment();
+        } else {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Records a call that failed without a response.
+     *
+     * @param micros     The time until the failure, in microseconds
+     * @param wasCanceled Whether the call failed because it was cancelled
+     */
+    public void recordFailure(long micros, boolean wasCanceled) {
+        if (wasCanceled) {
+            canceled.increment();
+        } else {
+            latency.recordMicros(micros);
+            networkFailures.increment();
+        }
+    }
+
+    /**
+     * Adds bytes sent in request bodies.
+     *
+     * @param bytes The number of bytes
+     */
+    public void addRequestBytes(long bytes) {
+        requestBytes.add(bytes);
+    }
+
+    /**
+     * Adds bytes received in response bodies.
+     *
+     * @param bytes The number of bytes
+     */
+    public void addResponseBytes(long bytes) {
+        responseBytes.add(bytes);
+    }
+
+    /**
+     * Copies the current metrics.
+     *
+     * @param name The name of the operation
+     * @return An immutable snapshot
+     */
+    public EndpointSnapshot snapshot(String name) {
+        return new EndpointSnapshot(name, latency.snapshot(), successes.sum(), errors.sum(),
+                networkFailures.sum(), canceled.sum(), requestBytes.sum(), responseBytes.sum());
+    }
+
+    /**
+     * Clears all metrics.
+     */
+    public void reset() {
+        latency.reset();
+        successes.reset();
+        errors.reset();
+        networkFailures.reset();
+        canceled.reset();
+        requestBytes.reset();
+        responseBytes.reset();
+    }
+}
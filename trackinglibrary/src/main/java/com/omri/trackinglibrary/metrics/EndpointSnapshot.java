@@ -0,0 +1,111 @@
+package com.omri.trackinglibrary.metrics;
+
+/**
+ * EndpointSnapshot is an immutable copy of the metrics of one API operation.
+ */
+public class EndpointSnapshot {
+    private final String name;
+    private final HistogramSnapshot latency;
+    private final long successCount;
+    private final long errorCount;
+    private final long networkFailureCount;
+    private final long canceledCount;
+    private final long requestBytes;
+    private final long responseBytes;
+
+    EndpointSnapshot(String name, HistogramSnapshot latency, long successCount, long errorCount,
+                     long networkFailureCount, long canceledCount, long requestBytes, long responseBytes) {
+        this.name = name;
+        this.latency = latency;
+        this.successCount = successCount;
+        this.errorCount = errorCount;
+        this.networkFailureCount = networkFailureCount;
+        this.canceledCount = canceledCount;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+    }
+
+    /**
+     * Gets the name of the operation, such as "getUserLocation".
+     *
+     * @return The name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the latency histogram of calls that got a response or failed on the network.
+     *
+     * @return The latency snapshot
+     */
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+
+    /**
+     * Gets the number of calls answered with a 2xx or 3xx status code.
+     *
+     * @return The success count
+     */
+    public long getSuccessCount() {
+        return successCount;
+    }
+
+    /**
+     * Gets the number of calls answered with a 4xx or 5xx status code.
+     *
+     * @return The error count
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Gets the number of calls that failed without a response.
+     *
+     * @return The network failure count
+     */
+    public long getNetworkFailureCount() {
+        return networkFailureCount;
+    }
+
+    /**
+     * Gets the number of calls cancelled before a response, such as hedges that lost.
+     *
+     * @return The cancelled count
+     */
+    public long getCanceledCount() {
+        return canceledCount;
+    }
+
+    /**
+     * Gets the number of bytes sent in request bodies.
+     *
+     * @return The request byte count
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * Gets the number of bytes received in response bodies.
+     *
+     * @return The response byte count
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointSnapshot{name='" + name + "'"
+                + ", success=" + successCount
+                + ", error=" + errorCount
+                + ", networkFailure=" + networkFailureCount
+                + ", canceled=" + canceledCount
+                + ", requestBytes=" + requestBytes
+                + ", responseBytes=" + responseBytes
+                + ", latency=" + latency + "}";
+    }
+}
@@ -0,0 +1,77 @@
+package com.omri.trackinglibrary.metrics;
+
+/**
+ * HistogramSnapshot is an immutable copy of a {@link LatencyHistogram}.
+ * All values are in microseconds.
+ */
+public class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long totalMicros;
+    private final long maxMicros;
+
+    HistogramSnapshot(long[] counts, long count, long totalMicros, long maxMicros) {
+        this.counts = counts;
+        this.count = count;
+        this.totalMicros = totalMicros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return The count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean of the recorded values.
+     *
+     * @return The mean in microseconds, or 0 if nothing was recorded
+     */
+    public double getMeanMicros() {
+        return count == 0 ? 0 : (double) totalMicros / count;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return The maximum in microseconds
+     */
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    /**
+     * Gets the value below which the given percentage of recorded values fall.
+     * The result is the upper bound of the bucket holding that value, so it is at most about 3% too high.
+     *
+     * @param percentile The percentile, between 0 and 100, such as 99
+     * @return The value in microseconds, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.upperBoundOf(i), maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "HistogramSnapshot{count=" + count
+                + ", p50=" + getValueAtPercentile(50)
+                + ", p90=" + getValueAtPercentile(90)
+                + ", p99=" + getValueAtPercentile(99)
+                + ", max=" + maxMicros + "us}";
+    }
+}
@@ -0,0 +1,113 @@
+package com.omri.trackinglibrary.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram records latencies in log-linear buckets, in the style of an HDR histogram.
+ * Values up to 63 microseconds get a bucket each; above that, every power of two is split into
+ * 32 buckets, so any recorded value is reported within about 3% of its true value.
+ * Values above about 19 hours are clamped.
+ *
+ * <p>Recording is lock-free and allocation-free: it increments one bucket and a few counters
+ * atomically, so it can be called from any number of threads on the request path.
+ * {@link #snapshot()} copies the buckets without stopping writers.</p>
+ */
+public class LatencyHistogram {
+    private static final int LINEAR_BUCKETS = 64;
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int FIRST_MAGNITUDE = SUB_BUCKET_BITS + 1;
+    private static final int MAX_MAGNITUDE = 35;
+    static final long MAX_VALUE_MICROS = (1L << (MAX_MAGNITUDE + 1)) - 1;
+    static final int BUCKET_COUNT = LINEAR_BUCKETS + (MAX_MAGNITUDE - FIRST_MAGNITUDE + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Records one latency.
+     *
+     * @param duration The latency
+     * @param unit     The unit of the latency
+     */
+    public void record(long duration, TimeUnit unit) {
+        recordMicros(unit.toMicros(duration));
+    }
+
+    /**
+     * Records one latency in microseconds.
+     *
+     * @param micros The latency in microseconds; negative values are recorded as 0
+     */
+    public void recordMicros(long micros) {
+        long value = Math.max(0, Math.min(MAX_VALUE_MICROS, micros));
+        counts.incrementAndGet(bucketOf(value));
+        totalMicros.addAndGet(value);
+        long max = maxMicros.get();
+        while (value > max && !maxMicros.compareAndSet(max, value)) {
+            max = maxMicros.get();
+        }
+    }
+
+    /**
+     * Copies the current state of the histogram.
+     * Values recorded while the copy is taken may or may not be included.
+     *
+     * @return An immutable snapshot
+     */
+    public HistogramSnapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new HistogramSnapshot(copy, count, totalMicros.get(), maxMicros.get());
+    }
+
+    /**
+     * Clears all recorded values.
+     * Values recorded while clearing may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    /**
+     * Gets the bucket of a value.
+     *
+     * @param micros A value between 0 and {@link #MAX_VALUE_MICROS}
+     * @return The index of its bucket
+     */
+    static int bucketOf(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (magnitude - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return LINEAR_BUCKETS + (magnitude - FIRST_MAGNITUDE) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Gets the largest value that falls into a bucket.
+     *
+     * @param bucket The index of the bucket
+     * @return The upper bound of the bucket in microseconds
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int offset = bucket - LINEAR_BUCKETS;
+        int shift = offset / SUB_BUCKETS + FIRST_MAGNITUDE - SUB_BUCKET_BITS;
+        long subBucket = offset % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,103 @@
+package com.omri.trackinglibrary.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import retrofit2.Invocation;
+
+/**
+ * MetricsInterceptor records the metrics of every HTTP call in a {@link MetricsRegistry}.
+ * Calls made by a Retrofit service are recorded under the name of the service method, such as
+ * "getUserLocation"; other calls under their HTTP method and path.
+ * Latency is measured until the response headers arrive. Response bytes are counted as the body is read.
+ */
+public class MetricsInterceptor implements Interceptor {
+    private final MetricsRegistry registry;
+
+    /**
+     * Constructs a new MetricsInterceptor.
+     *
+     * @param registry The registry to record into
+     */
+    public MetricsInterceptor(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Gets the registry this interceptor records into.
+     *
+     * @return The registry
+     */
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        final EndpointMetrics metrics = registry.endpoint(nameOf(request));
+        RequestBody requestBody = request.body();
+        if (requestBody != null) {
+            long length = requestBody.contentLength();
+            if (length > 0) {
+                metrics.addRequestBytes(length);
+            }
+        }
+
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            metrics.recordFailure(elapsedMicros(start), chain.call().isCanceled());
+            throw e;
+        }
+        metrics.recordResponse(elapsedMicros(start), response.code() < 400);
+
+        ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+        ForwardingSource counting = new ForwardingSource(body.source()) {
+            @Override
+            public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+                long read = super.read(sink, byteCount);
+                if (read > 0) {
+                    metrics.addResponseBytes(read);
+                }
+                return read;
+            }
+        };
+        return response.newBuilder()
+                .body(ResponseBody.create(body.contentType(), body.contentLength(), Okio.buffer(counting)))
+                .build();
+    }
+
+    /**
+     * Gets the name under which a request is recorded.
+     *
+     * @param request The request
+     * @return The name of the Retrofit service method, or the HTTP method and path
+     */
+    static String nameOf(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation != null) {
+            return invocation.method().getName();
+        }
+        return request.method() + " " + request.url().encodedPath();
+    }
+
+    private static long elapsedMicros(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,67 @@
+package com.omri.trackinglibrary.metrics;
+
+import com.omri.trackinglibrary.utils.TimeSource;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MetricsRegistry holds the metrics of every API operation, keyed by operation name.
+ * Metrics are created on first use and recorded lock-free. {@link #snapshot()} exports them all at once.
+ */
+public class MetricsRegistry {
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final TimeSource timeSource;
+
+    /**
+     * Constructs a new MetricsRegistry that uses the system clock for snapshot times.
+     */
+    public MetricsRegistry() {
+        this(TimeSource.SYSTEM);
+    }
+
+    /**
+     * Constructs a new MetricsRegistry that uses the given time source for snapshot times.
+     *
+     * @param timeSource The source of the current time
+     */
+    public MetricsRegistry(TimeSource timeSource) {
+        this.timeSource = timeSource;
+    }
+
+    /**
+     * Gets the metrics of an operation, creating them if needed.
+     *
+     * @param name The name of the operation, such as "getUserLocation"
+     * @return The metrics of the operation
+     */
+    public EndpointMetrics endpoint(String name) {
+        EndpointMetrics metrics = endpoints.get(name);
+        if (metrics == null) {
+            metrics = endpoints.computeIfAbsent(name, key -> new EndpointMetrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * Copies the metrics of all operations.
+     *
+     * @return An immutable snapshot
+     */
+    public MetricsSnapshot snapshot() {
+        Map<String, EndpointSnapshot> copies = new TreeMap<>();
+        for (Map.Entry<String, EndpointMetrics> entry : endpoints.entrySet()) {
+            copies.put(entry.getKey(), entry.getValue().snapshot(entry.getKey()));
+        }
+        return new MetricsSnapshot(timeSource.currentTimeMillis(), copies);
+    }
+
+    /**
+     * Clears the metrics of all operations, for example after exporting a snapshot.
+     */
+    public void reset() {
+        for (EndpointMetrics metrics : endpoints.values()) {
+            metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.omri.trackinglibrary.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * MetricsSnapshot is an immutable copy of all metrics of a {@link MetricsRegistry},
+ * ready to be exported to a monitoring system.
+ */
+public class MetricsSnapshot {
+    private final long takenAtMillis;
+    private final Map<String, EndpointSnapshot> endpoints;
+
+    MetricsSnapshot(long takenAtMillis, Map<String, EndpointSnapshot> endpoints) {
+        this.takenAtMillis = takenAtMillis;
+        this.endpoints = Collections.unmodifiableMap(endpoints);
+    }
+
+    /**
+     * Gets the time the snapshot was taken.
+     *
+     * @return The time in milliseconds since the epoch
+     */
+    public long getTakenAtMillis() {
+        return takenAtMillis;
+    }
+
+    /**
+     * Gets the metrics of every operation that was called, by operation name.
+     *
+     * @return The metrics, sorted by name
+     */
+    public Map<String, EndpointSnapshot> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Gets the metrics of one operation.
+     *
+     * @param name The name of the operation, such as "getUserLocation"
+     * @return The metrics, or null if the operation was not called
+     */
+    public EndpointSnapshot getEndpoint(String name) {
+        return endpoints.get(name);
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsSnapshot{takenAtMillis=" + takenAtMillis + ", endpoints=" + endpoints.values() + "}";
+    }
+}
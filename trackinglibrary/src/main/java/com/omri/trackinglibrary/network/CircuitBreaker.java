@@ -0,0 +1,213 @@
+package com.omri.trackinglibrary.network;
+
+import android.util.Log;
+
+import com.omri.trackinglibrary.utils.TimeSource;
+import java.util.function.Consumer;
+
+/**
+ * CircuitBreaker stops calls to an unhealthy server so that they fail fast instead of piling up.
+ * After a number of consecutive failures the circuit opens and calls are rejected. Once the open
+ * period has passed, a single probe call is let through: if it succeeds the circuit closes again,
+ * and if it fails the circuit reopens for another period.
+ *
+ * <p>Failures are network errors and 5xx responses. Other responses count as successes.</p>
+ */
+public class CircuitBreaker {
+    private static final String TAG = "CircuitBreaker";
+
+    /**
+     * The state of a circuit.
+     */
+    public enum State {
+        /** Calls are sent. */
+        CLOSED,
+        /** Calls are rejected. */
+        OPEN,
+        /** A probe call is testing whether the server recovered. */
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final TimeSource timeSource;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMillis;
+    private boolean probeInFlight;
+    private long tripCount;
+    private long rejectedCount;
+    private volatile Consumer<State> stateListener;
+
+    /**
+     * Constructs a new CircuitBreaker that uses the system clock.
+     *
+     * @param name             The name of the circuit, usually the base URL of the server
+     * @param failureThreshold The number of consecutive failures that opens the circuit
+     * @param openMillis       How long the circuit stays open before a probe, in milliseconds
+     * @throws IllegalArgumentException if the threshold is less than 1 or the open period is negative
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this(name, failureThreshold, openMillis, TimeSource.SYSTEM);
+    }
+
+    /**
+     * Constructs a new CircuitBreaker that uses the given time source.
+     *
+     * @param name             The name of the circuit, usually the base URL of the server
+     * @param failureThreshold The number of consecutive failures that opens the circuit
+     * @param openMillis       How long the circuit stays open before a probe, in milliseconds
+     * @param timeSource       The source of the current time
+     * @throws IllegalArgumentException if the threshold is less than 1 or the open period is negative
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openMillis, TimeSource timeSource) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be at least 1");
+        }
+        if (openMillis < 0) {
+            throw new IllegalArgumentException("Open period cannot be negative");
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.timeSource = timeSource;
+    }
+
+    /**
+     * Checks whether a call may be sent. Every allowed call must be followed by
+     * {@link #recordSuccess()}, {@link #recordFailure()} or {@link #release()}.
+     *
+     * @return true if the call may be sent, false if it must fail fast
+     */
+    public boolean allowRequest() {
+        State changed = null;
+        boolean allowed;
+        synchronized (this) {
+            if (state == State.OPEN && timeSource.currentTimeMillis() - openedAtMillis >= openMillis) {
+                state = State.HALF_OPEN;
+                probeInFlight = false;
+                changed = state;
+            }
+            if (state == State.CLOSED) {
+                allowed = true;
+            } else if (state == State.HALF_OPEN && !probeInFlight) {
+                probeInFlight = true;
+                allowed = true;
+            } else {
+                rejectedCount++;
+                allowed = false;
+            }
+        }
+        notifyState(changed);
+        return allowed;
+    }
+
+    /**
+     * Records a successful call, closing the circuit if it was testing recovery.
+     */
+    public void recordSuccess() {
+        State changed = null;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            probeInFlight = false;
+            if (state != State.CLOSED) {
+                state = State.CLOSED;
+                changed = state;
+            }
+        }
+        notifyState(changed);
+    }
+
+    /**
+     * Records a failed call, opening the circuit when the threshold is reached or a probe fails.
+     */
+    public void recordFailure() {
+        State changed = null;
+        synchronized (this) {
+            consecutiveFailures++;
+            probeInFlight = false;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                state = State.OPEN;
+                openedAtMillis = timeSource.currentTimeMillis();
+                tripCount++;
+                changed = state;
+            }
+        }
+        notifyState(changed);
+    }
+
+    /**
+     * Records an allowed call that ended without telling anything about the server's health,
+     * such as a cancelled call, so another probe may be sent.
+     */
+    public synchronized void release() {
+        probeInFlight = false;
+    }
+
+    /**
+     * Sets a listener notified whenever the circuit changes state.
+     *
+     * @param stateListener The listener, or null to remove it
+     */
+    public void setStateListener(Consumer<State> stateListener) {
+        this.stateListener = stateListener;
+    }
+
+    /**
+     * Gets the name of the circuit.
+     *
+     * @return The name, usually the base URL of the server
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the current state of the circuit.
+     *
+     * @return The state
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Gets the number of failures since the last success.
+     *
+     * @return The number of consecutive failures
+     */
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Gets the number of times the circuit opened.
+     *
+     * @return The number of trips
+     */
+    public synchronized long getTripCount() {
+        return tripCount;
+    }
+
+    /**
+     * Gets the number of calls rejected while the circuit was open.
+     *
+     * @return The number of rejected calls
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    private void notifyState(State changed) {
+        if (changed == null) {
+            return;
+        }
+        Log.d(TAG, "Circuit for " + name + " is now " + changed);
+        Consumer<State> listener = stateListener;
+        if (listener != null) {
+            listener.accept(changed);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.omri.trackinglibrary.network;
+
+import java.io.IOException;
+
+/**
+ * Thrown, or passed to {@code Callback.onFailure}, when a call is not sent because the circuit
+ * breaker of its server is open.
+ */
+public class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new CircuitOpenException.
+     *
+     * @param name The name of the open circuit, usually the base URL of the server
+     */
+    public CircuitOpenException(String name) {
+        super("Circuit open for " + name);
+    }
+}
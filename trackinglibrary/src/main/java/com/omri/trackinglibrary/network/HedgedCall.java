@@ -0,0 +1,174 @@
+package com.omri.trackinglibrary.network;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * HedgedCall sends a duplicate of an idempotent read when the first request is slow.
+ * The first response wins and the other request is cancelled. A failure is only reported once
+ * no request is left that could still succeed. Synchronous calls are not hedged.
+ *
+ * @param <T> The type of the response body
+ */
+class HedgedCall<T> implements Call<T> {
+    private static final String TAG = "HedgedCall";
+
+    private final Call<T> original;
+    private final String endpoint;
+    private final HedgingCallAdapterFactory factory;
+    private final LatencyWindow latencies;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean executed = new AtomicBoolean();
+    private final AtomicBoolean done = new AtomicBoolean();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final List<Call<T>> attempts = new CopyOnWriteArrayList<>();
+
+    private volatile ScheduledFuture<?> hedgeTimer;
+    private volatile boolean canceled;
+    private long startNanos;
+
+    HedgedCall(Call<T> original, String endpoint, HedgingCallAdapterFactory factory,
+               LatencyWindow latencies, ScheduledExecutorService scheduler) {
+        this.original = original;
+        this.endpoint = endpoint;
+        this.factory = factory;
+        this.latencies = latencies;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void enqueue(@NonNull final Callback<T> callback) {
+        if (!executed.compareAndSet(false, true)) {
+            throw new IllegalStateException("Already executed");
+        }
+        factory.earnHedge();
+        startNanos = System.nanoTime();
+        send(original, callback);
+        long delay = factory.hedgeDelay(latencies);
+        hedgeTimer = scheduler.schedule(() -> {
+            if (!done.get() && !canceled && factory.spendHedge()) {
+                Log.d(TAG, "Hedging " + endpoint + " after " + delay + "ms");
+                send(original.clone(), callback);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    @NonNull
+    @Override
+    public Response<T> execute() throws IOException {
+        if (!executed.compareAndSet(false, true)) {
+            throw new IllegalStateException("Already executed");
+        }
+        long start = System.nanoTime();
+        Response<T> response = original.execute();
+        latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return response;
+    }
+
+    @Override
+    public boolean isExecuted() {
+        return executed.get();
+    }
+
+    @Override
+    public void cancel() {
+        canceled = true;
+        ScheduledFuture<?> timer = hedgeTimer;
+        if (timer != null) {
+            timer.cancel(false);
+        }
+        for (Call<T> attempt : attempts) {
+            attempt.cancel();
+        }
+    }
+
+    @Override
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    @NonNull
+    @SuppressWarnings("MethodDoesntCallSuperMethod")
+    @Override
+    public Call<T> clone() {
+        return new HedgedCall<>(original.clone(), endpoint, factory, latencies, scheduler);
+    }
+
+    @NonNull
+    @Override
+    public Request request() {
+        return original.request();
+    }
+
+    @NonNull
+    @Override
+    public Timeout timeout() {
+        return original.timeout();
+    }
+
+    private void send(final Call<T> call, final Callback<T> callback) {
+        final boolean hedge = call != original;
+        pending.incrementAndGet();
+        attempts.add(call);
+        if (done.get() || canceled) {
+            call.cancel();
+        }
+        call.enqueue(new Callback<T>() {
+            @Override
+            public void onResponse(@NonNull Call<T> c, @NonNull Response<T> response) {
+                pending.decrementAndGet();
+                if (done.compareAndSet(false, true)) {
+                    finish(call);
+                    if (hedge) {
+                        factory.recordHedgeWin();
+                    }
+                    callback.onResponse(HedgedCall.this, response);
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<T> c, @NonNull Throwable t) {
+                int left = pending.decrementAndGet();
+                if ((left == 0 || canceled) && done.compareAndSet(false, true)) {
+                    finish(call);
+                    callback.onFailure(HedgedCall.this, t);
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancels the pending hedge and every request other than the winner, and records the latency.
+     * The latency is measured from the first request, so slow requests that lose to a hedge still
+     * count toward the tail of the window.
+     *
+     * @param winner The request whose outcome is reported
+     */
+    private void finish(Call<T> winner) {
+        latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        ScheduledFuture<?> timer = hedgeTimer;
+        if (timer != null) {
+            timer.cancel(false);
+        }
+        for (Call<T> attempt : attempts) {
+            if (attempt != winner) {
+                attempt.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.omri.trackinglibrary.network;
+
+import androidx.annotation.NonNull;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+
+/**
+ * HedgingCallAdapterFactory hedges the idempotent reads of a Retrofit service, as configured by a {@link HedgingPolicy}.
+ * GET methods and methods annotated with {@link Idempotent} are hedged; other methods are left as they are.
+ * Latencies are tracked per endpoint, such as "GET api/locations/user/{userId}", and the hedge budget is
+ * shared by all endpoints.
+ */
+public class HedgingCallAdapterFactory extends CallAdapter.Factory {
+    private static final int LATENCY_WINDOW_SIZE = 256;
+    private static final double MAX_BUDGET = 10;
+
+    private final HedgingPolicy policy;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+    private final AtomicLong budgetExhaustedCount = new AtomicLong();
+    private double budget;
+
+    /**
+     * Constructs a new HedgingCallAdapterFactory.
+     *
+     * @param policy The hedging policy
+     */
+    public HedgingCallAdapterFactory(HedgingPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Gets the hedging policy.
+     *
+     * @return The policy
+     */
+    public HedgingPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Gets the number of hedges sent.
+     *
+     * @return The number of duplicate requests
+     */
+    public long getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    /**
+     * Gets the number of calls answered by their hedge rather than their first request.
+     *
+     * @return The number of calls won by a hedge
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+
+    /**
+     * Gets the number of hedges not sent because the budget was used up.
+     *
+     * @return The number of skipped hedges
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhaustedCount.get();
+    }
+
+    /**
+     * Gets the delay after which a call to an endpoint is currently hedged.
+     *
+     * @param endpoint The endpoint
+     * @return The hedge delay in milliseconds
+     */
+    public long getHedgeDelayMillis(String endpoint) {
+        return hedgeDelay(latencies.computeIfAbsent(endpoint, key -> new LatencyWindow(LATENCY_WINDOW_SIZE)));
+    }
+
+    @Override
+    public CallAdapter<?, ?> get(@NonNull Type returnType, @NonNull Annotation[] annotations,
+                                 @NonNull Retrofit retrofit) {
+        if (getRawType(returnType) != Call.class) {
+            return null;
+        }
+        final String endpoint = RateLimitedCallAdapterFactory.endpointOf(annotations);
+        if (endpoint == null || !isIdempotent(endpoint, annotations)) {
+            return null;
+        }
+        final LatencyWindow window = latencies.computeIfAbsent(endpoint, key -> new LatencyWindow(LATENCY_WINDOW_SIZE));
+        @SuppressWarnings("unchecked")
+        final CallAdapter<Object, Call<Object>> delegate =
+                (CallAdapter<Object, Call<Object>>) retrofit.nextCallAdapter(this, returnType, annotations);
+        return new CallAdapter<Object, Call<Object>>() {
+            @NonNull
+            @Override
+            public Type responseType() {
+                return delegate.responseType();
+            }
+
+            @NonNull
+            @Override
+            public Call<Object> adapt(@NonNull Call<Object> call) {
+                return new HedgedCall<>(delegate.adapt(call), endpoint, HedgingCallAdapterFactory.this, window,
+                        NetworkScheduler.get());
+            }
+        };
+    }
+
+    /**
+     * Computes the hedge delay from the latencies of an endpoint.
+     *
+     * @param window The latencies of the endpoint
+     * @return The delay in milliseconds
+     */
+    long hedgeDelay(LatencyWindow window) {
+        long latency = window.percentile(policy.getPercentile());
+        if (latency < 0) {
+            return policy.getMaxDelayMillis();
+        }
+        return Math.max(policy.getMinDelayMillis(), Math.min(policy.getMaxDelayMillis(), latency));
+    }
+
+    /**
+     * Adds the share of a hedge earned by one call to the budget.
+     */
+    synchronized void earnHedge() {
+        budget = Math.min(MAX_BUDGET, budget + policy.getBudgetRatio());
+    }
+
+    /**
+     * Takes one hedge from the budget.
+     *
+     * @return true if a hedge may be sent
+     */
+    synchronized boolean spendHedge() {
+        if (budget < 1) {
+            budgetExhaustedCount.incrementAndGet();
+            return false;
+        }
+        budget -= 1;
+        hedgeCount.incrementAndGet();
+        return true;
+    }
+
+    void recordHedgeWin() {
+        hedgeWinCount.incrementAndGet();
+    }
+
+    static boolean isIdempotent(String endpoint, Annotation[] annotations) {
+        if (endpoint.startsWith("GET ")) {
+            return true;
+        }
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Idempotent) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
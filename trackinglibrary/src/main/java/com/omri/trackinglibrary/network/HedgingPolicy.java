@@ -0,0 +1,77 @@
+package com.omri.trackinglibrary.network;
+
+/**
+ * HedgingPolicy decides when a duplicate of a slow idempotent read is sent.
+ * A hedge is sent once a call has been waiting longer than the given percentile of recent latencies
+ * of its endpoint, clamped between a minimum and a maximum delay. Until latencies are known the
+ * maximum delay is used. The budget ratio caps the extra load: every call earns that fraction of a
+ * hedge, and a hedge is only sent when a whole one has been earned.
+ * Instances are immutable.
+ */
+public final class HedgingPolicy {
+    private final double percentile;
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final double budgetRatio;
+
+    /**
+     * Constructs a new HedgingPolicy.
+     *
+     * @param percentile     The latency percentile after which to hedge, between 0 and 100, such as 95
+     * @param minDelayMillis The smallest delay before a hedge, in milliseconds
+     * @param maxDelayMillis The largest delay before a hedge, in milliseconds
+     * @param budgetRatio    The maximum number of hedges per call, between 0 and 1, such as 0.05
+     * @throws IllegalArgumentException if a value is out of range
+     */
+    public HedgingPolicy(double percentile, long minDelayMillis, long maxDelayMillis, double budgetRatio) {
+        if (!(percentile > 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be in (0, 100]");
+        }
+        if (minDelayMillis < 0 || maxDelayMillis < minDelayMillis) {
+            throw new IllegalArgumentException("Delays must satisfy 0 <= min <= max");
+        }
+        if (!(budgetRatio >= 0 && budgetRatio <= 1)) {
+            throw new IllegalArgumentException("Budget ratio must be in [0, 1]");
+        }
+        this.percentile = percentile;
+        this.minDelayMillis = minDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.budgetRatio = budgetRatio;
+    }
+
+    /**
+     * Gets the latency percentile after which to hedge.
+     *
+     * @return The percentile, between 0 and 100
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * Gets the smallest delay before a hedge.
+     *
+     * @return The minimum delay in milliseconds
+     */
+    public long getMinDelayMillis() {
+        return minDelayMillis;
+    }
+
+    /**
+     * Gets the largest delay before a hedge, also used until latencies are known.
+     *
+     * @return The maximum delay in milliseconds
+     */
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * Gets the maximum number of hedges per call.
+     *
+     * @return The budget ratio, between 0 and 1
+     */
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+}
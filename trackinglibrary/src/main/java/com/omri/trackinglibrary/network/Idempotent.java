@@ -0,0 +1,17 @@
+package com.omri.trackinglibrary.network;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service method that does not change server state although it is not a GET request,
+ * such as a lookup sent as a POST. Such methods are retried with the read policy.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Idempotent {
+}
@@ -0,0 +1,54 @@
+package com.omri.trackinglibrary.network;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window of the most recent call latencies of one endpoint.
+ * Thread-safe.
+ */
+class LatencyWindow {
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    /**
+     * Constructs a new window.
+     *
+     * @param capacity The number of recent latencies to keep
+     */
+    LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * Adds a latency, replacing the oldest one when the window is full.
+     *
+     * @param latencyMillis The latency in milliseconds
+     */
+    synchronized void add(long latencyMillis) {
+        samples[next] = latencyMillis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    /**
+     * Gets a percentile of the latencies in the window, using the nearest-rank method.
+     *
+     * @param percentile The percentile, between 0 and 100
+     * @return The latency in milliseconds, or -1 if the window is empty
+     */
+    long percentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            if (count == 0) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+}
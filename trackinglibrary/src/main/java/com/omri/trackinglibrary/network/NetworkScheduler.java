@@ -0,0 +1,40 @@
+package com.omri.trackinglibrary.network;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * NetworkScheduler holds the single timer thread that schedules retries and hedges for every API client.
+ * The scheduled tasks only enqueue calls, so one daemon thread serves any number of clients, and rebuilding
+ * a client does not start a new thread.
+ */
+final class NetworkScheduler {
+    private static final String TAG = "NetworkScheduler";
+
+    private NetworkScheduler() {
+    }
+
+    /**
+     * Gets the shared scheduler, creating it on first use.
+     *
+     * @return The scheduler; it is never shut down
+     */
+    static ScheduledExecutorService get() {
+        return Holder.SCHEDULER;
+    }
+
+    private static final class Holder {
+        static final ScheduledExecutorService SCHEDULER = create();
+
+        private static ScheduledExecutorService create() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, TAG);
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Hedge timers are usually canceled because the first response arrived in time
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.omri.trackinglibrary.network;
+
+import java.io.IOException;
+
+/**
+ * Thrown, or passed to {@code Callback.onFailure}, when a call is not sent because the
+ * client-side rate limit of its endpoint is exhausted and its queue is full.
+ */
+public class RateLimitExceededException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new RateLimitExceededException.
+     *
+     * @param endpoint The endpoint whose limit was exceeded
+     */
+    public RateLimitExceededException(String endpoint) {
+        super("Rate limit exceeded for " + endpoint);
+    }
+}
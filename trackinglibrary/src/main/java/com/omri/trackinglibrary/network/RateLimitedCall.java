@@ -0,0 +1,124 @@
+package com.omri.trackinglibrary.network;
+
+import androidx.annotation.NonNull;
+
+import com.omri.trackinglibrary.utils.ResponseUtils;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * RateLimitedCall sends a Retrofit call through a {@link RateLimiter}.
+ * Asynchronous calls are started when their endpoint has a token, and fail with a
+ * {@link RateLimitExceededException} when the endpoint's queue is full. Synchronous calls wait
+ * for a token up to a timeout. Responses with a {@code Retry-After} header, and {@code 429}
+ * responses, pause the endpoint.
+ *
+ * @param <T> The type of the response body
+ */
+class RateLimitedCall<T> implements Call<T> {
+    /**
+     * The pause applied after a 429 response without a Retry-After header.
+     */
+    static final long DEFAULT_RETRY_AFTER_MILLIS = 1000L;
+
+    private final Call<T> delegate;
+    private final RateLimiter limiter;
+    private final String endpoint;
+    private final long maxWaitMillis;
+
+    RateLimitedCall(Call<T> delegate, RateLimiter limiter, String endpoint, long maxWaitMillis) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+        this.endpoint = endpoint;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public void enqueue(@NonNull final Callback<T> callback) {
+        RateLimiter.Admission admission = limiter.tryAcquire(endpoint, () -> delegate.enqueue(new Callback<T>() {
+            @Override
+            public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                observe(response);
+                callback.onResponse(RateLimitedCall.this, response);
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                callback.onFailure(RateLimitedCall.this, t);
+            }
+        }));
+        if (admission == RateLimiter.Admission.REJECTED) {
+            callback.onFailure(this, new RateLimitExceededException(endpoint));
+        }
+    }
+
+    @NonNull
+    @Override
+    public Response<T> execute() throws IOException {
+        try {
+            if (!limiter.acquire(endpoint, maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new RateLimitExceededException(endpoint);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for rate limit", e);
+        }
+        Response<T> response = delegate.execute();
+        observe(response);
+        return response;
+    }
+
+    @Override
+    public boolean isExecuted() {
+        return delegate.isExecuted();
+    }
+
+    @Override
+    public void cancel() {
+        delegate.cancel();
+    }
+
+    @Override
+    public boolean isCanceled() {
+        return delegate.isCanceled();
+    }
+
+    @NonNull
+    @SuppressWarnings("MethodDoesntCallSuperMethod")
+    @Override
+    public Call<T> clone() {
+        return new RateLimitedCall<>(delegate.clone(), limiter, endpoint, maxWaitMillis);
+    }
+
+    @NonNull
+    @Override
+    public Request request() {
+        return delegate.request();
+    }
+
+    @NonNull
+    @Override
+    public Timeout timeout() {
+        return delegate.timeout();
+    }
+
+    /**
+     * Pauses the endpoint when the server asks the client to slow down.
+     *
+     * @param response The response to inspect
+     */
+    private void observe(Response<T> response) {
+        long delay = ResponseUtils.getRetryAfterMillis(response.headers().get("Retry-After"));
+        if (delay < 0 && response.code() == 429) {
+            delay = DEFAULT_RETRY_AFTER_MILLIS;
+        }
+        if (delay >= 0) {
+            limiter.pause(endpoint, delay);
+        }
+    }
+}
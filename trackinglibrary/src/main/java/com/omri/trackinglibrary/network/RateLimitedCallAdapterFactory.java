@@ -0,0 +1,86 @@
+package com.omri.trackinglibrary.network;
+
+import androidx.annotation.NonNull;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+import retrofit2.http.DELETE;
+import retrofit2.http.GET;
+import retrofit2.http.PATCH;
+import retrofit2.http.POST;
+import retrofit2.http.PUT;
+
+/**
+ * RateLimitedCallAdapterFactory makes every {@link Call} of a Retrofit service go through a {@link RateLimiter}.
+ * The endpoint of a call is its HTTP method and relative URL template, such as
+ * "GET api/locations/user/{userId}", so all users of an endpoint share its limit.
+ */
+public class RateLimitedCallAdapterFactory extends CallAdapter.Factory {
+    private final RateLimiter limiter;
+    private final long maxWaitMillis;
+
+    /**
+     * Constructs a new RateLimitedCallAdapterFactory.
+     *
+     * @param limiter       The limiter to send calls through
+     * @param maxWaitMillis The maximum time, in milliseconds, a synchronous call waits for a token
+     */
+    public RateLimitedCallAdapterFactory(RateLimiter limiter, long maxWaitMillis) {
+        this.limiter = limiter;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public CallAdapter<?, ?> get(@NonNull Type returnType, @NonNull Annotation[] annotations,
+                                 @NonNull Retrofit retrofit) {
+        if (getRawType(returnType) != Call.class) {
+            return null;
+        }
+        final String endpoint = endpointOf(annotations);
+        if (endpoint == null) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        final CallAdapter<Object, Call<Object>> delegate =
+                (CallAdapter<Object, Call<Object>>) retrofit.nextCallAdapter(this, returnType, annotations);
+        return new CallAdapter<Object, Call<Object>>() {
+            @NonNull
+            @Override
+            public Type responseType() {
+                return delegate.responseType();
+            }
+
+            @NonNull
+            @Override
+            public Call<Object> adapt(@NonNull Call<Object> call) {
+                return new RateLimitedCall<>(delegate.adapt(call), limiter, endpoint, maxWaitMillis);
+            }
+        };
+    }
+
+    /**
+     * Gets the endpoint of a service method from its HTTP annotation.
+     *
+     * @param annotations The annotations of the method
+     * @return The endpoint, or null if the method has no HTTP method annotation
+     */
+    static String endpointOf(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof GET) {
+                return "GET " + ((GET) annotation).value();
+            } else if (annotation instanceof POST) {
+                return "POST " + ((POST) annotation).value();
+            } else if (annotation instanceof PATCH) {
+                return "PATCH " + ((PATCH) annotation).value();
+            } else if (annotation instanceof PUT) {
+                return "PUT " + ((PUT) annotation).value();
+            } else if (annotation instanceof DELETE) {
+                return "DELETE " + ((DELETE) annotation).value();
+            }
+        }
+        return null;
+    }
+}
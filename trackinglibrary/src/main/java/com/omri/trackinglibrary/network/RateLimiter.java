@@ -0,0 +1,341 @@
+package com.omri.trackinglibrary.network;
+
+import android.util.Log;
+
+import com.omri.trackinglibrary.utils.TimeSource;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RateLimiter limits how fast calls are sent to each endpoint with one token bucket per endpoint.
+ * A bucket holds up to its burst size in tokens and refills at its rate; every call takes one token.
+ * When no token is available, calls wait in a bounded per-endpoint queue and are started in order
+ * as tokens become available. When the queue is full, further calls are rejected.
+ *
+ * <p>When the server answers with {@code 429 Too Many Requests} or a {@code Retry-After} header,
+ * {@link #pause(String, long)} empties the endpoint's bucket and stops it until the given time,
+ * so queued calls resume only when the server allows.</p>
+ */
+public class RateLimiter {
+    private static final String TAG = "RateLimiter";
+
+    /**
+     * The outcome of {@link #tryAcquire(String, Runnable)}.
+     */
+    public enum Admission {
+        /** The task ran immediately. */
+        ADMITTED,
+        /** The task was queued and runs when a token becomes available. */
+        DEFERRED,
+        /** The queue was full and the task was not run. */
+        REJECTED
+    }
+
+    private final double defaultPermitsPerSecond;
+    private final int defaultBurst;
+    private final int maxQueued;
+    private final TimeSource timeSource;
+    private final Map<String, Bucket> buckets = new HashMap<>();
+    private final Map<String, double[]> limits = new HashMap<>();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong deferredCount = new AtomicLong();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs a new RateLimiter that uses the system clock.
+     *
+     * @param permitsPerSecond The default rate of calls per endpoint
+     * @param burst            The default number of calls per endpoint that may be sent at once
+     * @param maxQueued        The maximum number of calls waiting per endpoint before calls are rejected
+     * @throws IllegalArgumentException if a limit is not positive or maxQueued is negative
+     */
+    public RateLimiter(double permitsPerSecond, int burst, int maxQueued) {
+        this(permitsPerSecond, burst, maxQueued, TimeSource.SYSTEM);
+    }
+
+    /**
+     * Constructs a new RateLimiter that uses the given time source.
+     *
+     * @param permitsPerSecond The default rate of calls per endpoint
+     * @param burst            The default number of calls per endpoint that may be sent at once
+     * @param maxQueued        The maximum number of calls waiting per endpoint before calls are rejected
+     * @param timeSource       The source of the current time
+     * @throws IllegalArgumentException if a limit is not positive or maxQueued is negative
+     */
+    public RateLimiter(double permitsPerSecond, int burst, int maxQueued, TimeSource timeSource) {
+        validate(permitsPerSecond, burst);
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("Max queued calls cannot be negative");
+        }
+        this.defaultPermitsPerSecond = permitsPerSecond;
+        this.defaultBurst = burst;
+        this.maxQueued = maxQueued;
+        this.timeSource = timeSource;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the limit of one endpoint, overriding the default limit.
+     *
+     * @param endpoint         The endpoint, such as "POST api/locations/update"
+     * @param permitsPerSecond The rate of calls
+     * @param burst            The number of calls that may be sent at once
+     * @throws IllegalArgumentException if a limit is not positive
+     */
+    public synchronized void setLimit(String endpoint, double permitsPerSecond, int burst) {
+        validate(permitsPerSecond, burst);
+        limits.put(endpoint, new double[]{permitsPerSecond, burst});
+        Bucket bucket = buckets.get(endpoint);
+        if (bucket != null) {
+            bucket.refill(timeSource.currentTimeMillis());
+            bucket.permitsPerMilli = permitsPerSecond / 1000.0;
+            bucket.capacity = burst;
+            bucket.tokens = Math.min(bucket.tokens, burst);
+        }
+    }
+
+    /**
+     * Runs a task now if the endpoint has a token, queues it if not, or rejects it if the queue is full.
+     *
+     * @param endpoint The endpoint the task calls
+     * @param task     The task that starts the call
+     * @return Whether the task ran, was queued, or was rejected
+     */
+    public Admission tryAcquire(String endpoint, Runnable task) {
+        Admission admission;
+        long delay = -1;
+        synchronized (this) {
+            Bucket bucket = bucket(endpoint);
+            long now = timeSource.currentTimeMillis();
+            bucket.refill(now);
+            if (bucket.waiting.isEmpty() && bucket.tryTake(now)) {
+                admission = Admission.ADMITTED;
+            } else if (bucket.waiting.size() < maxQueued) {
+                bucket.waiting.add(task);
+                deferredCount.incrementAndGet();
+                admission = Admission.DEFERRED;
+                if (!bucket.drainScheduled) {
+                    bucket.drainScheduled = true;
+                    delay = bucket.millisUntilToken(now);
+                }
+            } else {
+                rejectedCount.incrementAndGet();
+                admission = Admission.REJECTED;
+            }
+        }
+        if (admission == Admission.ADMITTED) {
+            task.run();
+        } else if (admission == Admission.REJECTED) {
+            Log.e(TAG, "Rate limit queue full, rejecting call to " + endpoint);
+        }
+        if (delay >= 0) {
+            scheduleDrain(endpoint, delay);
+        }
+        return admission;
+    }
+
+    /**
+     * Takes a token for an endpoint, waiting up to a timeout for one to become available.
+     * Used for synchronous calls; waiting calls do not count toward the queue limit.
+     *
+     * @param endpoint The endpoint to call
+     * @param timeout  The maximum time to wait
+     * @param unit     The unit of the timeout
+     * @return true if a token was taken, false if the timeout passed first
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean acquire(String endpoint, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = timeSource.currentTimeMillis() + unit.toMillis(timeout);
+        while (true) {
+            long wait;
+            synchronized (this) {
+                Bucket bucket = bucket(endpoint);
+                long now = timeSource.currentTimeMillis();
+                bucket.refill(now);
+                if (bucket.waiting.isEmpty() && bucket.tryTake(now)) {
+                    return true;
+                }
+                wait = Math.max(1, bucket.millisUntilToken(now));
+                if (now + wait > deadline) {
+                    return false;
+                }
+            }
+            Thread.sleep(wait);
+        }
+    }
+
+    /**
+     * Stops an endpoint until the given delay has passed, for example after a {@code Retry-After} response.
+     * The endpoint's tokens are discarded and queued calls wait for the pause to end.
+     *
+     * @param endpoint    The endpoint to pause
+     * @param delayMillis The time, in milliseconds, before calls to the endpoint may resume
+     */
+    public void pause(String endpoint, long delayMillis) {
+        long delay;
+        synchronized (this) {
+            Bucket bucket = bucket(endpoint);
+            long now = timeSource.currentTimeMillis();
+            bucket.pausedUntilMillis = Math.max(bucket.pausedUntilMillis, now + delayMillis);
+            bucket.tokens = 0;
+            bucket.refilledAtMillis = bucket.pausedUntilMillis;
+            delay = bucket.drainScheduled || bucket.waiting.isEmpty() ? -1 : bucket.millisUntilToken(now);
+            if (delay >= 0) {
+                bucket.drainScheduled = true;
+            }
+        }
+        Log.d(TAG, "Pausing calls to " + endpoint + " for " + delayMillis + "ms");
+        if (delay >= 0) {
+            scheduleDrain(endpoint, delay);
+        }
+    }
+
+    /**
+     * Gets the number of calls waiting for a token at one endpoint.
+     *
+     * @param endpoint The endpoint
+     * @return The queue depth of the endpoint
+     */
+    public synchronized int getQueuedCount(String endpoint) {
+        Bucket bucket = buckets.get(endpoint);
+        return bucket != null ? bucket.waiting.size() : 0;
+    }
+
+    /**
+     * Gets the number of calls waiting for a token across all endpoints.
+     *
+     * @return The total queue depth
+     */
+    public synchronized int getQueuedCount() {
+        int queued = 0;
+        for (Bucket bucket : buckets.values()) {
+            queued += bucket.waiting.size();
+        }
+        return queued;
+    }
+
+    /**
+     * Gets the number of calls that had to wait for a token.
+     *
+     * @return The number of deferred calls
+     */
+    public long getDeferredCount() {
+        return deferredCount.get();
+    }
+
+    /**
+     * Gets the number of calls rejected because their endpoint's queue was full.
+     *
+     * @return The number of rejected calls
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Starts queued calls of an endpoint for which tokens are available, and schedules the next drain.
+     *
+     * @param endpoint The endpoint to drain
+     */
+    private void drain(String endpoint) {
+        while (true) {
+            Runnable task;
+            long delay = -1;
+            synchronized (this) {
+                Bucket bucket = bucket(endpoint);
+                long now = timeSource.currentTimeMillis();
+                bucket.refill(now);
+                if (bucket.waiting.isEmpty()) {
+                    bucket.drainScheduled = false;
+                    return;
+                }
+                if (bucket.tryTake(now)) {
+                    task = bucket.waiting.poll();
+                } else {
+                    task = null;
+                    delay = Math.max(1, bucket.millisUntilToken(now));
+                }
+            }
+            if (task == null) {
+                scheduleDrain(endpoint, delay);
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Deferred call to " + endpoint + " failed to start", e);
+            }
+        }
+    }
+
+    private void scheduleDrain(final String endpoint, long delayMillis) {
+        scheduler.schedule(() -> drain(endpoint), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private Bucket bucket(String endpoint) {
+        Bucket bucket = buckets.get(endpoint);
+        if (bucket == null) {
+            double[] limit = limits.get(endpoint);
+            double permitsPerSecond = limit != null ? limit[0] : defaultPermitsPerSecond;
+            int burst = limit != null ? (int) limit[1] : defaultBurst;
+            bucket = new Bucket(permitsPerSecond / 1000.0, burst, timeSource.currentTimeMillis());
+            buckets.put(endpoint, bucket);
+        }
+        return bucket;
+    }
+
+    private static void validate(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+    }
+
+    /**
+     * Token bucket and queue of a single endpoint. Guarded by the limiter's lock.
+     */
+    private static final class Bucket {
+        final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+        double permitsPerMilli;
+        int capacity;
+        double tokens;
+        long refilledAtMillis;
+        long pausedUntilMillis;
+        boolean drainScheduled;
+
+        Bucket(double permitsPerMilli, int capacity, long now) {
+            this.permitsPerMilli = permitsPerMilli;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.refilledAtMillis = now;
+        }
+
+        void refill(long now) {
+            if (now > refilledAtMillis) {
+                tokens = Math.min(capacity, tokens + (now - refilledAtMillis) * permitsPerMilli);
+                refilledAtMillis = now;
+            }
+        }
+
+        boolean tryTake(long now) {
+            if (now < pausedUntilMillis || tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        long millisUntilToken(long now) {
+            long untilRefill = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerMilli);
+            return Math.max(pausedUntilMillis - now, 0) + untilRefill;
+        }
+    }
+}
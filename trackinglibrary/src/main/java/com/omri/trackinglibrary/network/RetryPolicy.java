@@ -0,0 +1,122 @@
+package com.omri.trackinglibrary.network;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * RetryPolicy decides whether and when a failed call is sent again.
+ * Calls are retried after network failures and after responses with a retryable status code,
+ * up to a maximum number of attempts. Delays grow exponentially with decorrelated jitter:
+ * each delay is drawn between the base delay and three times the previous delay, capped at the
+ * maximum delay, so clients that failed together do not retry together.
+ * Instances are immutable.
+ */
+public final class RetryPolicy {
+    /**
+     * A policy that never retries.
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, Collections.<Integer>emptySet());
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final Set<Integer> retryableCodes;
+
+    /**
+     * Constructs a new RetryPolicy.
+     *
+     * @param maxAttempts     The maximum number of attempts, including the first one
+     * @param baseDelayMillis The smallest delay before a retry, in milliseconds
+     * @param maxDelayMillis  The largest delay before a retry, in milliseconds
+     * @param retryableCodes  The HTTP status codes after which a call is retried
+     * @throws IllegalArgumentException if maxAttempts is less than 1 or the delays are invalid
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, Collection<Integer> retryableCodes) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts must be at least 1");
+        }
+        if (baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis) {
+            throw new IllegalArgumentException("Delays must satisfy 0 <= base <= max");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.retryableCodes = Collections.unmodifiableSet(new HashSet<>(retryableCodes));
+    }
+
+    /**
+     * Creates the default policy for idempotent reads: four attempts between 200 milliseconds
+     * and 5 seconds apart, retried after timeouts, throttling and server errors.
+     *
+     * @return The default read policy
+     */
+    public static RetryPolicy reads() {
+        return new RetryPolicy(4, 200L, 5_000L, Arrays.asList(408, 429, 500, 502, 503, 504));
+    }
+
+    /**
+     * Creates the default policy for location writes: three attempts between 500 milliseconds
+     * and 10 seconds apart. Writes are not retried after a 500 response, since the server may
+     * have applied them before failing.
+     *
+     * @return The default write policy
+     */
+    public static RetryPolicy writes() {
+        return new RetryPolicy(3, 500L, 10_000L, Arrays.asList(408, 429, 502, 503, 504));
+    }
+
+    /**
+     * Gets the maximum number of attempts.
+     *
+     * @return The maximum number of attempts, including the first one
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Gets the smallest delay before a retry.
+     *
+     * @return The base delay in milliseconds
+     */
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    /**
+     * Gets the largest delay before a retry.
+     *
+     * @return The maximum delay in milliseconds
+     */
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * Checks whether a response status code allows a retry.
+     *
+     * @param code The HTTP status code
+     * @return true if calls are retried after this status code
+     */
+    public boolean isRetryable(int code) {
+        return retryableCodes.contains(code);
+    }
+
+    /**
+     * Computes the delay before the next retry with decorrelated jitter.
+     *
+     * @param previousDelayMillis The delay before the previous retry, or 0 before the first retry
+     * @return The delay in milliseconds
+     */
+    public long nextDelay(long previousDelayMillis) {
+        long upper = Math.min(maxDelayMillis, Math.max(baseDelayMillis, previousDelayMillis * 3));
+        if (upper <= baseDelayMillis) {
+            return baseDelayMillis;
+        }
+        return ThreadLocalRandom.current().nextLong(baseDelayMillis, upper + 1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.omri.trackinglibrary.network;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RetryStats counts how calls fared under their retry policy.
+ * Counters only grow and may be read at any time from any thread.
+ */
+public class RetryStats {
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+
+    /**
+     * Gets the number of calls started.
+     *
+     * @return The number of calls, not counting retries
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * Gets the number of retries sent.
+     *
+     * @return The number of attempts after the first one
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Gets the number of calls that succeeded after at least one retry.
+     *
+     * @return The number of recovered calls
+     */
+    public long getRecovered() {
+        return recovered.get();
+    }
+
+    /**
+     * Gets the number of calls that still failed after their last allowed attempt.
+     *
+     * @return The number of exhausted calls
+     */
+    public long getExhausted() {
+        return exhausted.get();
+    }
+
+    /**
+     * Gets the number of attempts rejected by an open circuit.
+     *
+     * @return The number of short-circuited attempts
+     */
+    public long getShortCircuited() {
+        return shortCircuited.get();
+    }
+
+    void recordCall() {
+        calls.incrementAndGet();
+    }
+
+    void recordRetry() {
+        retries.incrementAndGet();
+    }
+
+    void recordRecovered() {
+        recovered.incrementAndGet();
+    }
+
+    void recordExhausted() {
+        exhausted.incrementAndGet();
+    }
+
+    void recordShortCircuited() {
+        shortCircuited.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return "RetryStats{calls=" + getCalls() + ", retries=" + getRetries() + ", recovered=" + getRecovered()
+                + ", exhausted=" + getExhausted() + ", shortCircuited=" + getShortCircuited() + "}";
+    }
+}
@@ -0,0 +1,298 @@
+package com.omri.trackinglibrary.network;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * RetryingCall sends a Retrofit call again after retryable failures, as allowed by a {@link RetryPolicy},
+ * and reports each attempt to the {@link CircuitBreaker} of the server, if any.
+ * Every attempt is a fresh clone of the original call, so retries also pass through the rate limiter.
+ * Only the final outcome reaches the caller's callback.
+ *
+ * @param <T> The type of the response body
+ */
+class RetryingCall<T> implements Call<T> {
+    private static final String TAG = "RetryingCall";
+
+    private final Call<T> original;
+    private final String endpoint;
+    private final RetryPolicy policy;
+    private final CircuitBreaker breaker;
+    private final RetryStats endpointStats;
+    private final RetryStats totalStats;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean executed = new AtomicBoolean();
+
+    private volatile Call<T> current;
+    private volatile boolean canceled;
+
+    RetryingCall(Call<T> original, String endpoint, RetryPolicy policy, CircuitBreaker breaker,
+                 RetryStats endpointStats, RetryStats totalStats, ScheduledExecutorService scheduler) {
+        this.original = original;
+        this.endpoint = endpoint;
+        this.policy = policy;
+        this.breaker = breaker;
+        this.endpointStats = endpointStats;
+        this.totalStats = totalStats;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void enqueue(@NonNull Callback<T> callback) {
+        if (!executed.compareAndSet(false, true)) {
+            throw new IllegalStateException("Already executed");
+        }
+        endpointStats.recordCall();
+        totalStats.recordCall();
+        attempt(callback, 1, 0);
+    }
+
+    @NonNull
+    @Override
+    public Response<T> execute() throws IOException {
+        if (!executed.compareAndSet(false, true)) {
+            throw new IllegalStateException("Already executed");
+        }
+        endpointStats.recordCall();
+        totalStats.recordCall();
+        long delay = 0;
+        for (int attempt = 1; ; attempt++) {
+            Call<T> call = start(attempt);
+            Response<T> response;
+            try {
+                response = call.execute();
+            } catch (IOException e) {
+                if (!countFailure(e) || !canRetry(attempt)) {
+                    throw e;
+                }
+                delay = sleep(delay);
+                continue;
+            } catch (RuntimeException e) {
+                releaseBreaker();
+                throw e;
+            }
+            if (!countResponse(response, attempt) || !canRetry(attempt)) {
+                return response;
+            }
+            closeQuietly(response.errorBody());
+            delay = sleep(delay);
+        }
+    }
+
+    @Override
+    public boolean isExecuted() {
+        return executed.get();
+    }
+
+    @Override
+    public void cancel() {
+        canceled = true;
+        Call<T> call = current;
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    @Override
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    @NonNull
+    @SuppressWarnings("MethodDoesntCallSuperMethod")
+    @Override
+    public Call<T> clone() {
+        return new RetryingCall<>(original.clone(), endpoint, policy, breaker, endpointStats, totalStats, scheduler);
+    }
+
+    @NonNull
+    @Override
+    public Request request() {
+        return original.request();
+    }
+
+    @NonNull
+    @Override
+    public Timeout timeout() {
+        return original.timeout();
+    }
+
+    /**
+     * Sends one asynchronous attempt and schedules the next one if it fails in a retryable way.
+     *
+     * @param callback      The caller's callback
+     * @param attempt       The number of this attempt, starting at 1
+     * @param previousDelay The delay before this attempt, or 0 for the first attempt
+     */
+    private void attempt(final Callback<T> callback, final int attempt, final long previousDelay) {
+        final Call<T> call;
+        try {
+            call = start(attempt);
+        } catch (IOException e) {
+            callback.onFailure(this, e);
+            return;
+        }
+        call.enqueue(new Callback<T>() {
+            @Override
+            public void onResponse(@NonNull Call<T> c, @NonNull Response<T> response) {
+                if (countResponse(response, attempt) && canRetry(attempt)) {
+                    closeQuietly(response.errorBody());
+                    retry(callback, attempt, previousDelay);
+                    return;
+                }
+                callback.onResponse(RetryingCall.this, response);
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<T> c, @NonNull Throwable t) {
+                if (!(t instanceof IOException)) {
+                    releaseBreaker();
+                } else if (countFailure((IOException) t) && canRetry(attempt)) {
+                    retry(callback, attempt, previousDelay);
+                    return;
+                }
+                callback.onFailure(RetryingCall.this, t);
+            }
+        });
+    }
+
+    private void retry(final Callback<T> callback, final int attempt, long previousDelay) {
+        final long delay = policy.nextDelay(previousDelay);
+        Log.d(TAG, "Retrying " + endpoint + " in " + delay + "ms, attempt " + (attempt + 1));
+        scheduler.schedule(() -> attempt(callback, attempt + 1, delay), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private long sleep(long previousDelay) throws IOException {
+        long delay = policy.nextDelay(previousDelay);
+        Log.d(TAG, "Retrying " + endpoint + " in " + delay + "ms");
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to retry", e);
+        }
+        return delay;
+    }
+
+    /**
+     * Prepares an attempt, failing fast if the call was cancelled or the circuit is open.
+     *
+     * @param attempt The number of the attempt, starting at 1
+     * @return The call to send
+     * @throws IOException if the attempt must not be sent
+     */
+    private Call<T> start(int attempt) throws IOException {
+        if (canceled) {
+            throw new IOException("Canceled");
+        }
+        if (breaker != null && !breaker.allowRequest()) {
+            endpointStats.recordShortCircuited();
+            totalStats.recordShortCircuited();
+            throw new CircuitOpenException(breaker.getName());
+        }
+        if (attempt > 1) {
+            endpointStats.recordRetry();
+            totalStats.recordRetry();
+        }
+        Call<T> call = attempt == 1 ? original : original.clone();
+        current = call;
+        if (canceled) {
+            call.cancel();
+        }
+        return call;
+    }
+
+    /**
+     * Reports a response to the circuit breaker and the statistics.
+     *
+     * @param response The response of an attempt
+     * @param attempt  The number of the attempt
+     * @return true if the response is retryable
+     */
+    private boolean countResponse(Response<T> response, int attempt) {
+        int code = response.code();
+        if (breaker != null) {
+            if (code >= 500) {
+                breaker.recordFailure();
+            } else if (code == 429) {
+                breaker.release();
+            } else {
+                breaker.recordSuccess();
+            }
+        }
+        if (response.isSuccessful() && attempt > 1) {
+            endpointStats.recordRecovered();
+            totalStats.recordRecovered();
+        }
+        return policy.isRetryable(code);
+    }
+
+    /**
+     * Reports a failed attempt to the circuit breaker.
+     *
+     * @param e The failure
+     * @return true if the failure is retryable
+     */
+    private boolean countFailure(IOException e) {
+        boolean retryable = !canceled
+                && !(e instanceof RateLimitExceededException)
+                && !(e instanceof CircuitOpenException);
+        if (breaker != null) {
+            if (retryable) {
+                breaker.recordFailure();
+            } else if (!(e instanceof CircuitOpenException)) {
+                breaker.release();
+            }
+        }
+        return retryable;
+    }
+
+    /**
+     * Ends an attempt that failed without an I/O error, such as a response body the converter could not parse.
+     * The failure says nothing about the server's health, but the attempt must still end, or a probe
+     * would leave the circuit half-open forever.
+     */
+    private void releaseBreaker() {
+        if (breaker != null) {
+            breaker.release();
+        }
+    }
+
+    /**
+     * Checks whether another attempt is allowed, counting the call as exhausted if not.
+     *
+     * @param attempt The number of the attempt that failed
+     * @return true if the call may be retried
+     */
+    private boolean canRetry(int attempt) {
+        if (canceled) {
+            return false;
+        }
+        if (attempt >= policy.getMaxAttempts()) {
+            if (policy.getMaxAttempts() > 1) {
+                endpointStats.recordExhausted();
+                totalStats.recordExhausted();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private static void closeQuietly(ResponseBody body) {
+        if (body != null) {
+            body.close();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.omri.trackinglibrary.network;
+
+import androidx.annotation.NonNull;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+
+/**
+ * RetryingCallAdapterFactory retries the {@link Call}s of a Retrofit service and guards them with a circuit breaker.
+ * GET methods and methods annotated with {@link Idempotent} use the read policy; all other methods use the
+ * write policy, unless {@link #setPolicy(String, RetryPolicy)} overrides the policy of their endpoint.
+ * Retry statistics are kept per endpoint, such as "GET api/locations/user/{userId}", and in total.
+ */
+public class RetryingCallAdapterFactory extends CallAdapter.Factory {
+    private final RetryPolicy readPolicy;
+    private final RetryPolicy writePolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final Map<String, RetryPolicy> policies;
+    private final Map<String, RetryStats> stats;
+    private final RetryStats totalStats;
+
+    /**
+     * Constructs a new RetryingCallAdapterFactory.
+     *
+     * @param readPolicy     The policy of idempotent reads
+     * @param writePolicy    The policy of writes
+     * @param circuitBreaker The circuit breaker of the server, or null to send calls regardless of its health
+     */
+    public RetryingCallAdapterFactory(RetryPolicy readPolicy, RetryPolicy writePolicy, CircuitBreaker circuitBreaker) {
+        this.readPolicy = readPolicy != null ? readPolicy : RetryPolicy.NONE;
+        this.writePolicy = writePolicy != null ? writePolicy : RetryPolicy.NONE;
+        this.circuitBreaker = circuitBreaker;
+        this.policies = new ConcurrentHashMap<>();
+        this.stats = new ConcurrentHashMap<>();
+        this.totalStats = new RetryStats();
+    }
+
+    private RetryingCallAdapterFactory(RetryingCallAdapterFactory previous, CircuitBreaker circuitBreaker) {
+        this.readPolicy = previous.readPolicy;
+        this.writePolicy = previous.writePolicy;
+        this.circuitBreaker = circuitBreaker;
+        this.policies = previous.policies;
+        this.stats = previous.stats;
+        this.totalStats = previous.totalStats;
+    }
+
+    /**
+     * Gets a factory with the same policies and statistics that reports to another circuit breaker,
+     * for a client rebuilt with a different base URL.
+     *
+     * @param circuitBreaker The circuit breaker of the new server, or null for none
+     * @return This factory if the circuit breaker is unchanged, otherwise a factory sharing its state
+     */
+    public RetryingCallAdapterFactory withCircuitBreaker(CircuitBreaker circuitBreaker) {
+        return circuitBreaker == this.circuitBreaker ? this : new RetryingCallAdapterFactory(this, circuitBreaker);
+    }
+
+    /**
+     * Overrides the policy of one endpoint. Applies to services created afterwards.
+     *
+     * @param endpoint The endpoint, such as "POST api/users/create"
+     * @param policy   The policy to use for the endpoint
+     */
+    public void setPolicy(String endpoint, RetryPolicy policy) {
+        policies.put(endpoint, policy);
+    }
+
+    /**
+     * Gets the retry statistics of one endpoint.
+     *
+     * @param endpoint The endpoint
+     * @return The statistics of the endpoint
+     */
+    public RetryStats getRetryStats(String endpoint) {
+        return stats.computeIfAbsent(endpoint, key -> new RetryStats());
+    }
+
+    /**
+     * Gets the retry statistics of all endpoints together.
+     *
+     * @return The total statistics
+     */
+    public RetryStats getRetryStats() {
+        return totalStats;
+    }
+
+    /**
+     * Gets the circuit breaker guarding the calls.
+     *
+     * @return The circuit breaker, or null if there is none
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    @Override
+    public CallAdapter<?, ?> get(@NonNull Type returnType, @NonNull Annotation[] annotations,
+                                 @NonNull Retrofit retrofit) {
+        if (getRawType(returnType) != Call.class) {
+            return null;
+        }
+        final String endpoint = RateLimitedCallAdapterFactory.endpointOf(annotations);
+        if (endpoint == null) {
+            return null;
+        }
+        final RetryPolicy policy = policyOf(endpoint, annotations);
+        final RetryStats endpointStats = getRetryStats(endpoint);
+        @SuppressWarnings("unchecked")
+        final CallAdapter<Object, Call<Object>> delegate =
+                (CallAdapter<Object, Call<Object>>) retrofit.nextCallAdapter(this, returnType, annotations);
+        return new CallAdapter<Object, Call<Object>>() {
+            @NonNull
+            @Override
+            public Type responseType() {
+                return delegate.responseType();
+            }
+
+            @NonNull
+            @Override
+            public Call<Object> adapt(@NonNull Call<Object> call) {
+                return new RetryingCall<>(delegate.adapt(call), endpoint, policy, circuitBreaker,
+                        endpointStats, totalStats, NetworkScheduler.get());
+            }
+        };
+    }
+
+    private RetryPolicy policyOf(String endpoint, Annotation[] annotations) {
+        RetryPolicy policy = policies.get(endpoint);
+        if (policy != null) {
+            return policy;
+        }
+        return HedgingCallAdapterFactory.isIdempotent(endpoint, annotations) ? readPolicy : writePolicy;
+    }
+}
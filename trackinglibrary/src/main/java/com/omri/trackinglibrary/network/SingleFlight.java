@@ -0,0 +1,128 @@
+package com.omri.trackinglibrary.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * SingleFlight de-duplicates concurrent identical requests.
+ * While a request for a key is in flight, further requests for the same key do not create a new call;
+ * they wait for the in-flight call and receive its result.
+ * Work that must happen once per result, such as caching it, belongs in the flight passed to
+ * {@link #execute}, not in the waiters' callbacks.
+ *
+ * @param <T> The type of the response body
+ */
+public class SingleFlight<T> {
+    private final Map<String, List<Callback<T>>> inFlight = new HashMap<>();
+
+    /**
+     * Enqueues a request for the given key, or joins the request already in flight for it.
+     *
+     * @param key         Identifies requests that return the same result
+     * @param callFactory Creates the call when no request for the key is in flight
+     * @param callback    Callback to receive the result
+     */
+    public void enqueue(final String key, final Supplier<Call<T>> callFactory, Callback<T> callback) {
+        execute(key, done -> callFactory.get().enqueue(done), callback);
+    }
+
+    /**
+     * Runs a flight for the given key, or joins the flight already running for it.
+     * The flight is started only by the first caller and receives the callback to complete with its result,
+     * which is then delivered to every waiter. It may inspect the response, or make further calls,
+     * before completing, and that work runs once however many callers joined.
+     *
+     * @param key      Identifies requests that return the same result
+     * @param flight   Starts the request when none is running for the key, and completes the given callback
+     * @param callback Callback to receive the result
+     */
+    public void execute(final String key, Consumer<Callback<T>> flight, Callback<T> callback) {
+        synchronized (inFlight) {
+            List<Callback<T>> waiters = inFlight.get(key);
+            if (waiters != null) {
+                waiters.add(callback);
+                return;
+            }
+            waiters = new ArrayList<>();
+            waiters.add(callback);
+            inFlight.put(key, waiters);
+        }
+
+        Callback<T> done = new Callback<T>() {
+            @Override
+            public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                List<Callback<T>> waiters = remove(key);
+                if (waiters.size() == 1) {
+                    waiters.get(0).onResponse(call, response);
+                    return;
+                }
+                byte[] errorBytes = null;
+                ResponseBody errorBody = response.errorBody();
+                if (errorBody != null) {
+                    try {
+                        errorBytes = errorBody.bytes();
+                    } catch (IOException e) {
+                        errorBytes = null;
+                    }
+                }
+                for (Callback<T> waiter : waiters) {
+                    waiter.onResponse(call, copyOf(response, errorBody, errorBytes));
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                for (Callback<T> waiter : remove(key)) {
+                    waiter.onFailure(call, t);
+                }
+            }
+        };
+        try {
+            flight.accept(done);
+        } catch (RuntimeException e) {
+            remove(key);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of distinct keys with a request in flight.
+     *
+     * @return The number of in-flight requests
+     */
+    public int getInFlightCount() {
+        synchronized (inFlight) {
+            return inFlight.size();
+        }
+    }
+
+    private List<Callback<T>> remove(String key) {
+        synchronized (inFlight) {
+            List<Callback<T>> waiters = inFlight.remove(key);
+            return waiters != null ? waiters : new ArrayList<Callback<T>>();
+        }
+    }
+
+    /**
+     * Creates a copy of the response for one waiter.
+     * The error body of a response can only be read once, so every waiter gets its own buffered copy.
+     */
+    private static <T> Response<T> copyOf(Response<T> response, ResponseBody errorBody, byte[] errorBytes) {
+        if (response.isSuccessful() || errorBody == null) {
+            return response;
+        }
+        byte[] bytes = errorBytes != null ? errorBytes : new byte[0];
+        return Response.error(ResponseBody.create(errorBody.contentType(), bytes), response.raw());
+    }
+}
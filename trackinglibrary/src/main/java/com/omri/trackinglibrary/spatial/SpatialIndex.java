@@ -0,0 +1,377 @@
+package com.omri.trackinglibrary.spatial;
+
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.utils.GeoUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * SpatialIndex keeps the latest location of every user in a uniform latitude/longitude grid
+ * and answers radius and k-nearest-neighbour queries without scanning every user.
+ * Positions are stored in primitive arrays indexed by slot, and the users of each grid cell form
+ * a doubly linked list through those arrays, so moving a user to another cell is a constant-time
+ * unlink and link rather than a rebuild.
+ * Reads run concurrently; updates take an exclusive lock.
+ */
+public class SpatialIndex {
+    private static final double METERS_PER_DEGREE = Math.toRadians(GeoUtils.EARTH_RADIUS_METERS);
+    private static final int NONE = -1;
+
+    private final double cellDegrees;
+    private final int rows;
+    private final int columns;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final LongIntHashMap cellHeads = new LongIntHashMap(64);
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private long[] cells;
+    private int[] next;
+    private int[] previous;
+    private Location[] locations;
+    private int highWater;
+    private int freeHead = NONE;
+
+    /**
+     * Constructs a new SpatialIndex.
+     * The cell size should be close to the typical query radius; much smaller cells make large
+     * queries visit many empty cells, and much larger cells make small queries check many users.
+     *
+     * @param cellSizeMeters The height of a grid cell in meters
+     * @throws IllegalArgumentException if the cell size is not positive
+     */
+    public SpatialIndex(double cellSizeMeters) {
+        if (!(cellSizeMeters > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        this.cellDegrees = Math.min(180, cellSizeMeters / METERS_PER_DEGREE);
+        this.rows = (int) Math.ceil(180 / cellDegrees);
+        this.columns = (int) Math.ceil(360 / cellDegrees);
+        allocate(64);
+    }
+
+    /**
+     * Adds the location of a user, or moves the user if the index already has a location for them.
+     *
+     * @param location The latest location of the user
+     */
+    public void update(Location location) {
+        String userId = location.getUserId();
+        double latitude = location.getLatitude();
+        double longitude = location.getLongitude();
+        long cell = cellOf(latitude, longitude);
+        lock.writeLock().lock();
+        try {
+            Integer existing = slots.get(userId);
+            int slot;
+            if (existing == null) {
+                slot = allocateSlot();
+                slots.put(userId, slot);
+                link(slot, cell);
+            } else {
+                slot = existing;
+                if (cells[slot] != cell) {
+                    unlink(slot);
+                    link(slot, cell);
+                }
+            }
+            latitudes[slot] = latitude;
+            longitudes[slot] = longitude;
+            locations[slot] = location;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a user from the index.
+     *
+     * @param userId The ID of the user to remove
+     */
+    public void remove(String userId) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.remove(userId);
+            if (slot != null) {
+                unlink(slot);
+                locations[slot] = null;
+                next[slot] = freeHead;
+                freeHead = slot;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the indexed location of a user.
+     *
+     * @param userId The ID of the user
+     * @return The latest indexed location, or null if the user is not indexed
+     */
+    public Location get(String userId) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(userId);
+            return slot != null ? locations[slot] : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of indexed users.
+     *
+     * @return The number of users
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the users within a distance of a point.
+     *
+     * @param latitude     The latitude of the point
+     * @param longitude    The longitude of the point
+     * @param radiusMeters The maximum distance in meters
+     * @return The locations of the users within the radius, nearest first
+     */
+    public List<Location> findWithinRadius(double latitude, double longitude, double radiusMeters) {
+        List<Candidate> found = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            double latitudeSpan = radiusMeters / METERS_PER_DEGREE;
+            int rowMin = rowOf(Math.max(-90, latitude - latitudeSpan));
+            int rowMax = rowOf(Math.min(90, latitude + latitudeSpan));
+            double widest = Math.cos(Math.toRadians(Math.min(90, Math.abs(latitude) + latitudeSpan)));
+            double longitudeSpan = widest > 1e-9 ? radiusMeters / (METERS_PER_DEGREE * widest) : 360;
+            long columnMin;
+            long columnMax;
+            if (longitudeSpan >= 180) {
+                columnMin = 0;
+                columnMax = columns - 1;
+            } else {
+                columnMin = (long) Math.floor((longitude - longitudeSpan + 180) / cellDegrees);
+                columnMax = (long) Math.floor((longitude + longitudeSpan + 180) / cellDegrees);
+                if (columnMax - columnMin + 1 >= columns) {
+                    columnMin = 0;
+                    columnMax = columns - 1;
+                }
+            }
+
+            long cellCount = (long) (rowMax - rowMin + 1) * (columnMax - columnMin + 1);
+            if (cellCount > cellHeads.size()) {
+                for (int slot = 0; slot < highWater; slot++) {
+                    if (locations[slot] != null) {
+                        collectWithin(slot, latitude, longitude, radiusMeters, found);
+                    }
+                }
+            } else {
+                for (int row = rowMin; row <= rowMax; row++) {
+                    for (long column = columnMin; column <= columnMax; column++) {
+                        long cell = (long) row * columns + Math.floorMod(column, (long) columns);
+                        for (int slot = cellHeads.get(cell); slot != NONE; slot = next[slot]) {
+                            collectWithin(slot, latitude, longitude, radiusMeters, found);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Collections.sort(found);
+        return toLocations(found);
+    }
+
+    /**
+     * Finds the users nearest to a point.
+     * The search visits rings of grid cells around the point until no unvisited cell can contain
+     * a nearer user, and falls back to checking every user when the index is too sparse for that to pay off.
+     *
+     * @param latitude  The latitude of the point
+     * @param longitude The longitude of the point
+     * @param count     The maximum number of users to return
+     * @return The locations of up to count users, nearest first
+     */
+    public List<Location> findNearest(double latitude, double longitude, int count) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<Candidate> nearest = new PriorityQueue<>(count, Collections.reverseOrder());
+        lock.readLock().lock();
+        try {
+            if (!searchRings(latitude, longitude, count, nearest)) {
+                nearest.clear();
+                for (int slot = 0; slot < highWater; slot++) {
+                    if (locations[slot] != null) {
+                        offer(slot, latitude, longitude, count, nearest);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Candidate> found = new ArrayList<>(nearest);
+        Collections.sort(found);
+        return toLocations(found);
+    }
+
+    /**
+     * Searches rings of cells of growing size around a point.
+     *
+     * @return true if the nearest users were found, or false if the search gave up and every user must be checked
+     */
+    private boolean searchRings(double latitude, double longitude, int count, PriorityQueue<Candidate> nearest) {
+        int centerRow = rowOf(latitude);
+        long centerColumn = (long) Math.floor((longitude + 180) / cellDegrees);
+        long visitBudget = 2L * cellHeads.size() + 64;
+        for (int ring = 0; 2 * ring + 1 <= columns; ring++) {
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                if (row < 0 || row >= rows) {
+                    continue;
+                }
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                long step = edgeRow || ring == 0 ? 1 : 2L * ring;
+                for (long column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                    if (--visitBudget < 0) {
+                        return false;
+                    }
+                    long cell = (long) row * columns + Math.floorMod(column, (long) columns);
+                    for (int slot = cellHeads.get(cell); slot != NONE; slot = next[slot]) {
+                        offer(slot, latitude, longitude, count, nearest);
+                    }
+                }
+            }
+            if (nearest.size() == count && minimumDistanceBeyond(latitude, ring) > nearest.peek().distance) {
+                return true;
+            }
+            if (centerRow - ring <= 0 && centerRow + ring >= rows - 1 && 2 * ring + 1 >= columns) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calculates a lower bound of the distance from a point to any cell outside the given ring.
+     */
+    private double minimumDistanceBeyond(double latitude, int ring) {
+        double nearestLatitude = Math.min(90, Math.abs(latitude) + (ring + 2) * cellDegrees);
+        double cellWidth = cellDegrees * METERS_PER_DEGREE * Math.cos(Math.toRadians(nearestLatitude));
+        double cellHeight = cellDegrees * METERS_PER_DEGREE;
+        return ring * Math.min(cellWidth, cellHeight);
+    }
+
+    private void collectWithin(int slot, double latitude, double longitude, double radiusMeters,
+                               List<Candidate> found) {
+        double distance = GeoUtils.distanceMeters(latitude, longitude, latitudes[slot], longitudes[slot]);
+        if (distance <= radiusMeters) {
+            found.add(new Candidate(distance, locations[slot]));
+        }
+    }
+
+    private void offer(int slot, double latitude, double longitude, int count, PriorityQueue<Candidate> nearest) {
+        double distance = GeoUtils.distanceMeters(latitude, longitude, latitudes[slot], longitudes[slot]);
+        if (nearest.size() < count) {
+            nearest.add(new Candidate(distance, locations[slot]));
+        } else if (distance < nearest.peek().distance) {
+            nearest.poll();
+            nearest.add(new Candidate(distance, locations[slot]));
+        }
+    }
+
+    private static List<Location> toLocations(List<Candidate> candidates) {
+        List<Location> result = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            result.add(candidate.location);
+        }
+        return result;
+    }
+
+    private int rowOf(double latitude) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((latitude + 90) / cellDegrees)));
+    }
+
+    private long cellOf(double latitude, double longitude) {
+        long column = Math.floorMod((long) Math.floor((longitude + 180) / cellDegrees), (long) columns);
+        return (long) rowOf(latitude) * columns + column;
+    }
+
+    private void link(int slot, long cell) {
+        int head = cellHeads.get(cell);
+        cells[slot] = cell;
+        previous[slot] = NONE;
+        next[slot] = head;
+        if (head != NONE) {
+            previous[head] = slot;
+        }
+        cellHeads.put(cell, slot);
+    }
+
+    private void unlink(int slot) {
+        int before = previous[slot];
+        int after = next[slot];
+        if (before != NONE) {
+            next[before] = after;
+        } else if (after != NONE) {
+            cellHeads.put(cells[slot], after);
+        } else {
+            cellHeads.remove(cells[slot]);
+        }
+        if (after != NONE) {
+            previous[after] = before;
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeHead != NONE) {
+            int slot = freeHead;
+            freeHead = next[slot];
+            return slot;
+        }
+        if (highWater == locations.length) {
+            allocate(locations.length * 2);
+        }
+        return highWater++;
+    }
+
+    private void allocate(int capacity) {
+        latitudes = latitudes == null ? new double[capacity] : Arrays.copyOf(latitudes, capacity);
+        longitudes = longitudes == null ? new double[capacity] : Arrays.copyOf(longitudes, capacity);
+        cells = cells == null ? new long[capacity] : Arrays.copyOf(cells, capacity);
+        next = next == null ? new int[capacity] : Arrays.copyOf(next, capacity);
+        previous = previous == null ? new int[capacity] : Arrays.copyOf(previous, capacity);
+        locations = locations == null ? new Location[capacity] : Arrays.copyOf(locations, capacity);
+    }
+
+    /**
+     * A user found by a query and its distance from the query point.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        final double distance;
+        final Location location;
+
+        Candidate(double distance, Location location) {
+            this.distance = distance;
+            this.location = location;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+}
@@ -0,0 +1,572 @@
+package com.omri.trackinglibrary.stream;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.omri.trackinglibrary.api.ApiClient;
+import com.omri.trackinglibrary.api.json.JsonAdapters;
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+import com.omri.trackinglibrary.models.Location;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * LocationStream follows the locations of many users over long-lived server-sent events connections.
+ * Each connection requests {@code GET api/locations/stream?user_ids=...} for up to
+ * {@code maxUsersPerConnection} watched users, and each "location" event carries a location in the same
+ * JSON format as the REST API. Events are dispatched to the listeners of the event's user on the thread of
+ * its connection; an exception thrown by a listener is logged and does not affect the other listeners
+ * or the connection.
+ *
+ * <p>When a connection drops, it reconnects with exponential backoff and sends the ID of the last event it
+ * received in the {@code Last-Event-ID} header, so the server can replay missed events. Watching a new user
+ * or unwatching the last listener of a user reconnects only the connection of that user, the same way.
+ * Subscription changes made within {@code resubscribeDelayMillis} of each other are applied with a single
+ * reconnect, so subscribing many users one after another does not churn connections.</p>
+ */
+public class LocationStream implements Closeable {
+    private static final String TAG = "LocationStream";
+    private static final String STREAM_PATH = "api/locations/stream";
+    private static final long DEFAULT_RETRY_MILLIS = 1000L;
+    private static final long MAX_RETRY_MILLIS = 30_000L;
+
+    /**
+     * Default maximum number of users watched over one connection, which keeps the request URL short.
+     */
+    public static final int DEFAULT_MAX_USERS_PER_CONNECTION = 100;
+
+    /**
+     * Default time during which subscription changes are collected before a connection resubscribes.
+     */
+    public static final long DEFAULT_RESUBSCRIBE_DELAY_MILLIS = 100L;
+
+    private final OkHttpClient httpClient;
+    private final HttpUrl streamUrl;
+    private final int maxUsersPerConnection;
+    private final long resubscribeDelayMillis;
+    private final Gson gson = JsonAdapters.createGson();
+    private final Map<String, List<LocationCallback>> listeners = new ConcurrentHashMap<>();
+    private final Map<String, Connection> assignments = new HashMap<>();
+    private final List<Connection> connections = new ArrayList<>();
+    private final Object signal = new Object();
+    private final ScheduledExecutorService scheduler;
+
+    private volatile boolean running = true;
+    private volatile String lastEventId;
+    private volatile Consumer<Location> observer;
+
+    /**
+     * Constructs a new LocationStream that connects through the given API client.
+     *
+     * @param apiClient The API client whose base URL and connection pool to use
+     */
+    public LocationStream(ApiClient apiClient) {
+        this(apiClient.getOkHttpClient(), apiClient.getRetrofit().baseUrl().toString());
+    }
+
+    /**
+     * Constructs a new LocationStream with the default connection size and resubscribe delay.
+     *
+     * @param httpClient The HTTP client to connect with
+     * @param baseUrl    The base URL of the tracking server
+     * @throws IllegalArgumentException if the base URL is invalid
+     */
+    public LocationStream(OkHttpClient httpClient, String baseUrl) {
+        this(httpClient, baseUrl, DEFAULT_MAX_USERS_PER_CONNECTION, DEFAULT_RESUBSCRIBE_DELAY_MILLIS);
+    }
+
+    /**
+     * Constructs a new LocationStream.
+     * Read and call timeouts of the client are disabled for the stream, since it stays open while idle.
+     *
+     * @param httpClient             The HTTP client to connect with
+     * @param baseUrl                The base URL of the tracking server
+     * @param maxUsersPerConnection  The maximum number of users watched over one connection
+     * @param resubscribeDelayMillis How long subscription changes are collected before a connection
+     *                               resubscribes, in milliseconds
+     * @throws IllegalArgumentException if the base URL is invalid, maxUsersPerConnection is not positive
+     *                                  or the delay is negative
+     */
+    public LocationStream(OkHttpClient httpClient, String baseUrl, int maxUsersPerConnection,
+                          long resubscribeDelayMillis) {
+        HttpUrl base = HttpUrl.parse(baseUrl);
+        if (base == null) {
+            throw new IllegalArgumentException("Invalid base URL: " + baseUrl);
+        }
+        if (maxUsersPerConnection < 1) {
+            throw new IllegalArgumentException("Max users per connection must be at least 1");
+        }
+        if (resubscribeDelayMillis < 0) {
+            throw new IllegalArgumentException("Resubscribe delay cannot be negative");
+        }
+        this.streamUrl = base.resolve(STREAM_PATH);
+        this.maxUsersPerConnection = maxUsersPerConnection;
+        this.resubscribeDelayMillis = resubscribeDelayMillis;
+        this.httpClient = httpClient.newBuilder()
+                .readTimeout(0, TimeUnit.MILLISECONDS)
+                .callTimeout(0, TimeUnit.MILLISECONDS)
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, TAG + "-resubscribe");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts delivering the location events of a user to a listener.
+     * The listener receives every location event of the user through {@link LocationCallback#onSuccess},
+     * and {@link LocationCallback#onError} when the user's connection fails.
+     *
+     * @param userId   The ID of the user to watch
+     * @param listener The listener to notify
+     * @throws IllegalArgumentException if the user ID is null or empty
+     */
+    public void subscribe(String userId, LocationCallback listener) {
+        if (userId == null || userId.trim().isEmpty()) {
+            throw new IllegalArgumentException("User ID cannot be null or empty");
+        }
+        boolean added;
+        synchronized (signal) {
+            List<LocationCallback> userListeners = listeners.get(userId);
+            added = userListeners == null;
+            if (added) {
+                userListeners = new CopyOnWriteArrayList<>();
+                listeners.put(userId, userListeners);
+            }
+            userListeners.add(listener);
+            if (added && running) {
+                Connection connection = connectionWithRoom();
+                connection.userIds.add(userId);
+                assignments.put(userId, connection);
+                connection.scheduleResubscribe();
+            }
+        }
+        if (added) {
+            Log.d(TAG, "Watching userId: " + userId);
+        }
+    }
+
+    /**
+     * Stops delivering the location events of a user to a listener.
+     *
+     * @param userId   The ID of the watched user
+     * @param listener The listener to remove
+     */
+    public void unsubscribe(String userId, LocationCallback listener) {
+        boolean removed = false;
+        synchronized (signal) {
+            List<LocationCallback> userListeners = listeners.get(userId);
+            if (userListeners != null && userListeners.remove(listener) && userListeners.isEmpty()) {
+                listeners.remove(userId);
+                removed = true;
+                Connection connection = assignments.remove(userId);
+                if (connection != null && running) {
+                    connection.userIds.remove(userId);
+                    connection.scheduleResubscribe();
+                }
+            }
+        }
+        if (removed) {
+            Log.d(TAG, "Stopped watching userId: " + userId);
+        }
+    }
+
+    /**
+     * Sets an observer that sees every streamed location before the listeners of its user.
+     *
+     * @param observer The observer, or null to remove it
+     */
+    public void setObserver(Consumer<Location> observer) {
+        this.observer = observer;
+    }
+
+    /**
+     * Gets the ID of the last event received on any connection.
+     * Each connection sends the ID of its own last event to the server when reconnecting.
+     *
+     * @return The last event ID, or null if no event with an ID was received
+     */
+    public String getLastEventId() {
+        return lastEventId;
+    }
+
+    /**
+     * Checks whether the stream is currently connected for every watched user.
+     *
+     * @return true if users are watched and all their connections are open
+     */
+    public boolean isConnected() {
+        synchronized (signal) {
+            boolean watching = false;
+            for (Connection connection : connections) {
+                if (!connection.userIds.isEmpty()) {
+                    if (!connection.connected) {
+                        return false;
+                    }
+                    watching = true;
+                }
+            }
+            return watching;
+        }
+    }
+
+    /**
+     * Gets the number of connections that currently have users to watch.
+     *
+     * @return The number of connections in use
+     */
+    public int getConnectionCount() {
+        synchronized (signal) {
+            int count = 0;
+            for (Connection connection : connections) {
+                if (!connection.userIds.isEmpty()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Closes all connections and stops reconnecting. Listeners are not notified.
+     */
+    @Override
+    public void close() {
+        List<Connection> open;
+        synchronized (signal) {
+            running = false;
+            open = new ArrayList<>(connections);
+        }
+        scheduler.shutdownNow();
+        for (Connection connection : open) {
+            connection.reconnect();
+        }
+    }
+
+    /**
+     * Finds a connection that can watch another user, starting a new one if all are full.
+     * Must be called while holding the signal lock.
+     *
+     * @return The connection to add the user to
+     */
+    private Connection connectionWithRoom() {
+        for (Connection connection : connections) {
+            if (connection.userIds.size() < maxUsersPerConnection) {
+                return connection;
+            }
+        }
+        Connection connection = new Connection(connections.size());
+        connections.add(connection);
+        connection.reader.start();
+        return connection;
+    }
+
+    /**
+     * Delivers one event to the listeners of its user.
+     *
+     * @param eventType The event type, or null for the default type
+     * @param data      The event data
+     * @return true if the event was a location
+     */
+    private boolean dispatch(String eventType, String data) {
+        if (eventType != null && !"location".equals(eventType) && !"message".equals(eventType)) {
+            return false;
+        }
+        Location location;
+        try {
+            location = gson.fromJson(data, Location.class);
+        } catch (JsonParseException e) {
+            Log.e(TAG, "Ignoring malformed location event: " + e.getMessage());
+            return false;
+        }
+        if (location == null || location.getUserId() == null) {
+            return false;
+        }
+        Consumer<Location> currentObserver = observer;
+        if (currentObserver != null) {
+            try {
+                currentObserver.accept(location);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Location observer failed: " + e.getMessage(), e);
+            }
+        }
+        List<LocationCallback> userListeners = listeners.get(location.getUserId());
+        if (userListeners != null) {
+            for (LocationCallback listener : userListeners) {
+                try {
+                    listener.onSuccess(location);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Location listener failed: " + e.getMessage(), e);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void notifyError(String error, Set<String> userIds) {
+        Log.e(TAG, error);
+        List<LocationCallback> all = new ArrayList<>();
+        for (String userId : userIds) {
+            List<LocationCallback> userListeners = listeners.get(userId);
+            if (userListeners != null) {
+                all.addAll(userListeners);
+            }
+        }
+        for (LocationCallback listener : all) {
+            try {
+                listener.onError(error);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Location listener failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void waitForSignal(long timeoutMillis) {
+        try {
+            signal.wait(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    /**
+     * One server-sent events connection for a group of users, with its own reader thread.
+     * The user set, generation and retry state are guarded by the stream's signal lock.
+     */
+    private final class Connection implements Runnable {
+        private final Set<String> userIds = new TreeSet<>();
+        private final Thread reader;
+
+        private volatile Call currentCall;
+        private volatile boolean connected;
+        private volatile String resumeFrom;
+        private long generation;
+        private boolean resubscribeScheduled;
+        private long baseRetryMillis = DEFAULT_RETRY_MILLIS;
+        private long retryMillis = DEFAULT_RETRY_MILLIS;
+
+        Connection(int index) {
+            this.reader = new Thread(this, TAG + "-" + index);
+            this.reader.setDaemon(true);
+        }
+
+        /**
+         * Reconnects with the current users once the resubscribe delay has passed,
+         * unless a reconnect is already scheduled. Must be called while holding the signal lock.
+         */
+        void scheduleResubscribe() {
+            if (resubscribeScheduled) {
+                return;
+            }
+            resubscribeScheduled = true;
+            scheduler.schedule(this::reconnect, resubscribeDelayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Drops the current connection, so the reader reconnects with the current set of users.
+         */
+        void reconnect() {
+            synchronized (signal) {
+                resubscribeScheduled = false;
+                generation++;
+                retryMillis = baseRetryMillis;
+                signal.notifyAll();
+            }
+            Call call = currentCall;
+            if (call != null) {
+                call.cancel();
+            }
+        }
+
+        /**
+         * Connects and reads events until the stream is closed.
+         */
+        @Override
+        public void run() {
+            while (running) {
+                long connectGeneration;
+                TreeSet<String> watched;
+                synchronized (signal) {
+                    while (running && (userIds.isEmpty() || resubscribeScheduled)) {
+                        waitForSignal(0);
+                    }
+                    if (!running) {
+                        return;
+                    }
+                    connectGeneration = generation;
+                    watched = new TreeSet<>(userIds);
+                }
+
+                String error = connect(watched, connectGeneration);
+                if (!running) {
+                    return;
+                }
+                synchronized (signal) {
+                    if (generation != connectGeneration) {
+                        continue;
+                    }
+                }
+                if (error != null) {
+                    notifyError(error, watched);
+                }
+                synchronized (signal) {
+                    long delay = retryMillis + ThreadLocalRandom.current().nextLong(retryMillis / 4 + 1);
+                    retryMillis = Math.min(MAX_RETRY_MILLIS, retryMillis * 2);
+                    Log.d(TAG, "Reconnecting in " + delay + "ms");
+                    long deadline = System.currentTimeMillis() + delay;
+                    while (running && generation == connectGeneration) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        waitForSignal(remaining);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Opens one connection and reads its events until it ends.
+         *
+         * @param watched           The users to watch
+         * @param connectGeneration The subscription generation the users belong to
+         * @return An error to report to the listeners, or null if the connection ended without one
+         */
+        private String connect(TreeSet<String> watched, long connectGeneration) {
+            HttpUrl url = streamUrl.newBuilder()
+                    .addQueryParameter("user_ids", String.join(",", watched))
+                    .build();
+            Request.Builder request = new Request.Builder()
+                    .url(url)
+                    .header("Accept", "text/event-stream")
+                    .header("Cache-Control", "no-cache");
+            String resumeId = resumeFrom;
+            if (resumeId != null) {
+                request.header("Last-Event-ID", resumeId);
+            }
+
+            Call call = httpClient.newCall(request.build());
+            currentCall = call;
+            synchronized (signal) {
+                if (!running || generation != connectGeneration) {
+                    call.cancel();
+                }
+            }
+            Log.d(TAG, "Connecting location stream for " + watched.size() + " users");
+            try (Response response = call.execute()) {
+                ResponseBody body = response.body();
+                if (!response.isSuccessful() || body == null) {
+                    return "Failed to open location stream, Code: " + response.code();
+                }
+                connected = true;
+                read(body.source());
+                Log.d(TAG, "Location stream closed by server");
+                return null;
+            } catch (IOException e) {
+                if (call.isCanceled()) {
+                    return null;
+                }
+                Log.e(TAG, "Location stream failed: " + e.getMessage(), e);
+                return "Network error in location stream: " + e.getMessage();
+            } finally {
+                connected = false;
+                currentCall = null;
+            }
+        }
+
+        /**
+         * Parses server-sent events from a stream and dispatches them.
+         *
+         * @param source The response body
+         * @throws IOException if reading fails
+         */
+        private void read(BufferedSource source) throws IOException {
+            StringBuilder data = new StringBuilder();
+            String eventType = null;
+            String eventId = null;
+            String line;
+            while ((line = source.readUtf8Line()) != null) {
+                if (line.isEmpty()) {
+                    if (eventId != null) {
+                        resumeFrom = eventId;
+                        lastEventId = eventId;
+                    }
+                    if (data.length() > 0 && dispatch(eventType, data.toString())) {
+                        synchronized (signal) {
+                            retryMillis = baseRetryMillis;
+                        }
+                    }
+                    data.setLength(0);
+                    eventType = null;
+                    eventId = null;
+                    continue;
+                }
+                if (line.startsWith(":")) {
+                    continue;
+                }
+                int colon = line.indexOf(':');
+                String field = colon < 0 ? line : line.substring(0, colon);
+                String value = colon < 0 ? "" : line.substring(colon + 1);
+                if (value.startsWith(" ")) {
+                    value = value.substring(1);
+                }
+                switch (field) {
+                    case "data":
+                        if (data.length() > 0) {
+                            data.append('\n');
+                        }
+                        data.append(value);
+                        break;
+                    case "event":
+                        eventType = value;
+                        break;
+                    case "id":
+                        eventId = value;
+                        break;
+                    case "retry":
+                        setRetry(value);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        private void setRetry(String value) {
+            try {
+                long retry = Long.parseLong(value.trim());
+                if (retry >= 0) {
+                    synchronized (signal) {
+                        baseRetryMillis = Math.min(MAX_RETRY_MILLIS, Math.max(1, retry));
+                        retryMillis = baseRetryMillis;
+                    }
+                }
+            } catch (NumberFormatException e) {
+                // ignored, as required for server-sent events
+            }
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.omri.trackinglibrary.upload;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.omri.trackinglibrary.api.ApiService;
+import com.omri.trackinglibrary.api.BinaryLocationCodec;
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.filter.TrajectorySimplifier;
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.utils.ResponseUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * LocationBatcher buffers location updates and sends them to the server as a single batch request.
+ * A batch is sent when the buffer reaches the maximum batch size, or when the oldest buffered
+ * update reaches the maximum batch age, whichever comes first.
+ * Every caller's callback is completed with its own result from the batch response.
+ *
+ * <p>Batches are sent as JSON by default. With binary encoding enabled they are sent in the compact
+ * {@link BinaryLocationCodec} format instead; if the server answers 415 Unsupported Media Type,
+ * the batcher falls back to JSON for that batch and all later ones.</p>
+ */
+public class LocationBatcher implements LocationSender {
+    private static final String TAG = "LocationBatcher";
+
+    /**
+     * Default number of updates that triggers an immediate batch upload.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 20;
+
+    /**
+     * Default time, in milliseconds, an update may wait in the buffer before the batch is sent.
+     */
+    public static final long DEFAULT_MAX_BATCH_AGE_MILLIS = 10_000L;
+
+    private static final int UNSUPPORTED_MEDIA_TYPE = 415;
+
+    private final ApiService apiService;
+    private final int maxBatchSize;
+    private final long maxBatchAgeMillis;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+
+    private final Object lock = new Object();
+    private List<PendingLocationUpdate> buffer = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private volatile boolean binaryEncoding;
+    private volatile boolean binaryRejected;
+    private volatile TrajectorySimplifier simplifier;
+
+    /**
+     * Constructs a new LocationBatcher with its own background scheduler.
+     *
+     * @param apiService        The API service used to send batches
+     * @param maxBatchSize      The number of buffered updates that triggers a batch upload
+     * @param maxBatchAgeMillis The maximum time an update may wait in the buffer, in milliseconds
+     * @throws IllegalArgumentException if the size or age threshold is not positive
+     */
+    public LocationBatcher(ApiService apiService, int maxBatchSize, long maxBatchAgeMillis) {
+        this(apiService, maxBatchSize, maxBatchAgeMillis, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * Constructs a new LocationBatcher that schedules age-based flushes on the given scheduler.
+     * The scheduler is not shut down by {@link #shutdown()}.
+     *
+     * @param apiService        The API service used to send batches
+     * @param maxBatchSize      The number of buffered updates that triggers a batch upload
+     * @param maxBatchAgeMillis The maximum time an update may wait in the buffer, in milliseconds
+     * @param scheduler         The scheduler used for age-based flushes
+     * @throws IllegalArgumentException if the size or age threshold is not positive
+     */
+    public LocationBatcher(ApiService apiService, int maxBatchSize, long maxBatchAgeMillis,
+                           ScheduledExecutorService scheduler) {
+        this(apiService, maxBatchSize, maxBatchAgeMillis, scheduler, false);
+    }
+
+    private LocationBatcher(ApiService apiService, int maxBatchSize, long maxBatchAgeMillis,
+                            ScheduledExecutorService scheduler, boolean ownsScheduler) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be at least 1");
+        }
+        if (maxBatchAgeMillis <= 0) {
+            throw new IllegalArgumentException("Max batch age must be positive");
+        }
+        this.apiService = apiService;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchAgeMillis = maxBatchAgeMillis;
+        this.scheduler = scheduler;
+        this.ownsScheduler = ownsScheduler;
+    }
+
+    /**
+     * Adds a location update to the buffer.
+     * Sends the buffered batch immediately if the size threshold is reached, otherwise makes sure
+     * the batch is sent once the age threshold of its oldest update is reached.
+     *
+     * @param request  The location update to send
+     * @param callback Callback to complete with the result of this update
+     */
+    @Override
+    public void submit(LocationUpdateRequest request, LocationCallback callback) {
+        List<PendingLocationUpdate> ready = null;
+        synchronized (lock) {
+            buffer.add(new PendingLocationUpdate(request, callback));
+            if (buffer.size() >= maxBatchSize) {
+                ready = drainLocked();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::flush, maxBatchAgeMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (ready != null) {
+            send(ready);
+        }
+    }
+
+    /**
+     * Sends all buffered updates immediately, regardless of the size and age thresholds.
+     */
+    public void flush() {
+        List<PendingLocationUpdate> ready;
+        synchronized (lock) {
+            ready = drainLocked();
+        }
+        if (!ready.isEmpty()) {
+            send(ready);
+        }
+    }
+
+    /**
+     * Enables or disables the compact binary encoding of batches.
+     * Re-enabling it after the server rejected the binary format tries the binary format again.
+     *
+     * @param enabled true to send batches in binary, false to send them as JSON
+     */
+    public void setBinaryEncoding(boolean enabled) {
+        binaryEncoding = enabled;
+        if (enabled) {
+            binaryRejected = false;
+        }
+    }
+
+    /**
+     * Sets the simplifier that drops redundant intermediate fixes from each batch before it is sent.
+     * The callbacks of dropped updates receive {@link LocationCallback#onSuperseded()} once the batch is delivered.
+     *
+     * @param simplifier The simplifier to apply, or null to send every buffered update
+     */
+    public void setSimplifier(TrajectorySimplifier simplifier) {
+        this.simplifier = simplifier;
+    }
+
+    /**
+     * Checks whether batches are currently sent in the binary encoding.
+     *
+     * @return true if binary encoding is enabled and has not been rejected by the server
+     */
+    public boolean isBinaryEncodingActive() {
+        return binaryEncoding && !binaryRejected;
+    }
+
+    /**
+     * Gets the number of updates currently waiting in the buffer.
+     *
+     * @return The number of buffered updates
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return buffer.size();
+        }
+    }
+
+    /**
+     * Flushes any buffered updates and releases the background scheduler if this batcher owns it.
+     */
+    public void shutdown() {
+        flush();
+        if (ownsScheduler) {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Takes the current buffer contents and cancels the pending age-based flush.
+     * Must be called while holding the lock.
+     *
+     * @return The updates to send
+     */
+    private List<PendingLocationUpdate> drainLocked() {
+        List<PendingLocationUpdate> ready = buffer;
+        buffer = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return ready;
+    }
+
+    /**
+     * Sends a batch of updates and completes every caller's callback with its own result.
+     * Updates dropped by the simplifier are reported as superseded only once the batch is delivered;
+     * if delivery fails they receive the same error as the rest of the batch.
+     *
+     * @param batch The updates to send as one request
+     */
+    private void send(List<PendingLocationUpdate> batch) {
+        boolean[] keep = simplify(batch);
+        List<LocationUpdateRequest> requests = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (keep[i]) {
+                requests.add(batch.get(i).getRequest());
+            }
+        }
+        Log.d(TAG, "Sending location batch of size: " + requests.size());
+        enqueue(batch, keep, requests, isBinaryEncodingActive());
+    }
+
+    /**
+     * Enqueues one attempt at sending a batch. A binary attempt rejected with 415 is retried once
+     * as JSON with its own callback, so a second 415 fails the batch instead of retrying again.
+     *
+     * @param batch The buffered updates whose callbacks to complete
+     * @param keep A flag per buffered update, true if the update is part of the request
+     * @param requests The request bodies of the kept updates, in batch order
+     * @param binary Whether to send this attempt in the binary encoding
+     */
+    private void enqueue(final List<PendingLocationUpdate> batch, final boolean[] keep,
+                         final List<LocationUpdateRequest> requests, final boolean binary) {
+        Call<List<Location>> call = binary
+                ? apiService.updateLocationsEncoded(BinaryLocationCodec.toRequestBody(requests))
+                : apiService.updateLocations(requests);
+        call.enqueue(new Callback<List<Location>>() {
+            @Override
+            public void onResponse(@NonNull Call<List<Location>> call, @NonNull Response<List<Location>> response) {
+                if (binary && response.code() == UNSUPPORTED_MEDIA_TYPE) {
+                    Log.d(TAG, "Server does not accept binary location batches, falling back to JSON");
+                    binaryRejected = true;
+                    enqueue(batch, keep, requests, false);
+                    return;
+                }
+                List<Location> locations = response.body();
+                if (response.isSuccessful() && locations != null && locations.size() == requests.size()) {
+                    Log.d(TAG, "Location batch update successful");
+                    int delivered = 0;
+                    for (int i = 0; i < batch.size(); i++) {
+                        LocationCallback callback = batch.get(i).getCallback();
+                        if (keep[i]) {
+                            callback.onSuccess(locations.get(delivered++));
+                        } else {
+                            callback.onSuperseded();
+                        }
+                    }
+                } else {
+                    String errorMessage = response.isSuccessful()
+                            ? "Batch response does not match the " + requests.size() + " submitted updates"
+                            : ResponseUtils.getErrorMessage(response);
+                    Log.e(TAG, "Failed to update location batch: " + errorMessage);
+                    failAll(batch, errorMessage);
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<List<Location>> call, @NonNull Throwable t) {
+                String error = "Network error while updating location batch: " + t.getMessage();
+                Log.e(TAG, error, t);
+                failAll(batch, error);
+            }
+        });
+    }
+
+    /**
+     * Determines which buffered updates to send when a simplifier is set.
+     *
+     * @param batch The buffered updates
+     * @return A flag per update, true if the update must be sent
+     */
+    private boolean[] simplify(List<PendingLocationUpdate> batch) {
+        TrajectorySimplifier current = simplifier;
+        if (current == null || batch.size() < 3) {
+            boolean[] keep = new boolean[batch.size()];
+            Arrays.fill(keep, true);
+            return keep;
+        }
+        List<LocationUpdateRequest> requests = new ArrayList<>(batch.size());
+        for (PendingLocationUpdate update : batch) {
+            requests.add(update.getRequest());
+        }
+        return current.simplify(requests);
+    }
+
+    /**
+     * Completes the callback of every update in the batch with the same error.
+     *
+     * @param batch The updates whose callbacks to complete
+     * @param error The error message to report
+     */
+    private static void failAll(List<PendingLocationUpdate> batch, String error) {
+        for (PendingLocationUpdate update : batch) {
+            update.getCallback().onError(error);
+        }
+    }
+}
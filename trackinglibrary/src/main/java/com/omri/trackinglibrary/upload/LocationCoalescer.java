@@ -0,0 +1,133 @@
+package com.omri.trackinglibrary.upload;
+
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+import com.omri.trackinglibrary.models.Location;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * LocationCoalescer keeps at most one location update in flight and at most one pending per user.
+ * A newer update for a user replaces the pending one, whose callback receives
+ * {@link LocationCallback#onSuperseded()}. When the in-flight update completes, the pending update,
+ * which is always the latest known position, is sent next.
+ */
+public class LocationCoalescer implements LocationSender {
+    private final LocationSender downstream;
+    private final Map<String, UserState> states = new HashMap<>();
+
+    /**
+     * Constructs a new LocationCoalescer.
+     *
+     * @param downstream The sender that delivers the updates that are not superseded
+     */
+    public LocationCoalescer(LocationSender downstream) {
+        this.downstream = downstream;
+    }
+
+    /**
+     * Sends the update immediately if no update is in flight for the user,
+     * otherwise makes it the pending update, superseding any earlier pending update.
+     *
+     * @param request  The location update to deliver
+     * @param callback Callback to complete with the result of the update
+     */
+    @Override
+    public void submit(LocationUpdateRequest request, LocationCallback callback) {
+        PendingLocationUpdate update = new PendingLocationUpdate(request, callback);
+        PendingLocationUpdate superseded = null;
+        boolean sendNow;
+        synchronized (states) {
+            UserState state = states.get(request.getUserId());
+            if (state == null) {
+                state = new UserState();
+                states.put(request.getUserId(), state);
+            }
+            sendNow = !state.inFlight;
+            if (sendNow) {
+                state.inFlight = true;
+            } else {
+                superseded = state.pending;
+                state.pending = update;
+            }
+        }
+
+        if (superseded != null) {
+            superseded.getCallback().onSuperseded();
+        }
+        if (sendNow) {
+            send(update);
+        }
+    }
+
+    /**
+     * Gets the number of users with an update in flight.
+     *
+     * @return The number of users with an update in flight
+     */
+    public int getInFlightCount() {
+        synchronized (states) {
+            return states.size();
+        }
+    }
+
+    /**
+     * Sends an update downstream and releases the user's pending update once it completes.
+     *
+     * @param update The update to send
+     */
+    private void send(final PendingLocationUpdate update) {
+        final String userId = update.getRequest().getUserId();
+        final LocationCallback callback = update.getCallback();
+        downstream.submit(update.getRequest(), new LocationCallback() {
+            @Override
+            public void onSuccess(Location location) {
+                complete(userId);
+                callback.onSuccess(location);
+            }
+
+            @Override
+            public void onError(String error) {
+                complete(userId);
+                callback.onError(error);
+            }
+
+            @Override
+            public void onSuperseded() {
+                complete(userId);
+                callback.onSuperseded();
+            }
+        });
+    }
+
+    /**
+     * Marks the user's in-flight update as complete and sends the pending update, if any.
+     *
+     * @param userId The ID of the user whose update completed
+     */
+    private void complete(String userId) {
+        PendingLocationUpdate next;
+        synchronized (states) {
+            UserState state = states.get(userId);
+            if (state == null) {
+                return;
+            }
+            next = state.pending;
+            state.pending = null;
+            if (next == null) {
+                states.remove(userId);
+            }
+        }
+        if (next != null) {
+            send(next);
+        }
+    }
+
+    /**
+     * Coalescing state of a single user.
+     */
+    private static final class UserState {
+        boolean inFlight;
+        PendingLocationUpdate pending;
+    }
+}
@@ -0,0 +1,273 @@
+package com.omri.trackinglibrary.upload;
+
+import android.util.Log;
+
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LocationIngestionQueue decouples the threads that report location fixes from the upload pipeline.
+ * Updates are placed in a bounded, pre-allocated lock-free ring and handed downstream in order by a
+ * single consumer thread, so a burst of fixes costs a fixed amount of memory instead of growing the
+ * network layer's queue without limit. Submitting an update does not allocate.
+ *
+ * <p>When the ring is full, the {@link OverflowPolicy} decides whether the oldest queued update or the
+ * arriving update is dropped, whether only every Nth arriving update is kept, or whether the caller
+ * waits for room.</p>
+ */
+public class LocationIngestionQueue implements LocationSender {
+    private static final String TAG = "LocationIngestionQueue";
+    private static final int DRAIN_BATCH_SIZE = 256;
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final LocationRingBuffer ring;
+    private final OverflowPolicy policy;
+    private final int sampleEvery;
+    private final long blockTimeoutNanos;
+    private final LocationSender downstream;
+    private final LocationSender deliver;
+    private final LocationSender supersede;
+    private final Thread consumer;
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong displacedCount = new AtomicLong();
+
+    private volatile boolean running = true;
+    private volatile boolean idle;
+
+    /**
+     * Constructs a new LocationIngestionQueue and starts its consumer thread.
+     *
+     * @param downstream         The sender that receives the queued updates
+     * @param capacity           The minimum number of updates the queue holds; rounded up to a power of two
+     * @param policy             What to do with an update that arrives while the queue is full
+     * @param sampleEvery        For {@link OverflowPolicy#SAMPLE}, keep one of every this many overflowing updates
+     * @param blockTimeoutMillis For {@link OverflowPolicy#BLOCK}, the maximum time a caller waits for room
+     * @throws IllegalArgumentException if the capacity or sampling interval is not positive,
+     *                                  or the timeout is negative
+     */
+    public LocationIngestionQueue(LocationSender downstream, int capacity, OverflowPolicy policy,
+                                  int sampleEvery, long blockTimeoutMillis) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("Sampling interval must be positive");
+        }
+        if (blockTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Block timeout cannot be negative");
+        }
+        this.ring = new LocationRingBuffer(capacity);
+        this.policy = policy;
+        this.sampleEvery = sampleEvery;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+        this.downstream = downstream;
+        this.deliver = this::deliver;
+        this.supersede = (request, callback) -> callback.onSuperseded();
+        this.consumer = new Thread(this::run, TAG);
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Queues an update, applying the overflow policy when the queue is full.
+     * After {@link #shutdown()} the update is handed downstream directly.
+     *
+     * @param request  The location update to deliver
+     * @param callback Callback to complete with the result of the update
+     */
+    @Override
+    public void submit(LocationUpdateRequest request, LocationCallback callback) {
+        if (!running) {
+            deliver(request, callback);
+            return;
+        }
+        if (!ring.offer(request, callback)) {
+            switch (policy) {
+                case DROP_OLDEST:
+                    overflowCount.incrementAndGet();
+                    displaceOldest(request, callback);
+                    break;
+                case SAMPLE:
+                    if (overflowCount.incrementAndGet() % sampleEvery == 0) {
+                        displaceOldest(request, callback);
+                    } else {
+                        drop(callback, "Location update dropped: ingestion queue full");
+                    }
+                    break;
+                case BLOCK:
+                    overflowCount.incrementAndGet();
+                    if (!awaitRoom(request, callback)) {
+                        drop(callback, "Location update dropped: timed out waiting for the ingestion queue");
+                    }
+                    break;
+                default:
+                    overflowCount.incrementAndGet();
+                    drop(callback, "Location update dropped: ingestion queue full");
+                    break;
+            }
+        }
+        wakeConsumer();
+        if (!running) {
+            drainAll();
+        }
+    }
+
+    /**
+     * Stops the consumer thread after it has handed every queued update downstream.
+     * Updates submitted afterwards are handed downstream by the submitting thread.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(consumer);
+    }
+
+    /**
+     * Gets the overflow policy of the queue.
+     *
+     * @return The overflow policy
+     */
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Gets the number of updates the queue holds.
+     *
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return ring.capacity();
+    }
+
+    /**
+     * Gets the number of updates waiting to be handed downstream.
+     *
+     * @return The queue depth
+     */
+    public int getQueuedCount() {
+        return ring.size();
+    }
+
+    /**
+     * Gets the number of updates that arrived while the queue was full.
+     *
+     * @return The number of overflowing updates
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    /**
+     * Gets the number of arriving updates that were not queued because the queue was full.
+     *
+     * @return The number of dropped updates
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Gets the number of queued updates that were removed to make room for newer ones.
+     *
+     * @return The number of displaced updates
+     */
+    public long getDisplacedCount() {
+        return displacedCount.get();
+    }
+
+    /**
+     * Removes queued updates from the head until the given update fits.
+     *
+     * @param request  The arriving update
+     * @param callback Callback of the arriving update
+     */
+    private void displaceOldest(LocationUpdateRequest request, LocationCallback callback) {
+        do {
+            if (ring.poll(supersede)) {
+                displacedCount.incrementAndGet();
+            }
+        } while (!ring.offer(request, callback));
+    }
+
+    /**
+     * Waits for room in the queue and queues the update.
+     * The consumer thread never waits for itself, so it drops the update at once.
+     *
+     * @param request  The arriving update
+     * @param callback Callback of the arriving update
+     * @return true if the update was queued before the timeout
+     */
+    private boolean awaitRoom(LocationUpdateRequest request, LocationCallback callback) {
+        if (Thread.currentThread() == consumer) {
+            return false;
+        }
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        while (running) {
+            wakeConsumer();
+            if (ring.offer(request, callback)) {
+                return true;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(this, Math.min(remaining, BLOCK_PARK_NANOS));
+        }
+        deliver(request, callback);
+        return true;
+    }
+
+    private void drop(LocationCallback callback, String error) {
+        droppedCount.incrementAndGet();
+        callback.onError(error);
+    }
+
+    private void wakeConsumer() {
+        if (idle) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Hands queued updates downstream until the queue is shut down and empty.
+     * An idle consumer parks until a producer or {@link #shutdown()} unparks it. The consumer publishes
+     * {@code idle} before checking the ring, and producers claim their slot before checking {@code idle},
+     * so an update offered while the consumer goes idle always either is seen or wakes it.
+     */
+    private void run() {
+        while (true) {
+            int drained = 0;
+            while (drained < DRAIN_BATCH_SIZE && ring.poll(deliver)) {
+                drained++;
+            }
+            if (drained > 0) {
+                continue;
+            }
+            if (!running) {
+                drainAll();
+                return;
+            }
+            idle = true;
+            if (ring.size() == 0 && running) {
+                LockSupport.park(this);
+            }
+            idle = false;
+        }
+    }
+
+    private void drainAll() {
+        while (ring.poll(deliver)) {
+            // delivered
+        }
+    }
+
+    private void deliver(LocationUpdateRequest request, LocationCallback callback) {
+        try {
+            downstream.submit(request, callback);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to hand off location update: " + e.getMessage(), e);
+            callback.onError("Failed to send location update: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.omri.trackinglibrary.upload;
+
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * LocationJournal is an append-only, length-prefixed journal of location updates stored in a single file.
+ * Updates are appended at the tail and acknowledged from the head, in order.
+ * The file is forced to disk after a configurable number of appends, so durability is batched.
+ *
+ * <p>File layout: a 16 byte header (magic, version, head offset) followed by records of the form
+ * {@code [int payloadLength][payload][int crc32]}. A payload holds the sequence number, user ID,
+ * latitude and longitude of one update. A torn record at the tail, left by a crash during a write,
+ * is detected by its checksum and discarded when the journal is opened.</p>
+ */
+public class LocationJournal implements Closeable {
+    private static final int MAGIC = 0x4C4A524E; // "LJRN"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int HEAD_OFFSET_POSITION = 8;
+    private static final int MAX_PAYLOAD_SIZE = 64 * 1024;
+
+    /**
+     * Acknowledged bytes at the front of the file that trigger compaction of the remaining records.
+     */
+    private static final long COMPACTION_THRESHOLD_BYTES = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final int syncEveryRecords;
+    private final ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE);
+    private final ByteBuffer intBuffer = ByteBuffer.allocate(4);
+
+    private long head;
+    private long tail;
+    private long nextSequence = 1;
+    private int pendingCount;
+    private int unsyncedRecords;
+
+    /**
+     * Opens the journal stored in the given file, creating it if it does not exist.
+     * Existing records from a previous session are recovered and remain pending.
+     *
+     * @param file             The journal file
+     * @param syncEveryRecords The number of appends after which the file is forced to disk
+     * @throws IOException if the file cannot be opened or has an unknown format
+     * @throws IllegalArgumentException if syncEveryRecords is not positive
+     */
+    public LocationJournal(File file, int syncEveryRecords) throws IOException {
+        if (syncEveryRecords < 1) {
+            throw new IllegalArgumentException("Sync interval must be at least 1 record");
+        }
+        this.syncEveryRecords = syncEveryRecords;
+        this.channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a location update to the tail of the journal.
+     *
+     * @param request The location update to store
+     * @return The sequence number assigned to the stored update
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized long append(LocationUpdateRequest request) throws IOException {
+        long sequence = nextSequence++;
+        byte[] userId = request.getUserId().getBytes(StandardCharsets.UTF_8);
+        int payloadLength = 8 + 2 + userId.length + 8 + 8;
+        if (userId.length > Short.MAX_VALUE) {
+            throw new IOException("User ID is too long to journal");
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(4 + payloadLength + 4);
+        record.putInt(payloadLength);
+        record.putLong(sequence);
+        record.putShort((short) userId.length);
+        record.put(userId);
+        record.putDouble(request.getLatitude());
+        record.putDouble(request.getLongitude());
+        record.putInt(checksum(record.array(), 4, payloadLength));
+        record.flip();
+
+        writeFully(record, tail);
+        tail += record.limit();
+        pendingCount++;
+        if (++unsyncedRecords >= syncEveryRecords) {
+            sync();
+        }
+        return sequence;
+    }
+
+    /**
+     * Reads up to {@code max} pending updates, starting from the head of the journal.
+     * The updates stay in the journal until they are acknowledged.
+     *
+     * @param max The maximum number of updates to read
+     * @return The oldest pending updates, in append order
+     * @throws IOException if the journal cannot be read
+     */
+    public synchronized List<Entry> peek(int max) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long position = head;
+        while (entries.size() < max && position < tail) {
+            Entry entry = readRecord(position, tail);
+            if (entry == null) {
+                throw new IOException("Corrupt journal record at offset " + position);
+            }
+            entries.add(entry);
+            position = entry.nextPosition;
+        }
+        return entries;
+    }
+
+    /**
+     * Acknowledges the oldest pending updates, removing them from the journal.
+     * The file is truncated once every update has been acknowledged.
+     *
+     * @param count The number of updates to acknowledge, counted from the head
+     * @throws IOException if the journal cannot be updated
+     */
+    public synchronized void acknowledge(int count) throws IOException {
+        long position = head;
+        for (int i = 0; i < count && position < tail; i++) {
+            position += 4 + readInt(position) + 4;
+            pendingCount--;
+        }
+        head = position;
+
+        if (head >= tail) {
+            head = HEADER_SIZE;
+            tail = HEADER_SIZE;
+            writeHeader();
+            channel.truncate(HEADER_SIZE);
+        } else if (head - HEADER_SIZE >= COMPACTION_THRESHOLD_BYTES && head - HEADER_SIZE >= tail - head) {
+            compact();
+        } else {
+            writeHeader();
+        }
+    }
+
+    /**
+     * Forces all appended records to disk.
+     *
+     * @throws IOException if the file cannot be synced
+     */
+    public synchronized void sync() throws IOException {
+        if (unsyncedRecords > 0) {
+            channel.force(false);
+            unsyncedRecords = 0;
+        }
+    }
+
+    /**
+     * Gets the number of updates that have been appended but not yet acknowledged.
+     *
+     * @return The number of pending updates
+     */
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Checks whether every appended update has been acknowledged.
+     *
+     * @return true if no updates are pending, false otherwise
+     */
+    public synchronized boolean isEmpty() {
+        return pendingCount == 0;
+    }
+
+    /**
+     * Syncs and closes the journal file.
+     *
+     * @throws IOException if the file cannot be synced or closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads the header and scans the pending records, discarding a torn record at the tail.
+     *
+     * @throws IOException if the file cannot be read or has an unknown format
+     */
+    private void recover() throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            head = HEADER_SIZE;
+            tail = HEADER_SIZE;
+            writeHeader();
+            channel.truncate(HEADER_SIZE);
+            channel.force(true);
+            return;
+        }
+
+        headerBuffer.clear();
+        readFully(headerBuffer, 0);
+        headerBuffer.flip();
+        if (headerBuffer.getInt() != MAGIC || headerBuffer.getInt() != VERSION) {
+            throw new IOException("Unrecognized journal format");
+        }
+        head = Math.min(Math.max(HEADER_SIZE, headerBuffer.getLong()), size);
+
+        long position = head;
+        while (position < size) {
+            Entry entry = readRecord(position, size);
+            if (entry == null) {
+                break;
+            }
+            nextSequence = entry.sequence + 1;
+            pendingCount++;
+            position = entry.nextPosition;
+        }
+        tail = position;
+        if (tail < size) {
+            channel.truncate(tail);
+        }
+    }
+
+    /**
+     * Moves the pending records to the front of the file and truncates the remainder.
+     *
+     * @throws IOException if the file cannot be rewritten
+     */
+    private void compact() throws IOException {
+        long remaining = tail - head;
+        long target = HEADER_SIZE;
+        ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+        long source = head;
+        while (source < tail) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunk.capacity(), tail - source));
+            readFully(chunk, source);
+            chunk.flip();
+            writeFully(chunk, target);
+            source += chunk.limit();
+            target += chunk.limit();
+        }
+        channel.force(false);
+        head = HEADER_SIZE;
+        tail = HEADER_SIZE + remaining;
+        writeHeader();
+        channel.truncate(tail);
+    }
+
+    /**
+     * Reads and verifies the record at the given position.
+     *
+     * @param position The offset of the record
+     * @param limit    The offset past which no record data may be read
+     * @return The record, or null if it is incomplete or fails its checksum
+     * @throws IOException if the file cannot be read
+     */
+    private Entry readRecord(long position, long limit) throws IOException {
+        if (position + 4 > limit) {
+            return null;
+        }
+        int payloadLength = readInt(position);
+        if (payloadLength <= 0 || payloadLength > MAX_PAYLOAD_SIZE || position + 4 + payloadLength + 4 > limit) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+        readFully(payload, position + 4);
+        if (checksum(payload.array(), 0, payloadLength) != readInt(position + 4 + payloadLength)) {
+            return null;
+        }
+        payload.flip();
+        long sequence = payload.getLong();
+        byte[] userId = new byte[payload.getShort()];
+        payload.get(userId);
+        double latitude = payload.getDouble();
+        double longitude = payload.getDouble();
+
+        LocationUpdateRequest request = new LocationUpdateRequest(
+                new String(userId, StandardCharsets.UTF_8), latitude, longitude);
+        return new Entry(sequence, request, position + 4 + payloadLength + 4);
+    }
+
+    private void writeHeader() throws IOException {
+        headerBuffer.clear();
+        headerBuffer.putInt(MAGIC);
+        headerBuffer.putInt(VERSION);
+        headerBuffer.putLong(head);
+        headerBuffer.flip();
+        writeFully(headerBuffer, 0);
+    }
+
+    private int readInt(long position) throws IOException {
+        intBuffer.clear();
+        readFully(intBuffer, position);
+        intBuffer.flip();
+        return intBuffer.getInt();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of journal at offset " + position);
+            }
+            position += read;
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Entry is a pending location update read from the journal.
+     */
+    public static final class Entry {
+        private final long sequence;
+        private final LocationUpdateRequest request;
+        private final long nextPosition;
+
+        private Entry(long sequence, LocationUpdateRequest request, long nextPosition) {
+            this.sequence = sequence;
+            this.request = request;
+            this.nextPosition = nextPosition;
+        }
+
+        /**
+         * Gets the sequence number assigned to the update when it was appended.
+         * @return The sequence number
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Gets the stored location update.
+         * @return The location update request
+         */
+        public LocationUpdateRequest getRequest() {
+            return request;
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package com.omri.trackinglibrary.upload;
+
+import android.util.Log;
+
+import com.omri.trackinglibrary.api.ApiService;
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.filter.TrajectorySimplifier;
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.utils.ResponseUtils;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * LocationOutbox makes location updates durable across network outages and process restarts.
+ * Every update is appended to a {@link LocationJournal} before it is sent. A single background drainer
+ * replays the journal in order, in batches, and acknowledges updates as the server accepts them.
+ *
+ * <p>While the server is unreachable the drainer backs off exponentially and new updates keep being
+ * journaled, so callers can submit fixes at full rate. Callbacks are invoked on the drainer thread:
+ * with the server result once an update is delivered, or with an error the first time its delivery
+ * fails. An update that failed due to the network, a server error, throttling ({@code 408}, {@code 429})
+ * or an authentication failure stays in the journal and is delivered later without a callback; the
+ * drainer waits for the server's {@code Retry-After} delay when one is given. Only updates the server
+ * rejects as invalid ({@code 400}, {@code 422}) are removed from the journal undelivered.</p>
+ */
+public class LocationOutbox implements LocationSender {
+    private static final String TAG = "LocationOutbox";
+
+    /**
+     * Default maximum number of journaled updates sent in one request.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 50;
+
+    private static final long INITIAL_BACKOFF_MILLIS = 1_000L;
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1_000L;
+
+    private final ApiService apiService;
+    private final LocationJournal journal;
+    private final int maxBatchSize;
+    private final Map<Long, LocationCallback> callbacks = new ConcurrentHashMap<>();
+    private final Object signal = new Object();
+    private final Object journalLock = new Object();
+    private final Thread drainer;
+
+    private volatile boolean running = true;
+    private volatile TrajectorySimplifier simplifier;
+    private volatile Call<?> inFlight;
+    private boolean workAvailable;
+    private boolean retryRequested;
+    private long backoffMillis;
+
+    /**
+     * Constructs a new LocationOutbox and starts draining any updates left in the journal.
+     *
+     * @param apiService   The API service used to deliver updates
+     * @param journal      The journal that stores updates until they are acknowledged
+     * @param maxBatchSize The maximum number of updates sent in one request
+     * @throws IllegalArgumentException if maxBatchSize is not positive
+     */
+    public LocationOutbox(ApiService apiService, LocationJournal journal, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be at least 1");
+        }
+        this.apiService = apiService;
+        this.journal = journal;
+        this.maxBatchSize = maxBatchSize;
+        this.drainer = new Thread(this::drainLoop, TAG);
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Journals a location update and schedules it for delivery.
+     * The callback is registered under the same lock the drainer reads the journal with,
+     * so the drainer never sees an update before its callback.
+     *
+     * @param request  The location update to deliver
+     * @param callback Callback to complete with the result of the update
+     */
+    @Override
+    public void submit(LocationUpdateRequest request, LocationCallback callback) {
+        synchronized (journalLock) {
+            try {
+                callbacks.put(journal.append(request), callback);
+            } catch (IOException e) {
+                String error = "Could not store location update: " + e.getMessage();
+                Log.e(TAG, error, e);
+                callback.onError(error);
+                return;
+            }
+        }
+        wake(false);
+    }
+
+    /**
+     * Retries delivery immediately instead of waiting for the current backoff to expire.
+     * Call this when connectivity is known to be restored.
+     */
+    public void retryNow() {
+        wake(true);
+    }
+
+    /**
+     * Sets the simplifier that drops redundant intermediate fixes from each journaled batch before it is sent.
+     * Dropped updates are removed from the journal together with the batch they belong to,
+     * and their callbacks receive {@link LocationCallback#onSuperseded()}.
+     *
+     * @param simplifier The simplifier to apply, or null to deliver every journaled update
+     */
+    public void setSimplifier(TrajectorySimplifier simplifier) {
+        this.simplifier = simplifier;
+    }
+
+    /**
+     * Gets the number of updates waiting in the journal for delivery.
+     *
+     * @return The number of undelivered updates
+     */
+    public int getPendingCount() {
+        return journal.getPendingCount();
+    }
+
+    /**
+     * Stops the drainer and waits until it has exited and closed the journal.
+     * A delivery in progress is canceled; its updates stay in the journal.
+     * Undelivered updates are delivered by the next outbox opened on the same file,
+     * which must not be opened before this method returns.
+     */
+    public void shutdown() {
+        running = false;
+        Call<?> call = inFlight;
+        if (call != null) {
+            call.cancel();
+        }
+        wake(true);
+        boolean interrupted = false;
+        while (drainer.isAlive()) {
+            try {
+                drainer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void wake(boolean retry) {
+        synchronized (signal) {
+            if (retry) {
+                retryRequested = true;
+                backoffMillis = 0;
+            } else {
+                workAvailable = true;
+            }
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * Delivers journaled updates in order until the outbox is shut down, then closes the journal.
+     * The journal is closed on the drainer thread so it is never closed under a pending acknowledgement.
+     */
+    private void drainLoop() {
+        try {
+            while (running) {
+                long delay;
+                try {
+                    delay = drainOnce();
+                } catch (IOException | RuntimeException e) {
+                    Log.e(TAG, "Failed to read location journal", e);
+                    delay = nextBackoff();
+                }
+                try {
+                    awaitWork(delay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        } finally {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to close location journal", e);
+            }
+        }
+    }
+
+    /**
+     * Waits before the next delivery attempt.
+     * New updates end an idle wait, but only an explicit retry ends a backoff early,
+     * so a burst of submissions during an outage does not turn into a retry storm.
+     *
+     * @param delayMillis 0 to continue immediately, a negative value to wait for new updates,
+     *                    or a positive backoff in milliseconds
+     * @throws InterruptedException if the drainer thread is interrupted
+     */
+    private void awaitWork(long delayMillis) throws InterruptedException {
+        synchronized (signal) {
+            if (delayMillis > 0) {
+                long deadline = System.currentTimeMillis() + delayMillis;
+                long remaining = delayMillis;
+                while (running && !retryRequested && remaining > 0) {
+                    signal.wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            } else if (delayMillis < 0) {
+                while (running && !retryRequested && !workAvailable) {
+                    signal.wait();
+                }
+            }
+            retryRequested = false;
+            workAvailable = false;
+        }
+    }
+
+    /**
+     * Sends the oldest batch of journaled updates.
+     *
+     * @return 0 to continue draining immediately, -1 if the journal is empty, or a positive backoff
+     *         in milliseconds after a failed delivery
+     * @throws IOException if the journal cannot be read or updated
+     */
+    private long drainOnce() throws IOException {
+        List<LocationJournal.Entry> entries;
+        synchronized (journalLock) {
+            entries = journal.peek(maxBatchSize);
+        }
+        if (entries.isEmpty()) {
+            return -1;
+        }
+        journal.sync();
+        boolean[] keep = simplify(entries);
+        List<LocationJournal.Entry> kept = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            if (keep[i]) {
+                kept.add(entries.get(i));
+            }
+        }
+
+        Response<List<Location>> response;
+        try {
+            response = send(kept);
+        } catch (IOException e) {
+            String error = "Network error while updating location, update kept in outbox: " + e.getMessage();
+            Log.e(TAG, error, e);
+            failCallbacks(entries, error);
+            return nextBackoff();
+        }
+
+        List<Location> locations = response.body();
+        if (response.isSuccessful() && locations != null && locations.size() == kept.size()) {
+            Log.d(TAG, "Delivered " + kept.size() + " of " + entries.size() + " journaled location updates");
+            journal.acknowledge(entries.size());
+            synchronized (signal) {
+                backoffMillis = 0;
+            }
+            int delivered = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                LocationCallback callback = callbacks.remove(entries.get(i).getSequence());
+                Location location = keep[i] ? locations.get(delivered++) : null;
+                if (callback == null) {
+                    continue;
+                }
+                if (location != null) {
+                    callback.onSuccess(location);
+                } else {
+                    callback.onSuperseded();
+                }
+            }
+            return 0;
+        }
+
+        String errorMessage = response.isSuccessful()
+                ? "Batch response does not match the " + kept.size() + " submitted updates"
+                : ResponseUtils.getErrorMessage(response);
+        if (isRejected(response)) {
+            Log.e(TAG, "Server rejected journaled location updates, dropping them: " + errorMessage);
+            journal.acknowledge(entries.size());
+            failCallbacks(entries, errorMessage);
+            return 0;
+        }
+        Log.e(TAG, "Failed to deliver journaled updates, will retry: " + errorMessage);
+        failCallbacks(entries, errorMessage);
+        long backoff = nextBackoff();
+        long retryAfter = ResponseUtils.getRetryAfterMillis(response.headers().get("Retry-After"));
+        return retryAfter > 0 ? Math.min(MAX_BACKOFF_MILLIS, Math.max(backoff, retryAfter)) : backoff;
+    }
+
+    /**
+     * Checks whether the server definitely rejected the updates as invalid, so resending them cannot succeed.
+     * Server errors, throttling, authentication failures and malformed batch responses are retried instead.
+     *
+     * @param response The response to the batch
+     * @return true if the response is a validation rejection
+     */
+    private static boolean isRejected(Response<?> response) {
+        return response.code() == 400 || response.code() == 422;
+    }
+
+    /**
+     * Determines which journaled updates to send when a simplifier is set.
+     *
+     * @param entries The journaled updates of the next batch
+     * @return A flag per update, true if the update must be sent
+     */
+    private boolean[] simplify(List<LocationJournal.Entry> entries) {
+        TrajectorySimplifier current = simplifier;
+        if (current == null || entries.size() < 3) {
+            boolean[] keep = new boolean[entries.size()];
+            Arrays.fill(keep, true);
+            return keep;
+        }
+        List<LocationUpdateRequest> requests = new ArrayList<>(entries.size());
+        for (LocationJournal.Entry entry : entries) {
+            requests.add(entry.getRequest());
+        }
+        return current.simplify(requests);
+    }
+
+    /**
+     * Sends journaled updates with the single or batch endpoint, depending on their number.
+     *
+     * @param entries The updates to send
+     * @return The response, with the result of a single update wrapped in a list
+     * @throws IOException if the request could not be completed
+     */
+    private Response<List<Location>> send(List<LocationJournal.Entry> entries) throws IOException {
+        if (entries.size() == 1) {
+            Response<Location> response = execute(apiService.updateLocation(entries.get(0).getRequest()));
+            if (response.isSuccessful() && response.body() != null) {
+                return Response.success(Collections.singletonList(response.body()), response.raw());
+            }
+            return response.isSuccessful()
+                    ? Response.success(null, response.raw())
+                    : Response.error(response.errorBody(), response.raw());
+        }
+        List<LocationUpdateRequest> requests = new ArrayList<>(entries.size());
+        for (LocationJournal.Entry entry : entries) {
+            requests.add(entry.getRequest());
+        }
+        return execute(apiService.updateLocations(requests));
+    }
+
+    /**
+     * Executes a delivery call so that {@link #shutdown()} can cancel it.
+     *
+     * @param call The call to execute
+     * @return The response of the server
+     * @throws IOException if the call fails or is canceled by a shutdown
+     */
+    private <T> Response<T> execute(Call<T> call) throws IOException {
+        inFlight = call;
+        try {
+            if (!running) {
+                call.cancel();
+            }
+            return call.execute();
+        } finally {
+            inFlight = null;
+        }
+    }
+
+    /**
+     * Reports a failed delivery to the callbacks of the given updates, once per update.
+     *
+     * @param entries The updates that failed
+     * @param error   The error message to report
+     */
+    private void failCallbacks(List<LocationJournal.Entry> entries, String error) {
+        for (LocationJournal.Entry entry : entries) {
+            LocationCallback callback = callbacks.remove(entry.getSequence());
+            if (callback != null) {
+                callback.onError(error);
+            }
+        }
+    }
+
+    /**
+     * Doubles the backoff delay up to its maximum and returns it with jitter applied.
+     *
+     * @return The delay in milliseconds before the next delivery attempt
+     */
+    private long nextBackoff() {
+        synchronized (signal) {
+            backoffMillis = backoffMillis == 0
+                    ? INITIAL_BACKOFF_MILLIS
+                    : Math.min(MAX_BACKOFF_MILLIS, backoffMillis * 2);
+            return backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.omri.trackinglibrary.upload;
+
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer, multi-consumer ring of location updates.
+ * All slots are allocated up front, so offering and polling do not allocate.
+ *
+ * <p>Each slot carries a sequence number: a producer may fill slot {@code p & mask} when its sequence
+ * equals the claimed position {@code p}, and publishes it by setting the sequence to {@code p + 1};
+ * a consumer may take it when the sequence equals {@code p + 1}, and frees it for the next lap by
+ * setting the sequence to {@code p + capacity}. Positions are claimed with a compare-and-set on the
+ * shared head or tail counter, so a stalled thread never blocks the others.</p>
+ */
+final class LocationRingBuffer {
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final LocationUpdateRequest[] requests;
+    private final LocationCallback[] callbacks;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Constructs a new LocationRingBuffer.
+     *
+     * @param capacity The minimum number of updates the ring holds; rounded up to a power of two
+     * @throws IllegalArgumentException if the capacity is not positive or too large
+     */
+    LocationRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        requests = new LocationUpdateRequest[size];
+        callbacks = new LocationCallback[size];
+        for (int i = 0; i < size; i++) {
+            sequences.lazySet(i, i);
+        }
+    }
+
+    /**
+     * Adds an update at the tail of the ring.
+     *
+     * @param request  The location update
+     * @param callback Callback to complete with the result of the update
+     * @return true if the update was added, false if the ring is full
+     */
+    boolean offer(LocationUpdateRequest request, LocationCallback callback) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    requests[index] = request;
+                    callbacks[index] = callback;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Removes the update at the head of the ring and hands it to a sender.
+     * The slot is released before the sender is called.
+     *
+     * @param sender The sender that receives the removed update
+     * @return true if an update was removed, false if the ring is empty
+     */
+    boolean poll(LocationSender sender) {
+        long position = head.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    LocationUpdateRequest request = requests[index];
+                    LocationCallback callback = callbacks[index];
+                    requests[index] = null;
+                    callbacks[index] = null;
+                    sequences.lazySet(index, position + mask + 1);
+                    sender.submit(request, callback);
+                    return true;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of claimed slots, including slots whose producer has not published them yet.
+     *
+     * @return The number of queued updates
+     */
+    int size() {
+        long queued = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(queued, mask + 1));
+    }
+
+    /**
+     * Gets the number of updates the ring holds.
+     *
+     * @return The capacity, a power of two
+     */
+    int capacity() {
+        return mask + 1;
+    }
+}
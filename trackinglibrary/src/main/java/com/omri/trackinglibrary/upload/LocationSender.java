@@ -0,0 +1,19 @@
+package com.omri.trackinglibrary.upload;
+
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+
+/**
+ * LocationSender is a stage of the location upload pipeline that accepts location updates for delivery.
+ * Stages can be chained, for example a coalescing stage in front of a batching stage.
+ */
+public interface LocationSender {
+
+    /**
+     * Accepts a location update for delivery.
+     *
+     * @param request  The location update to deliver
+     * @param callback Callback to complete with the result of the update
+     */
+    void submit(LocationUpdateRequest request, LocationCallback callback);
+}
@@ -0,0 +1,28 @@
+package com.omri.trackinglibrary.upload;
+
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+
+/**
+ * OverflowPolicy decides what a {@link LocationIngestionQueue} does with a location update
+ * that arrives while the queue is full.
+ */
+public enum OverflowPolicy {
+    /**
+     * The oldest queued update is removed to make room; its callback receives {@link LocationCallback#onSuperseded()}.
+     */
+    DROP_OLDEST,
+    /**
+     * The arriving update is not queued; its callback receives {@link LocationCallback#onError(String)}.
+     */
+    DROP_NEWEST,
+    /**
+     * Every Nth update that arrives while the queue is full replaces the oldest queued update,
+     * as with {@link #DROP_OLDEST}; the others are dropped as with {@link #DROP_NEWEST}.
+     */
+    SAMPLE,
+    /**
+     * The caller waits for room up to a timeout; if the queue is still full, the update is dropped
+     * as with {@link #DROP_NEWEST}.
+     */
+    BLOCK
+}
@@ -0,0 +1,40 @@
+package com.omri.trackinglibrary.upload;
+
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+
+/**
+ * PendingLocationUpdate pairs a location update request with the callback
+ * that must be completed once the request has been sent.
+ */
+public final class PendingLocationUpdate {
+    private final LocationUpdateRequest request;
+    private final LocationCallback callback;
+
+    /**
+     * Constructs a new PendingLocationUpdate.
+     *
+     * @param request  The location update request waiting to be sent
+     * @param callback The callback to complete with the result of the request
+     */
+    public PendingLocationUpdate(LocationUpdateRequest request, LocationCallback callback) {
+        this.request = request;
+        this.callback = callback;
+    }
+
+    /**
+     * Gets the location update request.
+     * @return The pending request
+     */
+    public LocationUpdateRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Gets the callback waiting for the result of the request.
+     * @return The callback of the caller that submitted the request
+     */
+    public LocationCallback getCallback() {
+        return callback;
+    }
+}
@@ -1,20 +1,20 @@
 package com.omri.trackinglibrary.utils;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Locale;
-import java.util.TimeZone;
 
 /**
  * Utility class for handling date and time operations.
+ * The formatters are immutable, so every method is safe to call from any thread.
  */
 public class DateUtils {
-    private static final SimpleDateFormat ISO_FORMAT;
-
-    static {
-        ISO_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
-        ISO_FORMAT.setTimeZone(TimeZone.getTimeZone("UTC"));
-    }
+    private static final DateTimeFormatter ISO_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US).withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter HTTP_FORMAT =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
 
     /**
      * Formats a MongoDB timestamp to ISO 8601 format.
@@ -23,7 +23,7 @@ public class DateUtils {
      * @return Formatted date string in ISO 8601 format
      */
     public static String formatMongoDate(long timestamp) {
-        return ISO_FORMAT.format(new Date(timestamp));
+        return ISO_FORMAT.format(Instant.ofEpochMilli(timestamp));
     }
 
     /**
@@ -32,6 +32,50 @@ public class DateUtils {
      * @return Current time string in ISO 8601 format
      */
     public static String getCurrentISODate() {
-        return ISO_FORMAT.format(new Date());
+        return ISO_FORMAT.format(Instant.now());
+    }
+
+    /**
+     * Parses an ISO 8601 timestamp, such as the "last_updated" field of a location.
+     *
+     * @param isoDate The timestamp in ISO 8601 format
+     * @return The timestamp in milliseconds since the epoch, or -1 if it is null or cannot be parsed
+     */
+    public static long parseISODate(String isoDate) {
+        if (isoDate == null) {
+            return -1;
+        }
+        try {
+            return Instant.parse(isoDate).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Formats a timestamp as an HTTP date, as used by the Last-Modified and If-Modified-Since headers.
+     *
+     * @param timestamp The timestamp in milliseconds since the epoch
+     * @return The date in IMF-fixdate format, such as "Sat, 06 Jan 2024 12:00:00 GMT"
+     */
+    public static String formatHttpDate(long timestamp) {
+        return HTTP_FORMAT.format(Instant.ofEpochMilli(timestamp));
+    }
+
+    /**
+     * Parses an HTTP date, as used by the Last-Modified and Retry-After headers.
+     *
+     * @param httpDate The date in IMF-fixdate format
+     * @return The timestamp in milliseconds since the epoch, or -1 if it is null or cannot be parsed
+     */
+    public static long parseHttpDate(String httpDate) {
+        if (httpDate == null) {
+            return -1;
+        }
+        try {
+            return Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(httpDate.trim())).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
     }
 }
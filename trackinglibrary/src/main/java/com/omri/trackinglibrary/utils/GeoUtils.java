@@ -0,0 +1,30 @@
+package com.omri.trackinglibrary.utils;
+
+/**
+ * Utility class for geographic calculations on latitude/longitude coordinates.
+ */
+public class GeoUtils {
+
+    /**
+     * Mean radius of the Earth in meters.
+     */
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    /**
+     * Calculates the great-circle distance between two coordinates using the haversine formula.
+     *
+     * @param latitude1  The latitude of the first point in degrees
+     * @param longitude1 The longitude of the first point in degrees
+     * @param latitude2  The latitude of the second point in degrees
+     * @param longitude2 The longitude of the second point in degrees
+     * @return The distance between the points in meters
+     */
+    public static double distanceMeters(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double lat1 = Math.toRadians(latitude1);
+        double lat2 = Math.toRadians(latitude2);
+        double sinHalfLat = Math.sin((lat2 - lat1) / 2);
+        double sinHalfLng = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double a = sinHalfLat * sinHalfLat + Math.cos(lat1) * Math.cos(lat2) * sinHalfLng * sinHalfLng;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
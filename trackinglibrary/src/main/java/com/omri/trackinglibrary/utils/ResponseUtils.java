@@ -0,0 +1,50 @@
+package com.omri.trackinglibrary.utils;
+
+import android.annotation.SuppressLint;
+
+import java.io.IOException;
+import retrofit2.Response;
+
+/**
+ * Utility class for handling Retrofit responses.
+ */
+public class ResponseUtils {
+
+    /**
+     * Extracts error message from an unsuccessful response.
+     * Attempts to read the error body and formats it with the response code.
+     *
+     * @param response The unsuccessful response to extract the error from
+     * @return A formatted string containing the error message and response code
+     */
+    @SuppressLint("DefaultLocale")
+    public static String getErrorMessage(Response<?> response) {
+        String errorBody = "";
+        try {
+            if (response.errorBody() != null) {
+                errorBody = response.errorBody().string();
+            }
+        } catch (IOException e) {
+            errorBody = "Could not read error body";
+        }
+        return String.format("Code: %d, Error: %s", response.code(), errorBody);
+    }
+
+    /**
+     * Parses a Retry-After header, given either in seconds or as an HTTP date.
+     *
+     * @param retryAfter The header value, or null
+     * @return The delay in milliseconds, or -1 if there is no valid header
+     */
+    public static long getRetryAfterMillis(String retryAfter) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000L);
+        } catch (NumberFormatException e) {
+            long date = DateUtils.parseHttpDate(retryAfter);
+            return date >= 0 ? Math.max(0, date - System.currentTimeMillis()) : -1;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.omri.trackinglibrary.utils;
+
+/**
+ * TimeSource provides the current time to components that expire or schedule data.
+ * It can be replaced in tests to control the passage of time.
+ */
+public interface TimeSource {
+
+    /**
+     * TimeSource backed by the system clock.
+     */
+    TimeSource SYSTEM = System::currentTimeMillis;
+
+    /**
+     * Gets the current time.
+     *
+     * @return The current time in milliseconds since the epoch
+     */
+    long currentTimeMillis();
+}
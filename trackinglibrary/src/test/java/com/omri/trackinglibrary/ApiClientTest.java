@@ -0,0 +1,114 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.api.ApiClient;
+import com.omri.trackinglibrary.network.HedgingPolicy;
+import com.omri.trackinglibrary.network.RetryPolicy;
+import com.omri.trackinglibrary.network.RetryStats;
+import org.junit.After;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Unit tests for the ApiClient class.
+ * Tests transport configuration through the builder and reuse of the shared OkHttpClient.
+ */
+public class ApiClientTest {
+    private static final String CUSTOM_BASE_URL = "http://localhost:8080";
+
+    /**
+     * Restores the default client after each test.
+     */
+    @After
+    public void tearDown() {
+        ApiClient.reset();
+    }
+
+    /**
+     * Tests that the builder applies dispatcher, protocol and timeout settings to the OkHttpClient.
+     */
+    @Test
+    public void builder_AppliesTransportSettings() {
+        ApiClient client = new ApiClient.Builder()
+                .baseUrl(CUSTOM_BASE_URL)
+                .maxRequests(32)
+                .maxRequestsPerHost(8)
+                .protocols(Arrays.asList(Protocol.HTTP_1_1))
+                .connectTimeout(3, TimeUnit.SECONDS)
+                .build();
+
+        OkHttpClient httpClient = client.getOkHttpClient();
+        assertEquals(32, httpClient.dispatcher().getMaxRequests());
+        assertEquals(8, httpClient.dispatcher().getMaxRequestsPerHost());
+        assertEquals(Arrays.asList(Protocol.HTTP_1_1), httpClient.protocols());
+        assertEquals(3_000, httpClient.connectTimeoutMillis());
+        assertEquals(CUSTOM_BASE_URL + "/", client.getRetrofit().baseUrl().toString());
+    }
+
+    /**
+     * Tests that changing the base URL keeps the OkHttpClient of the default client.
+     */
+    @Test
+    public void setBaseUrl_ReusesHttpClient() {
+        OkHttpClient before = ApiClient.getHttpClient();
+
+        ApiClient.setBaseUrl(CUSTOM_BASE_URL);
+
+        assertSame(before, ApiClient.getHttpClient());
+        assertEquals(CUSTOM_BASE_URL + "/", ApiClient.getClient().baseUrl().toString());
+    }
+
+    /**
+     * Tests that the default client is created once and shared by every caller.
+     */
+    @Test
+    public void getDefault_ReturnsSameInstance() {
+        assertSame(ApiClient.getDefault(), ApiClient.getDefault());
+        assertSame(ApiClient.getClient(), ApiClient.getDefault().getRetrofit());
+    }
+
+    /**
+     * Tests that installing a custom default client also updates the base URL.
+     */
+    @Test
+    public void setDefault_ReplacesDefaultClient() {
+        ApiClient custom = new ApiClient.Builder().baseUrl(CUSTOM_BASE_URL).build();
+
+        ApiClient.setDefault(custom);
+
+        assertSame(custom, ApiClient.getDefault());
+        assertEquals(CUSTOM_BASE_URL + "/", ApiClient.getBaseUrl());
+    }
+
+    /**
+     * Tests that rebuilding a client keeps its retry statistics and hedging state,
+     * and that a new base URL only replaces the circuit breaker.
+     */
+    @Test
+    public void newBuilder_KeepsRetryAndHedgingState() {
+        ApiClient client = new ApiClient.Builder()
+                .baseUrl(CUSTOM_BASE_URL)
+                .retryPolicies(RetryPolicy.reads(), RetryPolicy.writes())
+                .circuitBreaker(5, 30, TimeUnit.SECONDS)
+                .hedgingPolicy(new HedgingPolicy(0.95, 10, 1_000, 0.1))
+                .build();
+        RetryStats endpointStats = client.getRetryStats("GET api/locations/user/{userId}");
+
+        ApiClient rebuilt = client.newBuilder().build();
+        ApiClient moved = client.newBuilder().baseUrl("http://localhost:1/").build();
+
+        assertSame(client.getRetryStats(), rebuilt.getRetryStats());
+        assertSame(client.getHedging(), rebuilt.getHedging());
+        assertSame(client.getCircuitBreaker(), rebuilt.getCircuitBreaker());
+        assertSame(client.getRetryStats(), moved.getRetryStats());
+        assertSame(endpointStats, moved.getRetryStats("GET api/locations/user/{userId}"));
+        assertSame(client.getHedging(), moved.getHedging());
+        assertNotSame(client.getCircuitBreaker(), moved.getCircuitBreaker());
+        assertNotSame(client.getRetryStats(), client.newBuilder()
+                .retryPolicies(RetryPolicy.NONE, RetryPolicy.NONE).build().getRetryStats());
+    }
+}
@@ -0,0 +1,71 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.google.gson.Gson;
+import com.omri.trackinglibrary.api.BinaryLocationCodec;
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import org.junit.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for the BinaryLocationCodec class.
+ * Tests round trips, order preservation, precision and the size advantage over JSON.
+ */
+public class BinaryLocationCodecTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final String OTHER_USER_ID = "507f1f77bcf86cd799439012";
+
+    /**
+     * Tests that decoding an encoded batch returns the same updates in the same order.
+     */
+    @Test
+    public void encodeDecode_RoundTripPreservesOrder() {
+        List<LocationUpdateRequest> requests = new ArrayList<>();
+        requests.add(new LocationUpdateRequest(TEST_USER_ID, 32.1093331, 34.8554992));
+        requests.add(new LocationUpdateRequest(TEST_USER_ID, 32.1093512, 34.8554004));
+        requests.add(new LocationUpdateRequest(OTHER_USER_ID, -33.8688197, 151.2092955));
+        requests.add(new LocationUpdateRequest(TEST_USER_ID, -90.0, -180.0));
+
+        List<LocationUpdateRequest> decoded = BinaryLocationCodec.decode(BinaryLocationCodec.encode(requests));
+
+        assertEquals(requests.size(), decoded.size());
+        for (int i = 0; i < requests.size(); i++) {
+            assertEquals(requests.get(i).getUserId(), decoded.get(i).getUserId());
+            assertEquals(requests.get(i).getLatitude(), decoded.get(i).getLatitude(), 1e-7);
+            assertEquals(requests.get(i).getLongitude(), decoded.get(i).getLongitude(), 1e-7);
+        }
+    }
+
+    /**
+     * Tests that a track of consecutive fixes is several times smaller than its JSON encoding.
+     */
+    @Test
+    public void encode_IsMuchSmallerThanJson() {
+        List<LocationUpdateRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            requests.add(new LocationUpdateRequest(TEST_USER_ID, 32.109333 + i * 0.00005, 34.855499 + i * 0.00003));
+        }
+
+        int binarySize = BinaryLocationCodec.encode(requests).length;
+        int jsonSize = new Gson().toJson(requests).getBytes(StandardCharsets.UTF_8).length;
+
+        assertTrue("Binary " + binarySize + " vs JSON " + jsonSize, binarySize * 5 < jsonSize);
+    }
+
+    /**
+     * Tests that a truncated encoding is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_RejectsTruncatedInput() {
+        List<LocationUpdateRequest> requests = new ArrayList<>();
+        requests.add(new LocationUpdateRequest(TEST_USER_ID, 32.1, 34.8));
+        byte[] encoded = BinaryLocationCodec.encode(requests);
+        byte[] truncated = new byte[encoded.length - 2];
+        System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+
+        BinaryLocationCodec.decode(truncated);
+    }
+}
@@ -0,0 +1,201 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.api.ApiClient;
+import com.google.gson.JsonParseException;
+import com.omri.trackinglibrary.api.ApiService;
+import com.omri.trackinglibrary.network.CircuitBreaker;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.network.CircuitOpenException;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Unit tests for the CircuitBreaker class using a controllable time source,
+ * and for its use by ApiClient against a local MockWebServer.
+ */
+public class CircuitBreakerTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+
+    private long now;
+    private CircuitBreaker breaker;
+    private List<CircuitBreaker.State> transitions;
+
+    /**
+     * Sets up a breaker that opens after three consecutive failures for ten seconds.
+     */
+    @Before
+    public void setUp() {
+        now = 1_700_000_000_000L;
+        breaker = new CircuitBreaker("test", 3, 10_000L, () -> now);
+        transitions = new CopyOnWriteArrayList<>();
+        breaker.setStateListener(transitions::add);
+    }
+
+    /**
+     * Tests that consecutive failures open the circuit and that a success in between resets the count.
+     */
+    @Test
+    public void failures_openCircuitAfterThreshold() {
+        recordFailures(2);
+        breaker.recordSuccess();
+        recordFailures(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        recordFailures(1);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1, breaker.getRejectedCount());
+        assertEquals(1, breaker.getTripCount());
+    }
+
+    /**
+     * Tests that after the open period one probe is let through, and that it closes the circuit on success.
+     */
+    @Test
+    public void probe_closesCircuitOnSuccess() {
+        recordFailures(3);
+        now += 10_000L;
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        breaker.recordSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertEquals(3, transitions.size());
+        assertEquals(CircuitBreaker.State.CLOSED, transitions.get(2));
+    }
+
+    /**
+     * Tests that a failed probe reopens the circuit for another period.
+     */
+    @Test
+    public void probe_reopensCircuitOnFailure() {
+        recordFailures(3);
+        now += 10_000L;
+
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getTripCount());
+        now += 5_000L;
+        assertFalse(breaker.allowRequest());
+    }
+
+    /**
+     * Tests that an ApiClient with a circuit breaker fails fast once its server keeps failing.
+     *
+     * @throws Exception if the server fails
+     */
+    @Test
+    public void apiClient_failsFastWhileCircuitOpen() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.start();
+        try {
+            ApiClient client = new ApiClient.Builder()
+                    .baseUrl(server.url("/").toString())
+                    .circuitBreaker(2, 1, TimeUnit.MINUTES)
+                    .build();
+            ApiService apiService = client.create(ApiService.class);
+
+            assertEquals(500, apiService.getUserLocation(TEST_USER_ID).execute().code());
+            assertEquals(500, apiService.getUserLocation(TEST_USER_ID).execute().code());
+            try {
+                apiService.getUserLocation(TEST_USER_ID).execute();
+                fail("Should have failed fast");
+            } catch (IOException e) {
+                assertTrue(e instanceof CircuitOpenException);
+            }
+
+            assertEquals(2, server.getRequestCount());
+            assertEquals(CircuitBreaker.State.OPEN, client.getCircuitBreaker().getState());
+            assertSame(client.getCircuitBreaker(), client.newBuilder().build().getCircuitBreaker());
+            assertNotSame(client.getCircuitBreaker(),
+                    client.newBuilder().baseUrl("http://localhost:1/").build().getCircuitBreaker());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * Tests that a probe whose response body fails to parse ends the probe, so the next call is let through.
+     *
+     * @throws Exception if the server fails
+     */
+    @Test
+    public void apiClient_unparseableProbeReleasesCircuit() throws Exception {
+        String invalid = "{\"user_id\":\"" + TEST_USER_ID + "\",\"latitude\":91.0,\"longitude\":34.8}";
+        String valid = "{\"user_id\":\"" + TEST_USER_ID + "\",\"latitude\":32.1,\"longitude\":34.8}";
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setBody(invalid));
+        server.enqueue(new MockResponse().setBody(invalid));
+        server.enqueue(new MockResponse().setBody(valid));
+        server.start();
+        try {
+            ApiClient client = new ApiClient.Builder()
+                    .baseUrl(server.url("/").toString())
+                    .circuitBreaker(1, 0, TimeUnit.MILLISECONDS)
+                    .build();
+            ApiService apiService = client.create(ApiService.class);
+
+            assertEquals(500, apiService.getUserLocation(TEST_USER_ID).execute().code());
+            assertEquals(CircuitBreaker.State.OPEN, client.getCircuitBreaker().getState());
+
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            final CountDownLatch done = new CountDownLatch(1);
+            apiService.getUserLocation(TEST_USER_ID).enqueue(new Callback<Location>() {
+                @Override
+                public void onResponse(Call<Location> call, Response<Location> response) {
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(Call<Location> call, Throwable t) {
+                    failure.set(t);
+                    done.countDown();
+                }
+            });
+            assertTrue(done.await(2, TimeUnit.SECONDS));
+            assertTrue(failure.get() instanceof JsonParseException);
+
+            try {
+                apiService.getUserLocation(TEST_USER_ID).execute();
+                fail("Should have failed to parse");
+            } catch (JsonParseException expected) {
+                // The synchronous probe must release the circuit as well
+            }
+
+            assertEquals(200, apiService.getUserLocation(TEST_USER_ID).execute().code());
+            assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitBreaker().getState());
+            assertEquals(4, server.getRequestCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private void recordFailures(int failures) {
+        for (int i = 0; i < failures; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.recordFailure();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.utils.DateUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * Unit tests for the DateUtils class.
+ * Tests the ISO 8601 format of timestamps, including when formatting from many threads at once.
+ */
+public class DateUtilsTest {
+    private static final long TEST_MILLIS = 1_704_542_400_123L;
+
+    /**
+     * Tests that a timestamp is formatted in UTC with milliseconds and parses back to the same instant.
+     */
+    @Test
+    public void formatMongoDate_RoundTrips() {
+        String formatted = DateUtils.formatMongoDate(TEST_MILLIS);
+
+        assertEquals("2024-01-06T12:00:00.123Z", formatted);
+        assertEquals(TEST_MILLIS, DateUtils.parseISODate(formatted));
+    }
+
+    /**
+     * Tests that formatting from concurrent threads never produces a corrupted timestamp.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void formatMongoDate_IsThreadSafe() throws Exception {
+        final AtomicInteger mismatches = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final long base = TEST_MILLIS + t * 86_400_000L;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    long millis = base + i * 1_001L;
+                    if (DateUtils.parseISODate(DateUtils.formatMongoDate(millis)) != millis) {
+                        mismatches.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, mismatches.get());
+    }
+}
@@ -0,0 +1,119 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.filter.DeadReckoningFilter;
+import com.omri.trackinglibrary.filter.MotionModel;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.utils.DateUtils;
+import com.omri.trackinglibrary.utils.GeoUtils;
+import com.omri.trackinglibrary.utils.TimeSource;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the MotionModel and DeadReckoningFilter classes using a controllable time source.
+ * Tests constant-velocity extrapolation and suppression of fixes that match the prediction.
+ */
+public class DeadReckoningFilterTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final String OTHER_USER_ID = "507f1f77bcf86cd799439012";
+    private static final double TEST_LATITUDE = 32.109333;
+    private static final double TEST_LONGITUDE = 34.855499;
+
+    /**
+     * About 111 meters of latitude, covered every 10 seconds at highway speed.
+     */
+    private static final double STEP = 0.001;
+    private static final long STEP_MILLIS = 10_000L;
+
+    private long now;
+    private MotionModel model;
+    private DeadReckoningFilter filter;
+
+    /**
+     * Sets up a filter with a 20 meter maximum deviation and a five minute maximum silence.
+     */
+    @Before
+    public void setUp() {
+        now = 1_700_000_000_000L;
+        TimeSource clock = () -> now;
+        model = new MotionModel(clock);
+        filter = new DeadReckoningFilter(model, 20, 300_000L, clock);
+    }
+
+    /**
+     * Tests that the model extrapolates along the velocity between the two most recent positions.
+     */
+    @Test
+    public void predict_extrapolatesConstantVelocity() {
+        observe(TEST_LATITUDE);
+        now += STEP_MILLIS;
+        observe(TEST_LATITUDE + STEP);
+
+        Location predicted = model.predict(TEST_USER_ID, now + 2 * STEP_MILLIS);
+
+        assertEquals(TEST_LATITUDE + 3 * STEP, predicted.getLatitude(), 1e-9);
+        assertEquals(TEST_LONGITUDE, predicted.getLongitude(), 1e-9);
+        assertEquals(DateUtils.formatMongoDate(now + 2 * STEP_MILLIS), predicted.getLastUpdated());
+        assertEquals(STEP * Math.toRadians(GeoUtils.EARTH_RADIUS_METERS) / 10,
+                model.getState(TEST_USER_ID).getNorthVelocity(), 1e-6);
+    }
+
+    /**
+     * Tests that locations that are not newer than the current model are ignored.
+     */
+    @Test
+    public void update_ignoresOlderLocations() {
+        observe(TEST_LATITUDE + STEP);
+        model.update(new Location(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE,
+                DateUtils.formatMongoDate(now - STEP_MILLIS)));
+
+        assertEquals(TEST_LATITUDE + STEP, model.getState(TEST_USER_ID).getLatitude(), 1e-9);
+        assertEquals(0, model.getState(TEST_USER_ID).getNorthVelocity(), 0);
+    }
+
+    /**
+     * Tests that a fix on the predicted track is suppressed while a turn is sent.
+     */
+    @Test
+    public void filter_suppressesPredictedFixAndSendsTurn() {
+        observe(TEST_LATITUDE);
+        now += STEP_MILLIS;
+        observe(TEST_LATITUDE + STEP);
+        now += STEP_MILLIS;
+
+        Location predicted = filter.filter(TEST_USER_ID, TEST_LATITUDE + 2 * STEP, TEST_LONGITUDE);
+        assertNotNull(predicted);
+        assertEquals(TEST_LATITUDE + 2 * STEP, predicted.getLatitude(), 1e-9);
+
+        assertNull(filter.filter(TEST_USER_ID, TEST_LATITUDE + STEP, TEST_LONGITUDE + STEP));
+        assertEquals(1, filter.getSuppressedCount());
+    }
+
+    /**
+     * Tests that fixes are sent for unknown users and after the maximum silence interval.
+     */
+    @Test
+    public void filter_sendsUnknownUsersAndHeartbeats() {
+        observe(TEST_LATITUDE);
+
+        assertNull(filter.filter(OTHER_USER_ID, TEST_LATITUDE, TEST_LONGITUDE));
+        assertNotNull(filter.filter(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE));
+
+        now += 300_000L;
+        assertNull(filter.filter(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE));
+    }
+
+    /**
+     * Tests that negative thresholds are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeThreshold_throwsException() {
+        new DeadReckoningFilter(model, -1, 1000);
+    }
+
+    private void observe(double latitude) {
+        model.update(new Location(TEST_USER_ID, latitude, TEST_LONGITUDE, DateUtils.formatMongoDate(now)));
+    }
+}
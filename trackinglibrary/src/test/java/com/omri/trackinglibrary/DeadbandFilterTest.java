@@ -0,0 +1,97 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.filter.DeadbandFilter;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.utils.GeoUtils;
+import com.omri.trackinglibrary.utils.TimeSource;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the DeadbandFilter class using a controllable time source.
+ * Tests suppression of nearby fixes, the maximum silence interval and per-user state.
+ */
+public class DeadbandFilterTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final String OTHER_USER_ID = "507f1f77bcf86cd799439012";
+    private static final double TEST_LATITUDE = 32.109333;
+    private static final double TEST_LONGITUDE = 34.855499;
+
+    /**
+     * About 5.5 meters of latitude.
+     */
+    private static final double SMALL_STEP = 0.00005;
+
+    /**
+     * About 55 meters of latitude.
+     */
+    private static final double LARGE_STEP = 0.0005;
+
+    private long now;
+    private DeadbandFilter filter;
+
+    /**
+     * Sets up a filter with a 20 meter dead band and a one minute maximum silence.
+     */
+    @Before
+    public void setUp() {
+        now = 1_000_000L;
+        filter = new DeadbandFilter(20.0, 60_000L, new TimeSource() {
+            @Override
+            public long currentTimeMillis() {
+                return now;
+            }
+        });
+    }
+
+    /**
+     * Tests that the first fix of a user is always sent.
+     */
+    @Test
+    public void filter_SendsFirstFix() {
+        assertNull(filter.filter(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE));
+    }
+
+    /**
+     * Tests that a fix within the dead band is suppressed with the acknowledged location,
+     * and that a fix outside it is sent.
+     */
+    @Test
+    public void filter_SuppressesNearbyFixes() {
+        Location acknowledged = acknowledge(TEST_USER_ID);
+
+        assertSame(acknowledged, filter.filter(TEST_USER_ID, TEST_LATITUDE + SMALL_STEP, TEST_LONGITUDE));
+        assertNull(filter.filter(TEST_USER_ID, TEST_LATITUDE + LARGE_STEP, TEST_LONGITUDE));
+        assertNull(filter.filter(OTHER_USER_ID, TEST_LATITUDE + SMALL_STEP, TEST_LONGITUDE));
+        assertEquals(1, filter.getSuppressedCount());
+    }
+
+    /**
+     * Tests that a nearby fix is sent once the maximum silence interval has passed.
+     */
+    @Test
+    public void filter_SendsAfterMaxSilence() {
+        acknowledge(TEST_USER_ID);
+        now += 60_000L;
+
+        assertNull(filter.filter(TEST_USER_ID, TEST_LATITUDE + SMALL_STEP, TEST_LONGITUDE));
+    }
+
+    /**
+     * Tests the haversine distance against a known value.
+     */
+    @Test
+    public void distanceMeters_MatchesKnownDistance() {
+        // One degree of latitude is about 111.2 km
+        assertEquals(111_195, GeoUtils.distanceMeters(0, 0, 1, 0), 10);
+        assertEquals(0, GeoUtils.distanceMeters(TEST_LATITUDE, TEST_LONGITUDE, TEST_LATITUDE, TEST_LONGITUDE), 0.0);
+    }
+
+    private Location acknowledge(String userId) {
+        Location location = new Location(userId, TEST_LATITUDE, TEST_LONGITUDE, "2024-01-06T12:00:00.000Z");
+        filter.onAcknowledged(location);
+        return location;
+    }
+}
@@ -0,0 +1,104 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.cache.CacheStats;
+import com.omri.trackinglibrary.cache.ExpiringCache;
+import com.omri.trackinglibrary.utils.TimeSource;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the ExpiringCache class using a controllable time source.
+ * Tests freshness, the stale window, LRU eviction and the cache counters.
+ */
+public class ExpiringCacheTest {
+    private static final long TTL_MILLIS = 1_000L;
+    private static final long MAX_STALE_MILLIS = 5_000L;
+
+    private long now;
+    private ExpiringCache<String, String> cache;
+
+    /**
+     * Sets up a cache with room for two entries and a time source controlled by the test.
+     */
+    @Before
+    public void setUp() {
+        now = 1_000_000L;
+        TimeSource timeSource = new TimeSource() {
+            @Override
+            public long currentTimeMillis() {
+                return now;
+            }
+        };
+        cache = new ExpiringCache<>(2, TTL_MILLIS, MAX_STALE_MILLIS, timeSource);
+    }
+
+    /**
+     * Tests that an entry is fresh within its TTL, stale afterwards, and missing after the stale window.
+     */
+    @Test
+    public void get_ReportsFreshStaleAndExpiredEntries() {
+        cache.put("a", "value");
+
+        ExpiringCache.Entry<String> fresh = cache.get("a");
+        assertNotNull(fresh);
+        assertFalse(fresh.isStale());
+
+        now += TTL_MILLIS;
+        ExpiringCache.Entry<String> stale = cache.get("a");
+        assertNotNull(stale);
+        assertTrue(stale.isStale());
+        assertEquals("value", stale.getValue());
+
+        now += MAX_STALE_MILLIS;
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+
+        CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getStaleHitCount());
+        assertEquals(1, stats.getMissCount());
+    }
+
+    /**
+     * Tests that the least recently used entry is evicted when the cache is full.
+     */
+    @Test
+    public void put_EvictsLeastRecentlyUsedEntry() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(1, cache.getStats().getEvictionCount());
+    }
+
+    /**
+     * Tests that storing a value again makes a stale entry fresh.
+     */
+    @Test
+    public void put_RefreshesStaleEntry() {
+        cache.put("a", "old");
+        now += TTL_MILLIS + 1;
+        cache.put("a", "new");
+
+        ExpiringCache.Entry<String> entry = cache.get("a");
+        assertFalse(entry.isStale());
+        assertEquals("new", entry.getValue());
+    }
+
+    /**
+     * Tests that an invalidated entry is no longer served.
+     */
+    @Test
+    public void invalidate_RemovesEntry() {
+        cache.put("a", "1");
+        cache.invalidate("a");
+
+        assertNull(cache.get("a"));
+    }
+}
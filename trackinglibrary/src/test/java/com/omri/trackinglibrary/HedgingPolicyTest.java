@@ -0,0 +1,150 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.api.ApiClient;
+import com.omri.trackinglibrary.api.ApiService;
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.network.HedgingCallAdapterFactory;
+import com.omri.trackinglibrary.network.HedgingPolicy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Unit tests for hedged reads of ApiClient calls against a local MockWebServer.
+ * Tests that a slow read is raced by a hedge, that the budget caps hedges, and that writes are never hedged.
+ */
+public class HedgingPolicyTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final String LOCATION_JSON = "{\"user_id\":\"" + TEST_USER_ID + "\",\"latitude\":32.1,"
+            + "\"longitude\":34.8,\"last_updated\":\"2024-01-06T12:00:00.000Z\"}";
+
+    private MockWebServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * Starts a local server whose first response is slow and whose later responses are fast.
+     *
+     * @throws Exception if the server cannot be started
+     */
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                MockResponse response = new MockResponse().setBody(LOCATION_JSON);
+                if (requests.getAndIncrement() == 0) {
+                    response.setHeadersDelay(600, TimeUnit.MILLISECONDS);
+                }
+                return response;
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Stops the local server.
+     *
+     * @throws Exception if the server cannot be stopped
+     */
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    /**
+     * Tests that a read still waiting after the hedge delay is answered by its hedge.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void slowRead_answeredByHedge() throws Exception {
+        ApiClient client = client(new HedgingPolicy(95, 20, 50, 1.0));
+        long start = System.nanoTime();
+
+        Response<Location> response = enqueue(client.create(ApiService.class).getUserLocation(TEST_USER_ID));
+
+        assertTrue(response.isSuccessful());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+        assertEquals(2, server.getRequestCount());
+        HedgingCallAdapterFactory hedging = client.getHedging();
+        assertEquals(1, hedging.getHedgeCount());
+        assertEquals(1, hedging.getHedgeWinCount());
+        assertTrue(hedging.getHedgeDelayMillis("GET api/locations/user/{userId}") <= 50);
+    }
+
+    /**
+     * Tests that no hedge is sent once the budget is used up.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void exhaustedBudget_skipsHedge() throws Exception {
+        ApiClient client = client(new HedgingPolicy(95, 20, 50, 0.0));
+
+        Response<Location> response = enqueue(client.create(ApiService.class).getUserLocation(TEST_USER_ID));
+
+        assertTrue(response.isSuccessful());
+        assertEquals(1, server.getRequestCount());
+        assertEquals(0, client.getHedging().getHedgeCount());
+        assertEquals(1, client.getHedging().getBudgetExhaustedCount());
+    }
+
+    /**
+     * Tests that location writes are never hedged.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void write_notHedged() throws Exception {
+        ApiClient client = client(new HedgingPolicy(95, 20, 50, 1.0));
+
+        Response<Location> response = enqueue(client.create(ApiService.class)
+                .updateLocation(new LocationUpdateRequest(TEST_USER_ID, 32.1, 34.8)));
+
+        assertTrue(response.isSuccessful());
+        assertEquals(1, server.getRequestCount());
+        assertEquals(0, client.getHedging().getHedgeCount());
+    }
+
+    private ApiClient client(HedgingPolicy policy) {
+        return new ApiClient.Builder()
+                .baseUrl(server.url("/").toString())
+                .hedgingPolicy(policy)
+                .build();
+    }
+
+    private static Response<Location> enqueue(Call<Location> call) throws InterruptedException {
+        final AtomicReference<Response<Location>> result = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        call.enqueue(new Callback<Location>() {
+            @Override
+            public void onResponse(Call<Location> c, Response<Location> response) {
+                result.set(response);
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Call<Location> c, Throwable t) {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotNull(result.get());
+        return result.get();
+    }
+}
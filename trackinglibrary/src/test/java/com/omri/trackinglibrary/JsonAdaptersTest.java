@@ -0,0 +1,101 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.api.UserLocationsRequest;
+import com.omri.trackinglibrary.api.UserStatusRequest;
+import com.omri.trackinglibrary.api.UserVerifyRequest;
+import com.omri.trackinglibrary.api.json.JsonAdapters;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.models.User;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for the streaming JSON adapters registered by JsonAdapters.
+ * Tests parsing of server responses, validation during parsing and the JSON written for requests.
+ */
+public class JsonAdaptersTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+
+    private final Gson gson = JsonAdapters.createGson();
+
+    /**
+     * Tests that a location is parsed and unknown fields are skipped.
+     */
+    @Test
+    public void location_ParsesAndSkipsUnknownFields() {
+        String json = "{\"_id\":\"abc\",\"user_id\":\"" + TEST_USER_ID + "\",\"latitude\":32.1,"
+                + "\"longitude\":34.8,\"last_updated\":\"2024-01-06T12:00:00.000Z\",\"extra\":{\"a\":[1,2]}}";
+
+        Location location = gson.fromJson(json, Location.class);
+
+        assertEquals(TEST_USER_ID, location.getUserId());
+        assertEquals(32.1, location.getLatitude(), 0.0);
+        assertEquals(34.8, location.getLongitude(), 0.0);
+        assertEquals("2024-01-06T12:00:00.000Z", location.getLastUpdated());
+    }
+
+    /**
+     * Tests that an invalid location from the server is rejected while parsing.
+     */
+    @Test(expected = JsonParseException.class)
+    public void location_RejectsInvalidCoordinates() {
+        gson.fromJson("{\"user_id\":\"" + TEST_USER_ID + "\",\"latitude\":91.0,\"longitude\":34.8}", Location.class);
+    }
+
+    /**
+     * Tests that a user ID is read from the "_id" field.
+     */
+    @Test
+    public void user_ParsesAlternateIdField() {
+        String json = "{\"_id\":\"" + TEST_USER_ID + "\",\"username\":\"testUser\","
+                + "\"created_at\":\"2024-01-06T12:00:00.000Z\",\"is_active\":true,\"__v\":0}";
+
+        User user = gson.fromJson(json, User.class);
+
+        assertEquals(TEST_USER_ID, user.getId());
+        assertEquals("testUser", user.getUsername());
+        assertTrue(user.isActive());
+    }
+
+    /**
+     * Tests that a user without an ID is rejected while parsing.
+     */
+    @Test(expected = JsonParseException.class)
+    public void user_RejectsMissingId() {
+        gson.fromJson("{\"username\":\"testUser\"}", User.class);
+    }
+
+    /**
+     * Tests that a list of locations is parsed with the registered adapter.
+     */
+    @Test
+    public void locationList_ParsesEveryElement() {
+        String json = "[{\"user_id\":\"" + TEST_USER_ID + "\",\"latitude\":1,\"longitude\":2},null]";
+
+        List<Location> locations = gson.fromJson(json, new TypeToken<List<Location>>() { }.getType());
+
+        assertEquals(2, locations.size());
+        assertEquals(1.0, locations.get(0).getLatitude(), 0.0);
+        assertNull(locations.get(1));
+    }
+
+    /**
+     * Tests that requests are written with the field names expected by the server.
+     */
+    @Test
+    public void requests_WriteServerFieldNames() {
+        assertEquals("{\"user_id\":\"" + TEST_USER_ID + "\",\"latitude\":32.5,\"longitude\":34.5}",
+                gson.toJson(new LocationUpdateRequest(TEST_USER_ID, 32.5, 34.5)));
+        assertEquals("{\"is_active\":true}", gson.toJson(new UserStatusRequest(true)));
+        assertEquals("{\"user_id\":\"" + TEST_USER_ID + "\"}", gson.toJson(new UserVerifyRequest(TEST_USER_ID)));
+        assertEquals("{\"user_ids\":[\"" + TEST_USER_ID + "\",\"other\"]}",
+                gson.toJson(new UserLocationsRequest(Arrays.asList(TEST_USER_ID, "other"))));
+    }
+}
@@ -0,0 +1,294 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+import com.omri.trackinglibrary.api.ApiService;
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.filter.TrajectorySimplifier;
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.upload.LocationBatcher;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Unit tests for the LocationBatcher class using a mock ApiService.
+ * Tests the size and age thresholds and the fan-out of batch results to each caller's callback.
+ */
+public class LocationBatcherTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final String TEST_TIMESTAMP = "2024-01-06T12:00:00.000Z";
+
+    private ApiService mockApiService;
+    private Call<List<Location>> mockCall;
+
+    /**
+     * Sets up a mock API service whose batch endpoint returns a mock call.
+     */
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        mockApiService = mock(ApiService.class);
+        mockCall = mock(Call.class);
+        when(mockApiService.updateLocations(anyList())).thenReturn(mockCall);
+    }
+
+    /**
+     * Tests that reaching the size threshold sends exactly one batch containing every update.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void submit_SendsBatchWhenSizeReached() {
+        LocationBatcher batcher = new LocationBatcher(mockApiService, 3, 60_000L);
+
+        batcher.submit(request(1), new RecordingCallback());
+        batcher.submit(request(2), new RecordingCallback());
+        verify(mockApiService, never()).updateLocations(anyList());
+
+        batcher.submit(request(3), new RecordingCallback());
+
+        ArgumentCaptor<List<LocationUpdateRequest>> captor = ArgumentCaptor.forClass(List.class);
+        verify(mockApiService, times(1)).updateLocations(captor.capture());
+        assertEquals(3, captor.getValue().size());
+        assertEquals(0, batcher.getPendingCount());
+        batcher.shutdown();
+    }
+
+    /**
+     * Tests that a partially filled buffer is sent once the age threshold is reached.
+     */
+    @Test
+    public void submit_SendsBatchWhenAgeReached() throws InterruptedException {
+        final CountDownLatch sent = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sent.countDown();
+            return null;
+        }).when(mockCall).enqueue(any());
+        LocationBatcher batcher = new LocationBatcher(mockApiService, 100, 50L);
+
+        batcher.submit(request(1), new RecordingCallback());
+
+        assertTrue("Batch should be sent after the age threshold", sent.await(2, TimeUnit.SECONDS));
+        verify(mockApiService, times(1)).updateLocations(anyList());
+        batcher.shutdown();
+    }
+
+    /**
+     * Tests that each caller receives the location at its own position in the batch response.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void batchResponse_IsFannedOutInOrder() {
+        LocationBatcher batcher = new LocationBatcher(mockApiService, 2, 60_000L);
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+
+        batcher.submit(request(1), first);
+        batcher.submit(request(2), second);
+
+        ArgumentCaptor<Callback<List<Location>>> captor = ArgumentCaptor.forClass(Callback.class);
+        verify(mockCall).enqueue(captor.capture());
+        captor.getValue().onResponse(mockCall, Response.success(Arrays.asList(location(1), location(2))));
+
+        assertEquals(1.0, first.locations.get(0).getLatitude(), 0.0);
+        assertEquals(2.0, second.locations.get(0).getLatitude(), 0.0);
+        assertTrue(first.errors.isEmpty());
+        assertTrue(second.errors.isEmpty());
+        batcher.shutdown();
+    }
+
+    /**
+     * Tests that a network failure of the batch is reported to every caller.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void batchFailure_IsReportedToEveryCaller() {
+        LocationBatcher batcher = new LocationBatcher(mockApiService, 2, 60_000L);
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+
+        batcher.submit(request(1), first);
+        batcher.submit(request(2), second);
+
+        ArgumentCaptor<Callback<List<Location>>> captor = ArgumentCaptor.forClass(Callback.class);
+        verify(mockCall).enqueue(captor.capture());
+        captor.getValue().onFailure(mockCall, new IOException("timeout"));
+
+        assertEquals(1, first.errors.size());
+        assertEquals(1, second.errors.size());
+        assertTrue(first.locations.isEmpty());
+        batcher.shutdown();
+    }
+
+    /**
+     * Tests that flush sends buffered updates before any threshold is reached.
+     */
+    @Test
+    public void flush_SendsBufferedUpdates() {
+        LocationBatcher batcher = new LocationBatcher(mockApiService, 100, 60_000L);
+
+        batcher.submit(request(1), new RecordingCallback());
+        batcher.flush();
+
+        verify(mockApiService, times(1)).updateLocations(anyList());
+        assertEquals(0, batcher.getPendingCount());
+        batcher.shutdown();
+    }
+
+    /**
+     * Tests that a binary batch rejected with 415 is resent as JSON and that later batches use JSON.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void binaryEncoding_FallsBackToJsonOn415() {
+        Call<List<Location>> binaryCall = mock(Call.class);
+        when(mockApiService.updateLocationsEncoded(any(RequestBody.class))).thenReturn(binaryCall);
+        LocationBatcher batcher = new LocationBatcher(mockApiService, 1, 60_000L);
+        batcher.setBinaryEncoding(true);
+        RecordingCallback callback = new RecordingCallback();
+
+        batcher.submit(request(1), callback);
+
+        ArgumentCaptor<Callback<List<Location>>> captor = ArgumentCaptor.forClass(Callback.class);
+        verify(binaryCall).enqueue(captor.capture());
+        captor.getValue().onResponse(binaryCall, Response.<List<Location>>error(415,
+                ResponseBody.create(MediaType.parse("text/plain"), "Unsupported Media Type")));
+
+        verify(mockApiService, times(1)).updateLocations(anyList());
+        assertFalse(batcher.isBinaryEncodingActive());
+        assertTrue(callback.errors.isEmpty());
+        batcher.shutdown();
+    }
+
+    /**
+     * Tests that a JSON fallback also rejected with 415 fails the batch instead of being resent.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void binaryEncoding_SecondRejectionFailsBatch() {
+        Call<List<Location>> binaryCall = mock(Call.class);
+        when(mockApiService.updateLocationsEncoded(any(RequestBody.class))).thenReturn(binaryCall);
+        LocationBatcher batcher = new LocationBatcher(mockApiService, 1, 60_000L);
+        batcher.setBinaryEncoding(true);
+        RecordingCallback callback = new RecordingCallback();
+
+        batcher.submit(request(1), callback);
+
+        ArgumentCaptor<Callback<List<Location>>> binaryCaptor = ArgumentCaptor.forClass(Callback.class);
+        verify(binaryCall).enqueue(binaryCaptor.capture());
+        binaryCaptor.getValue().onResponse(binaryCall, unsupportedMediaType());
+        ArgumentCaptor<Callback<List<Location>>> jsonCaptor = ArgumentCaptor.forClass(Callback.class);
+        verify(mockCall).enqueue(jsonCaptor.capture());
+        jsonCaptor.getValue().onResponse(mockCall, unsupportedMediaType());
+
+        verify(mockApiService, times(1)).updateLocations(anyList());
+        verify(mockCall, times(1)).enqueue(any(Callback.class));
+        assertEquals(1, callback.errors.size());
+        assertTrue(callback.locations.isEmpty());
+        batcher.shutdown();
+    }
+
+    /**
+     * Tests that fixes dropped by the simplifier are reported as superseded only once the batch is delivered.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void simplifier_SupersedesDroppedFixesOnlyOnSuccess() {
+        LocationBatcher batcher = new LocationBatcher(mockApiService, 3, 60_000L);
+        batcher.setSimplifier(new TrajectorySimplifier(10));
+        RecordingCallback[] callbacks = submitStraightTrack(batcher);
+
+        ArgumentCaptor<Callback<List<Location>>> captor = ArgumentCaptor.forClass(Callback.class);
+        verify(mockCall).enqueue(captor.capture());
+        assertEquals(0, callbacks[1].superseded);
+        captor.getValue().onResponse(mockCall, Response.success(Arrays.asList(location(1), location(3))));
+
+        assertEquals(1, callbacks[0].locations.size());
+        assertEquals(1, callbacks[1].superseded);
+        assertTrue(callbacks[1].locations.isEmpty());
+        assertEquals(3.0, callbacks[2].locations.get(0).getLatitude(), 0.0);
+        batcher.shutdown();
+    }
+
+    /**
+     * Tests that fixes dropped by the simplifier receive the batch error when delivery fails.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void simplifier_FailsDroppedFixesWithBatch() {
+        LocationBatcher batcher = new LocationBatcher(mockApiService, 3, 60_000L);
+        batcher.setSimplifier(new TrajectorySimplifier(10));
+        RecordingCallback[] callbacks = submitStraightTrack(batcher);
+
+        ArgumentCaptor<Callback<List<Location>>> captor = ArgumentCaptor.forClass(Callback.class);
+        verify(mockCall).enqueue(captor.capture());
+        captor.getValue().onFailure(mockCall, new IOException("offline"));
+
+        for (RecordingCallback callback : callbacks) {
+            assertEquals(1, callback.errors.size());
+            assertEquals(0, callback.superseded);
+        }
+        batcher.shutdown();
+    }
+
+    private static RecordingCallback[] submitStraightTrack(LocationBatcher batcher) {
+        RecordingCallback[] callbacks = new RecordingCallback[3];
+        for (int i = 0; i < callbacks.length; i++) {
+            callbacks[i] = new RecordingCallback();
+            batcher.submit(request(i + 1), callbacks[i]);
+        }
+        return callbacks;
+    }
+
+    private static Response<List<Location>> unsupportedMediaType() {
+        return Response.error(415, ResponseBody.create(MediaType.parse("text/plain"), "Unsupported Media Type"));
+    }
+
+    private static LocationUpdateRequest request(double latitude) {
+        return new LocationUpdateRequest(TEST_USER_ID, latitude, 34.0);
+    }
+
+    private static Location location(double latitude) {
+        return new Location(TEST_USER_ID, latitude, 34.0, TEST_TIMESTAMP);
+    }
+
+    /**
+     * LocationCallback that records every result it receives.
+     */
+    private static class RecordingCallback implements LocationCallback {
+        final List<Location> locations = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        int superseded;
+
+        @Override
+        public void onSuccess(Location location) {
+            locations.add(location);
+        }
+
+        @Override
+        public void onError(String error) {
+            errors.add(error);
+        }
+
+        @Override
+        public void onSuperseded() {
+            superseded++;
+        }
+    }
+}
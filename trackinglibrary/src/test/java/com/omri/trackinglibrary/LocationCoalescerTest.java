@@ -0,0 +1,128 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.upload.LocationCoalescer;
+import com.omri.trackinglibrary.upload.LocationSender;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for the LocationCoalescer class using a recording downstream sender.
+ * Tests that only the latest pending update per user is sent and that replaced updates are superseded.
+ */
+public class LocationCoalescerTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final String OTHER_USER_ID = "507f1f77bcf86cd799439012";
+    private static final String TEST_TIMESTAMP = "2024-01-06T12:00:00.000Z";
+
+    private final List<LocationUpdateRequest> sentRequests = new ArrayList<>();
+    private final List<LocationCallback> sentCallbacks = new ArrayList<>();
+    private LocationCoalescer coalescer;
+
+    /**
+     * Sets up a coalescer in front of a downstream sender that records every submitted update.
+     */
+    @Before
+    public void setUp() {
+        LocationSender downstream = new LocationSender() {
+            @Override
+            public void submit(LocationUpdateRequest request, LocationCallback callback) {
+                sentRequests.add(request);
+                sentCallbacks.add(callback);
+            }
+        };
+        coalescer = new LocationCoalescer(downstream);
+    }
+
+    /**
+     * Tests that only the newest of several queued updates is sent after the in-flight update completes.
+     */
+    @Test
+    public void submit_SendsOnlyLatestPendingUpdate() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        RecordingCallback third = new RecordingCallback();
+
+        coalescer.submit(request(TEST_USER_ID, 1), first);
+        coalescer.submit(request(TEST_USER_ID, 2), second);
+        coalescer.submit(request(TEST_USER_ID, 3), third);
+
+        assertEquals(1, sentRequests.size());
+        assertEquals(1, second.superseded);
+
+        sentCallbacks.get(0).onSuccess(location(1));
+
+        assertEquals(1, first.locations.size());
+        assertEquals(2, sentRequests.size());
+        assertEquals(3.0, sentRequests.get(1).getLatitude(), 0.0);
+
+        sentCallbacks.get(1).onSuccess(location(3));
+        assertEquals(1, third.locations.size());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    /**
+     * Tests that updates for different users are not coalesced with each other.
+     */
+    @Test
+    public void submit_DoesNotCoalesceDifferentUsers() {
+        coalescer.submit(request(TEST_USER_ID, 1), new RecordingCallback());
+        coalescer.submit(request(OTHER_USER_ID, 2), new RecordingCallback());
+
+        assertEquals(2, sentRequests.size());
+        assertEquals(2, coalescer.getInFlightCount());
+    }
+
+    /**
+     * Tests that a failed in-flight update still releases the pending update.
+     */
+    @Test
+    public void error_ReleasesPendingUpdate() {
+        RecordingCallback first = new RecordingCallback();
+        coalescer.submit(request(TEST_USER_ID, 1), first);
+        coalescer.submit(request(TEST_USER_ID, 2), new RecordingCallback());
+
+        sentCallbacks.get(0).onError("Code: 500, Error: ");
+
+        assertEquals(1, first.errors.size());
+        assertEquals(2, sentRequests.size());
+    }
+
+    private static LocationUpdateRequest request(String userId, double latitude) {
+        return new LocationUpdateRequest(userId, latitude, 34.0);
+    }
+
+    private static Location location(double latitude) {
+        return new Location(TEST_USER_ID, latitude, 34.0, TEST_TIMESTAMP);
+    }
+
+    /**
+     * LocationCallback that records every outcome it receives.
+     */
+    private static class RecordingCallback implements LocationCallback {
+        final List<Location> locations = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        int superseded;
+
+        @Override
+        public void onSuccess(Location location) {
+            locations.add(location);
+        }
+
+        @Override
+        public void onError(String error) {
+            errors.add(error);
+        }
+
+        @Override
+        public void onSuperseded() {
+            superseded++;
+        }
+    }
+}
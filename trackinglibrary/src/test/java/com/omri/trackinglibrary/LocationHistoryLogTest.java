@@ -0,0 +1,187 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.history.LocationHistoryLog;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.utils.DateUtils;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the LocationHistoryLog class against files in a temporary directory.
+ * Tests range reads across segments, recovery after reopening, retention and compaction.
+ */
+public class LocationHistoryLogTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final String OTHER_USER_ID = "507f1f77bcf86cd799439012";
+    private static final long START_MILLIS = 1_704_067_200_000L;
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+    private static final int RECORDS_PER_SEGMENT = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong now = new AtomicLong(START_MILLIS);
+    private File directory;
+    private LocationHistoryLog log;
+
+    /**
+     * Opens a log with small segments and a one day retention period.
+     *
+     * @throws IOException if the log cannot be opened
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = new File(folder.getRoot(), "history");
+        log = open();
+    }
+
+    /**
+     * Closes the log.
+     *
+     * @throws IOException if the log cannot be closed
+     */
+    @After
+    public void tearDown() throws IOException {
+        log.close();
+    }
+
+    /**
+     * Tests that a range read returns only the user's locations within the window, across a segment boundary.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Test
+    public void read_ReturnsUserLocationsWithinWindow() throws IOException {
+        appendMinutes(0, 250);
+
+        List<Location> locations = log.read(TEST_USER_ID, START_MILLIS + 60_000 * 90L, START_MILLIS + 60_000 * 109L);
+
+        assertEquals(3, log.getSegmentCount());
+        assertEquals(10, locations.size());
+        for (int i = 0; i < locations.size(); i++) {
+            Location location = locations.get(i);
+            assertEquals(TEST_USER_ID, location.getUserId());
+            assertEquals(32.0 + (90 + 2 * i) * 0.0001, location.getLatitude(), 1e-7);
+            assertEquals(34.8, location.getLongitude(), 1e-7);
+            assertEquals(START_MILLIS + 60_000 * (90L + 2 * i), DateUtils.parseISODate(location.getLastUpdated()));
+        }
+        assertTrue(log.read("unknown", Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+    }
+
+    /**
+     * Tests that the records and users survive reopening, and that a torn record at the tail is discarded.
+     *
+     * @throws IOException if the log cannot be written or reopened
+     */
+    @Test
+    public void reopen_RecoversRecordsAndDiscardsTornTail() throws IOException {
+        appendMinutes(0, 150);
+        log.close();
+        File lastSegment = new File(directory, "segment-0000000000000002.log");
+        try (RandomAccessFile file = new RandomAccessFile(lastSegment, "rw")) {
+            file.seek(24 + 49 * 24 + 14);
+            file.writeByte(0x7F);
+        }
+
+        log = open();
+
+        assertEquals(149, log.getRecordCount());
+        assertEquals(75, log.read(TEST_USER_ID, Long.MIN_VALUE, Long.MAX_VALUE).size());
+        assertEquals(74, log.read(OTHER_USER_ID, Long.MIN_VALUE, Long.MAX_VALUE).size());
+        log.append(TEST_USER_ID, 1, 1, START_MILLIS + HOUR_MILLIS);
+        assertEquals(150, log.getRecordCount());
+    }
+
+    /**
+     * Tests that segments older than the retention period are deleted, keeping the active segment.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Test
+    public void applyRetention_DeletesExpiredSegments() throws IOException {
+        appendMinutes(0, 300);
+        now.set(START_MILLIS + 24 * HOUR_MILLIS + 60_000 * 150L);
+
+        assertEquals(1, log.applyRetention());
+
+        assertEquals(2, log.getSegmentCount());
+        assertEquals(200, log.getRecordCount());
+        assertTrue(log.read(TEST_USER_ID, Long.MIN_VALUE, START_MILLIS + 60_000 * 99L).isEmpty());
+    }
+
+    /**
+     * Tests that compaction merges older segments, dropping expired and repeated records but no live ones.
+     *
+     * @throws IOException if the log cannot be written or reopened
+     */
+    @Test
+    public void compact_MergesSegmentsAndDropsRepeatedRecords() throws IOException {
+        for (int i = 0; i < RECORDS_PER_SEGMENT; i++) {
+            log.append(TEST_USER_ID, 32, 34.8, START_MILLIS + 60_000L * (i / 2));
+        }
+        for (int i = 0; i < RECORDS_PER_SEGMENT; i++) {
+            log.append(OTHER_USER_ID, 32 + i * 0.001, 34.8, START_MILLIS + 60_000L * (100 + i / 2));
+        }
+        log.append(TEST_USER_ID, 33, 35, START_MILLIS + 60_000L * 300);
+        now.set(START_MILLIS + 24 * HOUR_MILLIS + 60_000L * 130);
+
+        assertEquals(1, log.compact());
+
+        assertEquals(2, log.getSegmentCount());
+        assertEquals(20 + 1, log.getRecordCount());
+        List<Location> other = log.read(OTHER_USER_ID, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(20, other.size());
+        assertEquals(32.061, other.get(0).getLatitude(), 1e-7);
+
+        log.close();
+        log = open();
+        assertEquals(21, log.getRecordCount());
+        assertEquals(1, log.read(TEST_USER_ID, Long.MIN_VALUE, Long.MAX_VALUE).size());
+        assertEquals(20, log.read(OTHER_USER_ID, Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    /**
+     * Tests that an incomplete compacted segment left by a crash is discarded when the log is opened.
+     *
+     * @throws IOException if the log cannot be written or reopened
+     */
+    @Test
+    public void reopen_DiscardsIncompleteCompaction() throws IOException {
+        appendMinutes(0, 10);
+        log.close();
+        File temp = new File(directory, "segment-0000000000000001.log.tmp");
+        try (RandomAccessFile file = new RandomAccessFile(temp, "rw")) {
+            file.setLength(1024);
+        }
+
+        log = open();
+
+        assertFalse(temp.exists());
+        assertEquals(10, log.getRecordCount());
+    }
+
+    private LocationHistoryLog open() throws IOException {
+        return new LocationHistoryLog(directory, RECORDS_PER_SEGMENT, 24 * HOUR_MILLIS, now::get);
+    }
+
+    /**
+     * Appends one location per minute, alternating between two users.
+     */
+    private void appendMinutes(int from, int to) throws IOException {
+        for (int minute = from; minute < to; minute++) {
+            String userId = minute % 2 == 0 ? TEST_USER_ID : OTHER_USER_ID;
+            log.append(new Location(userId, 32.0 + minute * 0.0001, 34.8,
+                    DateUtils.formatMongoDate(START_MILLIS + 60_000L * minute)));
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.upload.LocationIngestionQueue;
+import com.omri.trackinglibrary.upload.LocationSender;
+import com.omri.trackinglibrary.upload.OverflowPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests for the LocationIngestionQueue class using a downstream sender that can be held.
+ * Tests each overflow policy on a full queue and ordered, lossless hand-off with concurrent producers.
+ */
+public class LocationIngestionQueueTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final int CAPACITY = 4;
+
+    private final List<Double> sentLatitudes = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstReceived = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+    private LocationIngestionQueue queue;
+
+    /**
+     * Shuts down the queue under test.
+     */
+    @After
+    public void tearDown() {
+        released.countDown();
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    /**
+     * Tests that an update arriving at a full queue is rejected under DROP_NEWEST.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void dropNewest_RejectsArrivingUpdate() throws Exception {
+        queue = heldQueue(OverflowPolicy.DROP_NEWEST, 1, 0);
+        RecordingCallback overflowing = new RecordingCallback();
+
+        queue.submit(request(5), overflowing);
+
+        assertEquals(1, overflowing.errors.size());
+        assertEquals(1, queue.getDroppedCount());
+        assertEquals(0, queue.getDisplacedCount());
+        assertSent(0, 1, 2, 3, 4);
+    }
+
+    /**
+     * Tests that an update arriving at a full queue replaces the oldest queued update under DROP_OLDEST.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void dropOldest_SupersedesOldestQueuedUpdate() throws Exception {
+        List<RecordingCallback> queued = new ArrayList<>();
+        queue = heldQueue(OverflowPolicy.DROP_OLDEST, 1, 0, queued);
+
+        queue.submit(request(5), new RecordingCallback());
+
+        assertEquals(1, queued.get(0).superseded);
+        assertEquals(1, queue.getDisplacedCount());
+        assertEquals(0, queue.getDroppedCount());
+        assertSent(0, 2, 3, 4, 5);
+    }
+
+    /**
+     * Tests that only every Nth update arriving at a full queue is kept under SAMPLE.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void sample_KeepsEveryNthOverflowingUpdate() throws Exception {
+        queue = heldQueue(OverflowPolicy.SAMPLE, 3, 0);
+
+        for (int i = 5; i <= 10; i++) {
+            queue.submit(request(i), new RecordingCallback());
+        }
+
+        assertEquals(6, queue.getOverflowCount());
+        assertEquals(4, queue.getDroppedCount());
+        assertEquals(2, queue.getDisplacedCount());
+        assertSent(0, 3, 4, 7, 10);
+    }
+
+    /**
+     * Tests that a caller waits for room under BLOCK, and that the update is dropped after the timeout.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void block_WaitsForRoomUntilTimeout() throws Exception {
+        queue = heldQueue(OverflowPolicy.BLOCK, 1, 50);
+        RecordingCallback timedOut = new RecordingCallback();
+
+        long start = System.nanoTime();
+        queue.submit(request(5), timedOut);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, timedOut.errors.size());
+
+        Thread releaser = new Thread(() -> {
+            sleep(20);
+            released.countDown();
+        });
+        releaser.start();
+        RecordingCallback waited = new RecordingCallback();
+        queue.submit(request(6), waited);
+        releaser.join();
+
+        assertTrue(waited.errors.isEmpty());
+        assertEquals(1, queue.getDroppedCount());
+        awaitSent(6);
+        assertEquals(6.0 / 1000, sentLatitudes.get(5), 0.0);
+    }
+
+    /**
+     * Tests that concurrent producers lose no updates and that each producer's updates stay in order.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void concurrentProducers_DeliverEveryUpdateInOrder() throws Exception {
+        final int producers = 4;
+        final int perProducer = 20_000;
+        final Map<String, Double> lastSent = new ConcurrentHashMap<>();
+        final AtomicInteger outOfOrder = new AtomicInteger();
+        final AtomicInteger sent = new AtomicInteger();
+        queue = new LocationIngestionQueue(new LocationSender() {
+            @Override
+            public void submit(LocationUpdateRequest request, LocationCallback callback) {
+                Double previous = lastSent.put(request.getUserId(), request.getLatitude());
+                if (previous != null && previous >= request.getLatitude()) {
+                    outOfOrder.incrementAndGet();
+                }
+                sent.incrementAndGet();
+            }
+        }, 256, OverflowPolicy.BLOCK, 1, 10_000);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final String userId = TEST_USER_ID.substring(0, 23) + p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    queue.submit(new LocationUpdateRequest(userId, i / 1000.0, 34.8), new RecordingCallback());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sent.get() < producers * perProducer && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(producers * perProducer, sent.get());
+        assertEquals(0, outOfOrder.get());
+        assertEquals(0, queue.getDroppedCount());
+        assertEquals(0, queue.getQueuedCount());
+    }
+
+    private LocationIngestionQueue heldQueue(OverflowPolicy policy, int sampleEvery, long blockTimeoutMillis)
+            throws InterruptedException {
+        return heldQueue(policy, sampleEvery, blockTimeoutMillis, new ArrayList<RecordingCallback>());
+    }
+
+    /**
+     * Creates a queue whose downstream holds the first update until released, and fills it to capacity
+     * with updates 1 to 4 behind the held update 0.
+     */
+    private LocationIngestionQueue heldQueue(OverflowPolicy policy, int sampleEvery, long blockTimeoutMillis,
+                                             List<RecordingCallback> queued) throws InterruptedException {
+        LocationIngestionQueue created = new LocationIngestionQueue(new LocationSender() {
+            @Override
+            public void submit(LocationUpdateRequest request, LocationCallback callback) {
+                sentLatitudes.add(request.getLatitude());
+                firstReceived.countDown();
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, CAPACITY, policy, sampleEvery, blockTimeoutMillis);
+        created.submit(request(0), new RecordingCallback());
+        assertTrue(firstReceived.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= CAPACITY; i++) {
+            RecordingCallback callback = new RecordingCallback();
+            queued.add(callback);
+            created.submit(request(i), callback);
+        }
+        assertEquals(CAPACITY, created.getQueuedCount());
+        return created;
+    }
+
+    private void assertSent(int... expected) throws InterruptedException {
+        released.countDown();
+        awaitSent(expected.length);
+        assertEquals(expected.length, sentLatitudes.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i] / 1000.0, sentLatitudes.get(i), 0.0);
+        }
+    }
+
+    private void awaitSent(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sentLatitudes.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(20);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static LocationUpdateRequest request(int sequence) {
+        return new LocationUpdateRequest(TEST_USER_ID, sequence / 1000.0, 34.8);
+    }
+
+    private static class RecordingCallback implements LocationCallback {
+        final List<String> errors = new CopyOnWriteArrayList<>();
+        volatile int superseded;
+
+        @Override
+        public void onSuccess(Location location) {
+            // not used, the downstream never completes updates
+        }
+
+        @Override
+        public void onError(String error) {
+            errors.add(error);
+        }
+
+        @Override
+        public void onSuperseded() {
+            superseded++;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.upload.LocationJournal;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+/**
+ * Unit tests for the LocationJournal class.
+ * Tests append order, acknowledgement, truncation and recovery of journaled updates after reopening.
+ */
+public class LocationJournalTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that appended updates are read back from the head in append order.
+     */
+    @Test
+    public void appendAndPeek_PreservesOrder() throws IOException {
+        try (LocationJournal journal = new LocationJournal(folder.newFile("outbox.journal"), 10)) {
+            journal.append(request(1));
+            journal.append(request(2));
+            journal.append(request(3));
+
+            List<LocationJournal.Entry> entries = journal.peek(2);
+
+            assertEquals(2, entries.size());
+            assertEquals(1.0, entries.get(0).getRequest().getLatitude(), 0.0);
+            assertEquals(2.0, entries.get(1).getRequest().getLatitude(), 0.0);
+            assertEquals(TEST_USER_ID, entries.get(0).getRequest().getUserId());
+            assertEquals(3, journal.getPendingCount());
+        }
+    }
+
+    /**
+     * Tests that acknowledged updates are removed and the file is truncated when the journal is drained.
+     */
+    @Test
+    public void acknowledge_RemovesUpdatesAndTruncates() throws IOException {
+        File file = folder.newFile("outbox.journal");
+        try (LocationJournal journal = new LocationJournal(file, 10)) {
+            long emptyLength = file.length();
+            journal.append(request(1));
+            journal.append(request(2));
+
+            journal.acknowledge(1);
+            assertEquals(1, journal.getPendingCount());
+            assertEquals(2.0, journal.peek(10).get(0).getRequest().getLatitude(), 0.0);
+
+            journal.acknowledge(1);
+            assertTrue(journal.isEmpty());
+            assertEquals(emptyLength, file.length());
+        }
+    }
+
+    /**
+     * Tests that unacknowledged updates survive closing and reopening the journal.
+     */
+    @Test
+    public void reopen_RecoversPendingUpdates() throws IOException {
+        File file = folder.newFile("outbox.journal");
+        try (LocationJournal journal = new LocationJournal(file, 1)) {
+            journal.append(request(1));
+            journal.append(request(2));
+            journal.acknowledge(1);
+        }
+
+        try (LocationJournal journal = new LocationJournal(file, 1)) {
+            List<LocationJournal.Entry> entries = journal.peek(10);
+            assertEquals(1, entries.size());
+            assertEquals(2.0, entries.get(0).getRequest().getLatitude(), 0.0);
+            assertTrue(journal.append(request(3)) > entries.get(0).getSequence());
+        }
+    }
+
+    /**
+     * Tests that a torn record at the tail of the file is discarded on recovery.
+     */
+    @Test
+    public void reopen_DiscardsTornRecord() throws IOException {
+        File file = folder.newFile("outbox.journal");
+        try (LocationJournal journal = new LocationJournal(file, 1)) {
+            journal.append(request(1));
+            journal.append(request(2));
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.setLength(raw.length() - 3);
+        }
+
+        try (LocationJournal journal = new LocationJournal(file, 1)) {
+            assertEquals(1, journal.getPendingCount());
+            assertEquals(1.0, journal.peek(10).get(0).getRequest().getLatitude(), 0.0);
+        }
+    }
+
+    private static LocationUpdateRequest request(double latitude) {
+        return new LocationUpdateRequest(TEST_USER_ID, latitude, 34.0);
+    }
+}
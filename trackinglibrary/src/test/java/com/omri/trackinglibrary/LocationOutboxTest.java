@@ -0,0 +1,234 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+import com.omri.trackinglibrary.api.ApiService;
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.upload.LocationJournal;
+import com.omri.trackinglibrary.upload.LocationOutbox;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Unit tests for the LocationOutbox class using a mock ApiService.
+ * Tests that journaled updates are delivered, kept for replay when the network fails or the server
+ * throttles or refuses the client, and dropped only when the server rejects them as invalid.
+ */
+public class LocationOutboxTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final String TEST_TIMESTAMP = "2024-01-06T12:00:00.000Z";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ApiService mockApiService;
+    private Call<Location> mockCall;
+    private LocationJournal journal;
+    private LocationOutbox outbox;
+
+    /**
+     * Sets up a mock API service and a journal in a temporary folder.
+     */
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException {
+        mockApiService = mock(ApiService.class);
+        mockCall = mock(Call.class);
+        when(mockApiService.updateLocation(any(LocationUpdateRequest.class))).thenReturn(mockCall);
+        journal = new LocationJournal(folder.newFile("outbox.journal"), 1);
+    }
+
+    /**
+     * Shuts down the outbox after each test.
+     */
+    @After
+    public void tearDown() {
+        if (outbox != null) {
+            outbox.shutdown();
+        }
+    }
+
+    /**
+     * Tests that a submitted update is delivered and removed from the journal.
+     */
+    @Test
+    public void submit_DeliversAndAcknowledges() throws Exception {
+        when(mockCall.execute()).thenReturn(Response.success(location()));
+        outbox = new LocationOutbox(mockApiService, journal, 10);
+        LatchCallback callback = new LatchCallback();
+
+        outbox.submit(new LocationUpdateRequest(TEST_USER_ID, 32.0, 34.0), callback);
+
+        assertTrue(callback.success.await(2, TimeUnit.SECONDS));
+        assertEquals(0, outbox.getPendingCount());
+        verify(mockApiService, never()).updateLocations(anyList());
+    }
+
+    /**
+     * Tests that a network failure reports an error but keeps the update for replay.
+     */
+    @Test
+    public void networkFailure_KeepsUpdateForReplay() throws Exception {
+        when(mockCall.execute()).thenThrow(new IOException("offline"));
+        outbox = new LocationOutbox(mockApiService, journal, 10);
+        LatchCallback callback = new LatchCallback();
+
+        outbox.submit(new LocationUpdateRequest(TEST_USER_ID, 32.0, 34.0), callback);
+
+        assertTrue(callback.error.await(2, TimeUnit.SECONDS));
+        assertEquals(1, outbox.getPendingCount());
+
+        reset(mockCall);
+        when(mockCall.execute()).thenReturn(Response.success(location()));
+        outbox.retryNow();
+
+        long deadline = System.currentTimeMillis() + 2_000L;
+        while (outbox.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, outbox.getPendingCount());
+    }
+
+    /**
+     * Tests that a 429 response keeps the update and waits for the Retry-After delay before resending.
+     */
+    @Test
+    public void tooManyRequests_KeepsUpdateAndHonorsRetryAfter() throws Exception {
+        when(mockCall.execute()).thenReturn(errorResponse(429, "2"));
+        outbox = new LocationOutbox(mockApiService, journal, 10);
+        LatchCallback callback = new LatchCallback();
+
+        outbox.submit(new LocationUpdateRequest(TEST_USER_ID, 32.0, 34.0), callback);
+
+        assertTrue(callback.error.await(2, TimeUnit.SECONDS));
+        Thread.sleep(1_200L);
+        verify(mockCall, times(1)).execute();
+        assertEquals(1, outbox.getPendingCount());
+
+        reset(mockCall);
+        when(mockCall.execute()).thenReturn(Response.success(location()));
+        outbox.retryNow();
+        awaitDelivered();
+    }
+
+    /**
+     * Tests that an authentication failure keeps the update in the journal.
+     */
+    @Test
+    public void unauthorized_KeepsUpdate() throws Exception {
+        when(mockCall.execute()).thenReturn(errorResponse(401, null));
+        outbox = new LocationOutbox(mockApiService, journal, 10);
+        LatchCallback callback = new LatchCallback();
+
+        outbox.submit(new LocationUpdateRequest(TEST_USER_ID, 32.0, 34.0), callback);
+
+        assertTrue(callback.error.await(2, TimeUnit.SECONDS));
+        assertEquals(1, outbox.getPendingCount());
+    }
+
+    /**
+     * Tests that an update the server rejects as invalid is removed from the journal.
+     */
+    @Test
+    public void validationRejection_DropsUpdate() throws Exception {
+        when(mockCall.execute()).thenReturn(errorResponse(400, null));
+        outbox = new LocationOutbox(mockApiService, journal, 10);
+        LatchCallback callback = new LatchCallback();
+
+        outbox.submit(new LocationUpdateRequest(TEST_USER_ID, 32.0, 34.0), callback);
+
+        assertTrue(callback.error.await(2, TimeUnit.SECONDS));
+        awaitDelivered();
+    }
+
+    /**
+     * Tests that shutdown cancels a delivery in progress and closes the journal only after the drainer exits.
+     */
+    @Test
+    public void shutdown_CancelsDeliveryAndWaitsForDrainer() throws Exception {
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch canceled = new CountDownLatch(1);
+        when(mockCall.execute()).thenAnswer(invocation -> {
+            sending.countDown();
+            canceled.await();
+            throw new IOException("Canceled");
+        });
+        doAnswer(invocation -> {
+            canceled.countDown();
+            return null;
+        }).when(mockCall).cancel();
+        outbox = new LocationOutbox(mockApiService, journal, 10);
+
+        outbox.submit(new LocationUpdateRequest(TEST_USER_ID, 32.0, 34.0), new LatchCallback());
+        assertTrue(sending.await(2, TimeUnit.SECONDS));
+        outbox.shutdown();
+        outbox = null;
+
+        assertEquals(1, journal.getPendingCount());
+        try {
+            journal.append(new LocationUpdateRequest(TEST_USER_ID, 32.0, 34.0));
+            fail("Journal should be closed after shutdown");
+        } catch (IOException expected) {
+            // The drainer closed the journal before shutdown returned
+        }
+    }
+
+    private void awaitDelivered() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2_000L;
+        while (outbox.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, outbox.getPendingCount());
+    }
+
+    private static Response<Location> errorResponse(int code, String retryAfter) {
+        okhttp3.Response.Builder raw = new okhttp3.Response.Builder()
+                .code(code)
+                .message("Error")
+                .protocol(Protocol.HTTP_1_1)
+                .request(new Request.Builder().url("http://localhost/").build());
+        if (retryAfter != null) {
+            raw.header("Retry-After", retryAfter);
+        }
+        return Response.error(ResponseBody.create(MediaType.parse("application/json"), "{}"), raw.build());
+    }
+
+    private static Location location() {
+        return new Location(TEST_USER_ID, 32.0, 34.0, TEST_TIMESTAMP);
+    }
+
+    /**
+     * LocationCallback that releases a latch for each outcome.
+     */
+    private static class LatchCallback implements LocationCallback {
+        final CountDownLatch success = new CountDownLatch(1);
+        final CountDownLatch error = new CountDownLatch(1);
+
+        @Override
+        public void onSuccess(Location location) {
+            success.countDown();
+        }
+
+        @Override
+        public void onError(String error) {
+            this.error.countDown();
+        }
+    }
+}
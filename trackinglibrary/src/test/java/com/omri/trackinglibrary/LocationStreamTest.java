@@ -0,0 +1,286 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.stream.LocationStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the LocationStream class against a local MockWebServer.
+ * Tests event dispatch per user, resuming from the last event after a reconnect, and error reporting.
+ */
+public class LocationStreamTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final String OTHER_USER_ID = "507f1f77bcf86cd799439012";
+
+    private MockWebServer server;
+    private LocationStream stream;
+
+    /**
+     * Starts the local server.
+     *
+     * @throws IOException if the server cannot be started
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    /**
+     * Closes the stream and stops the local server.
+     *
+     * @throws IOException if the server cannot be stopped
+     */
+    @After
+    public void tearDown() throws IOException {
+        if (stream != null) {
+            stream.close();
+        }
+        server.shutdown();
+    }
+
+    /**
+     * Tests that events of several users on one connection reach the listeners of their user,
+     * and that the stream reconnects with the ID of the last event.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void events_DispatchedPerUserAndResumedAfterReconnect() throws Exception {
+        final List<RecordedRequest> requests = new CopyOnWriteArrayList<>();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                requests.add(request);
+                String userIds = request.getRequestUrl().queryParameter("user_ids");
+                if (userIds == null || !userIds.contains(TEST_USER_ID) || !userIds.contains(OTHER_USER_ID)) {
+                    return new MockResponse().setResponseCode(503);
+                }
+                if (request.getHeader("Last-Event-ID") == null) {
+                    return events("retry: 10\n"
+                            + ": heartbeat\n"
+                            + event("1", TEST_USER_ID, 32.1)
+                            + event("2", OTHER_USER_ID, 32.2));
+                }
+                return events(event("3", TEST_USER_ID, 32.3));
+            }
+        });
+        stream = new LocationStream(new OkHttpClient(), server.url("/").toString());
+        final CountDownLatch userEvents = new CountDownLatch(2);
+        final CountDownLatch otherEvents = new CountDownLatch(1);
+        final List<Location> userLocations = new CopyOnWriteArrayList<>();
+        final List<Location> otherLocations = new CopyOnWriteArrayList<>();
+
+        stream.subscribe(OTHER_USER_ID, listener(otherLocations, otherEvents));
+        stream.subscribe(TEST_USER_ID, listener(userLocations, userEvents));
+
+        assertTrue(userEvents.await(5, TimeUnit.SECONDS));
+        assertTrue(otherEvents.await(5, TimeUnit.SECONDS));
+        assertEquals(32.3, userLocations.get(userLocations.size() - 1).getLatitude(), 0.0);
+        for (Location location : otherLocations) {
+            assertEquals(OTHER_USER_ID, location.getUserId());
+        }
+        assertEquals("3", stream.getLastEventId());
+
+        RecordedRequest resumed = null;
+        for (RecordedRequest request : requests) {
+            if ("2".equals(request.getHeader("Last-Event-ID"))) {
+                resumed = request;
+            }
+        }
+        assertNotNull(resumed);
+        assertEquals("text/event-stream", resumed.getHeader("Accept"));
+        assertEquals(TEST_USER_ID + "," + OTHER_USER_ID, resumed.getRequestUrl().queryParameter("user_ids"));
+    }
+
+    /**
+     * Tests that a failed connection is reported to the listeners of the watched users.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void failedConnection_ReportsError() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        stream = new LocationStream(new OkHttpClient(), server.url("/").toString());
+        final CountDownLatch errors = new CountDownLatch(1);
+        final List<String> messages = new CopyOnWriteArrayList<>();
+
+        stream.subscribe(TEST_USER_ID, new LocationCallback() {
+            @Override
+            public void onSuccess(Location location) {
+                fail("Should not reach success callback");
+            }
+
+            @Override
+            public void onError(String error) {
+                messages.add(error);
+                errors.countDown();
+            }
+        });
+
+        assertTrue(errors.await(5, TimeUnit.SECONDS));
+        assertTrue(messages.get(0).contains("500"));
+        assertEquals(TEST_USER_ID, server.takeRequest().getRequestUrl().queryParameter("user_ids"));
+    }
+
+    /**
+     * Tests that an observer or listener that throws does not stop delivery to the other listeners.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void throwingListener_DoesNotStopStream() throws Exception {
+        final CountDownLatch subscribed = new CountDownLatch(1);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                subscribed.await(5, TimeUnit.SECONDS);
+                return events(event("1", TEST_USER_ID, 32.1) + event("2", TEST_USER_ID, 32.2));
+            }
+        });
+        stream = new LocationStream(new OkHttpClient(), server.url("/").toString());
+        stream.setObserver(location -> {
+            throw new IllegalStateException("observer failed");
+        });
+        final CountDownLatch events = new CountDownLatch(2);
+        final List<Location> received = new CopyOnWriteArrayList<>();
+
+        stream.subscribe(TEST_USER_ID, new LocationCallback() {
+            @Override
+            public void onSuccess(Location location) {
+                throw new IllegalStateException("listener failed");
+            }
+
+            @Override
+            public void onError(String error) {
+                throw new IllegalStateException("listener failed");
+            }
+        });
+        stream.subscribe(TEST_USER_ID, listener(received, events));
+        subscribed.countDown();
+
+        assertTrue(events.await(5, TimeUnit.SECONDS));
+        assertEquals(32.2, received.get(1).getLatitude(), 0.0);
+        assertEquals("2", stream.getLastEventId());
+    }
+
+    /**
+     * Tests that users subscribed one after another are watched with a single connection request.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void subscriptions_CoalescedIntoOneRequest() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return events("retry: 60000\n" + event("1", TEST_USER_ID, 32.1))
+                        .setSocketPolicy(SocketPolicy.KEEP_OPEN);
+            }
+        });
+        stream = new LocationStream(new OkHttpClient(), server.url("/").toString(), 100, 200L);
+        final CountDownLatch events = new CountDownLatch(1);
+
+        stream.subscribe(TEST_USER_ID, listener(new CopyOnWriteArrayList<>(), events));
+        for (int i = 0; i < 5; i++) {
+            stream.subscribe(userId(i), listener(new CopyOnWriteArrayList<>(), new CountDownLatch(1)));
+        }
+
+        assertTrue(events.await(5, TimeUnit.SECONDS));
+        RecordedRequest first = server.takeRequest();
+        assertEquals(6, first.getRequestUrl().queryParameter("user_ids").split(",").length);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    /**
+     * Tests that users beyond the per-connection limit get their own connection,
+     * and that unwatching a user only reconnects the connection of that user.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void manyUsers_SplitAcrossConnections() throws Exception {
+        final List<String> requested = new CopyOnWriteArrayList<>();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                requested.add(request.getRequestUrl().queryParameter("user_ids"));
+                return events("retry: 60000\n: connected\n\n").setSocketPolicy(SocketPolicy.KEEP_OPEN);
+            }
+        });
+        stream = new LocationStream(new OkHttpClient(), server.url("/").toString(), 2, 0L);
+        LocationCallback last = listener(new CopyOnWriteArrayList<>(), new CountDownLatch(1));
+
+        stream.subscribe(userId(0), listener(new CopyOnWriteArrayList<>(), new CountDownLatch(1)));
+        stream.subscribe(userId(1), listener(new CopyOnWriteArrayList<>(), new CountDownLatch(1)));
+        stream.subscribe(userId(2), last);
+        awaitRequests(requested, 2);
+
+        assertEquals(2, stream.getConnectionCount());
+        assertTrue(requested.contains(userId(0) + "," + userId(1)));
+        assertTrue(requested.contains(userId(2)));
+
+        stream.unsubscribe(userId(2), last);
+        Thread.sleep(300L);
+
+        assertEquals(1, stream.getConnectionCount());
+        assertEquals(2, requested.size());
+    }
+
+    private static void awaitRequests(List<String> requested, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000L;
+        while (requested.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, requested.size());
+    }
+
+    private static String userId(int index) {
+        return String.format("507f1f77bcf86cd7994390%02d", 20 + index);
+    }
+
+    private static LocationCallback listener(final List<Location> received, final CountDownLatch latch) {
+        return new LocationCallback() {
+            @Override
+            public void onSuccess(Location location) {
+                received.add(location);
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(String error) {
+                // reconnects are expected
+            }
+        };
+    }
+
+    private static MockResponse events(String body) {
+        return new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(body);
+    }
+
+    private static String event(String id, String userId, double latitude) {
+        return "id: " + id + "\n"
+                + "event: location\n"
+                + "data: {\"user_id\":\"" + userId + "\",\"latitude\":" + latitude + ",\n"
+                + "data: \"longitude\":34.8,\"last_updated\":\"2024-01-06T12:00:00.000Z\"}\n"
+                + "\n";
+    }
+}
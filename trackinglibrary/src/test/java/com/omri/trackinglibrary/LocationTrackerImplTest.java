@@ -1,18 +1,42 @@
 package com.omri.trackinglibrary;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import com.omri.trackinglibrary.api.*;
 import com.omri.trackinglibrary.interfaces.LocationCallback;
+import com.omri.trackinglibrary.interfaces.LocationsCallback;
 import com.omri.trackinglibrary.interfaces.UserCallback;
 import com.omri.trackinglibrary.models.Location;
 import com.omri.trackinglibrary.models.User;
+import com.omri.trackinglibrary.upload.LocationJournal;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
 
 /**
  * Unit tests for LocationTrackerImpl class using mock ApiService.
@@ -20,6 +44,9 @@ import retrofit2.Call;
  * and location updates using Mockito for API service simulation.
  */
 public class LocationTrackerImplTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private ApiService mockApiService;
     private LocationTrackerImpl locationTracker;
 
@@ -191,4 +218,471 @@ public class LocationTrackerImplTest {
 
         verify(mockApiService).verifyUser(any(UserVerifyRequest.class));
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that concurrent location requests for the same user share one call
+     * and that the result is delivered to every caller.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getUserLocation_ConcurrentCallsShareRequest() {
+        Call<Location> mockCall = mock(Call.class);
+        when(mockApiService.getUserLocation(TEST_USER_ID)).thenReturn(mockCall);
+        final int[] successes = new int[1];
+        LocationCallback callback = new LocationCallback() {
+            @Override
+            public void onSuccess(Location location) {
+                successes[0]++;
+            }
+
+            @Override
+            public void onError(String error) {
+                fail("Should not reach error callback");
+            }
+        };
+
+        locationTracker.getUserLocation(TEST_USER_ID, callback);
+        locationTracker.getUserLocation(TEST_USER_ID, callback);
+
+        verify(mockApiService, times(1)).getUserLocation(TEST_USER_ID);
+        ArgumentCaptor<Callback<Location>> captor = ArgumentCaptor.forClass(Callback.class);
+        verify(mockCall).enqueue(captor.capture());
+        captor.getValue().onResponse(mockCall, Response.success(
+                new Location(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE, "2024-01-06T12:00:00.000Z")));
+
+        assertEquals(2, successes[0]);
+    }
+
+    /**
+     * Tests that a read shared by concurrent callers is recorded in the history once, not once per caller.
+     *
+     * @throws Exception if the history log cannot be opened
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getUserLocation_ConcurrentCallsRecordHistoryOnce() throws Exception {
+        Call<Location> mockCall = mock(Call.class);
+        when(mockApiService.getUserLocation(TEST_USER_ID)).thenReturn(mockCall);
+        locationTracker.enableHistoryLog(folder.newFolder("history"), 24 * 60 * 60 * 1000L);
+        final int[] successes = new int[1];
+        LocationCallback callback = new LocationCallback() {
+            @Override
+            public void onSuccess(Location location) {
+                successes[0]++;
+            }
+
+            @Override
+            public void onError(String error) {
+                fail("Should not reach error callback");
+            }
+        };
+
+        locationTracker.getUserLocation(TEST_USER_ID, callback);
+        locationTracker.getUserLocation(TEST_USER_ID, callback);
+        ArgumentCaptor<Callback<Location>> captor = ArgumentCaptor.forClass(Callback.class);
+        verify(mockCall).enqueue(captor.capture());
+        captor.getValue().onResponse(mockCall, Response.success(
+                new Location(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE, "2024-01-06T12:00:00.000Z")));
+
+        assertEquals(2, successes[0]);
+        assertEquals(1, locationTracker.getHistoryLog().getRecordCount());
+        locationTracker.disableHistoryLog();
+    }
+
+    /**
+     * Tests that concurrent verifications of the same user share one call
+     * and that an error response is delivered to every caller with its body intact.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void verifyUser_ConcurrentCallsShareErrorResponse() {
+        Call<User> mockCall = mock(Call.class);
+        when(mockApiService.verifyUser(any(UserVerifyRequest.class))).thenReturn(mockCall);
+        final List<String> errors = new ArrayList<>();
+        UserCallback callback = new UserCallback() {
+            @Override
+            public void onSuccess(User user) {
+                fail("Should not reach success callback");
+            }
+
+            @Override
+            public void onError(String error) {
+                errors.add(error);
+            }
+        };
+
+        locationTracker.verifyUser(TEST_USER_ID, callback);
+        locationTracker.verifyUser(TEST_USER_ID, callback);
+
+        verify(mockApiService, times(1)).verifyUser(any(UserVerifyRequest.class));
+        ArgumentCaptor<Callback<User>> captor = ArgumentCaptor.forClass(Callback.class);
+        verify(mockCall).enqueue(captor.capture());
+        captor.getValue().onResponse(mockCall, Response.<User>error(404,
+                ResponseBody.create(MediaType.parse("application/json"), "{\"error\":\"User not found\"}")));
+
+        assertEquals(2, errors.size());
+        assertEquals(errors.get(0), errors.get(1));
+        assertTrue(errors.get(0).contains("User not found"));
+    }
+
+    /**
+     * Tests that an acknowledged location update is written through to the location cache
+     * and that the next read is served from the cache without a request.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getUserLocation_ServedFromCacheAfterUpdate() {
+        Call<Location> mockCall = mock(Call.class);
+        when(mockApiService.updateLocation(any(LocationUpdateRequest.class))).thenReturn(mockCall);
+        locationTracker.enableLocationCache(10, 60_000L, 0L);
+        final List<Location> results = new ArrayList<>();
+        LocationCallback callback = new LocationCallback() {
+            @Override
+            public void onSuccess(Location location) {
+                results.add(location);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail("Should not reach error callback");
+            }
+        };
+
+        locationTracker.updateLocation(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE, callback);
+        ArgumentCaptor<Callback<Location>> captor = ArgumentCaptor.forClass(Callback.class);
+        verify(mockCall).enqueue(captor.capture());
+        captor.getValue().onResponse(mockCall, Response.success(
+                new Location(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE, "2024-01-06T12:00:00.000Z")));
+
+        locationTracker.getUserLocation(TEST_USER_ID, callback);
+
+        verify(mockApiService, never()).getUserLocation(anyString());
+        assertEquals(2, results.size());
+        assertEquals(1, locationTracker.getLocationCacheStats().getHitCount());
+    }
+
+    /**
+     * Tests that a created user is cached, that status checks are served from the cache,
+     * and that invalidating the user sends the next status check to the server.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getUserStatus_ServedFromUserCache() {
+        Call<User> createCall = mock(Call.class);
+        Call<User> verifyCall = mock(Call.class);
+        when(mockApiService.createUser(any(UserRequest.class))).thenReturn(createCall);
+        when(mockApiService.verifyUser(any(UserVerifyRequest.class))).thenReturn(verifyCall);
+        locationTracker.enableUserCache(10, 60_000L);
+        final List<User> results = new ArrayList<>();
+        UserCallback callback = new UserCallback() {
+            @Override
+            public void onSuccess(User user) {
+                results.add(user);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail("Should not reach error callback");
+            }
+        };
+
+        locationTracker.createUser(TEST_USERNAME, callback);
+        ArgumentCaptor<Callback<User>> captor = ArgumentCaptor.forClass(Callback.class);
+        verify(createCall).enqueue(captor.capture());
+        captor.getValue().onResponse(createCall, Response.success(
+                new User(TEST_USER_ID, TEST_USERNAME, "2024-01-06T12:00:00.000Z", true)));
+
+        locationTracker.getUserStatus(TEST_USER_ID, callback);
+        verify(mockApiService, never()).verifyUser(any(UserVerifyRequest.class));
+        assertEquals(2, results.size());
+
+        locationTracker.invalidateUser(TEST_USER_ID);
+        locationTracker.getUserStatus(TEST_USER_ID, callback);
+        verify(mockApiService, times(1)).verifyUser(any(UserVerifyRequest.class));
+    }
+
+    /**
+     * Tests that a bulk read is deduplicated, split into chunks that are all sent before any completes,
+     * and completed once with the locations of every chunk.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getUserLocations_ChunkedInParallel() {
+        Call<List<Location>> mockCall = mock(Call.class);
+        when(mockApiService.getUserLocations(any(UserLocationsRequest.class))).thenReturn(mockCall);
+        locationTracker.setBulkReadChunkSize(2);
+        final List<Map<String, Location>> results = new ArrayList<>();
+
+        locationTracker.getUserLocations(Arrays.asList("u1", "u2", "u3", "u1", "u4", "u5"), new LocationsCallback() {
+            @Override
+            public void onSuccess(Map<String, Location> locations) {
+                results.add(locations);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail("Should not reach error callback");
+            }
+        });
+
+        ArgumentCaptor<UserLocationsRequest> requests = ArgumentCaptor.forClass(UserLocationsRequest.class);
+        verify(mockApiService, times(3)).getUserLocations(requests.capture());
+        assertEquals(Arrays.asList("u1", "u2"), requests.getAllValues().get(0).getUserIds());
+        assertEquals(Arrays.asList("u5"), requests.getAllValues().get(2).getUserIds());
+        ArgumentCaptor<Callback<List<Location>>> captor = ArgumentCaptor.forClass(Callback.class);
+        verify(mockCall, times(3)).enqueue(captor.capture());
+
+        for (UserLocationsRequest request : requests.getAllValues()) {
+            assertTrue(results.isEmpty());
+            List<Location> body = new ArrayList<>();
+            for (String userId : request.getUserIds()) {
+                body.add(new Location(userId, TEST_LATITUDE, TEST_LONGITUDE, "2024-01-06T12:00:00.000Z"));
+            }
+            captor.getAllValues().get(requests.getAllValues().indexOf(request)).onResponse(mockCall,
+                    Response.success(body));
+        }
+
+        assertEquals(1, results.size());
+        assertEquals(5, results.get(0).size());
+        assertEquals("u4", results.get(0).get("u4").getUserId());
+    }
+
+    /**
+     * Tests that cached users are not requested and that a failed chunk is reported once.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getUserLocations_UsesCacheAndReportsFailureOnce() {
+        Call<Location> readCall = mock(Call.class);
+        Call<List<Location>> bulkCall = mock(Call.class);
+        when(mockApiService.getUserLocation(TEST_USER_ID)).thenReturn(readCall);
+        when(mockApiService.getUserLocations(any(UserLocationsRequest.class))).thenReturn(bulkCall);
+        locationTracker.enableLocationCache(10, 60_000L, 0);
+        locationTracker.setBulkReadChunkSize(1);
+        locationTracker.getUserLocation(TEST_USER_ID, mock(LocationCallback.class));
+        ArgumentCaptor<Callback<Location>> readCaptor = ArgumentCaptor.forClass(Callback.class);
+        verify(readCall).enqueue(readCaptor.capture());
+        readCaptor.getValue().onResponse(readCall, Response.success(
+                new Location(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE, "2024-01-06T12:00:00.000Z")));
+        final List<String> errors = new ArrayList<>();
+
+        locationTracker.getUserLocations(Arrays.asList(TEST_USER_ID, "u2", "u3"), new LocationsCallback() {
+            @Override
+            public void onSuccess(Map<String, Location> locations) {
+                fail("Should not reach success callback");
+            }
+
+            @Override
+            public void onError(String error) {
+                errors.add(error);
+            }
+        });
+
+        verify(mockApiService, times(2)).getUserLocations(any(UserLocationsRequest.class));
+        ArgumentCaptor<Callback<List<Location>>> captor = ArgumentCaptor.forClass(Callback.class);
+        verify(bulkCall, times(2)).enqueue(captor.capture());
+        for (Callback<List<Location>> callback : captor.getAllValues()) {
+            callback.onResponse(bulkCall, Response.error(500,
+                    ResponseBody.create(MediaType.parse("application/json"), "{\"message\":\"Server error\"}")));
+        }
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).contains("Server error"));
+    }
+
+    /**
+     * Tests that a repeated read is conditional on the remembered ETag and that
+     * a 304 response is answered with the remembered location.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getUserLocation_NotModifiedServesRememberedLocation() {
+        Call<Location> firstCall = mock(Call.class);
+        Call<Location> conditionalCall = mock(Call.class);
+        when(mockApiService.getUserLocation(TEST_USER_ID)).thenReturn(firstCall);
+        when(mockApiService.getUserLocation(eq(TEST_USER_ID), eq("\"v1\""), anyString())).thenReturn(conditionalCall);
+        locationTracker.enableConditionalReads(10);
+        final List<Location> results = new ArrayList<>();
+        LocationCallback callback = new LocationCallback() {
+            @Override
+            public void onSuccess(Location location) {
+                results.add(location);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail("Should not reach error callback");
+            }
+        };
+        Location location = new Location(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE, "2024-01-06T12:00:00.000Z");
+
+        locationTracker.getUserLocation(TEST_USER_ID, callback);
+        ArgumentCaptor<Callback<Location>> captor = ArgumentCaptor.forClass(Callback.class);
+        verify(firstCall).enqueue(captor.capture());
+        captor.getValue().onResponse(firstCall, Response.success(location, Headers.of("ETag", "\"v1\"")));
+
+        locationTracker.getUserLocation(TEST_USER_ID, callback);
+        verify(mockApiService).getUserLocation(TEST_USER_ID, "\"v1\"", "Sat, 06 Jan 2024 12:00:00 GMT");
+        verify(conditionalCall).enqueue(captor.capture());
+        okhttp3.Response notModified = new okhttp3.Response.Builder()
+                .code(304)
+                .message("Not Modified")
+                .protocol(Protocol.HTTP_1_1)
+                .request(new Request.Builder().url("http://localhost/").build())
+                .build();
+        captor.getValue().onResponse(conditionalCall,
+                Response.error(ResponseBody.create(MediaType.parse("application/json"), ""), notModified));
+
+        assertEquals(2, results.size());
+        assertSame(location, results.get(1));
+        assertEquals(1, locationTracker.getConditionalReadStats().getHitCount());
+        assertEquals(1, locationTracker.getConditionalReadStats().getMissCount());
+    }
+
+    /**
+     * Tests that a 304 shared by concurrent callers is counted as one conditional read hit.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getUserLocation_ConcurrentNotModifiedCountedOnce() {
+        Call<Location> firstCall = mock(Call.class);
+        Call<Location> conditionalCall = mock(Call.class);
+        when(mockApiService.getUserLocation(TEST_USER_ID)).thenReturn(firstCall);
+        when(mockApiService.getUserLocation(eq(TEST_USER_ID), eq("\"v1\""), anyString())).thenReturn(conditionalCall);
+        locationTracker.enableConditionalReads(10);
+        final List<Location> results = new ArrayList<>();
+        LocationCallback callback = recordingCallback(results);
+
+        locationTracker.getUserLocation(TEST_USER_ID, callback);
+        ArgumentCaptor<Callback<Location>> captor = ArgumentCaptor.forClass(Callback.class);
+        verify(firstCall).enqueue(captor.capture());
+        captor.getValue().onResponse(firstCall, Response.success(location(), Headers.of("ETag", "\"v1\"")));
+
+        locationTracker.getUserLocation(TEST_USER_ID, callback);
+        locationTracker.getUserLocation(TEST_USER_ID, callback);
+        verify(conditionalCall).enqueue(captor.capture());
+        captor.getValue().onResponse(conditionalCall, notModified());
+
+        assertEquals(3, results.size());
+        assertEquals(1, locationTracker.getConditionalReadStats().getHitCount());
+        assertEquals(1, locationTracker.getConditionalReadStats().getMissCount());
+    }
+
+    /**
+     * Tests that a 304 arriving after the remembered location was dropped is retried without validators.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getUserLocation_NotModifiedWithoutRememberedLocationRetries() {
+        Call<Location> firstCall = mock(Call.class);
+        Call<Location> conditionalCall = mock(Call.class);
+        Call<Location> retryCall = mock(Call.class);
+        when(mockApiService.getUserLocation(TEST_USER_ID)).thenReturn(firstCall, retryCall);
+        when(mockApiService.getUserLocation(eq(TEST_USER_ID), eq("\"v1\""), anyString())).thenReturn(conditionalCall);
+        locationTracker.enableConditionalReads(10);
+        final List<Location> results = new ArrayList<>();
+        LocationCallback callback = recordingCallback(results);
+
+        locationTracker.getUserLocation(TEST_USER_ID, callback);
+        ArgumentCaptor<Callback<Location>> captor = ArgumentCaptor.forClass(Callback.class);
+        verify(firstCall).enqueue(captor.capture());
+        captor.getValue().onResponse(firstCall, Response.success(location(), Headers.of("ETag", "\"v1\"")));
+
+        locationTracker.getUserLocation(TEST_USER_ID, callback);
+        verify(conditionalCall).enqueue(captor.capture());
+        locationTracker.disableConditionalReads();
+        captor.getValue().onResponse(conditionalCall, notModified());
+
+        verify(retryCall).enqueue(captor.capture());
+        Location fresh = new Location(TEST_USER_ID, 32.2, 34.9, "2024-01-06T12:05:00.000Z");
+        captor.getValue().onResponse(retryCall, Response.success(fresh));
+
+        assertEquals(2, results.size());
+        assertSame(fresh, results.get(1));
+    }
+
+    /**
+     * Tests that re-enabling the outbox on the same journal delivers each pending update once
+     * and keeps updates journaled after the reopen.
+     *
+     * @throws Exception if the journal cannot be opened
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void enableOutbox_TwiceOnSameFileDeliversEachUpdateOnce() throws Exception {
+        File journalFile = folder.newFile("outbox.journal");
+        Call<Location> mockCall = mock(Call.class);
+        when(mockApiService.updateLocation(any(LocationUpdateRequest.class))).thenReturn(mockCall);
+        when(mockCall.execute()).thenThrow(new IOException("offline"));
+        LatchCallback first = new LatchCallback();
+
+        locationTracker.enableOutbox(journalFile, 1);
+        locationTracker.updateLocation(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE, first);
+        assertTrue(first.error.await(2, TimeUnit.SECONDS));
+
+        reset(mockCall);
+        when(mockCall.execute()).thenReturn(Response.success(location()));
+        locationTracker.enableOutbox(journalFile, 1);
+        verify(mockCall, timeout(2_000L).times(1)).execute();
+
+        LatchCallback second = new LatchCallback();
+        locationTracker.updateLocation(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE, second);
+        assertTrue(second.success.await(2, TimeUnit.SECONDS));
+        locationTracker.disableOutbox();
+
+        verify(mockCall, times(2)).execute();
+        LocationJournal journal = new LocationJournal(journalFile, 1);
+        assertEquals(0, journal.getPendingCount());
+        journal.append(new LocationUpdateRequest(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE));
+        journal.close();
+        journal = new LocationJournal(journalFile, 1);
+        assertEquals(1, journal.getPendingCount());
+        journal.close();
+    }
+
+    private static LocationCallback recordingCallback(final List<Location> results) {
+        return new LocationCallback() {
+            @Override
+            public void onSuccess(Location location) {
+                results.add(location);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail("Should not reach error callback");
+            }
+        };
+    }
+
+    private static Location location() {
+        return new Location(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE, "2024-01-06T12:00:00.000Z");
+    }
+
+    private static Response<Location> notModified() {
+        okhttp3.Response raw = new okhttp3.Response.Builder()
+                .code(304)
+                .message("Not Modified")
+                .protocol(Protocol.HTTP_1_1)
+                .request(new Request.Builder().url("http://localhost/").build())
+                .build();
+        return Response.error(ResponseBody.create(MediaType.parse("application/json"), ""), raw);
+    }
+
+    /**
+     * LocationCallback that releases a latch for each outcome.
+     */
+    private static class LatchCallback implements LocationCallback {
+        final CountDownLatch success = new CountDownLatch(1);
+        final CountDownLatch error = new CountDownLatch(1);
+
+        @Override
+        public void onSuccess(Location location) {
+            success.countDown();
+        }
+
+        @Override
+        public void onError(String error) {
+            this.error.countDown();
+        }
+    }
+}
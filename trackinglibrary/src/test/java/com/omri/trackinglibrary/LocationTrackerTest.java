@@ -0,0 +1,124 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.interfaces.LocationCallback;
+import com.omri.trackinglibrary.interfaces.LocationTracker;
+import com.omri.trackinglibrary.interfaces.LocationsCallback;
+import com.omri.trackinglibrary.interfaces.UserCallback;
+import com.omri.trackinglibrary.models.Location;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Unit tests for the default methods of the LocationTracker interface,
+ * using a fake tracker that only implements the single-user reads.
+ */
+public class LocationTrackerTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final String OTHER_USER_ID = "507f1f77bcf86cd799439012";
+    private static final String UNKNOWN_USER_ID = "507f1f77bcf86cd799439013";
+
+    /**
+     * Tests that the default bulk read asks for each distinct user once and collects the results.
+     */
+    @Test
+    public void getUserLocations_DefaultReadsEachUserOnce() {
+        FakeTracker tracker = new FakeTracker();
+        List<Map<String, Location>> results = new ArrayList<>();
+
+        tracker.getUserLocations(Arrays.asList(TEST_USER_ID, OTHER_USER_ID, TEST_USER_ID), callback(results, null));
+
+        assertEquals(Arrays.asList(TEST_USER_ID, OTHER_USER_ID), tracker.requested);
+        assertEquals(1, results.size());
+        assertEquals(2, results.get(0).size());
+        assertEquals(32.2, results.get(0).get(OTHER_USER_ID).getLatitude(), 0.0);
+    }
+
+    /**
+     * Tests that the default bulk read reports the first failed read once.
+     */
+    @Test
+    public void getUserLocations_DefaultReportsErrorOnce() {
+        FakeTracker tracker = new FakeTracker();
+        List<String> errors = new ArrayList<>();
+
+        tracker.getUserLocations(Arrays.asList(UNKNOWN_USER_ID, TEST_USER_ID, UNKNOWN_USER_ID + "0"),
+                callback(new ArrayList<>(), errors));
+
+        assertEquals(Collections.singletonList("Location not found"), errors);
+    }
+
+    /**
+     * Tests that the default bulk read of no users succeeds with no locations.
+     */
+    @Test
+    public void getUserLocations_DefaultEmpty() {
+        List<Map<String, Location>> results = new ArrayList<>();
+
+        new FakeTracker().getUserLocations(Collections.<String>emptyList(), callback(results, null));
+
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).isEmpty());
+    }
+
+    private static LocationsCallback callback(final List<Map<String, Location>> results, final List<String> errors) {
+        return new LocationsCallback() {
+            @Override
+            public void onSuccess(Map<String, Location> locations) {
+                results.add(locations);
+            }
+
+            @Override
+            public void onError(String error) {
+                if (errors == null) {
+                    fail("Should not reach error callback");
+                }
+                errors.add(error);
+            }
+        };
+    }
+
+    /**
+     * Tracker that answers single-user location reads synchronously and records the requested IDs.
+     */
+    private static class FakeTracker implements LocationTracker {
+        final List<String> requested = new ArrayList<>();
+
+        @Override
+        public void getUserLocation(String userId, LocationCallback callback) {
+            requested.add(userId);
+            if (TEST_USER_ID.equals(userId)) {
+                callback.onSuccess(new Location(userId, 32.1, 34.8, "2024-01-06T12:00:00.000Z"));
+            } else if (OTHER_USER_ID.equals(userId)) {
+                callback.onSuccess(new Location(userId, 32.2, 34.8, "2024-01-06T12:00:00.000Z"));
+            } else {
+                callback.onError("Location not found");
+            }
+        }
+
+        @Override
+        public void createUser(String username, UserCallback callback) {
+        }
+
+        @Override
+        public void verifyUser(String userId, UserCallback callback) {
+        }
+
+        @Override
+        public void updateUserStatus(String userId, boolean isActive, UserCallback callback) {
+        }
+
+        @Override
+        public void getUserStatus(String userId, UserCallback callback) {
+        }
+
+        @Override
+        public void updateLocation(String userId, double latitude, double longitude, LocationCallback callback) {
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.api.ApiClient;
+import com.omri.trackinglibrary.api.ApiService;
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.metrics.EndpointSnapshot;
+import com.omri.trackinglibrary.metrics.HistogramSnapshot;
+import com.omri.trackinglibrary.metrics.LatencyHistogram;
+import com.omri.trackinglibrary.metrics.MetricsRegistry;
+import com.omri.trackinglibrary.metrics.MetricsSnapshot;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Test;
+
+/**
+ * Unit tests for the LatencyHistogram and MetricsRegistry classes, and for metrics recorded by ApiClient
+ * against a local MockWebServer.
+ */
+public class MetricsRegistryTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final String LOCATION_JSON = "{\"user_id\":\"" + TEST_USER_ID + "\",\"latitude\":32.1,"
+            + "\"longitude\":34.8,\"last_updated\":\"2024-01-06T12:00:00.000Z\"}";
+
+    /**
+     * Tests that percentiles are reported within the histogram's precision.
+     */
+    @Test
+    public void histogram_percentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 100_000; micros++) {
+            histogram.recordMicros(micros);
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(100_000, snapshot.getMaxMicros());
+        assertEquals(50_000.5, snapshot.getMeanMicros(), 0.001);
+        assertEquals(50_000, snapshot.getValueAtPercentile(50), 50_000 * 0.035);
+        assertEquals(99_000, snapshot.getValueAtPercentile(99), 99_000 * 0.035);
+        assertTrue(snapshot.getValueAtPercentile(99) >= 99_000);
+        assertEquals(100_000, snapshot.getValueAtPercentile(100));
+        assertEquals(1, snapshot.getValueAtPercentile(0));
+    }
+
+    /**
+     * Tests that concurrent recording loses no values.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void histogram_concurrentRecordingKeepsAllValues() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(i % 5_000, TimeUnit.MILLISECONDS);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(200_000, histogram.snapshot().getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toMicros(4_999), histogram.snapshot().getMaxMicros());
+    }
+
+    /**
+     * Tests that ApiClient records outcomes and bytes per ApiService method.
+     *
+     * @throws Exception if the server fails
+     */
+    @Test
+    public void apiClient_recordsMetricsPerMethod() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody(LOCATION_JSON));
+        server.enqueue(new MockResponse().setResponseCode(404).setBody("{}"));
+        server.enqueue(new MockResponse().setBody(LOCATION_JSON));
+        server.start();
+        try {
+            MetricsRegistry registry = new MetricsRegistry();
+            ApiClient client = new ApiClient.Builder()
+                    .baseUrl(server.url("/").toString())
+                    .metrics(registry)
+                    .build();
+            ApiService apiService = client.create(ApiService.class);
+
+            apiService.getUserLocation(TEST_USER_ID).execute();
+            apiService.getUserLocation(TEST_USER_ID).execute();
+            try {
+                client.newBuilder().baseUrl("http://localhost:1/").build()
+                        .create(ApiService.class).getUserLocation(TEST_USER_ID).execute();
+                fail("Should have failed on the network");
+            } catch (IOException e) {
+                // expected
+            }
+            apiService.updateLocation(new LocationUpdateRequest(TEST_USER_ID, 32.1, 34.8)).execute();
+
+            MetricsSnapshot snapshot = registry.snapshot();
+            EndpointSnapshot reads = snapshot.getEndpoint("getUserLocation");
+            assertEquals(1, reads.getSuccessCount());
+            assertEquals(1, reads.getErrorCount());
+            assertEquals(1, reads.getNetworkFailureCount());
+            assertEquals(3, reads.getLatency().getCount());
+            assertEquals(LOCATION_JSON.length() + 2, reads.getResponseBytes());
+            EndpointSnapshot writes = snapshot.getEndpoint("updateLocation");
+            assertEquals(1, writes.getSuccessCount());
+            assertTrue(writes.getRequestBytes() > 0);
+            assertSame(registry, client.newBuilder().build().getMetrics());
+            assertEquals(client.getOkHttpClient().interceptors().size(),
+                    client.newBuilder().build().getOkHttpClient().interceptors().size());
+        } finally {
+            server.shutdown();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.api.ApiClient;
+import com.omri.trackinglibrary.api.ApiService;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.network.RateLimitExceededException;
+import com.omri.trackinglibrary.network.RateLimiter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Unit tests for the RateLimiter class and its use by ApiClient.
+ * Tests burst admission, deferral and rejection, refill, per-endpoint limits and Retry-After pauses.
+ */
+public class RateLimiterTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final String UPDATE_ENDPOINT = "POST api/locations/update";
+    private static final String READ_ENDPOINT = "GET api/locations/user/{userId}";
+    private static final Runnable NOOP = () -> { };
+
+    private volatile long now;
+    private RateLimiter limiter;
+
+    /**
+     * Sets up a limiter of 10 calls per second with a burst of 2 and a queue of 2 calls per endpoint.
+     */
+    @Before
+    public void setUp() {
+        now = 1_700_000_000_000L;
+        limiter = new RateLimiter(10, 2, 2, () -> now);
+    }
+
+    /**
+     * Tests that calls within the burst run at once, later calls are queued, and calls beyond the queue are rejected.
+     */
+    @Test
+    public void tryAcquire_admitsBurstThenDefersThenRejects() {
+        assertEquals(RateLimiter.Admission.ADMITTED, limiter.tryAcquire(UPDATE_ENDPOINT, NOOP));
+        assertEquals(RateLimiter.Admission.ADMITTED, limiter.tryAcquire(UPDATE_ENDPOINT, NOOP));
+        assertEquals(RateLimiter.Admission.DEFERRED, limiter.tryAcquire(UPDATE_ENDPOINT, NOOP));
+        assertEquals(RateLimiter.Admission.DEFERRED, limiter.tryAcquire(UPDATE_ENDPOINT, NOOP));
+        assertEquals(RateLimiter.Admission.REJECTED, limiter.tryAcquire(UPDATE_ENDPOINT, NOOP));
+
+        assertEquals(2, limiter.getQueuedCount(UPDATE_ENDPOINT));
+        assertEquals(2, limiter.getQueuedCount());
+        assertEquals(2, limiter.getDeferredCount());
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(RateLimiter.Admission.ADMITTED, limiter.tryAcquire(READ_ENDPOINT, NOOP));
+    }
+
+    /**
+     * Tests that a queued call starts once its endpoint has refilled a token.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void deferredCall_runsAfterRefill() throws InterruptedException {
+        limiter.setLimit(UPDATE_ENDPOINT, 10, 1);
+        final CountDownLatch ran = new CountDownLatch(1);
+
+        limiter.tryAcquire(UPDATE_ENDPOINT, NOOP);
+        assertEquals(RateLimiter.Admission.DEFERRED, limiter.tryAcquire(UPDATE_ENDPOINT, ran::countDown));
+        now += 100;
+
+        assertTrue(ran.await(2, TimeUnit.SECONDS));
+        assertEquals(0, limiter.getQueuedCount(UPDATE_ENDPOINT));
+    }
+
+    /**
+     * Tests that a paused endpoint queues calls until the pause ends, without affecting other endpoints.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void pause_defersCallsUntilRetryAfter() throws InterruptedException {
+        limiter.pause(UPDATE_ENDPOINT, 5_000L);
+
+        assertEquals(RateLimiter.Admission.DEFERRED, limiter.tryAcquire(UPDATE_ENDPOINT, NOOP));
+        assertEquals(RateLimiter.Admission.ADMITTED, limiter.tryAcquire(READ_ENDPOINT, NOOP));
+        assertFalse(limiter.acquire(UPDATE_ENDPOINT, 1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Tests that a 429 response with Retry-After pauses the endpoint of the call and that
+     * a call rejected by a full queue fails with a RateLimitExceededException.
+     *
+     * @throws Exception if the server fails or the test is interrupted
+     */
+    @Test
+    public void apiClient_honorsRetryAfterAndRejectsWhenQueueFull() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "60"));
+        server.start();
+        try {
+            RateLimiter clientLimiter = new RateLimiter(100, 5, 1);
+            ApiService apiService = new ApiClient.Builder()
+                    .baseUrl(server.url("/").toString())
+                    .rateLimiter(clientLimiter)
+                    .build()
+                    .create(ApiService.class);
+
+            Response<Location> response = apiService.getUserLocation(TEST_USER_ID).execute();
+            assertEquals(429, response.code());
+
+            apiService.getUserLocation(TEST_USER_ID).enqueue(failureRecorder(new AtomicReference<>(), new CountDownLatch(1)));
+            assertEquals(1, clientLimiter.getQueuedCount(READ_ENDPOINT));
+
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            final CountDownLatch failed = new CountDownLatch(1);
+            apiService.getUserLocation(TEST_USER_ID).enqueue(failureRecorder(failure, failed));
+            assertTrue(failed.await(2, TimeUnit.SECONDS));
+            assertTrue(failure.get() instanceof RateLimitExceededException);
+            assertEquals(1, server.getRequestCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static Callback<Location> failureRecorder(final AtomicReference<Throwable> failure,
+                                                      final CountDownLatch latch) {
+        return new Callback<Location>() {
+            @Override
+            public void onResponse(Call<Location> call, Response<Location> response) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Call<Location> call, Throwable t) {
+                failure.set(t);
+                latch.countDown();
+            }
+        };
+    }
+}
@@ -0,0 +1,148 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.api.ApiClient;
+import com.omri.trackinglibrary.api.ApiService;
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.api.UserRequest;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.network.RetryPolicy;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Unit tests for the RetryPolicy class and for retries of ApiClient calls against a local MockWebServer.
+ * Tests decorrelated jitter bounds, read and write policies, and retry statistics.
+ */
+public class RetryPolicyTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final String LOCATION_JSON = "{\"user_id\":\"" + TEST_USER_ID + "\",\"latitude\":32.1,"
+            + "\"longitude\":34.8,\"last_updated\":\"2024-01-06T12:00:00.000Z\"}";
+
+    private MockWebServer server;
+    private ApiClient client;
+    private ApiService apiService;
+
+    /**
+     * Starts the local server and builds a client that retries quickly.
+     *
+     * @throws Exception if the server cannot be started
+     */
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        client = new ApiClient.Builder()
+                .baseUrl(server.url("/").toString())
+                .retryPolicies(new RetryPolicy(3, 1, 5, Arrays.asList(500, 503)),
+                        new RetryPolicy(3, 1, 5, Arrays.asList(503)))
+                .build();
+        apiService = client.create(ApiService.class);
+    }
+
+    /**
+     * Stops the local server.
+     *
+     * @throws Exception if the server cannot be stopped
+     */
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    /**
+     * Tests that delays stay between the base delay and three times the previous delay, within the cap.
+     */
+    @Test
+    public void nextDelay_staysWithinDecorrelatedJitterBounds() {
+        RetryPolicy policy = new RetryPolicy(5, 100, 1_000, Arrays.asList(503));
+        long delay = 0;
+        for (int i = 0; i < 1_000; i++) {
+            long next = policy.nextDelay(delay);
+            assertTrue(next >= 100);
+            assertTrue(next <= Math.min(1_000, Math.max(100, delay * 3)));
+            delay = next;
+        }
+        assertTrue(policy.isRetryable(503));
+        assertFalse(policy.isRetryable(404));
+    }
+
+    /**
+     * Tests that a read is retried after server errors and succeeds once the server recovers.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void read_retriedUntilSuccess() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setBody(LOCATION_JSON));
+        final AtomicReference<Response<Location>> result = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        apiService.getUserLocation(TEST_USER_ID).enqueue(new Callback<Location>() {
+            @Override
+            public void onResponse(Call<Location> call, Response<Location> response) {
+                result.set(response);
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Call<Location> call, Throwable t) {
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(result.get().isSuccessful());
+        assertEquals(32.1, result.get().body().getLatitude(), 0.0);
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2, client.getRetryStats("GET api/locations/user/{userId}").getRetries());
+        assertEquals(1, client.getRetryStats().getRecovered());
+    }
+
+    /**
+     * Tests that a location write is not retried after a 500 response, and gives up after its last attempt.
+     *
+     * @throws Exception if the server fails
+     */
+    @Test
+    public void write_retriedOnlyForRetryableCodes() throws Exception {
+        LocationUpdateRequest request = new LocationUpdateRequest(TEST_USER_ID, 32.1, 34.8);
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        assertEquals(500, apiService.updateLocation(request).execute().code());
+        assertEquals(1, server.getRequestCount());
+
+        assertEquals(503, apiService.updateLocation(request).execute().code());
+        assertEquals(4, server.getRequestCount());
+        assertEquals(1, client.getRetryStats("POST api/locations/update").getExhausted());
+    }
+
+    /**
+     * Tests that creating a user is never retried.
+     *
+     * @throws Exception if the server fails
+     */
+    @Test
+    public void createUser_neverRetried() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        assertEquals(503, apiService.createUser(new UserRequest("test_user")).execute().code());
+        assertEquals(1, server.getRequestCount());
+    }
+}
@@ -0,0 +1,140 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.spatial.SpatialIndex;
+import com.omri.trackinglibrary.utils.GeoUtils;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the SpatialIndex class.
+ * Tests radius and nearest-neighbour queries against a linear scan, and incremental moves and removals.
+ */
+public class SpatialIndexTest {
+    private static final double TEST_LATITUDE = 32.109333;
+    private static final double TEST_LONGITUDE = 34.855499;
+    private static final String LAST_UPDATED = "2024-01-01T00:00:00.000Z";
+
+    private SpatialIndex index;
+    private List<Location> all;
+
+    /**
+     * Sets up an index with 500 meter cells holding 2000 users scattered around the test point.
+     */
+    @Before
+    public void setUp() {
+        index = new SpatialIndex(500);
+        all = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            Location location = location("user" + i,
+                    TEST_LATITUDE + (random.nextDouble() - 0.5) * 0.2,
+                    TEST_LONGITUDE + (random.nextDouble() - 0.5) * 0.2);
+            all.add(location);
+            index.update(location);
+        }
+    }
+
+    /**
+     * Tests that radius queries return the same users as a linear scan, nearest first.
+     */
+    @Test
+    public void findWithinRadius_matchesLinearScan() {
+        for (double radius : new double[]{50, 800, 3000, 50_000}) {
+            List<Location> expected = scan();
+            expected.removeIf(location -> distance(location) > radius);
+
+            List<Location> found = index.findWithinRadius(TEST_LATITUDE, TEST_LONGITUDE, radius);
+
+            assertEquals(expected, found);
+        }
+    }
+
+    /**
+     * Tests that nearest-neighbour queries return the same users as a linear scan, nearest first.
+     */
+    @Test
+    public void findNearest_matchesLinearScan() {
+        for (int count : new int[]{1, 10, 100, 5000}) {
+            List<Location> expected = scan();
+            expected = expected.subList(0, Math.min(count, expected.size()));
+
+            List<Location> found = index.findNearest(TEST_LATITUDE, TEST_LONGITUDE, count);
+
+            assertEquals(expected, found);
+        }
+    }
+
+    /**
+     * Tests that a query far from every user still finds the nearest ones.
+     */
+    @Test
+    public void findNearest_farFromUsers() {
+        List<Location> found = index.findNearest(TEST_LATITUDE + 10, TEST_LONGITUDE - 10, 3);
+
+        assertEquals(3, found.size());
+        assertTrue(GeoUtils.distanceMeters(TEST_LATITUDE + 10, TEST_LONGITUDE - 10,
+                found.get(0).getLatitude(), found.get(0).getLongitude())
+                <= GeoUtils.distanceMeters(TEST_LATITUDE + 10, TEST_LONGITUDE - 10,
+                found.get(2).getLatitude(), found.get(2).getLongitude()));
+    }
+
+    /**
+     * Tests that moving and removing users updates query results without a rebuild.
+     */
+    @Test
+    public void updateAndRemove_areIncremental() {
+        Location moved = location("user0", TEST_LATITUDE + 20, TEST_LONGITUDE + 20);
+        index.update(moved);
+        index.update(location("user1", TEST_LATITUDE + 20.001, TEST_LONGITUDE + 20));
+
+        assertEquals(2000, index.size());
+        assertSame(moved, index.get("user0"));
+        assertEquals(2, index.findWithinRadius(TEST_LATITUDE + 20, TEST_LONGITUDE + 20, 1000).size());
+
+        index.remove("user1");
+
+        assertEquals(1999, index.size());
+        assertNull(index.get("user1"));
+        List<Location> found = index.findWithinRadius(TEST_LATITUDE + 20, TEST_LONGITUDE + 20, 1000);
+        assertEquals(1, found.size());
+        assertSame(moved, found.get(0));
+
+        index.update(location("user1", TEST_LATITUDE, TEST_LONGITUDE));
+        assertEquals(2000, index.size());
+        assertEquals("user1", index.findNearest(TEST_LATITUDE, TEST_LONGITUDE, 1).get(0).getUserId());
+    }
+
+    /**
+     * Tests queries across the antimeridian.
+     */
+    @Test
+    public void findWithinRadius_acrossAntimeridian() {
+        SpatialIndex wrapped = new SpatialIndex(500);
+        wrapped.update(location("east", 0, 179.999));
+        wrapped.update(location("west", 0, -179.999));
+
+        assertEquals(2, wrapped.findWithinRadius(0, 180, 1000).size());
+        assertEquals(2, wrapped.findNearest(0, -180, 2).size());
+    }
+
+    private List<Location> scan() {
+        List<Location> sorted = new ArrayList<>(all);
+        sorted.sort(Comparator.comparingDouble(SpatialIndexTest::distance));
+        return sorted;
+    }
+
+    private static double distance(Location location) {
+        return GeoUtils.distanceMeters(TEST_LATITUDE, TEST_LONGITUDE, location.getLatitude(), location.getLongitude());
+    }
+
+    private static Location location(String userId, double latitude, double longitude) {
+        return new Location(userId, latitude, longitude, LAST_UPDATED);
+    }
+}
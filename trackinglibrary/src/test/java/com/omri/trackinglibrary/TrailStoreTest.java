@@ -0,0 +1,118 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.history.TrailStore;
+import com.omri.trackinglibrary.models.Location;
+import com.omri.trackinglibrary.utils.DateUtils;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the TrailStore class.
+ * Tests ring wrap-around, ordering and de-duplication of fixes, and time-windowed views.
+ */
+public class TrailStoreTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final String OTHER_USER_ID = "507f1f77bcf86cd799439012";
+    private static final long START_MILLIS = 1_704_067_200_000L;
+
+    private TrailStore store;
+
+    /**
+     * Sets up a store that keeps 8 fixes per user.
+     */
+    @Before
+    public void setUp() {
+        store = new TrailStore(8);
+    }
+
+    /**
+     * Tests that a full ring keeps the newest fixes, oldest first.
+     */
+    @Test
+    public void record_WrapsAroundKeepingNewestFixes() {
+        for (int i = 0; i < 20; i++) {
+            store.record(TEST_USER_ID, i, -i, START_MILLIS + i * 1000L);
+        }
+
+        List<Double> latitudes = read(TEST_USER_ID, Long.MIN_VALUE);
+
+        assertEquals(8, store.getPointCount(TEST_USER_ID));
+        assertEquals(8, latitudes.size());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(12.0 + i, latitudes.get(i), 0.0);
+        }
+    }
+
+    /**
+     * Tests that a fix that is not newer than the latest fix of the user is ignored.
+     */
+    @Test
+    public void record_IgnoresFixesNotNewerThanLatest() {
+        Location location = new Location(TEST_USER_ID, 32.1, 34.8, DateUtils.formatMongoDate(START_MILLIS));
+        store.record(location);
+        store.record(location);
+        store.record(TEST_USER_ID, 32.2, 34.8, START_MILLIS - 1000);
+
+        assertEquals(1, store.getPointCount(TEST_USER_ID));
+        store.readTrail(TEST_USER_ID, view -> assertEquals(START_MILLIS, view.getTimeMillis(0)));
+    }
+
+    /**
+     * Tests that a windowed read starts at the first fix at or after the given time, across the ring seam.
+     */
+    @Test
+    public void readTrail_SinceTimeSkipsOlderFixes() {
+        for (int i = 0; i < 11; i++) {
+            store.record(TEST_USER_ID, i, 0, START_MILLIS + i * 1000L);
+        }
+
+        assertEquals(4, read(TEST_USER_ID, START_MILLIS + 6500).size());
+        assertEquals(7.0, read(TEST_USER_ID, START_MILLIS + 6500).get(0), 0.0);
+        assertEquals(8, read(TEST_USER_ID, START_MILLIS).size());
+        assertEquals(0, read(TEST_USER_ID, START_MILLIS + 60_000).size());
+    }
+
+    /**
+     * Tests that trails are kept per user, and that reading an unknown user does not call the reader.
+     */
+    @Test
+    public void forEachTrail_VisitsEveryUser() {
+        store.record(TEST_USER_ID, 1, 1, START_MILLIS);
+        store.record(OTHER_USER_ID, 2, 2, START_MILLIS);
+        store.record(OTHER_USER_ID, 3, 3, START_MILLIS + 1000);
+        final List<String> visited = new ArrayList<>();
+
+        store.forEachTrail(Long.MIN_VALUE, view -> visited.add(view.getUserId() + ":" + view.size()));
+
+        assertEquals(2, store.getUserCount());
+        assertTrue(visited.contains(TEST_USER_ID + ":1"));
+        assertTrue(visited.contains(OTHER_USER_ID + ":2"));
+        assertFalse(store.readTrail("unknown", view -> fail("Should not read a missing trail")));
+
+        store.remove(TEST_USER_ID);
+        assertEquals(0, store.getPointCount(TEST_USER_ID));
+    }
+
+    /**
+     * Tests that a view rejects indexes outside its window.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void view_RejectsIndexOutsideWindow() {
+        store.record(TEST_USER_ID, 1, 1, START_MILLIS);
+        store.readTrail(TEST_USER_ID, view -> view.getLatitude(1));
+    }
+
+    private List<Double> read(String userId, long sinceMillis) {
+        final List<Double> latitudes = new ArrayList<>();
+        store.readTrail(userId, sinceMillis, view -> {
+            for (int i = 0; i < view.size(); i++) {
+                latitudes.add(view.getLatitude(i));
+            }
+        });
+        return latitudes;
+    }
+}
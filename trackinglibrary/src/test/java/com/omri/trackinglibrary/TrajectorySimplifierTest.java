@@ -0,0 +1,121 @@
+package com.omri.trackinglibrary;
+
+import static org.junit.Assert.*;
+
+import com.omri.trackinglibrary.api.LocationUpdateRequest;
+import com.omri.trackinglibrary.filter.TrajectorySimplifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the TrajectorySimplifier class.
+ * Tests that straight stretches collapse to their endpoints while turns and per-user tracks are preserved.
+ */
+public class TrajectorySimplifierTest {
+    private static final String TEST_USER_ID = "507f1f77bcf86cd799439011";
+    private static final String OTHER_USER_ID = "507f1f77bcf86cd799439012";
+    private static final double TEST_LATITUDE = 32.109333;
+    private static final double TEST_LONGITUDE = 34.855499;
+
+    /**
+     * About 111 meters of latitude.
+     */
+    private static final double STEP = 0.001;
+
+    private TrajectorySimplifier simplifier;
+
+    /**
+     * Sets up a simplifier with a 10 meter tolerance.
+     */
+    @Before
+    public void setUp() {
+        simplifier = new TrajectorySimplifier(10);
+    }
+
+    /**
+     * Tests that the interior fixes of a straight track are dropped.
+     */
+    @Test
+    public void straightLine_keepsOnlyEndpoints() {
+        List<LocationUpdateRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            requests.add(new LocationUpdateRequest(TEST_USER_ID, TEST_LATITUDE + i * STEP, TEST_LONGITUDE));
+        }
+
+        boolean[] keep = simplifier.simplify(requests);
+
+        assertArrayEquals(new boolean[]{true, false, false, false, true}, keep);
+    }
+
+    /**
+     * Tests that small jitter within the tolerance is dropped.
+     */
+    @Test
+    public void jitterWithinTolerance_isDropped() {
+        List<LocationUpdateRequest> requests = Arrays.asList(
+                new LocationUpdateRequest(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE),
+                new LocationUpdateRequest(TEST_USER_ID, TEST_LATITUDE + STEP, TEST_LONGITUDE + 0.00005),
+                new LocationUpdateRequest(TEST_USER_ID, TEST_LATITUDE + 2 * STEP, TEST_LONGITUDE));
+
+        boolean[] keep = simplifier.simplify(requests);
+
+        assertArrayEquals(new boolean[]{true, false, true}, keep);
+    }
+
+    /**
+     * Tests that the corner of a turn is kept.
+     */
+    @Test
+    public void turn_keepsCorner() {
+        List<LocationUpdateRequest> requests = Arrays.asList(
+                new LocationUpdateRequest(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE),
+                new LocationUpdateRequest(TEST_USER_ID, TEST_LATITUDE + STEP, TEST_LONGITUDE),
+                new LocationUpdateRequest(TEST_USER_ID, TEST_LATITUDE + 2 * STEP, TEST_LONGITUDE),
+                new LocationUpdateRequest(TEST_USER_ID, TEST_LATITUDE + 2 * STEP, TEST_LONGITUDE + STEP),
+                new LocationUpdateRequest(TEST_USER_ID, TEST_LATITUDE + 2 * STEP, TEST_LONGITUDE + 2 * STEP));
+
+        boolean[] keep = simplifier.simplify(requests);
+
+        assertArrayEquals(new boolean[]{true, false, true, false, true}, keep);
+    }
+
+    /**
+     * Tests that interleaved updates of different users are simplified as separate tracks.
+     */
+    @Test
+    public void interleavedUsers_simplifiedSeparately() {
+        List<LocationUpdateRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            requests.add(new LocationUpdateRequest(TEST_USER_ID, TEST_LATITUDE + i * STEP, TEST_LONGITUDE));
+            requests.add(new LocationUpdateRequest(OTHER_USER_ID, TEST_LATITUDE, TEST_LONGITUDE + i * STEP));
+        }
+
+        boolean[] keep = simplifier.simplify(requests);
+
+        assertArrayEquals(new boolean[]{true, true, false, false, true, true}, keep);
+    }
+
+    /**
+     * Tests that short tracks are returned unchanged.
+     */
+    @Test
+    public void shortTracks_areKept() {
+        List<LocationUpdateRequest> requests = Arrays.asList(
+                new LocationUpdateRequest(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE),
+                new LocationUpdateRequest(TEST_USER_ID, TEST_LATITUDE, TEST_LONGITUDE));
+
+        assertArrayEquals(new boolean[]{true, true}, simplifier.simplify(requests));
+        assertEquals(0, simplifier.simplify(new ArrayList<>()).length);
+    }
+
+    /**
+     * Tests that a negative tolerance is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeTolerance_throwsException() {
+        new TrajectorySimplifier(-1);
+    }
+}